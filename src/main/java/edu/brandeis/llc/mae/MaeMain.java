@@ -24,6 +24,7 @@
 
 package edu.brandeis.llc.mae;
 
+import edu.brandeis.llc.mae.controller.MaeControlException;
 import edu.brandeis.llc.mae.controller.MaeMainController;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -93,6 +94,19 @@ public class MaeMain {
                 String tFilename = null;
                 String dFilename = null;
                 Collections.addAll(argsList, args);
+                // --db sqlite|shared|memory
+                if (argsList.contains("--db")) {
+                    int dbTypeIndex = argsList.indexOf("--db") + 1;
+                    try {
+                        if (dbTypeIndex >= argsList.size()) {
+                            throw new MaeControlException("--db requires one of sqlite, shared, memory");
+                        }
+                        controller.overrideDBType(argsList.get(dbTypeIndex));
+                    } catch (MaeControlException e) {
+                        controller.showError(e);
+                        return;
+                    }
+                }
                 if (argsList.contains("--task")) {
                     tFilename = argsList.get(argsList.indexOf("--task") + 1);
                     argCmd = true;
@@ -60,6 +60,9 @@ public class MaeStrings {
     public final static String VERSION = getVersion();
     public final static String TITLE_PREFIX = "MAE " + VERSION;
     public final static String DB_DRIVER = "jdbc:sqlite:";
+    public final static String DB_TYPE_SQLITE = "sqlite";
+    public final static String DB_TYPE_MEMORY = "memory";
+    public final static String DB_TYPE_SHARED = "shared";
     public static String newTempTestDBFile() throws IOException {
         return File.createTempFile("mae-test-db", ".db").getAbsolutePath();
     }
@@ -32,13 +32,12 @@ import edu.brandeis.llc.mae.agreement.io.XMLParseCache;
 import edu.brandeis.llc.mae.database.MaeDBException;
 import edu.brandeis.llc.mae.database.MaeDriverI;
 import edu.brandeis.llc.mae.io.MaeIOException;
-import edu.brandeis.llc.mae.io.MaeIOXMLException;
 import edu.brandeis.llc.mae.io.MaeXMLParser;
+import edu.brandeis.llc.mae.io.PrimaryTextDigest;
 import edu.brandeis.llc.mae.util.FileHandler;
 import edu.brandeis.llc.mae.util.MappedSet;
 import edu.brandeis.llc.mae.agreement.calculator.*;
 import org.xml.sax.SAXException;
-import org.xml.sax.SAXParseException;
 
 import java.io.File;
 import java.io.IOException;
@@ -83,8 +82,15 @@ public class MaeAgreementMain {
         fileIdx.approveAnnotator(annotatorId);
     }
 
+    /**
+     * Parses every annotation file of the dataset exactly once, then validates
+     * task names and primary texts from the cached parses, recording the
+     * length of each document along the way.
+     */
     public void loadXmlFiles() throws MaeIOException, IOException, SAXException, MaeDBException {
 
+        parseCache = new XMLParseCache(driver, fileIdx);
+        parseCache.prefetchAll();
         String invalidTaskNameFile = validateTaskNames(driver.getTaskName());
         String invalidPrimaryTextFile = validateTextSharing();
         if (!invalidTaskNameFile.equals(SUCCESS)) {
@@ -93,31 +99,31 @@ public class MaeAgreementMain {
         if (!invalidPrimaryTextFile.equals(SUCCESS)) {
             throw new MaeIOException("XML file has different primary text: " + invalidPrimaryTextFile);
         }
-        parseCache = new XMLParseCache(driver, fileIdx);
     }
 
     public Map<String, String> getParseWarnings() {
         return parseCache.getParseWarnings();
     }
 
-    String validateTaskNames(String taskName) throws IOException, SAXException, MaeIOXMLException {
-        MaeXMLParser parser = new MaeXMLParser();
+    String validateTaskNames(String taskName) throws IOException, SAXException, MaeDBException {
         for (String docName : fileIdx.getDocumentNames()) {
-            for (String fileName : fileIdx.getAnnotationsOfDocument(docName)) {
-                try {
-                    if (fileName != null && !parser.isTaskNameMatching(new File(fileName), taskName)) {
-                        return fileName;
-                    }
-                } catch (SAXParseException e) {
-                    throw new MaeIOXMLException(String.format("Invalid XML string (%s): %s", e.getMessage(), fileName));
+            String[] fileNames = fileIdx.getAnnotationsOfDocument(docName);
+            MaeXMLParser[] parses = parseCache.getParses(docName);
+            for (int i = 0; i < fileNames.length; i++) {
+                if (fileNames[i] != null && !parses[i].getParsedTaskName().equals(taskName)) {
+                    return fileNames[i];
                 }
             }
         }
         return SUCCESS;
     }
 
-    String validateTextSharing() throws IOException, SAXException, MaeIOXMLException {
-        MaeXMLParser parser = new MaeXMLParser();
+    /**
+     * Compares digests of primary texts of all annotations of each document.
+     * Returns {@link #SUCCESS} if they all match, or otherwise the first file
+     * with a different text, along with where its text starts to differ.
+     */
+    String validateTextSharing() throws IOException, SAXException, MaeDBException {
         documentLength = new int[fileIdx.getDocumentNames().size()];
         int curDoc = 0;
         for (String docName : fileIdx.getDocumentNames()) {
@@ -126,16 +132,18 @@ public class MaeAgreementMain {
             if (seen == -1) {
                 continue;
             }
-            parser.readAnnotationPreamble(new File(fileNames[seen++]));
-            String primaryText = parser.getParsedPrimaryText();
-            documentLength[curDoc++] = primaryText.length();
+            MaeXMLParser[] parses = parseCache.getParses(docName);
+            String firstFileName = fileNames[seen];
+            PrimaryTextDigest primaryText = parses[seen++].getParsedPrimaryTextDigest();
+            documentLength[curDoc++] = primaryText.getLength();
             for (int i = seen; i < fileNames.length; i++) {
-                try {
-                    if (fileNames[i] != null && !parser.isPrimaryTextMatching(new File(fileNames[i]), primaryText)) {
-                        return fileNames[i];
-                    }
-                } catch (SAXParseException e) {
-                    throw new MaeIOXMLException(String.format("Invalid XML string (%s): %s", e.getMessage(), fileNames[i]));
+                if (fileNames[i] == null) {
+                    continue;
+                }
+                int mismatch = primaryText.getFirstMismatchOffset(parses[i].getParsedPrimaryTextDigest());
+                if (mismatch >= 0) {
+                    return String.format("%s (differs from %s at or after character %d)",
+                            fileNames[i], firstFileName, mismatch);
                 }
             }
         }
@@ -101,8 +101,9 @@ public abstract class AbstractCodingAgreementCalc extends AbstractMaeAgreementCa
 
     List<ParsedTag> getTagsOfTagTypesAndSpans(int[] spans, Collection<String> tagTypeNames, MaeXMLParser parse) {
         if (parse != null) {
-            return parse.getParsedTags().stream().filter(
-                    tag -> tagTypeNames.contains(tag.getTagTypeName()) && Arrays.equals(tag.getSpans(), spans)
+            // looks up only tags at the spans, instead of streaming over all tags of the annotator
+            return parse.getParsedIndex().getTagsAt(spans).stream().filter(
+                    tag -> tagTypeNames.contains(tag.getTagTypeName())
             ).collect(Collectors.toList());
         }
         return new ArrayList<>();
@@ -212,8 +213,8 @@ public abstract class AbstractCodingAgreementCalc extends AbstractMaeAgreementCa
     }
 
     void fillAllAttValueOfTid(MaeXMLParser annotation, int annotatorIdx, String tid, Map<String, String[]> attAnnotationsMap) {
-        for (ParsedAtt att : annotation.getParsedAtts()) {
-            if (att.getTid().equals(tid) && attAnnotationsMap.containsKey(att.getAttTypeName())) {
+        for (ParsedAtt att : annotation.getParsedIndex().getAttsOf(tid)) {
+            if (attAnnotationsMap.containsKey(att.getAttTypeName())) {
                 String attTypeName = att.getAttTypeName();
                 if (att.getAttValue() != null && att.getAttValue().length() > 0) {
                     attAnnotationsMap.get(attTypeName)[annotatorIdx] = att.getAttValue();
@@ -228,8 +229,12 @@ public abstract class AbstractCodingAgreementCalc extends AbstractMaeAgreementCa
 
     void concatThenFillAllAttValueOfTids(MaeXMLParser annotation, int annotatorIdx, Collection< String> tids, Map<String, String[]> attAnnotationsMap) {
         MappedList<String, String> markedAttByAttName = new MappedList<>();
-        for (ParsedAtt att : annotation.getParsedAtts()) {
-            if (tids.contains(att.getTid()) && attAnnotationsMap.containsKey(att.getAttTypeName())) {
+        List<ParsedAtt> attsOfTids = new ArrayList<>();
+        for (String tid : new LinkedHashSet<>(tids)) {
+            attsOfTids.addAll(annotation.getParsedIndex().getAttsOf(tid));
+        }
+        for (ParsedAtt att : attsOfTids) {
+            if (attAnnotationsMap.containsKey(att.getAttTypeName())) {
                 String attTypeName = att.getAttTypeName();
                 String attValue = att.getAttValue();
                 if (attValue == null || attValue.length() <= 0) {
@@ -28,6 +28,7 @@ import edu.brandeis.llc.mae.agreement.io.AbstractAnnotationIndexer;
 import edu.brandeis.llc.mae.agreement.io.XMLParseCache;
 import edu.brandeis.llc.mae.database.MaeDBException;
 import edu.brandeis.llc.mae.io.MaeXMLParser;
+import edu.brandeis.llc.mae.io.ParsedAnnotationIndex;
 import edu.brandeis.llc.mae.io.ParsedAtt;
 import edu.brandeis.llc.mae.io.ParsedTag;
 import edu.brandeis.llc.mae.util.MappedSet;
@@ -72,16 +73,21 @@ public abstract class AbstractUnitizationAgreementCalc extends AbstractMaeAgreem
 
     }
 
+    /**
+     * Adds spans of each tag of the given type as units labeled with the value
+     * of the given attribute of that tag. Attributes are looked up by tid from
+     * the index of each parse, so this runs in linear time to the number of tags.
+     */
     void addAttAsUnits(String tagTypeName, String attTypeName, MaeXMLParser[] annotations, int textOffset, UnitizingAnnotationStudy study) {
 
         int annotator = 0;
         for (MaeXMLParser parse : annotations) {
             if (parse != null) {
+                ParsedAnnotationIndex index = parse.getParsedIndex();
                 for (ParsedTag tag : parse.getParsedTags()) {
                     if (tag.getTagTypeName().equalsIgnoreCase(tagTypeName) && tag.getSpans().length > 0) {
-                        for (ParsedAtt att : parse.getParsedAtts()) {
-                            if (att.getTagTypeName().equalsIgnoreCase(tag.getTagTypeName()) &&
-                                    att.getAttTypeName().equalsIgnoreCase(attTypeName)) {
+                        for (ParsedAtt att : index.getAttsOf(tag.getTid())) {
+                            if (att.getAttTypeName().equalsIgnoreCase(attTypeName)) {
                                 for (int[] pair : SpanHandler.convertArrayToPairs(tag.getSpans())) {
                                     study.addUnit(pair[0] + textOffset, pair[1] - pair[0], annotator, att.getAttValue());
                                 }
@@ -26,18 +26,34 @@ package edu.brandeis.llc.mae.agreement.io;
 
 import edu.brandeis.llc.mae.database.MaeDBException;
 import edu.brandeis.llc.mae.database.MaeDriverI;
+import edu.brandeis.llc.mae.io.MaeIOException;
+import edu.brandeis.llc.mae.io.MaeIOXMLException;
 import edu.brandeis.llc.mae.io.MaeXMLParser;
 import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Created by krim on 4/23/2016.
+ *
+ * Documents are parsed lazily, the first time a calculator asks for them,
+ * unless {@link #prefetchAll()} has already parsed every annotation file
+ * of the dataset over a bounded pool of threads.
  */
 public class XMLParseCache {
+    private static final int PREFETCH_THREADS = Runtime.getRuntime().availableProcessors();
+
     private Map<String, MaeXMLParser[]> parseCache;
     private MaeDriverI driver;
     private AbstractAnnotationIndexer fileIdx;
@@ -46,8 +62,8 @@ public class XMLParseCache {
     public XMLParseCache(MaeDriverI driver, AbstractAnnotationIndexer fileIdx) {
         this.driver = driver;
         this.fileIdx = fileIdx;
-        this.parseCache = new HashMap<>();
-        this.parseWarnings = new HashMap<>();
+        this.parseCache = new ConcurrentHashMap<>();
+        this.parseWarnings = new ConcurrentHashMap<>();
     }
 
     public MaeXMLParser[] getParses(String docName) throws IOException, SAXException, MaeDBException {
@@ -68,17 +84,87 @@ public class XMLParseCache {
         for (int i = 0; i < xmlFilesToCache.length; i++) {
             String fileName = xmlFilesToCache[i];
             if (fileName != null) {
-                MaeXMLParser parser = new MaeXMLParser(driver);
-                parser.readAnnotationFile(new File(fileName));
-                parses[i] = parser;
-                if (parser.getParseWarnings().length() > 0) {
-                    this.parseWarnings.put(fileName, parser.getParseWarnings());
-                }
+                parses[i] = parseXMLFile(fileName);
             }
         }
         return parses;
     }
 
+    private MaeXMLParser parseXMLFile(String fileName) throws MaeDBException, IOException, SAXException {
+        MaeXMLParser parser = new MaeXMLParser(driver);
+        parser.readAnnotationFile(new File(fileName));
+        // primary texts are compared by their digests, no need to keep a copy for each annotator
+        parser.releaseParsedPrimaryText();
+        if (parser.getParseWarnings().length() > 0) {
+            this.parseWarnings.put(fileName, parser.getParseWarnings());
+        }
+        return parser;
+    }
+
+    /**
+     * Parses annotation files of all documents not cached yet, in parallel.
+     * Each file is parsed in its own task, but parses are cached in the same
+     * order of annotators as {@link #getParses(String)} would have cached them.
+     * A malformed file is reported with its name as a {@link MaeIOXMLException}.
+     */
+    public void prefetchAll() throws MaeIOException, MaeDBException, IOException, SAXException {
+        Map<String, List<Future<MaeXMLParser>>> pending = new LinkedHashMap<>();
+        ExecutorService pool = Executors.newFixedThreadPool(PREFETCH_THREADS);
+        try {
+            for (String docName : fileIdx.getDocumentNames()) {
+                if (parseCache.containsKey(docName)) {
+                    continue;
+                }
+                List<Future<MaeXMLParser>> parses = new ArrayList<>();
+                for (String fileName : fileIdx.getAnnotationsOfDocument(docName)) {
+                    parses.add(fileName == null ? null : pool.submit(() -> {
+                        try {
+                            return parseXMLFile(fileName);
+                        } catch (SAXParseException e) {
+                            throw new MaeIOXMLException(String.format("Invalid XML string (%s): %s", e.getMessage(), fileName), e);
+                        }
+                    }));
+                }
+                pending.put(docName, parses);
+            }
+            for (String docName : pending.keySet()) {
+                List<Future<MaeXMLParser>> futures = pending.get(docName);
+                MaeXMLParser[] parses = new MaeXMLParser[futures.size()];
+                for (int i = 0; i < parses.length; i++) {
+                    if (futures.get(i) != null) {
+                        parses[i] = getPrefetched(futures.get(i));
+                    }
+                }
+                parseCache.put(docName, parses);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private MaeXMLParser getPrefetched(Future<MaeXMLParser> future) throws MaeIOException, MaeDBException, IOException, SAXException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while parsing annotation files", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof MaeIOException) {
+                throw (MaeIOException) cause;
+            } else if (cause instanceof MaeDBException) {
+                throw (MaeDBException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof SAXException) {
+                throw (SAXException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
     public Map<String, String> getParseWarnings() {
         return this.parseWarnings;
     }
@@ -30,7 +30,9 @@ import edu.brandeis.llc.mae.MaeStrings;
 import edu.brandeis.llc.mae.controller.tablepanel.HighlightToggleListener;
 import edu.brandeis.llc.mae.controller.tablepanel.TablePanelController;
 import edu.brandeis.llc.mae.controller.textpanel.TextPanelController;
+import edu.brandeis.llc.mae.database.InMemoryDriverImpl;
 import edu.brandeis.llc.mae.database.LocalSqliteDriverImpl;
+import edu.brandeis.llc.mae.database.SharedSqliteDatabase;
 import edu.brandeis.llc.mae.database.MaeDBException;
 import edu.brandeis.llc.mae.database.MaeDriverI;
 import edu.brandeis.llc.mae.io.MaeIOException;
@@ -38,7 +40,6 @@ import edu.brandeis.llc.mae.model.*;
 import edu.brandeis.llc.mae.preferences.MaeBooleanOption;
 import edu.brandeis.llc.mae.preferences.MaePreferences;
 import edu.brandeis.llc.mae.util.ColorHandler;
-import edu.brandeis.llc.mae.util.MappedSet;
 import edu.brandeis.llc.mae.util.SpanHandler;
 import edu.brandeis.llc.mae.view.MaeMainView;
 import edu.brandeis.llc.mae.view.TablePanelView;
@@ -55,6 +56,8 @@ import java.io.*;
 import java.util.*;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Pattern;
 
 /**
@@ -96,12 +99,20 @@ public class MaeMainController extends JPanel {
     );
 
     private final static String PREF_FILE_NAME = "." + File.separator + "mae.pref";
+    // snapshots of in-memory drivers, kept until the document is saved
+    private final static File SNAPSHOT_DIR = new File(System.getProperty("user.home"), ".mae-snapshots");
+    // idle time after the last edit before a snapshot is taken
+    private final static int SNAPSHOT_DELAY = 2000;
 
     private MaePreferences prefs;
+    // from the command line, applies to this session only
+    private String dbTypeOverride;
     // database connectors
     private List<MaeDriverI> drivers;
 
     private MaeDriverI currentDriver;
+    // when not null, all drivers store their annotations in this single DB
+    private SharedSqliteDatabase sharedDatabase;
     private final int adjudDriverIndex = 0;
     private ColorHandler textHighlighColors;
 
@@ -110,6 +121,9 @@ public class MaeMainController extends JPanel {
     private ColorHandler documentTabColors;
     private Set<Tag> adjudicatingTags;
     private boolean isAdjudicating;
+    private Timer snapshotTimer;
+    private Set<InMemoryDriverImpl> driversToSnapshot;
+    private ExecutorService snapshotWriter;
     public MaeMainController() {
 
         drivers = new ArrayList<>();
@@ -124,6 +138,15 @@ public class MaeMainController extends JPanel {
         // also, handler starts with black color, which will be used for GS file tab
         documentTabColors = new ColorHandler(6, true);
 
+        driversToSnapshot = new LinkedHashSet<>();
+        snapshotTimer = new Timer(SNAPSHOT_DELAY, event -> snapshotEditedDrivers());
+        snapshotTimer.setRepeats(false);
+        snapshotWriter = Executors.newSingleThreadExecutor(runnable -> {
+            Thread writer = new Thread(runnable, "mae-snapshot-writer");
+            writer.setDaemon(true);
+            return writer;
+        });
+
         try {
             readUserPrefs();
         } catch (MaeIOException e) {
@@ -216,6 +239,11 @@ public class MaeMainController extends JPanel {
                 prefs.saveDir = "";
             }
         }
+        if (prefs.dbType != null && !isKnownDBType(prefs.dbType)) {
+            logger.error(String.format("Unknown DB type in preferences: \"%s\". Defaults to %s",
+                    prefs.dbType, MaeStrings.DB_TYPE_SQLITE));
+            prefs.dbType = MaeStrings.DB_TYPE_SQLITE;
+        }
     }
 
     public void setWindowFrame(JFrame mainFrame) {
@@ -388,11 +416,125 @@ public class MaeMainController extends JPanel {
     public void updateSavedStatusInTextPanel() {
         try {
             getTextPanel().updateTabTitles(isAdjudicating());
-        } catch (MaeDBException e) {
+            scheduleSnapshot();
+        } catch (MaeException e) {
             showError(e);
         }
     }
 
+    private void scheduleSnapshot() {
+        // in-memory drivers have nothing on disk, keep a copy of unsaved work for crash recovery,
+        // but only once edits settle down, as serializing costs as much as the whole document
+        if (isDocumentOpen() && getDriver() instanceof InMemoryDriverImpl && getDriver().isAnnotationChanged()) {
+            driversToSnapshot.add((InMemoryDriverImpl) getDriver());
+            snapshotTimer.restart();
+        }
+    }
+
+    /**
+     * Serializes edited in-memory drivers on the EDT, where all edits happen,
+     * and hands the serialized copies to a background writer.
+     */
+    private void snapshotEditedDrivers() {
+        for (InMemoryDriverImpl driver : driversToSnapshot) {
+            if (!getDrivers().contains(driver) || !driver.isAnnotationChanged()) {
+                continue;
+            }
+            try {
+                final File snapshotFile = driver.getSnapshotFile();
+                final String snapshot = driver.takeSnapshot();
+                if (snapshot != null) {
+                    snapshotWriter.execute(() -> {
+                        try {
+                            InMemoryDriverImpl.writeSnapshotFile(snapshotFile, snapshot);
+                        } catch (MaeIOException e) {
+                            showError(e);
+                        }
+                    });
+                }
+            } catch (MaeDBException e) {
+                showError(e);
+            }
+        }
+        driversToSnapshot.clear();
+    }
+
+    /**
+     * Removes the snapshot of a driver, after its annotations are successfully saved
+     * (or a user declines to restore them), and points the driver to the snapshot
+     * file of its current annotation file name, which can change by saving as a new file.
+     * Deletions are queued behind pending snapshot writes, so that an older snapshot
+     * cannot reappear afterwards.
+     */
+    public void discardSnapshotOf(MaeDriverI driver) throws MaeDBException {
+        if (driver instanceof InMemoryDriverImpl) {
+            InMemoryDriverImpl memoryDriver = (InMemoryDriverImpl) driver;
+            driversToSnapshot.remove(memoryDriver);
+            File current = InMemoryDriverImpl.getSnapshotFileFor(
+                    SNAPSHOT_DIR, driver.getTaskName(), driver.getAnnotationFileName());
+            queueSnapshotDeletion(memoryDriver.getSnapshotFile());
+            if (!current.equals(memoryDriver.getSnapshotFile())) {
+                queueSnapshotDeletion(current);
+                memoryDriver.setSnapshotFile(current);
+            }
+        }
+    }
+
+    private void queueSnapshotDeletion(final File snapshotFile) {
+        if (snapshotFile != null) {
+            snapshotWriter.execute(() -> {
+                if (!InMemoryDriverImpl.deleteSnapshotFile(snapshotFile)) {
+                    logger.error("snapshot file is not deleted: " + snapshotFile.getAbsolutePath());
+                }
+            });
+        }
+    }
+
+    /**
+     * Points an in-memory driver to the snapshot file of its task and document,
+     * and if a previous session left one there, offers to restore it.
+     * This is called from a worker thread while a document is being opened.
+     *
+     * @return warnings from reading the snapshot if restored, null otherwise
+     */
+    private String offerSnapshotRestore(MaeDriverI driver) throws MaeException {
+        if (!(driver instanceof InMemoryDriverImpl)) {
+            return null;
+        }
+        InMemoryDriverImpl memoryDriver = (InMemoryDriverImpl) driver;
+        memoryDriver.setSnapshotFile(InMemoryDriverImpl.getSnapshotFileFor(
+                SNAPSHOT_DIR, driver.getTaskName(), driver.getAnnotationFileName()));
+        if (!memoryDriver.hasSnapshot()) {
+            return null;
+        }
+        String message = String.format(
+                "Unsaved annotations of \n%s\n from a previous session are found. Do you want to restore them?",
+                driver.getAnnotationFileBaseName());
+        if (confirmOnEDT(message)) {
+            String warnings = memoryDriver.restoreSnapshot();
+            logger.info("annotations are restored from a snapshot: " + memoryDriver.getSnapshotFile());
+            return warnings;
+        }
+        discardSnapshotOf(driver);
+        return null;
+    }
+
+    private boolean confirmOnEDT(String message) throws MaeControlException {
+        if (SwingUtilities.isEventDispatchThread()) {
+            return showWarning(message);
+        }
+        final boolean[] response = new boolean[1];
+        try {
+            SwingUtilities.invokeAndWait(() -> response[0] = showWarning(message));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MaeControlException("Interrupted while waiting for an answer: " + message);
+        } catch (java.lang.reflect.InvocationTargetException e) {
+            throw new MaeControlException("Failed to ask: " + message, e);
+        }
+        return response[0];
+    }
+
     public int getMode() {
         return mode;
     }
@@ -628,7 +770,7 @@ public class MaeMainController extends JPanel {
                 setAdjudicating(false);
                 getTablePanel().prepareAllTables();
                 getTablePanel().insertAllTags();
-                assignAllFGColor();
+                assignAllFGColorInBackground();
                 sendNotification(MaeStrings.SB_NORM_MODE_NOTI);
                 getMenu().resetMenus(MaeStrings.MENU_FILE);
             } catch (MaeException e) {
@@ -655,24 +797,84 @@ public class MaeMainController extends JPanel {
         sendWaitMessage();
         new WipeDriversWorker(drivers).execute(); // destroy existing drivers in BG
         drivers = new ArrayList<>();
+        sharedDatabase = null;
         new SetUpTaskWorker(taskFile).execute();
 
     }
 
     private void addAndSwitchDriver(MaeDriverI driver) {
+        // spans touched by tag changes are re-colored by the text panel
+        driver.addTagChangeListener(getTextPanel().getTagChangeRecoloring());
         currentDriver = driver;
         drivers.add(currentDriver);
     }
 
+    public String getDBType() {
+        if (dbTypeOverride != null) {
+            return dbTypeOverride;
+        }
+        return prefs.dbType == null ? MaeStrings.DB_TYPE_SQLITE : prefs.dbType;
+    }
+
+    static boolean isKnownDBType(String dbType) {
+        return MaeStrings.DB_TYPE_SQLITE.equals(dbType)
+                || MaeStrings.DB_TYPE_SHARED.equals(dbType)
+                || MaeStrings.DB_TYPE_MEMORY.equals(dbType);
+    }
+
+    private static void checkDBType(String dbType) throws MaeControlException {
+        if (!isKnownDBType(dbType)) {
+            throw new MaeControlException(String.format("Unknown DB type: \"%s\", use one of %s, %s, %s",
+                    dbType, MaeStrings.DB_TYPE_SQLITE, MaeStrings.DB_TYPE_SHARED, MaeStrings.DB_TYPE_MEMORY));
+        }
+    }
+
+    /**
+     * Sets the DB backend and stores it in user preferences for later launches.
+     */
+    public void setDBType(String dbType) throws MaeControlException {
+        checkDBType(dbType);
+        prefs.dbType = dbType;
+        try {
+            writeUserPrefs();
+        } catch (MaeIOException e) {
+            showError(e);
+        }
+    }
+
+    /**
+     * Sets the DB backend for this session only, leaving user preferences as they are.
+     */
+    public void overrideDBType(String dbType) throws MaeControlException {
+        checkDBType(dbType);
+        dbTypeOverride = dbType;
+    }
+
     private MaeDriverI setUpDriver(File taskFile) throws MaeException {
         String dbFilename = String.format("mae-%d", System.currentTimeMillis());
-        File dbFile;
-        try {
-            dbFile = File.createTempFile(dbFilename, ".sqlite");
-        } catch (IOException e) {
-            throw new MaeIOException("Could not generate DB file:", e);
+        MaeDriverI driver;
+        if (getDBType().equals(MaeStrings.DB_TYPE_MEMORY)) {
+            // no DB file, the snapshot file is set once a document is open
+            driver = new InMemoryDriverImpl(dbFilename);
+        } else if (getDBType().equals(MaeStrings.DB_TYPE_SHARED)) {
+            if (sharedDatabase == null || sharedDatabase.isClosed()) {
+                try {
+                    sharedDatabase = new SharedSqliteDatabase(
+                            File.createTempFile(dbFilename, ".sqlite").getAbsolutePath());
+                } catch (IOException e) {
+                    throw new MaeIOException("Could not generate DB file:", e);
+                }
+            }
+            driver = new LocalSqliteDriverImpl(sharedDatabase);
+        } else {
+            File dbFile;
+            try {
+                dbFile = File.createTempFile(dbFilename, ".sqlite");
+            } catch (IOException e) {
+                throw new MaeIOException("Could not generate DB file:", e);
+            }
+            driver = new LocalSqliteDriverImpl(dbFile.getAbsolutePath());
         }
-        MaeDriverI driver = new LocalSqliteDriverImpl(dbFile.getAbsolutePath());
         try {
             driver.readTask(taskFile);
             logger.info(String.format("task \"%s\" is loaded, has %d extent tag definitions and %d link tag definitions",
@@ -739,6 +941,10 @@ public class MaeMainController extends JPanel {
             xmlParseWarnings = getDriver().readAnnotation(annotationFile);
             logger.info(String.format("document \"%s\" is loaded into DB.",
                     getDriver().getAnnotationFileBaseName()));
+            String restoreWarnings = offerSnapshotRestore(getDriver());
+            if (restoreWarnings != null) {
+                xmlParseWarnings = restoreWarnings;
+            }
 
         } catch (Exception e) {
             destroyIncompleteDriver(); // this includes resetting statBar
@@ -798,8 +1004,8 @@ public class MaeMainController extends JPanel {
                 currentDriver = drivers.get(adjudDriverIndex);
                 assignAdjudicationColors();
             } else {
-                assignAllFGColor();
-                logger.info("painting is done");
+                assignAllFGColorInBackground();
+                logger.info("painting is started in background");
                 showCurrentDocumentIncompleteTagsWarning(true);
             }
 
@@ -873,56 +1079,116 @@ public class MaeMainController extends JPanel {
         getTextPanel().assignAllFGColor();
     }
 
+    void assignAllFGColorInBackground() {
+        getTextPanel().assignAllFGColorInBackground();
+    }
+
     void assignAdjudicationColors() throws MaeDBException {
         // TODO: 2016-02-20 11:09:09EST clear coloring is extremely slow: need optimization
         getTextPanel().clearColoring();
         getTextPanel().clearSelection();
         TagType type = getAdjudicatingTagType();
-        Set<Integer> goldAnchors = new HashSet<>(getDriver().getAllAnchorLocationsOfTagType(type));
-        paintOverlappingStat(type, goldAnchors);
-        paintGoldTags(goldAnchors);
+        BitSet goldAnchors = getDriver().getAllAnchorLocationsOfTagTypeAsBitSet(type);
+        if (getTextPanel().isLazyColoring()) {
+            List<BitSet> annotatorAnchors = getAnnotatorAnchors(type);
+            getTextPanel().paintLazily((start, end) -> {
+                BitSet region = new BitSet();
+                region.set(start, end);
+                paintOverlappingStat(region, annotatorAnchors, goldAnchors);
+                region.and(goldAnchors);
+                paintGoldTags(region);
+            });
+        } else {
+            paintOverlappingStat(type, goldAnchors);
+            paintGoldTags(goldAnchors);
+        }
+    }
+
+    void paintGoldTags(BitSet goldAnchors) {
+        getTextPanel().assignOverlappingColorOver(goldAnchors, ColorHandler.getVividForeground(), false);
+    }
+
+    void surgicallyPaintOveralppingStat(int[] targetSpans, TagType type, BitSet goldAnchors) throws MaeDBException {
+        surgicallyPaintOveralppingStat(SpanHandler.convertArrayToBitSet(targetSpans), type, goldAnchors);
+    }
+
+    void surgicallyPaintOveralppingStat(BitSet targetSpans, TagType type, BitSet goldAnchors) throws MaeDBException {
+        paintOverlappingStat(targetSpans, getAnnotatorAnchors(type), goldAnchors);
     }
 
-    void paintGoldTags(Collection<Integer> goldAnchors) {
-        for (Integer goldAnchor : goldAnchors) {
-            getTextPanel().assignOverlappingColorAt(goldAnchor, ColorHandler.getVividForeground(), false);
+    /**
+     * Returns anchors of a tag type in each document, indexed as drivers.
+     * 0th is the driver for gold, left empty.
+     */
+    private List<BitSet> getAnnotatorAnchors(TagType type) throws MaeDBException {
+        List<BitSet> annotatorAnchors = new ArrayList<>(getDrivers().size());
+        annotatorAnchors.add(new BitSet());
+        for (int i = 1; i < getDrivers().size(); i++) {
+            annotatorAnchors.add(getDriverAt(i).getAllAnchorLocationsOfTagTypeAsBitSet(type));
         }
-//        getTextPanel().assignOverlappingColorOver(new LinkedList<>(goldAnchors), ColorHandler.getVividForeground(), false);
+        return annotatorAnchors;
     }
 
-    void surgicallyPaintOveralppingStat(int[] targetSpans, TagType type,  Collection<Integer> goldAnchors) throws MaeDBException {
-        MappedSet<Integer, Integer> anchorToDriverIndex = new MappedSet<>();
-        TreeSet<Integer> spans = new TreeSet<>();
-        for (int i : targetSpans) {
-            spans.add(i);
+    /**
+     * Paints agreement status of non-gold annotations over target locations.
+     * For each location only the number of annotators and the last one of them
+     * are tracked, in arrays as long as the target range.
+     */
+    private void paintOverlappingStat(BitSet targetSpans, List<BitSet> annotatorAnchors, BitSet goldAnchors) {
+        BitSet spans = (BitSet) targetSpans.clone();
+        if (goldAnchors != null) {
+            spans.andNot(goldAnchors);
+        }
+        int rangeStart = spans.nextSetBit(0);
+        if (rangeStart < 0) {
+            return;
         }
-        spans.removeAll(goldAnchors);
+        int rangeLength = spans.length() - rangeStart;
+        int[] numDrivers = new int[rangeLength];
+        int[] lastDriverIndex = new int[rangeLength];
         // 0th is the driver for gold, skipping.
-        for (int i = 1; i < getDrivers().size(); i++) {
-            MaeDriverI driver = getDriverAt(i);
-            List<Integer> anchors = driver.getAllAnchorLocationsOfTagType(type);
-            for (Integer anchor : anchors) {
-                if (spans.contains(anchor)) {
-                    anchorToDriverIndex.putItem(anchor, i);
-                }
+        for (int i = 1; i < annotatorAnchors.size(); i++) {
+            BitSet anchors = (BitSet) spans.clone();
+            anchors.and(annotatorAnchors.get(i));
+            for (int anchor = anchors.nextSetBit(0); anchor >= 0; anchor = anchors.nextSetBit(anchor + 1)) {
+                numDrivers[anchor - rangeStart]++;
+                lastDriverIndex[anchor - rangeStart] = i;
             }
         }
-        for (Integer anchor : anchorToDriverIndex.keySet()) {
-            Set<Integer> drivers = (Set<Integer>) anchorToDriverIndex.get(anchor);
-            if (drivers.size() == 1) {
-                Integer driverIndex = drivers.iterator().next();
-                getTextPanel().assignOverlappingColorAt(anchor, documentTabColors.getColor(driverIndex), false);
-            } else if (drivers.size() == getDrivers().size() - 1) { // full overlap
-                getTextPanel().assignOverlappingColorAt(anchor, ColorHandler.getFadingForeground(), true);
+        // group locations by the style to paint, so that each group is painted in runs
+        BitSet[] singleAnchors = new BitSet[annotatorAnchors.size()];
+        BitSet fullOverlaps = new BitSet();
+        BitSet partialOverlaps = new BitSet();
+        for (int offset = 0; offset < rangeLength; offset++) {
+            int anchor = rangeStart + offset;
+            if (numDrivers[offset] == 0) {
+                continue;
+            }
+            if (numDrivers[offset] == 1) {
+                int driverIndex = lastDriverIndex[offset];
+                if (singleAnchors[driverIndex] == null) {
+                    singleAnchors[driverIndex] = new BitSet();
+                }
+                singleAnchors[driverIndex].set(anchor);
+            } else if (numDrivers[offset] == annotatorAnchors.size() - 1) { // full overlap
+                fullOverlaps.set(anchor);
             } else { // partial overlap
-                getTextPanel().assignOverlappingColorAt(anchor, ColorHandler.getFadingForeground(), false);
+                partialOverlaps.set(anchor);
+            }
+        }
+        for (int i = 1; i < singleAnchors.length; i++) {
+            if (singleAnchors[i] != null) {
+                getTextPanel().assignOverlappingColorOver(singleAnchors[i], documentTabColors.getColor(i), false);
             }
         }
+        getTextPanel().assignOverlappingColorOver(fullOverlaps, ColorHandler.getFadingForeground(), true);
+        getTextPanel().assignOverlappingColorOver(partialOverlaps, ColorHandler.getFadingForeground(), false);
     }
 
-    void paintOverlappingStat(TagType type, Set<Integer> goldAnchors) throws MaeDBException {
-        surgicallyPaintOveralppingStat(
-                SpanHandler.range(0, getDriver().getPrimaryText().length()), type, goldAnchors);
+    void paintOverlappingStat(TagType type, BitSet goldAnchors) throws MaeDBException {
+        BitSet wholeText = new BitSet();
+        wholeText.set(0, getDriver().getPrimaryText().length());
+        surgicallyPaintOveralppingStat(wholeText, type, goldAnchors);
     }
 
     public void switchAnnotationDocument(int tabId) {
@@ -1000,6 +1266,9 @@ public class MaeMainController extends JPanel {
     public List<ExtentTag> getNCTagsOfATypeFromAllDocuments(TagType type) {
         List<ExtentTag> nctags = new LinkedList<>();
         try {
+            if (sharedDatabase != null) {
+                return sharedDatabase.getAllNCTagsOfType(type);
+            }
             for (MaeDriverI driver : getDrivers()) {
                 nctags.addAll(driver.getAllNCTagsOfType(type));
             }
@@ -1013,6 +1282,9 @@ public class MaeMainController extends JPanel {
     public List<ExtentTag> getExtentTagsOfATypeFromAllDocumentsIn(TagType type, int[] locations) {
         List<ExtentTag> tags = new LinkedList<>();
         try {
+            if (sharedDatabase != null) {
+                return sharedDatabase.getTagsOfTypeIn(type, locations);
+            }
             for (MaeDriverI driver : getDrivers()) {
                 tags.addAll(driver.getTagsOfTypeIn(type, locations));
             }
@@ -1026,6 +1298,9 @@ public class MaeMainController extends JPanel {
     public List<ExtentTag> getExtentTagsFromAllDocumentsIn(int[] locations) {
         Set<ExtentTag> tags = new HashSet<>();
         try {
+            if (sharedDatabase != null) {
+                return sharedDatabase.getTagsIn(locations);
+            }
             for (MaeDriverI driver : getDrivers()) {
                 tags.addAll(driver.getTagsIn(locations));
             }
@@ -1053,9 +1328,8 @@ public class MaeMainController extends JPanel {
         String notification;
         int[] unselected = getTextPanel().undoSelection();
         if (unselected != null) {
-            removeAllBGColors();
-            addBGColorOver(getSelectedTextSpans(), ColorHandler.getDefaultHighlighter());
-            addBGColorOver(unselected, ColorHandler.getFadingHighlighter());
+            replaceBGColors(Arrays.asList(getSelectedTextSpans(), unselected),
+                    Arrays.asList(ColorHandler.getDefaultHighlighter(), ColorHandler.getFadingHighlighter()));
             notification = String.format(
                     "Removed '%s' from selection! Click anywhere to continue."
                     , getTextIn(unselected));
@@ -1085,8 +1359,15 @@ public class MaeMainController extends JPanel {
     }
 
     public void assignTextColorsOver(List<Integer> anchors) {
+        assignTextColorsOver(SpanHandler.convertIntegersToBitSet(anchors));
+    }
+
+    public void assignTextColorsOver(BitSet anchors) {
         try {
-            if (anchors.size() > 100) {
+            if (anchors.cardinality() > 100 && getTextPanel().isLazyColoring()) {
+                // only what's on the screen is re-colored now, the rest when scrolled to
+                getTextPanel().invalidateLazyColoring();
+            } else if (anchors.cardinality() > 100) {
                 getTextPanel().massivelyAssignFGColors(anchors);
             } else {
                 getTextPanel().assignFGColorOver(anchors);
@@ -1120,20 +1401,20 @@ public class MaeMainController extends JPanel {
         }
     }
 
-    List<Integer> getAnchorsToRepaint() {
-        Set<Integer> toRepaint = new HashSet<>();
+    BitSet getAnchorsToRepaint() {
+        BitSet toRepaint = new BitSet();
         Set<TagType> currentlyActivated = getTablePanel().getActiveTags();
         for (TagType type : coloredTagsInLastDocument.keySet()) {
             if ((currentlyActivated.contains(type) && !coloredTagsInLastDocument.get(type))
                     || (!currentlyActivated.contains(type) && coloredTagsInLastDocument.get(type))) {
                 try {
-                    toRepaint.addAll(getDriver().getAllAnchorLocationsOfTagType(type));
+                    toRepaint.or(getDriver().getAllAnchorLocationsOfTagTypeAsBitSet(type));
                 } catch (MaeDBException e) {
                     showError(e);
                 }
             }
         }
-        return new ArrayList<>(toRepaint);
+        return toRepaint;
     }
 
     public Color getDocumentColor(String documentName) {
@@ -1175,7 +1456,7 @@ public class MaeMainController extends JPanel {
         getTextHighlightColors().setColor(newColor, tagsForColor.indexOf(tagType));
         if (getTablePanel().getActiveExtentTags().contains(tagType)) {
             try {
-                assignTextColorsOver(getDriver().getAllAnchorLocationsOfTagType(tagType));
+                assignTextColorsOver(getDriver().getAllAnchorLocationsOfTagTypeAsBitSet(tagType));
             } catch (MaeDBException e) {
                 showError(e);
             }
@@ -1199,6 +1480,19 @@ public class MaeMainController extends JPanel {
         }
     }
 
+    public void replaceBGColors(List<int[]> spansList, List<Highlighter.HighlightPainter> painters) {
+        try {
+            getTextPanel().replaceBGColors(spansList, painters);
+        } catch (MaeControlException e) {
+            showError(e);
+        }
+    }
+
+    public void replaceBGColors(List<Integer> spans, Highlighter.HighlightPainter painter) {
+        replaceBGColors(Collections.singletonList(SpanHandler.convertIntegerlistToIntegerarray(spans)),
+                Collections.singletonList(painter));
+    }
+
     public void removeAllBGColors() {
         getTextPanel().removeAllBGColors();
     }
@@ -1295,8 +1589,13 @@ public class MaeMainController extends JPanel {
     }
 
     void propagateToAnnotationArea() {
-        getTablePanel().clearTableSelections();
-        List<ExtentTag> releventTags = getExtentTagsInSelectedSpans();
+        propagateToAnnotationArea(getExtentTagsInSelectedSpans());
+    }
+
+    /**
+     * Selects rows of given tags, looked up from the current text selection, in the tables.
+     */
+    public void propagateToAnnotationArea(List<ExtentTag> releventTags) {
         getTablePanel().clearTableSelections();
         for (ExtentTag tag : releventTags) {
             try {
@@ -1308,9 +1607,8 @@ public class MaeMainController extends JPanel {
     }
 
     public void propagateSelectionFromTablePanel(String tid) {
-        removeAllBGColors();
         try {
-            addBGColorOver(getDriver().getAnchorLocationsByTid(tid), ColorHandler.getVividHighliter());
+            replaceBGColors(getDriver().getAnchorLocationsByTid(tid), ColorHandler.getVividHighliter());
         } catch (Exception e) {
             showError(e);
         }
@@ -1399,14 +1697,9 @@ public class MaeMainController extends JPanel {
             }
             getTablePanel().insertNewTagIntoTable(tag, tagType);
             if (isAdjudicating() && tag.getTagtype().isExtent()) {
-                paintGoldTags(((ExtentTag) tag).getSpansAsList());
+                paintGoldTags(((ExtentTag) tag).getSpansAsBitSet());
             } else {
                 selectTagAndTable(tag);
-                if (tagType.isExtent()) {
-                    assignTextColorsOver(((ExtentTag) tag).getSpansAsList());
-                } else {
-
-                }
             }
             updateSavedStatusInTextPanel();
             if (normalModeOnCreation.isEnabled()) {
@@ -1427,7 +1720,9 @@ public class MaeMainController extends JPanel {
             logger.info(String.format(
                     "adding an argument %s of type \"%s\" to %s", arg.toString(), argType.getName(), linker.getId()));
             getDriver().addArgument(linker, argType, arg);
-            assignTextColorsOver(arg.getSpansAsList());
+            if (isAdjudicating()) {
+                assignTextColorsOver(arg.getSpansAsBitSet());
+            }
         } catch (MaeDBException e) {
             showError(e);
         }
@@ -1468,7 +1763,7 @@ public class MaeMainController extends JPanel {
             AttributeType attType = getDriver().getAttributeTypeOfTagTypeByName(type, attTypeName);
             getDriver().addAttribute(newTag, attType, attMap.get(attTypeName));
         }
-        paintGoldTags(newTag.getSpansAsList());
+        paintGoldTags(newTag.getSpansAsBitSet());
 //        adjudicationStatUpdate();
         return newTag;
     }
@@ -1500,7 +1795,7 @@ public class MaeMainController extends JPanel {
                         // copyExtentTag() will re-color the gold argument
                     } else {
                         // when not copying, do re-color only
-                        paintGoldTags(newArg.getSpansAsList());
+                        paintGoldTags(newArg.getSpansAsBitSet());
                     }
                     getDriver().addArgument(newTag, argType, newArg);
                 }
@@ -1533,9 +1828,6 @@ public class MaeMainController extends JPanel {
         logger.debug(String.format("removing DB row: \"%s\"", tag.getId()));
         try {
             getDriver().deleteTag(tag);
-            if (!isAdjudicating()) {
-                getTextPanel().repaintFGColor(tag);
-            }
             updateSavedStatusInTextPanel();
         } catch (MaeDBException e) {
             showError(e);
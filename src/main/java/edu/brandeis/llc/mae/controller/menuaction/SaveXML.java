@@ -27,32 +27,20 @@ package edu.brandeis.llc.mae.controller.menuaction;
 import edu.brandeis.llc.mae.controller.MaeMainController;
 import edu.brandeis.llc.mae.database.MaeDBException;
 import edu.brandeis.llc.mae.database.MaeDriverI;
-import edu.brandeis.llc.mae.model.ExtentTag;
-import edu.brandeis.llc.mae.model.LinkTag;
-import edu.brandeis.llc.mae.model.TagType;
+import edu.brandeis.llc.mae.io.MaeFileWriter;
+import edu.brandeis.llc.mae.io.MaeIOException;
 
 import javax.swing.*;
 import java.awt.event.ActionEvent;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.OutputStreamWriter;
 
 /**
  * Writes all of current annotation into an XML file. Will set unsaved status of the
  * current document to 'false'. XML formatted string of each tag is generated by Tag
- * classes, but concatenating them into a single file happens in this class.
+ * classes, and concatenating them into a single file happens in {@link MaeFileWriter}.
  */
 public class SaveXML extends MaeActionI {
 
-    private static String xmlHeader = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n\n<%s>\n";
-    // tried embed dtd source in the xml, but that fails XML parser to successfully parse
-    // <!DOCTYPE root_element SYSTEM "DTD_filename">\
-    // <!DOCTYPE root_element PUBLIC "DTD_name" "DTD_location">
-    // see https://xmlwriter.net/xml_guide/doctype_declaration.shtml
-    private static String xmlText = "<TEXT><![CDATA[%s]]></TEXT>\n<TAGS>\n";
-    private static String xmlTail = "</TAGS>\n</%s>";
-
     public SaveXML(String text, ImageIcon icon, KeyStroke hotkey, Integer mnemonic, MaeMainController controller) {
         super(text, icon, hotkey, mnemonic, controller);
     }
@@ -75,31 +63,13 @@ public class SaveXML extends MaeActionI {
 
     }
 
-    void exportXML(File file) throws MaeDBException, IOException {
-        getMainController().getDriver().setAnnotationChanged(false);
-        getMainController().getDriver().setAnnotationFileName(file.getAbsolutePath());
-        OutputStreamWriter fw = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
-        fw.write(generateXMLString());
-        fw.close();
-    }
-
-    String generateXMLString() throws MaeDBException {
+    void exportXML(File file) throws MaeDBException, MaeIOException {
         MaeDriverI driver = getMainController().getDriver();
-        String head = String.format(xmlHeader, driver.getTaskName());
-        String text = String.format(xmlText, driver.getPrimaryText());
-        String tail = String.format(xmlTail, driver.getTaskName());
-        StringBuilder tags = new StringBuilder();
-        for (TagType eType : driver.getExtentTagTypes()) {
-            for (ExtentTag tag : driver.getAllExtentTagsOfType(eType)) {
-                tags.append(tag.toXmlString()).append("\n");
-            }
-        }
-        for (TagType lType : driver.getLinkTagTypes()) {
-            for (LinkTag tag : driver.getAllLinkTagsOfType(lType)) {
-                tags.append(tag.toXmlString()).append("\n");
-            }
-        }
-        return head + text + tags + tail;
+        driver.setAnnotationChanged(false);
+        driver.setAnnotationFileName(file.getAbsolutePath());
+        MaeFileWriter.writeAnnotationXML(driver, file);
+        // unsaved work is now on disk, crash recovery copy is no longer needed
+        getMainController().discardSnapshotOf(driver);
     }
 
     String getXMLFileName() throws MaeDBException {
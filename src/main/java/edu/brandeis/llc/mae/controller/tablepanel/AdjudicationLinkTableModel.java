@@ -72,9 +72,7 @@ class AdjudicationLinkTableModel extends LinkTagTableModel implements Adjudicati
     @Override
     public void clearTable() {
         goldTagRows.clear();
-        for (int row = getRowCount() - 1; row >= 0; row--) {
-            removeRow(row);
-        }
+        clearRows();
     }
 
     @Override
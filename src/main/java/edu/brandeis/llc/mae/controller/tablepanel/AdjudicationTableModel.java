@@ -80,9 +80,7 @@ class AdjudicationTableModel extends TagTableModel implements AdjudicationTableM
     @Override
     public void clearTable() {
         goldTagRows.clear();
-        for (int row = getRowCount() - 1; row >= 0; row--) {
-            removeRow(row);
-        }
+        clearRows();
     }
 
     @Override
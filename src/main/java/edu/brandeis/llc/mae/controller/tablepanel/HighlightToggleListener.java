@@ -34,6 +34,7 @@ import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.BitSet;
 
 /**
  * Created by krim on 1/11/2017.
@@ -123,8 +124,8 @@ public class HighlightToggleListener extends MouseAdapter implements ItemListene
 
     }
 
-    private java.util.List<Integer> getRelevantAnchors() throws MaeDBException {
-        return tablePanelController.getDriver().getAllAnchorLocationsOfTagType(tagType);
+    private BitSet getRelevantAnchors() throws MaeDBException {
+        return tablePanelController.getDriver().getAllAnchorLocationsOfTagTypeAsBitSet(tagType);
 
     }
 
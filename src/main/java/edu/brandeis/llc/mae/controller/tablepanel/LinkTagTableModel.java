@@ -86,10 +86,7 @@ class LinkTagTableModel extends TagTableModel {
             tablePanelController.getMainController().removeAllBGColors();
             try {
                 List<Integer> newSpans = tablePanelController.getDriver().getAnchorLocationsByTid(tid);
-                tablePanelController.getMainController().assignTextColorsOver(oldSpans);
-                tablePanelController.getMainController().assignTextColorsOver(newSpans);
-                tablePanelController.getMainController().removeAllBGColors();
-                tablePanelController.getMainController().addBGColorOver(newSpans, ColorHandler.getVividHighliter());
+                tablePanelController.getMainController().replaceBGColors(newSpans, ColorHandler.getVividHighliter());
             } catch (MaeDBException e) {
                 tablePanelController.getMainController().showError(e);
             }
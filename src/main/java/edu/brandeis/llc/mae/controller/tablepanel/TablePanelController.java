@@ -45,6 +45,7 @@ import javax.swing.text.StyleConstants;
 import java.awt.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Created by krim on 12/31/2015.
@@ -183,10 +184,7 @@ public class TablePanelController extends MaeControllerI {
                 }
 
             }
-            int stored = model.getRowCount();
-            for (int row = stored - 1; row >= 0; row--) {
-                model.removeRow(row);
-            }
+            model.clearRows();
         }
 
     }
@@ -197,7 +195,11 @@ public class TablePanelController extends MaeControllerI {
         }
         for (TagType type : tabOrder) {
             TagTableModel tagTypeTableModel = (TagTableModel) tableMap.get(type.getName()).getModel();
-            new TableBatchInsertSwingWorker(tagTypeTableModel, getDriver().getAllExtentTagsOfType(type)).execute();
+            // tags are fetched a page at a time by the worker
+            Iterable<? extends Tag> tags = type.isExtent() ?
+                    getDriver().getAllExtentTagsOfType(type, MaeDriverI.DEFAULT_PAGE_SIZE) :
+                    getDriver().getAllLinkTagsOfType(type, MaeDriverI.DEFAULT_PAGE_SIZE);
+            new TableBatchInsertSwingWorker(tagTypeTableModel, tags).execute();
         }
         addMouseListeners();
         addTableModelListeners();
@@ -352,19 +354,25 @@ public class TablePanelController extends MaeControllerI {
     }
 
     public void selectTagFromTable(Tag tag) throws MaeDBException {
-        JTable table = tableMap.get(tag.getTagTypeName());
-        TagTableModel tableModel = (TagTableModel) table.getModel();
-        int viewIndex = table.convertRowIndexToView(tableModel.searchForRowByTid(tag.getId()));
-        table.addRowSelectionInterval(viewIndex, viewIndex);
-        table.scrollRectToVisible(table.getCellRect(viewIndex, 0, true));
+        selectTagFromTable(tag.getTagTypeName(), tag.getId());
         if (tag.getTagtype().isExtent()) {
             selectTagFromAllTagsTable(tag.getId());
-            for (LinkTag link : getDriver().getLinksHasArgumentTag((ExtentTag) tag)) {
-                selectTagFromTable(link);
+            // linkers are known from the driver's argument index, no need to fetch them
+            Map<String, TagType> linkers = getDriver().getLinkersOfArgumentTag((ExtentTag) tag);
+            for (Map.Entry<String, TagType> linker : linkers.entrySet()) {
+                selectTagFromTable(linker.getValue().getName(), linker.getKey());
             }
         }
     }
 
+    private void selectTagFromTable(String tagTypeName, String tid) {
+        JTable table = tableMap.get(tagTypeName);
+        TagTableModel tableModel = (TagTableModel) table.getModel();
+        int viewIndex = table.convertRowIndexToView(tableModel.searchForRowByTid(tid));
+        table.addRowSelectionInterval(viewIndex, viewIndex);
+        table.scrollRectToVisible(table.getCellRect(viewIndex, 0, true));
+    }
+
     private void selectTagFromAllTagsTable(String tid) {
         JTable table = tableMap.get(MaeStrings.ALL_TABLE_TAB_BACK_NAME);
         UneditableTableModel tableModel = (UneditableTableModel) table.getModel();
@@ -651,9 +659,9 @@ public class TablePanelController extends MaeControllerI {
     public class TableBatchInsertSwingWorker extends SwingWorker<Void, Object[]> {
 
         private final TagTableModel tableModel;
-        private final Collection<? extends Tag> tagsToInsert;
+        private final Iterable<? extends Tag> tagsToInsert;
 
-        TableBatchInsertSwingWorker(TagTableModel tableModel, Collection<? extends Tag> tagsToInsert) {
+        TableBatchInsertSwingWorker(TagTableModel tableModel, Iterable<? extends Tag> tagsToInsert) {
             this.tableModel = tableModel;
             this.tagsToInsert = tagsToInsert;
         }
@@ -661,36 +669,70 @@ public class TablePanelController extends MaeControllerI {
         @Override
         protected Void doInBackground() {
             TagType type = tableModel.getAssociatedTagType();
-            if (type.isExtent()) {
-                TagTableModel allTagsModel = (TagTableModel)
-                        tableMap.get(MaeStrings.ALL_TABLE_TAB_BACK_NAME).getModel();
-                for (Tag tag : tagsToInsert) {
-                    try {
-                        String[] rowString
-                                = convertTagIntoTableRow(tag, tableModel, false);
-                        publish(new Object[]{tableModel, rowString});
-                        publish(new Object[]{allTagsModel,
-                                Arrays.copyOfRange(rowString, SRC_COL, TEXT_COL+1)});
-                    } catch (MaeDBException ignored) {
+            TagTableModel allTagsModel = type.isExtent() ?
+                    (TagTableModel) tableMap.get(MaeStrings.ALL_TABLE_TAB_BACK_NAME).getModel() : null;
+            List<String[]> rows = new ArrayList<>(MaeDriverI.DEFAULT_PAGE_SIZE);
+            List<String[]> allTagsRows = new ArrayList<>(MaeDriverI.DEFAULT_PAGE_SIZE);
+            for (Tag tag : tagsToInsert) {
+                try {
+                    String[] rowString = convertTagIntoTableRow(tag, tableModel, type.isLink());
+                    rows.add(rowString);
+                    if (type.isExtent()) {
+                        allTagsRows.add(Arrays.copyOfRange(rowString, SRC_COL, TEXT_COL+1));
                     }
+                } catch (MaeDBException ignored) {
                 }
-            } else {
-                for (Tag tag : tagsToInsert) {
-                    try {
-                        publish(new Object[]{tableModel, convertTagIntoTableRow(tag, tableModel, true)});
-                    } catch (MaeDBException ignored){
-                    }
+                if (rows.size() == MaeDriverI.DEFAULT_PAGE_SIZE) {
+                    publishBatch(rows, allTagsModel, allTagsRows);
+                    rows = new ArrayList<>(MaeDriverI.DEFAULT_PAGE_SIZE);
+                    allTagsRows = new ArrayList<>(MaeDriverI.DEFAULT_PAGE_SIZE);
                 }
             }
+            publishBatch(rows, allTagsModel, allTagsRows);
             return null;
         }
 
+        private void publishBatch(List<String[]> rows, TagTableModel allTagsModel, List<String[]> allTagsRows) {
+            if (rows.size() > 0) {
+                publish(new Object[]{tableModel, rows});
+            }
+            if (allTagsRows.size() > 0) {
+                publish(new Object[]{allTagsModel, allTagsRows});
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void process(List<Object[]> modelAndBatches) {
+            // batches coalesced by SwingWorker are merged, so that each model fires a single event
+            Map<TagTableModel, List<String[]>> rowsByModel = new LinkedHashMap<>();
+            for (Object[] modelAndBatch : modelAndBatches) {
+                TagTableModel model = (TagTableModel) modelAndBatch[0];
+                if (!rowsByModel.containsKey(model)) {
+                    rowsByModel.put(model, new ArrayList<String[]>());
+                }
+                rowsByModel.get(model).addAll((List<String[]>) modelAndBatch[1]);
+            }
+            for (TagTableModel model : rowsByModel.keySet()) {
+                model.addRows(rowsByModel.get(model));
+            }
+        }
+
         @Override
-        protected void process(List<Object[]> modelAndRows) {
-            for (Object[] modelAndRow : modelAndRows) {
-                TagTableModel model = (TagTableModel) modelAndRow[0];
-                String[] row = (String[]) modelAndRow[1];
-                model.addRow(row);
+        protected void done() {
+            try {
+                get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                // paged iterators wrap DB failures, rows inserted so far are kept in the table
+                Throwable cause = e.getCause();
+                if (cause instanceof IllegalStateException && cause.getCause() instanceof MaeDBException) {
+                    getMainController().showError((MaeDBException) cause.getCause());
+                } else {
+                    getMainController().showError(new MaeControlException(
+                            "Failed to fill a table of " + tableModel.getAssociatedTagType().getName(), cause));
+                }
             }
         }
     }
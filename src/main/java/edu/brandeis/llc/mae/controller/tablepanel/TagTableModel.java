@@ -34,10 +34,15 @@ import edu.brandeis.llc.mae.util.SpanHandler;
 
 import javax.swing.event.TableModelEvent;
 import javax.swing.event.TableModelListener;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -47,10 +52,21 @@ import java.util.Set;
  * In this basic model, user cannot edit id column and text column.
  * Also providing a listener method to listen to any changes in table values
  * caused by user edit.
+ * Cells are kept column by column, each column in a single array growing with
+ * the rows, so that no array is held per row, and cells are read from the
+ * columns on demand. Rows are indexed by their tag ids, and can be appended
+ * in batches, firing a single insertion event for each batch. This keeps
+ * filling a table with a large number of tags from flooding the table and its
+ * sorter with an event per row.
  */
-public class TagTableModel extends DefaultTableModel implements TableModelListener {
+public class TagTableModel extends AbstractTableModel implements TableModelListener {
     protected TablePanelController tablePanelController;
     protected TagType tagType;
+    private static final int INITIAL_CAPACITY = 16;
+    private final List<String> columnNames = new ArrayList<>();
+    private final List<Object[]> columns = new ArrayList<>();
+    private int rowCount = 0;
+    private final Map<String, Integer> rowsByTid = new HashMap<>();
 
     TagTableModel(TablePanelController tablePanelController, TagType tagType) {
         this.tablePanelController = tablePanelController;
@@ -70,6 +86,151 @@ public class TagTableModel extends DefaultTableModel implements TableModelListen
         return tagType.getName();
     }
 
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.size();
+    }
+
+    @Override
+    public String getColumnName(int col) {
+        return columnNames.get(col);
+    }
+
+    @Override
+    public Object getValueAt(int row, int col) {
+        checkRow(row);
+        return columns.get(col)[row];
+    }
+
+    @Override
+    public void setValueAt(Object value, int row, int col) {
+        checkRow(row);
+        if (col == TablePanelController.ID_COL) {
+            unindexRow(row);
+            columns.get(col)[row] = value;
+            indexRow(row);
+        } else {
+            columns.get(col)[row] = value;
+        }
+        fireTableCellUpdated(row, col);
+    }
+
+    public void addColumn(String colName) {
+        columnNames.add(colName);
+        columns.add(new Object[columns.isEmpty() ? INITIAL_CAPACITY : columns.get(0).length]);
+        fireTableStructureChanged();
+    }
+
+    public void addRow(Object[] rowData) {
+        appendRow(rowData);
+        fireTableRowsInserted(getRowCount() - 1, getRowCount() - 1);
+    }
+
+    /**
+     * Appends a batch of rows at the end of the table, notifying listeners only once.
+     */
+    public void addRows(List<? extends Object[]> rowsData) {
+        if (rowsData.isEmpty()) {
+            return;
+        }
+        int first = getRowCount();
+        ensureCapacity(first + rowsData.size());
+        for (Object[] rowData : rowsData) {
+            appendRow(rowData);
+        }
+        fireTableRowsInserted(first, getRowCount() - 1);
+    }
+
+    public void removeRow(int row) {
+        checkRow(row);
+        unindexRow(row);
+        for (Object[] column : columns) {
+            System.arraycopy(column, row + 1, column, row, rowCount - row - 1);
+            column[rowCount - 1] = null;
+        }
+        rowCount--;
+        reindexRowsFrom(row);
+        fireTableRowsDeleted(row, row);
+    }
+
+    /**
+     * Removes all rows at once, notifying listeners only once.
+     */
+    public void clearRows() {
+        if (rowCount == 0) {
+            return;
+        }
+        int last = getRowCount() - 1;
+        // let go of large columns, a table is usually cleared to be filled with another document
+        for (int col = 0; col < columns.size(); col++) {
+            columns.set(col, new Object[INITIAL_CAPACITY]);
+        }
+        rowCount = 0;
+        rowsByTid.clear();
+        fireTableRowsDeleted(0, last);
+    }
+
+    private void appendRow(Object[] rowData) {
+        ensureCapacity(rowCount + 1);
+        // values beyond the columns have nowhere to go
+        for (int col = 0; col < columns.size() && col < rowData.length; col++) {
+            columns.get(col)[rowCount] = rowData[col];
+        }
+        rowCount++;
+        indexRow(rowCount - 1);
+    }
+
+    private void ensureCapacity(int rows) {
+        for (int col = 0; col < columns.size(); col++) {
+            Object[] column = columns.get(col);
+            if (column.length < rows) {
+                columns.set(col, Arrays.copyOf(column, Math.max(rows, column.length * 2)));
+            }
+        }
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException(String.format("row %d of %d rows", row, rowCount));
+        }
+    }
+
+    private Object getTidAt(int row) {
+        return TablePanelController.ID_COL < columns.size() ? columns.get(TablePanelController.ID_COL)[row] : null;
+    }
+
+    private void indexRow(int row) {
+        Object tid = getTidAt(row);
+        if (tid != null && !rowsByTid.containsKey(tid.toString())) {
+            rowsByTid.put(tid.toString(), row);
+        }
+    }
+
+    private void unindexRow(int row) {
+        Object tid = getTidAt(row);
+        if (tid != null && Integer.valueOf(row).equals(rowsByTid.get(tid.toString()))) {
+            rowsByTid.remove(tid.toString());
+        }
+    }
+
+    private void reindexRowsFrom(int row) {
+        // a removal shifts every row below it up by one
+        Iterator<Integer> indexed = rowsByTid.values().iterator();
+        while (indexed.hasNext()) {
+            if (indexed.next() >= row) {
+                indexed.remove();
+            }
+        }
+        for (int i = row; i < getRowCount(); i++) {
+            indexRow(i);
+        }
+    }
+
     void updateRow(int row, String[] rowData) throws MaeControlException {
         if (this.getColumnCount() != rowData.length) {
             throw new MaeControlException(String.format("the data for a new row does not fit to \"%s\" table.", getAssociatedTagTypeName()));
@@ -80,12 +241,8 @@ public class TagTableModel extends DefaultTableModel implements TableModelListen
     }
 
     int searchForRowByTid(String tid) {
-        for (int row = 0; row < getRowCount(); row++) {
-            if (getValueAt(row, TablePanelController.ID_COL).equals(tid)) {
-                return row;
-            }
-        }
-        return getRowCount();
+        Integer row = rowsByTid.get(tid);
+        return row == null ? getRowCount() : row;
 
     }
 
@@ -162,11 +319,13 @@ public class TagTableModel extends DefaultTableModel implements TableModelListen
 
     String propagateToCurrentTableAndGetNewText(TableModelEvent event, String newValue, List<Integer> oldSpans) throws MaeException {
         String newText = updateTextColumnFromSpansChange(event.getFirstRow(), newValue);
-        tablePanelController.getMainController().assignTextColorsOver(oldSpans);
         List<Integer> newSpans = SpanHandler.convertIntegerarrayToIntegerlist(SpanHandler.convertStringToArray(newValue));
-        tablePanelController.getMainController().assignTextColorsOver(newSpans);
-        tablePanelController.getMainController().removeAllBGColors();
-        tablePanelController.getMainController().addBGColorOver(newSpans, ColorHandler.getVividHighliter());
+        if (tablePanelController.getMainController().isAdjudicating()) {
+            // otherwise the text panel is notified by the driver
+            tablePanelController.getMainController().assignTextColorsOver(oldSpans);
+            tablePanelController.getMainController().assignTextColorsOver(newSpans);
+        }
+        tablePanelController.getMainController().replaceBGColors(newSpans, ColorHandler.getVividHighliter());
         return newText;
     }
 
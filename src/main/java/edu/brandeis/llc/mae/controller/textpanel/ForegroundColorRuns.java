@@ -0,0 +1,178 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.controller.textpanel;
+
+import javax.swing.text.AttributeSet;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultStyledDocument;
+import javax.swing.text.Segment;
+import javax.swing.text.SimpleAttributeSet;
+import javax.swing.text.StyleConstants;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects foreground styles of characters in ascending order of locations
+ * and merges adjacent characters sharing the same color, underline and italic
+ * into runs. Each run is then applied to the document with a single
+ * setCharacterAttributes call. A high surrogate always drags its low surrogate
+ * into the same run.
+ */
+class ForegroundColorRuns {
+
+    private final DefaultStyledDocument document;
+    private final Segment text;
+    private final int textStart;
+    private final int textEnd;
+    private final Map<String, AttributeSet> styles;
+    private final List<int[]> runs;
+    private final List<AttributeSet> runStyles;
+
+    private int runStart = -1;
+    private int runEnd = -1;
+    private AttributeSet runStyle;
+
+    ForegroundColorRuns(DefaultStyledDocument document) {
+        this(document, 0, document.getLength());
+    }
+
+    /**
+     * Only reads the text between start and end (plus one character for a
+     * trailing surrogate pair), and ignores locations out of it.
+     */
+    ForegroundColorRuns(DefaultStyledDocument document, int start, int end) {
+        this.document = document;
+        this.text = new Segment();
+        int windowStart = Math.max(0, start);
+        int windowEnd = Math.min(document.getLength(), Math.max(end, windowStart) + 1);
+        try {
+            document.getText(windowStart, windowEnd - windowStart, text);
+        } catch (BadLocationException ignored) {
+            // an empty segment, every location will be out of the window
+            windowEnd = windowStart;
+        }
+        this.textStart = windowStart;
+        this.textEnd = windowEnd;
+        this.styles = new HashMap<>();
+        this.runs = new ArrayList<>();
+        this.runStyles = new ArrayList<>();
+    }
+
+    /**
+     * Adds a character (or a surrogate pair starting at the location) with its style.
+     * Locations must be given in ascending order, and ones out of the document are ignored.
+     */
+    void add(int location, Color color, boolean underline, boolean italic) {
+        addRange(location, location + 1, color, underline, italic);
+    }
+
+    /**
+     * Adds characters in [start, end) with the same style, in ascending order.
+     */
+    void addRange(int start, int end, Color color, boolean underline, boolean italic) {
+        start = Math.max(Math.max(start, runEnd), textStart);
+        end = Math.min(end, textEnd);
+        if (start >= end) {
+            return;
+        }
+        if (end < textEnd && Character.isHighSurrogate(charAt(end - 1))) {
+            end++;
+        }
+        AttributeSet style = getStyle(color, underline, italic);
+        if (start == runEnd && style == runStyle) {
+            runEnd = end;
+        } else {
+            closeRun();
+            runStart = start;
+            runEnd = end;
+            runStyle = style;
+        }
+    }
+
+    /**
+     * Applies all collected runs to the document and returns the number of style edits made.
+     */
+    int apply() {
+        closeRun();
+        for (int i = 0; i < runs.size(); i++) {
+            int[] run = runs.get(i);
+            document.setCharacterAttributes(run[0], run[1] - run[0], runStyles.get(i), false);
+        }
+        int edits = runs.size();
+        runs.clear();
+        runStyles.clear();
+        runStart = -1;
+        runEnd = -1;
+        return edits;
+    }
+
+    /**
+     * Tells if the location is already taken by the current run,
+     * as the low half of a surrogate pair, for example.
+     */
+    boolean isCovered(int location) {
+        return location >= runStart && location < runEnd;
+    }
+
+    int getTextStart() {
+        return textStart;
+    }
+
+    /**
+     * Returns the exclusive end of the text window read, locations from there are ignored.
+     */
+    int getTextEnd() {
+        return textEnd;
+    }
+
+    private void closeRun() {
+        if (runStyle != null) {
+            runs.add(new int[]{runStart, runEnd});
+            runStyles.add(runStyle);
+            runStyle = null;
+        }
+    }
+
+    private char charAt(int location) {
+        return text.array[text.offset + location - textStart];
+    }
+
+    private AttributeSet getStyle(Color color, boolean underline, boolean italic) {
+        String key = color.getRGB() + (underline ? "u" : "") + (italic ? "i" : "");
+        AttributeSet style = styles.get(key);
+        if (style == null) {
+            SimpleAttributeSet attributeSet = new SimpleAttributeSet();
+            StyleConstants.setForeground(attributeSet, color);
+            StyleConstants.setUnderline(attributeSet, underline);
+            StyleConstants.setItalic(attributeSet, italic);
+            style = attributeSet;
+            styles.put(key, style);
+        }
+        return style;
+    }
+}
@@ -26,22 +26,40 @@ package edu.brandeis.llc.mae.controller.textpanel;
 
 import edu.brandeis.llc.mae.controller.MaeMainController;
 import edu.brandeis.llc.mae.database.MaeDBException;
+import edu.brandeis.llc.mae.database.MaeDriverI;
+import edu.brandeis.llc.mae.model.ExtentTag;
 
+import javax.swing.*;
 import javax.swing.event.CaretEvent;
 import javax.swing.event.CaretListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Created by krim on 1/9/2017.
  */
 class TextPanelCaretListener implements CaretListener {
 
+    // caret events closer than this in milliseconds are propagated once, with the latest selection
+    static final int PROPAGATION_DELAY = 120;
+
     private TextPanelController textPanelController;
     private MaeMainController mainController;
+    private final Timer propagationTimer;
+    private SelectionLookupWorker lookupWorker;
+    // counts caret events, a lookup started before the latest event is stale
+    private int caretEvents = 0;
 
     TextPanelCaretListener(TextPanelController textPanelController,
                            MaeMainController mainController) {
         this.textPanelController = textPanelController;
         this.mainController = mainController;
+        propagationTimer = new Timer(PROPAGATION_DELAY, e -> propagateLatestSelection());
+        propagationTimer.setRepeats(false);
     }
 
     boolean acceptingSingleClick() {
@@ -52,6 +70,10 @@ class TextPanelCaretListener implements CaretListener {
     @Override
     public void caretUpdate(CaretEvent e) {
 
+        if (textPanelController.isSwappingDocument()) {
+            // restoring the caret over a recolored copy of the text, the selection is unchanged
+            return;
+        }
         try {
             if (e.getDot() != e.getMark()) { // that is, mouse is dragged and text is selected
                 addDraggedSelection(e.getDot(), e.getMark());
@@ -68,8 +90,11 @@ class TextPanelCaretListener implements CaretListener {
         } catch (MaeDBException ex) {
             mainController.showError(ex);
         }
+        // highlighting the selection is cheap, looking up tags in it is not
         textPanelController.repaintBGColor();
-        mainController.propagateSelectionFromTextPanel();
+        caretEvents++;
+        cancelLookup();
+        propagationTimer.restart();
     }
 
     void addDraggedSelection(int dot, int mark) throws MaeDBException {
@@ -81,4 +106,72 @@ class TextPanelCaretListener implements CaretListener {
         }
         textPanelController.addSelection(new int[]{start, end});
     }
+
+    private void cancelLookup() {
+        if (lookupWorker != null) {
+            lookupWorker.cancel(false);
+            lookupWorker = null;
+        }
+    }
+
+    private void propagateLatestSelection() {
+        if (mainController.isAdjudicating() || !mainController.isTextSelected()) {
+            // adjudication table is filled from all documents, and an empty selection needs no lookup
+            mainController.propagateSelectionFromTextPanel();
+            return;
+        }
+        lookupWorker = new SelectionLookupWorker();
+        lookupWorker.execute();
+    }
+
+    /**
+     * Tells if a lookup started with a driver, a selection and a count of caret events
+     * is stale, that is, any of them has changed since.
+     */
+    static boolean isStale(MaeDriverI driverAtStart, int[] spansAtStart, int eventsAtStart,
+                           MaeDriverI driver, int[] spans, int events) {
+        return eventsAtStart != events || driverAtStart != driver || !Arrays.equals(spansAtStart, spans);
+    }
+
+    /**
+     * Looks up tids in the selection off the EDT, using the span index only, then resolves
+     * them into tags on the EDT, where tags are edited, and selects them in the tables
+     * unless the selection is changed in the meantime.
+     */
+    private class SelectionLookupWorker extends SwingWorker<Set<String>, Void> {
+
+        private final MaeDriverI driver;
+        private final int[] spans;
+        private final int eventsAtStart;
+
+        SelectionLookupWorker() {
+            driver = mainController.getDriver();
+            spans = mainController.getSelectedTextSpans();
+            eventsAtStart = caretEvents;
+        }
+
+        @Override
+        protected Set<String> doInBackground() throws Exception {
+            return driver.getTidsIn(spans);
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled() || lookupWorker != this) {
+                return;
+            }
+            lookupWorker = null;
+            if (isStale(driver, spans, eventsAtStart,
+                    mainController.getDriver(), mainController.getSelectedTextSpans(), caretEvents)) {
+                return;
+            }
+            try {
+                List<ExtentTag> tags = new ArrayList<>(new TreeSet<>(driver.getExtentTagsByTids(get())));
+                mainController.propagateToAnnotationArea(tags);
+            } catch (InterruptedException | ExecutionException | MaeDBException ex) {
+                mainController.showError(ex);
+            }
+            mainController.updateNotificationArea();
+        }
+    }
 }
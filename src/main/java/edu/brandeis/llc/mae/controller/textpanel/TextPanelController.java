@@ -30,23 +30,26 @@ import edu.brandeis.llc.mae.controller.MaeControllerI;
 import edu.brandeis.llc.mae.controller.MaeMainController;
 import edu.brandeis.llc.mae.database.MaeDBException;
 import edu.brandeis.llc.mae.database.MaeDriverI;
+import edu.brandeis.llc.mae.database.TagChangeEvent;
+import edu.brandeis.llc.mae.database.TagChangeListener;
 import edu.brandeis.llc.mae.model.ExtentTag;
-import edu.brandeis.llc.mae.model.LinkTag;
-import edu.brandeis.llc.mae.model.Tag;
 import edu.brandeis.llc.mae.model.TagType;
 import edu.brandeis.llc.mae.util.ColorHandler;
 import edu.brandeis.llc.mae.util.FontHandler;
+import edu.brandeis.llc.mae.util.IntervalSet;
 import edu.brandeis.llc.mae.util.MappedSet;
 import edu.brandeis.llc.mae.util.SpanHandler;
 import edu.brandeis.llc.mae.view.DocumentTabTitle;
 import edu.brandeis.llc.mae.view.TextPanelView;
 
 import javax.swing.*;
+import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 import javax.swing.text.*;
 import java.awt.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Created by krim on 12/31/2015.
@@ -61,6 +64,28 @@ public class TextPanelController extends MaeControllerI {
     public static final Color DEFAULT_FONT_COLOR = Color.BLACK;
     public static final String DEFAULT_FONT_FAMILY = Font.MONOSPACED;
     private int currentFontSize = DEFAULT_FONT_SIZE;
+    private FullRecoloringWorker recoloringWorker;
+    // counts foreground edits on the shown document, to tell if a background re-coloring got stale
+    private int foregroundEdits = 0;
+    // documents longer than this are colored only around the viewport, as it is scrolled
+    public static final int LAZY_COLORING_THRESHOLD = 500000;
+    static final int LAZY_COLORING_MARGIN = 5000;
+    // documents longer than this are put into their tabs a chunk at a time, starting with the first screen
+    public static final int STREAMING_TAB_THRESHOLD = LAZY_COLORING_THRESHOLD;
+    static final int STREAMING_CHUNK_SIZE = 64 * 1024;
+    private ViewportColoring viewportColoring;
+    // a location to scroll to, once it is streamed into the current document
+    private int deferredScroll = -1;
+    // caret moves made while replacing the document are not user selections
+    private boolean swappingDocument = false;
+    private final TagChangeListener tagChangeRecoloring = this::recolorChangedSpans;
+
+    /**
+     * Paints a region [start, end) of the current document, used for lazy coloring.
+     */
+    public interface RegionPainter {
+        void paint(int start, int end) throws MaeDBException;
+    }
 
 
     public TextPanelController(MaeMainController mainController) throws MaeDBException {
@@ -77,27 +102,62 @@ public class TextPanelController extends MaeControllerI {
     }
 
     public void clearColoring() throws MaeDBException {
+        cancelBackgroundColoring();
+        stopLazyColoring();
         unassignAllFGColor();
         removeAllBGColors();
     }
 
     void repaintBGColor() {
         try {
-            removeAllBGColors();
-            addBGColorOver(selected, ColorHandler.getDefaultHighlighter());
+            replaceBGColors(Collections.singletonList(selected),
+                    Collections.singletonList(ColorHandler.getDefaultHighlighter()));
         } catch (MaeControlException ignored) {
             // possible MaeException chained from BadLocationException is ignored
         }
     }
 
-    public void repaintFGColor(Tag tag) throws MaeDBException {
-        if (tag.getTagtype().isExtent()) {
-            assignFGColorOver(((ExtentTag) tag).getSpansAsList());
-        } else {
-            for (ExtentTag arg : ((LinkTag) tag).getArgumentTags()) {
-                assignFGColorOver(arg.getSpansAsList());
-            }
+    /**
+     * Returns a listener to be added to each driver, that re-colors spans touched by
+     * a tag change of the driver of the current document.
+     */
+    public TagChangeListener getTagChangeRecoloring() {
+        return tagChangeRecoloring;
+    }
+
+    private void recolorChangedSpans(TagChangeEvent event) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(() -> recolorChangedSpans(event));
+            return;
+        }
+        if (!event.hasAffectedSpans() || event.getSource() != getDriver()
+                || getMainController().isAdjudicating()) {
+            // gold standard view is painted by the main controller
+            return;
         }
+        try {
+            assignFGColorOverPairs(event.getAffectedSpans());
+        } catch (MaeDBException e) {
+            getMainController().showError(e);
+        }
+    }
+
+    /**
+     * Re-colors characters in spans given as a flattened array of sorted start/end pairs.
+     * Tags anchored in the spans are fetched once, instead of one lookup per character.
+     */
+    void assignFGColorOverPairs(int[] pairs) throws MaeDBException {
+        Set<ExtentTag> tags = new TreeSet<>();
+        BitSet region = new BitSet();
+        for (int i = 0; i + 1 < pairs.length; i += 2) {
+            tags.addAll(getDriver().getTagsBetween(pairs[i], pairs[i + 1]));
+            region.set(pairs[i], pairs[i + 1]);
+        }
+        ActiveAnchorStyles styles = new ActiveAnchorStyles(getMainController());
+        styles.loadAnchorsOf(getDriver(), tags);
+        ForegroundColorRuns runs = new ForegroundColorRuns(getDocument(), pairs[0], pairs[pairs.length - 1]);
+        styles.addRuns(region, runs);
+        applyColorRuns(runs);
     }
 
     public void addGuideTab() {
@@ -139,6 +199,7 @@ public class TextPanelController extends MaeControllerI {
         selectionHistory.clear();
         setSelection(new int[0]);
         removeAllBGColors();
+        deferredScroll = -1;
     }
 
     public void clearCaret() {
@@ -207,7 +268,14 @@ public class TextPanelController extends MaeControllerI {
         JTabbedPane tabs = getView().getTabs();
         DocumentTabTitle title = new DocumentTabTitle(documentTitle, tabs);
         title.addCloseListener(new DocumentCloseListener(this.getMainController()));
-        getView().addTextTab(title, documentText, currentFontSize, !getMainController().isAdjudicating());
+        if (documentText != null && documentText.length() > STREAMING_TAB_THRESHOLD) {
+            int shown = chunkEnd(documentText, 0);
+            JTextPane pane = getView().addStreamingTextTab(
+                    title, documentText, shown, currentFontSize, !getMainController().isAdjudicating());
+            new StreamingTextWorker(pane, pane.getStyledDocument(), documentText, shown).execute();
+        } else {
+            getView().addTextTab(title, documentText, currentFontSize, !getMainController().isAdjudicating());
+        }
         addListeners();
         if (!getView().isAnyDocumentOpen()) {
             getView().getTabs().addChangeListener(new TextPanelTabSwitchListener(this.getMainController()));
@@ -417,23 +485,28 @@ public class TextPanelController extends MaeControllerI {
 
     public void removeAllBGColors() {
         getView().getHighlighter().removeAllHighlights();
+        getView().getSpanHighlights().clear();
 
     }
 
     void unassignAnchoredFGColors() throws MaeDBException {
-        List<Integer> anchorLocations = getDriver().getAllAnchorLocations();
-        int anchorIndex = 0;
-        while (anchorIndex < anchorLocations.size()) {
-            anchorIndex += setFGColorAtLocation(DEFAULT_FONT_COLOR, anchorLocations.get(anchorIndex), false, false);
+        BitSet anchorLocations = getDriver().getAllAnchorLocationsAsBitSet();
+        ForegroundColorRuns runs = new ForegroundColorRuns(getDocument());
+        int start = anchorLocations.nextSetBit(0);
+        while (start >= 0) {
+            int end = anchorLocations.nextClearBit(start);
+            runs.addRange(start, end, DEFAULT_FONT_COLOR, false, false);
+            start = anchorLocations.nextSetBit(end);
         }
+        applyColorRuns(runs);
     }
 
     void unassignAllFGColor() throws MaeDBException {
+        foregroundEdits++;
         int caretPos = getView().getDocumentPane().getCaretPosition();
-        getView().getDocumentPane().setStyledDocument(
+        replaceDocument(getView().getDocumentPane(),
                 FontHandler.stringToSimpleStyledDocument(getDriver().getPrimaryText(), DEFAULT_FONT_FAMILY, currentFontSize, Color.BLACK)
         );
-        getView().getDocumentPane().setCaretPosition(caretPos);
         try {
             Rectangle rect = getView().getDocumentPane().modelToView(caretPos);
             if (rect != null) {
@@ -443,7 +516,13 @@ public class TextPanelController extends MaeControllerI {
         }
     }
 
+    private void applyColorRuns(ForegroundColorRuns runs) {
+        foregroundEdits++;
+        runs.apply();
+    }
+
     private int setFGColorAtLocation(Color color, int location, boolean fullOverlap, boolean partialOverlap) {
+        foregroundEdits++;
         try {
             DefaultStyledDocument styleDoc = getDocument();
             SimpleAttributeSet attributeSet = new SimpleAttributeSet();
@@ -459,10 +538,18 @@ public class TextPanelController extends MaeControllerI {
     }
 
     void assignOverlappingColorOver(List<Integer> locations, Color srcColor, boolean fullOverlap) {
-        int locIndex = 0;
-        while (locIndex < locations.size()) {
-            locIndex += setFGColorAtLocation(srcColor, locations.get(locIndex), fullOverlap, false);
+        assignOverlappingColorOver(SpanHandler.convertIntegersToBitSet(locations), srcColor, fullOverlap);
+    }
+
+    public void assignOverlappingColorOver(BitSet locations, Color srcColor, boolean fullOverlap) {
+        ForegroundColorRuns runs = new ForegroundColorRuns(getDocument(), locations.nextSetBit(0), locations.length());
+        int start = locations.nextSetBit(0);
+        while (start >= 0) {
+            int end = locations.nextClearBit(start);
+            runs.addRange(start, end, srcColor, fullOverlap, false);
+            start = locations.nextSetBit(end);
         }
+        applyColorRuns(runs);
     }
 
     public void assignOverlappingColorAt(Integer location, Color srcColor, boolean fullOverlap) {
@@ -476,66 +563,197 @@ public class TextPanelController extends MaeControllerI {
     }
 
     public void assignAllFGColor() throws MaeDBException {
-        massivelyAssignFGColors(getDriver().getAllAnchorLocations());
+        if (isLazyColoring()) {
+            paintLazily(this::assignFGColorBetween);
+        } else {
+            massivelyAssignFGColors(getDriver().getAllAnchorLocationsAsBitSet());
+        }
 
     }
 
     void assignFGColorOf(TagType type) throws MaeDBException {
-        massivelyAssignFGColors(getDriver().getAllAnchorLocationsOfTagType(type));
+        if (isLazyColoring()) {
+            invalidateLazyColoring();
+        } else {
+            massivelyAssignFGColors(getDriver().getAllAnchorLocationsOfTagTypeAsBitSet(type));
+        }
     }
 
-    public void massivelyAssignFGColors(List<Integer> largeSpan) throws MaeDBException {
-        // TODO: 2019-04-04 This methods is still too slow (test with Toledo-eb dev example)
-        int locIndex = 0;
-        Set<TagType> activeTags = getMainController().getActiveExtentTags();
-        Set<TagType> activeLinks = getMainController().getActiveLinkTags();
+    public boolean isLazyColoring() {
+        return getView().getFullDocumentLength() > LAZY_COLORING_THRESHOLD;
+    }
 
-        MappedSet<Integer, TagType> existingAnchors = new MappedSet<>();
-        for (TagType tagType : activeTags) {
-            for (Integer anchor : getDriver().getAllAnchorLocationsOfTagType(tagType)) {
-                existingAnchors.putItem(anchor, tagType);
-            }
+    /**
+     * Returns where a chunk of a text starting at the offset ends, not splitting a surrogate pair.
+     */
+    static int chunkEnd(String text, int offset) {
+        int end = Math.min(text.length(), offset + STREAMING_CHUNK_SIZE);
+        if (end < text.length() && Character.isHighSurrogate(text.charAt(end - 1))) {
+            end++;
         }
+        return end;
+    }
 
-        MappedSet<Integer, TagType> existingArgumentAnchors = new MappedSet<>();
-        for (TagType tagType : activeLinks) {
-            for (Integer anchor : getDriver().getAllAnchorLocationsOfTagType(tagType)) {
-                existingArgumentAnchors.putItem(anchor, tagType);
-            }
+    /**
+     * Paints the visible region of the current document, plus a margin, with the painter
+     * right away, then the rest of the document piece by piece as it's scrolled into view.
+     * Painted regions are remembered, so each character is painted once until invalidated.
+     */
+    public void paintLazily(RegionPainter painter) throws MaeDBException {
+        stopLazyColoring();
+        viewportColoring = new ViewportColoring(getView().getDocumentPane(), painter);
+        viewportColoring.paintVisible();
+    }
+
+    /**
+     * Forgets painted regions and repaints the visible region with the current painter.
+     * If nothing is lazily painted in the current document, starts lazy foreground coloring.
+     */
+    public void invalidateLazyColoring() throws MaeDBException {
+        if (viewportColoring != null && viewportColoring.pane == getView().getDocumentPane()) {
+            viewportColoring.invalidate();
+        } else {
+            paintLazily(this::assignFGColorBetween);
         }
+    }
 
-        while (locIndex < largeSpan.size()) {
-            Integer location = largeSpan.get(locIndex);
-            boolean plural = false;
-            boolean argument = false;
-            Color c = DEFAULT_FONT_COLOR;
+    public void stopLazyColoring() {
+        if (viewportColoring != null) {
+            viewportColoring.uninstall();
+            viewportColoring = null;
+        }
+    }
 
-            if (existingAnchors.containsKey(location)) {
-                List<TagType> types = new ArrayList<>(existingAnchors.get(location));
-                if (types.size() > 0) {
-                    c = getMainController().getFGColor(types.get(0));
-                }
-                if (types.size() > 1) {
-                    plural = true;
-                }
-            }
-            if (existingArgumentAnchors.containsKey(location)) {
-                argument = true;
+    /**
+     * Re-colors all characters in [start, end), taking anchors only from tags in the range.
+     */
+    void assignFGColorBetween(int start, int end) throws MaeDBException {
+        ActiveAnchorStyles styles = new ActiveAnchorStyles(getMainController());
+        styles.loadAnchorsOf(getDriver(), getDriver().getTagsBetween(start, end));
+        BitSet region = new BitSet();
+        region.set(start, end);
+        ForegroundColorRuns runs = new ForegroundColorRuns(getDocument(), start, end);
+        styles.addRuns(region, runs);
+        applyColorRuns(runs);
+    }
+
+    public void massivelyAssignFGColors(List<Integer> largeSpan) throws MaeDBException {
+        massivelyAssignFGColors(SpanHandler.convertIntegersToBitSet(largeSpan));
+    }
+
+    /**
+     * Re-colors every location set in the given bitset. Anchors of active tag types
+     * are also held in bitsets, one per type, so that no location gets boxed.
+     * Neighboring characters of the same style are applied to the document as a run.
+     */
+    public void massivelyAssignFGColors(BitSet largeSpan) throws MaeDBException {
+        ActiveAnchorStyles styles = new ActiveAnchorStyles(getMainController());
+        styles.loadAnchors(getDriver());
+        ForegroundColorRuns runs = new ForegroundColorRuns(getDocument(), largeSpan.nextSetBit(0), largeSpan.length());
+        styles.addRuns(largeSpan, runs);
+        applyColorRuns(runs);
+    }
+
+    /**
+     * Colors the whole document in the background. A fully styled copy of the document
+     * is built off the EDT, then swapped into the text pane at once, keeping the caret
+     * and the scroll position. If the shown document is re-colored while the copy is being
+     * built, the copy is discarded and built again.
+     */
+    public void assignAllFGColorInBackground() {
+        cancelBackgroundColoring();
+        if (isLazyColoring()) {
+            // only a screenful is painted at a time, no need to build a copy
+            try {
+                paintLazily(this::assignFGColorBetween);
+            } catch (MaeDBException e) {
+                getMainController().showError(e);
             }
+            return;
+        }
+        try {
+            recoloringWorker = new FullRecoloringWorker();
+        } catch (MaeDBException e) {
+            getMainController().showError(e);
+            return;
+        }
+        recoloringWorker.execute();
+    }
 
-            locIndex += setFGColorAtLocation(c, location, plural, argument);
+    void cancelBackgroundColoring() {
+        if (recoloringWorker != null) {
+            recoloringWorker.cancel(false);
+            recoloringWorker = null;
         }
     }
 
+    private void swapDocument(JTextPane pane, StyledDocument document) {
+        JViewport viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, pane);
+        Point viewPosition = viewport == null ? null : viewport.getViewPosition();
+        replaceDocument(pane, document);
+        if (viewport != null) {
+            // setting the caret scrolls to it, restore the view after the new document is laid out
+            SwingUtilities.invokeLater(() -> viewport.setViewPosition(viewPosition));
+        }
+    }
+
+    /**
+     * Replaces the document of a pane with the same text, keeping the selected
+     * region (mark and dot) of the caret, without the caret listener taking
+     * the caret moves for a new selection.
+     */
+    void replaceDocument(JTextPane pane, StyledDocument document) {
+        int mark = pane.getCaret().getMark();
+        int dot = pane.getCaret().getDot();
+        swappingDocument = true;
+        try {
+            pane.setStyledDocument(document);
+            pane.setCaretPosition(Math.min(mark, document.getLength()));
+            pane.moveCaretPosition(Math.min(dot, document.getLength()));
+        } finally {
+            swappingDocument = false;
+        }
+    }
+
+    boolean isSwappingDocument() {
+        return swappingDocument;
+    }
+
 
     public void assignFGColorOver(List<Integer> locations) throws MaeDBException {
-        int locIndex = 0;
-        while (locIndex < locations.size()) {
-            locIndex += assignFGColorAt(locations.get(locIndex));
+        assignFGColorOver(SpanHandler.convertIntegersToBitSet(locations));
+    }
+
+    public void assignFGColorOver(BitSet locations) throws MaeDBException {
+        ForegroundColorRuns runs = new ForegroundColorRuns(getDocument(), locations.nextSetBit(0), locations.length());
+        int location = locations.nextSetBit(0);
+        while (location >= 0 && location < runs.getTextEnd()) {
+            assignFGColorAt(location, runs);
+            location = locations.nextSetBit(location + 1);
+        }
+        applyColorRuns(runs);
+    }
+
+    /**
+     * Re-colors characters anchored by an extent tag, walking its cached spans
+     * instead of a boxed list of every location.
+     */
+    public void assignFGColorOver(ExtentTag tag) throws MaeDBException {
+        ForegroundColorRuns runs = new ForegroundColorRuns(getDocument());
+        for (int i = 0; i < tag.getNumberOfSpans(); i++) {
+            int end = Math.min(tag.getSpanEnd(i), runs.getTextEnd());
+            for (int location = tag.getSpanStart(i); location < end; location++) {
+                assignFGColorAt(location, runs);
+            }
         }
+        applyColorRuns(runs);
     }
 
-    private int assignFGColorAt(int location) throws MaeDBException {
+    private void assignFGColorAt(int location, ForegroundColorRuns runs) throws MaeDBException {
+        if (runs.isCovered(location)) {
+            // low half of a surrogate pair
+            return;
+        }
         boolean singular = false;
         boolean plural = false;
         boolean argument = false;
@@ -558,31 +776,353 @@ public class TextPanelController extends MaeControllerI {
             }
             // then, italicize where any link is associated
             for (ExtentTag tag : allTags.get(type)) {
-                for (LinkTag linker : getDriver().getLinksHasArgumentTag(tag)) {
-                    if (activeLinks.contains(linker.getTagtype())) {
-                        argument = true;
-                        break;
-                    }
+                if (!argument && getDriver().isArgumentOfLinkTypes(tag, activeLinks)) {
+                    argument = true;
                 }
             }
         }
-        return setFGColorAtLocation(c, location, plural, argument);
+        runs.add(location, c, plural, argument);
     }
 
     public void addBGColorOver(int[] spans, Highlighter.HighlightPainter painter) throws MaeControlException {
         if (spans.length == 0) {
             return;
         }
-        Highlighter hl = getView().getHighlighter();
+        if (painter instanceof DefaultHighlighter.DefaultHighlightPainter) {
+            getView().getSpanHighlights().add(spans, ((DefaultHighlighter.DefaultHighlightPainter) painter).getColor());
+        } else {
+            Highlighter hl = getView().getHighlighter();
+            int length = getDocument().getLength();
+            try {
+                for (int anchor : spans) {
+                    // a document being streamed does not have the rest of its text yet
+                    if (anchor < length) {
+                        hl.addHighlight(anchor, anchor+1, painter);
+                    }
+                }
+            } catch (BadLocationException e) {
+                throw catchViewException("failed to fetch a text region: ", e);
+            }
+        }
+        scrollToLocation(spans[0]);
+    }
+
+    /**
+     * Replaces all background colors at once, painting each array of locations with
+     * the painter at the same index, in a single repaint. Scrolls to the last array,
+     * as if they were added one by one.
+     */
+    public void replaceBGColors(List<int[]> spansList, List<Highlighter.HighlightPainter> painters) throws MaeControlException {
+        List<Color> colors = new ArrayList<>(painters.size());
+        for (Highlighter.HighlightPainter painter : painters) {
+            if (!(painter instanceof DefaultHighlighter.DefaultHighlightPainter)) {
+                removeAllBGColors();
+                for (int i = 0; i < spansList.size(); i++) {
+                    addBGColorOver(spansList.get(i), painters.get(i));
+                }
+                return;
+            }
+            colors.add(((DefaultHighlighter.DefaultHighlightPainter) painter).getColor());
+        }
+        getView().getHighlighter().removeAllHighlights();
+        getView().getSpanHighlights().replace(spansList, colors);
+        for (int i = spansList.size() - 1; i >= 0; i--) {
+            if (spansList.get(i).length > 0) {
+                scrollToLocation(spansList.get(i)[0]);
+                break;
+            }
+        }
+    }
+
+    private void scrollToLocation(int location) throws MaeControlException {
+        JTextPane pane = getView().getDocumentPane();
+        if (location > pane.getDocument().getLength()) {
+            // not streamed in yet, scroll when it is
+            deferredScroll = location;
+            return;
+        }
+        deferredScroll = -1;
         try {
-            for (int anchor : spans) {
-                hl.addHighlight(anchor, anchor+1, painter);
+            Rectangle rect = pane.modelToView(location);
+            if (rect != null) {
+                getView().getDocumentPane().scrollRectToVisible(rect);
             }
-            getView().getDocumentPane().scrollRectToVisible(getView().getDocumentPane().modelToView(spans[0]));
         } catch (BadLocationException e) {
             throw catchViewException("failed to fetch a text region: ", e);
         }
     }
 
-}
 
+    /**
+     * Anchors of active tag types, with their colors resolved in advance, so that
+     * styles of characters can be computed without going back to the driver or the
+     * main controller for each of them. Must be created and loaded on the EDT, but
+     * runs can be collected on any thread.
+     */
+    static class ActiveAnchorStyles {
+
+        private final List<TagType> extentTypes;
+        private final List<Color> colors;
+        private final List<TagType> linkTypes;
+        private final List<BitSet> anchorsOfTypes;
+        private final BitSet argumentAnchors;
+
+        ActiveAnchorStyles(MaeMainController mainController) {
+            extentTypes = new ArrayList<>(mainController.getActiveExtentTags());
+            colors = new ArrayList<>(extentTypes.size());
+            for (TagType type : extentTypes) {
+                colors.add(mainController.getFGColor(type));
+            }
+            linkTypes = new ArrayList<>(mainController.getActiveLinkTags());
+            anchorsOfTypes = new ArrayList<>(extentTypes.size());
+            argumentAnchors = new BitSet();
+        }
+
+        ActiveAnchorStyles(List<TagType> extentTypes, List<Color> colors, List<TagType> linkTypes) {
+            this.extentTypes = new ArrayList<>(extentTypes);
+            this.colors = new ArrayList<>(colors);
+            this.linkTypes = new ArrayList<>(linkTypes);
+            anchorsOfTypes = new ArrayList<>(extentTypes.size());
+            argumentAnchors = new BitSet();
+        }
+
+        void loadAnchors(MaeDriverI driver) throws MaeDBException {
+            for (TagType type : extentTypes) {
+                anchorsOfTypes.add(driver.getAllAnchorLocationsOfTagTypeAsBitSet(type));
+            }
+            for (TagType type : linkTypes) {
+                argumentAnchors.or(driver.getAllAnchorLocationsOfTagTypeAsBitSet(type));
+            }
+        }
+
+        void loadAnchorsOf(MaeDriverI driver, Collection<ExtentTag> tags) throws MaeDBException {
+            for (int i = 0; i < extentTypes.size(); i++) {
+                anchorsOfTypes.add(new BitSet());
+            }
+            // link types of all tags at once, not a link query per tag
+            MappedSet<String, TagType> linkTypesOfTags = driver.getLinkTypesOfArgumentTags(tags);
+            for (ExtentTag tag : tags) {
+                int typeIndex = extentTypes.indexOf(tag.getTagtype());
+                if (typeIndex >= 0) {
+                    SpanHandler.setPairsOnBitSet(tag.getSpanPairs(), anchorsOfTypes.get(typeIndex));
+                }
+                if (linkTypesOfTags.containsKey(tag.getTid())
+                        && !Collections.disjoint(linkTypes, linkTypesOfTags.get(tag.getTid()))) {
+                    SpanHandler.setPairsOnBitSet(tag.getSpanPairs(), argumentAnchors);
+                }
+            }
+        }
+
+        void addRuns(BitSet locations, ForegroundColorRuns runs) {
+            int location = locations.nextSetBit(runs.getTextStart());
+            while (location >= 0 && location < runs.getTextEnd()) {
+                Color c = DEFAULT_FONT_COLOR;
+                int anchoringTypes = 0;
+                for (int i = 0; i < anchorsOfTypes.size() && anchoringTypes < 2; i++) {
+                    if (anchorsOfTypes.get(i).get(location)) {
+                        if (anchoringTypes == 0) {
+                            c = colors.get(i);
+                        }
+                        anchoringTypes++;
+                    }
+                }
+                boolean plural = anchoringTypes > 1;
+                boolean argument = argumentAnchors.get(location);
+
+                runs.add(location, c, plural, argument);
+                location = locations.nextSetBit(location + 1);
+            }
+        }
+    }
+
+    /**
+     * Appends the rest of a long text into a document already shown in a tab, a chunk at a time.
+     * Each chunk is appended on the EDT, one after another, so that the document stays
+     * responsive to scrolling and annotating while the text is being filled in.
+     */
+    private class StreamingTextWorker extends SwingWorker<Void, Void> {
+
+        private final JTextPane pane;
+        private final StyledDocument document;
+        private final String text;
+        private int offset;
+
+        StreamingTextWorker(JTextPane pane, StyledDocument document, String text, int offset) {
+            this.pane = pane;
+            this.document = document;
+            this.text = text;
+            this.offset = offset;
+        }
+
+        @Override
+        protected Void doInBackground() throws Exception {
+            while (offset < text.length() && !isCancelled()) {
+                int start = offset;
+                int end = chunkEnd(text, start);
+                SwingUtilities.invokeAndWait(() -> {
+                    if (pane.getDocument() != document || !pane.isDisplayable()) {
+                        // tab is closed, or its document is replaced
+                        cancel(false);
+                        return;
+                    }
+                    // font size may have been changed since the tab is opened
+                    FontHandler.appendSimpleStyledText(document, text, start, end,
+                            DEFAULT_FONT_FAMILY, currentFontSize, DEFAULT_FONT_COLOR);
+                    catchUpWithStreamedText(pane);
+                });
+                offset = end;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Everything a full re-coloring reads from a driver. Drivers are not safe to read
+     * while the EDT is editing them, so this is captured on the EDT, and the styled copy
+     * is then built from it off the EDT.
+     */
+    static class RecoloringSnapshot {
+
+        private final String text;
+        private final ActiveAnchorStyles styles;
+        private final BitSet anchors;
+
+        RecoloringSnapshot(MaeDriverI driver, ActiveAnchorStyles styles) throws MaeDBException {
+            this.text = driver.getPrimaryText();
+            this.styles = styles;
+            styles.loadAnchors(driver);
+            this.anchors = driver.getAllAnchorLocationsAsBitSet();
+        }
+
+        StyledDocument buildDocument(int fontSize) {
+            DefaultStyledDocument document = (DefaultStyledDocument) FontHandler.stringToSimpleStyledDocument(
+                    text, DEFAULT_FONT_FAMILY, fontSize, DEFAULT_FONT_COLOR);
+            ForegroundColorRuns runs = new ForegroundColorRuns(document);
+            styles.addRuns(anchors, runs);
+            runs.apply();
+            return document;
+        }
+    }
+
+    /**
+     * Paints highlights and makes a scroll that were waiting for text appended to a pane,
+     * if the pane is of the current document.
+     */
+    private void catchUpWithStreamedText(JTextPane pane) {
+        if (!getView().isAnyDocumentOpen() || pane != getView().getDocumentPane()) {
+            return;
+        }
+        getView().getSpanHighlights().refresh();
+        if (deferredScroll >= 0 && deferredScroll <= pane.getDocument().getLength()) {
+            try {
+                scrollToLocation(deferredScroll);
+            } catch (MaeControlException e) {
+                getMainController().showError(e);
+            }
+        }
+    }
+
+    private class FullRecoloringWorker extends SwingWorker<StyledDocument, Void> {
+
+        private final JTextPane target;
+        private final MaeDriverI driver;
+        private final int fontSize;
+        private final RecoloringSnapshot snapshot;
+        private final int editsAtStart;
+
+        FullRecoloringWorker() throws MaeDBException {
+            target = getView().getDocumentPane();
+            driver = getDriver();
+            fontSize = currentFontSize;
+            snapshot = new RecoloringSnapshot(driver, new ActiveAnchorStyles(getMainController()));
+            editsAtStart = foregroundEdits;
+        }
+
+        @Override
+        protected StyledDocument doInBackground() throws Exception {
+            if (isCancelled()) {
+                return null;
+            }
+            return snapshot.buildDocument(fontSize);
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled() || recoloringWorker != this) {
+                return;
+            }
+            recoloringWorker = null;
+            try {
+                StyledDocument document = get();
+                if (target != getView().getDocumentPane() || driver != getDriver()
+                        || getMainController().isAdjudicating()) {
+                    // document tab is switched, the new one is colored on its own
+                    return;
+                }
+                if (foregroundEdits != editsAtStart) {
+                    assignAllFGColorInBackground();
+                    return;
+                }
+                swapDocument(target, document);
+                foregroundEdits++;
+            } catch (InterruptedException | ExecutionException e) {
+                getMainController().showError(e);
+            }
+        }
+    }
+
+    private class ViewportColoring implements ChangeListener {
+
+        private final JTextPane pane;
+        private final JViewport viewport;
+        private final RegionPainter painter;
+        private final IntervalSet painted;
+
+        ViewportColoring(JTextPane pane, RegionPainter painter) {
+            this.pane = pane;
+            this.painter = painter;
+            this.painted = new IntervalSet();
+            this.viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, pane);
+            if (viewport != null) {
+                viewport.addChangeListener(this);
+            }
+        }
+
+        void uninstall() {
+            if (viewport != null) {
+                viewport.removeChangeListener(this);
+            }
+        }
+
+        void invalidate() throws MaeDBException {
+            painted.clear();
+            paintVisible();
+        }
+
+        void paintVisible() throws MaeDBException {
+            int length = pane.getDocument().getLength();
+            int start = 0;
+            int end = 0;
+            if (viewport != null) {
+                Rectangle rect = viewport.getViewRect();
+                start = Math.max(0, pane.viewToModel(rect.getLocation()));
+                end = Math.max(start, pane.viewToModel(new Point(rect.x + rect.width, rect.y + rect.height)));
+            }
+            start = Math.max(0, start - LAZY_COLORING_MARGIN);
+            end = Math.min(length, end + LAZY_COLORING_MARGIN);
+            for (int[] gap : painted.getGaps(start, end)) {
+                painter.paint(gap[0], gap[1]);
+            }
+            painted.add(start, end);
+        }
+
+        @Override
+        public void stateChanged(ChangeEvent e) {
+            try {
+                paintVisible();
+            } catch (MaeDBException ex) {
+                getMainController().showError(ex);
+            }
+        }
+    }
+}
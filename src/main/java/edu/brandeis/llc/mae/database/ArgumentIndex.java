@@ -0,0 +1,187 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.database;
+
+import edu.brandeis.llc.mae.model.TagType;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory reverse index from extent tags to link tags using them as arguments,
+ * of a single driver. Maps tag IDs of argument tags to IDs and types of their linkers,
+ * so that asking whether a tag is an argument of some link type needs no table lookup.
+ * A driver is responsible for keeping this in sync with its tables.
+ * Lookups can run from many threads at once, while updates are exclusive.
+ */
+public class ArgumentIndex {
+
+    // argument tid -> (linker tid, linker type) for each argument, a linker can appear twice
+    private Map<String, List<Linker>> linkersOfArguments;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public ArgumentIndex() {
+        linkersOfArguments = new HashMap<>();
+    }
+
+    public void addArgument(String argumentTid, String linkerTid, TagType linkerType) {
+        lock.writeLock().lock();
+        try {
+            if (!linkersOfArguments.containsKey(argumentTid)) {
+                linkersOfArguments.put(argumentTid, new ArrayList<>(1));
+            }
+            linkersOfArguments.get(argumentTid).add(new Linker(linkerTid, linkerType));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeArgument(String argumentTid, String linkerTid) {
+        lock.writeLock().lock();
+        try {
+            List<Linker> linkers = linkersOfArguments.get(argumentTid);
+            if (linkers == null) {
+                return;
+            }
+            for (Iterator<Linker> iter = linkers.iterator(); iter.hasNext(); ) {
+                if (iter.next().tid.equals(linkerTid)) {
+                    iter.remove();
+                    break;
+                }
+            }
+            if (linkers.isEmpty()) {
+                linkersOfArguments.remove(argumentTid);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forgets all links pointing to an argument tag, used when the tag itself is deleted.
+     */
+    public void removeArgumentTag(String argumentTid) {
+        lock.writeLock().lock();
+        try {
+            linkersOfArguments.remove(argumentTid);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            linkersOfArguments.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return linkersOfArguments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isArgument(String argumentTid) {
+        lock.readLock().lock();
+        try {
+            return linkersOfArguments.containsKey(argumentTid);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns IDs of link tags using the tag as an argument, mapped to their link types.
+     */
+    public Map<String, TagType> getLinkers(String argumentTid) {
+        lock.readLock().lock();
+        try {
+            Map<String, TagType> linkers = new TreeMap<>();
+            List<Linker> entries = linkersOfArguments.get(argumentTid);
+            if (entries != null) {
+                for (Linker linker : entries) {
+                    linkers.put(linker.tid, linker.type);
+                }
+            }
+            return linkers;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Set<TagType> getLinkerTypes(String argumentTid) {
+        lock.readLock().lock();
+        try {
+            Set<TagType> types = new HashSet<>();
+            List<Linker> entries = linkersOfArguments.get(argumentTid);
+            if (entries != null) {
+                for (Linker linker : entries) {
+                    types.add(linker.type);
+                }
+            }
+            return types;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks if any link tag of given types uses the tag as an argument.
+     */
+    public boolean isArgumentOfAny(String argumentTid, Collection<TagType> linkerTypes) {
+        lock.readLock().lock();
+        try {
+            List<Linker> entries = linkersOfArguments.get(argumentTid);
+            if (entries != null) {
+                for (Linker linker : entries) {
+                    if (linkerTypes.contains(linker.type)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static class Linker {
+        private final String tid;
+        private final TagType type;
+
+        Linker(String tid, TagType type) {
+            this.tid = tid;
+            this.type = type;
+        }
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.database;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.stmt.PreparedQuery;
+import com.j256.ormlite.stmt.QueryBuilder;
+import com.j256.ormlite.stmt.SelectArg;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps parameterized queries that are built once from a query builder and
+ * then re-used with different argument values, saving the SQL generation of
+ * ORMLite on every call. Note that only the building is saved; the JDBC driver
+ * still compiles a statement each time a query runs. Counts how many times
+ * queries are built and re-used.
+ */
+class BuiltQueryCache {
+
+    private final Map<String, BuiltQuery<?, ?>> queries = new HashMap<>();
+    private long buildCount = 0;
+    private long hitCount = 0;
+
+    interface Builder<T, ID> {
+        /**
+         * Builds a query using given placeholders as arguments, in order.
+         */
+        PreparedQuery<T> build(QueryBuilder<T, ID> builder, SelectArg[] args) throws SQLException;
+    }
+
+    @SuppressWarnings("unchecked")
+    synchronized <T, ID> BuiltQuery<T, ID> get(String name, Dao<T, ID> dao, int numArgs,
+                                                       Builder<T, ID> builder) throws SQLException {
+        BuiltQuery<T, ID> query = (BuiltQuery<T, ID>) queries.get(name);
+        if (query == null) {
+            SelectArg[] args = new SelectArg[numArgs];
+            for (int i = 0; i < numArgs; i++) {
+                args[i] = new SelectArg();
+            }
+            query = new BuiltQuery<>(dao, builder.build(dao.queryBuilder(), args), args);
+            queries.put(name, query);
+            buildCount++;
+        } else {
+            hitCount++;
+        }
+        return query;
+    }
+
+    synchronized void clear() {
+        queries.clear();
+    }
+
+    synchronized long getBuildCount() {
+        return buildCount;
+    }
+
+    synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    static class BuiltQuery<T, ID> {
+        private final Dao<T, ID> dao;
+        private final PreparedQuery<T> query;
+        private final SelectArg[] args;
+
+        BuiltQuery(Dao<T, ID> dao, PreparedQuery<T> query, SelectArg[] args) {
+            this.dao = dao;
+            this.query = query;
+            this.args = args;
+        }
+
+        private void bind(Object... values) {
+            if (values.length != args.length) {
+                throw new IllegalArgumentException(
+                        String.format("expected %d arguments, found: %d", args.length, values.length));
+            }
+            for (int i = 0; i < values.length; i++) {
+                args[i].setValue(values[i]);
+            }
+        }
+
+        synchronized List<T> query(Object... values) throws SQLException {
+            bind(values);
+            return dao.query(query);
+        }
+
+        synchronized T queryForFirst(Object... values) throws SQLException {
+            bind(values);
+            return dao.queryForFirst(query);
+        }
+    }
+}
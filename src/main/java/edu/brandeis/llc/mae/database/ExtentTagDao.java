@@ -30,7 +30,7 @@ import com.j256.ormlite.dao.DaoManager;
 import com.j256.ormlite.support.ConnectionSource;
 import com.j256.ormlite.table.DatabaseTableConfig;
 import edu.brandeis.llc.mae.model.Attribute;
-import edu.brandeis.llc.mae.model.CharIndex;
+import edu.brandeis.llc.mae.model.CharSpan;
 import edu.brandeis.llc.mae.model.ExtentTag;
 import edu.brandeis.llc.mae.model.ModelI;
 
@@ -45,7 +45,7 @@ import java.util.function.Consumer;
 public class ExtentTagDao extends BaseDaoImpl<ExtentTag, String> {
 
     Dao<Attribute, Integer> attDao;
-    Dao<CharIndex, Integer> charIndexDao;
+    Dao<CharSpan, Integer> charSpanDao;
 
     public ExtentTagDao(Class dataClass) throws SQLException {
         super(dataClass);
@@ -66,7 +66,7 @@ public class ExtentTagDao extends BaseDaoImpl<ExtentTag, String> {
 
     private void setDaos() throws SQLException {
         attDao = DaoManager.createDao(getConnectionSource(), Attribute.class);
-        charIndexDao = DaoManager.createDao(getConnectionSource(), CharIndex.class);
+        charSpanDao = DaoManager.createDao(getConnectionSource(), CharSpan.class);
 
     }
 
@@ -82,16 +82,16 @@ public class ExtentTagDao extends BaseDaoImpl<ExtentTag, String> {
     public int update(ExtentTag tag) throws SQLException {
         refresh(tag);
         final Collection<Attribute> atts = tag.getAttributes();
-        final Collection<CharIndex> anchors = tag.getSpans();
+        final Collection<CharSpan> spans = tag.getSpans();
         super.callBatchTasks((Callable<Void>) () -> {
             if (atts != null) {
                 for (Attribute att : atts) {
                     attDao.createOrUpdate(att);
                 }
             }
-            if (anchors != null) {
-                for (CharIndex anchor : anchors) {
-                    charIndexDao.createOrUpdate(anchor);
+            if (spans != null) {
+                for (CharSpan span : spans) {
+                    charSpanDao.createOrUpdate(span);
                 }
             }
             return null;
@@ -103,16 +103,16 @@ public class ExtentTagDao extends BaseDaoImpl<ExtentTag, String> {
     public int delete(ExtentTag tag) throws SQLException {
         refresh(tag);
         final Collection<Attribute> atts = tag.getAttributes();
-        final Collection<CharIndex> anchors = tag.getSpans();
+        final Collection<CharSpan> spans = tag.getSpans();
         super.callBatchTasks((Callable<Void>) () -> {
             if (atts != null) {
                 for (Attribute att : atts) {
                     attDao.delete(att);
                 }
             }
-            if (anchors != null) {
-                for (CharIndex anchor : anchors) {
-                    charIndexDao.delete(anchor);
+            if (spans != null) {
+                for (CharSpan span : spans) {
+                    charSpanDao.delete(span);
                 }
             }
             return null;
@@ -48,7 +48,7 @@ public class IdHandler {
         tracker = new HashMap<>();
     }
 
-    public boolean addId(TagType type, int id) {
+    public synchronized boolean addId(TagType type, int id) {
         if (!tracker.containsKey(type)) {
             TreeSet<Integer> ids = new TreeSet<>();
             ids.add(id);
@@ -61,6 +61,15 @@ public class IdHandler {
         return true;
     }
 
+    public synchronized boolean hasId(TagType type, int id) {
+        return tracker.containsKey(type) && tracker.get(type).contains(id);
+    }
+
+    public boolean hasId(TagType type, String tid) {
+        int id = Integer.parseInt(tid.substring(type.getPrefix().length()));
+        return hasId(type, id);
+    }
+
     public boolean addId(TagType type, String tid) {
         int id = Integer.parseInt(tid.substring(type.getPrefix().length()));
         return addId(type, id);
@@ -69,7 +78,7 @@ public class IdHandler {
     /**
      * Finds the next ID that can be used for that element
      */
-    public String getNextID(TagType type) {
+    public synchronized String getNextID(TagType type) {
 
         TreeSet<Integer> existingIds = tracker.get(type);
         if (existingIds == null || existingIds.size() == 0) {
@@ -0,0 +1,1267 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.database;
+
+import com.j256.ormlite.support.ConnectionSource;
+import edu.brandeis.llc.mae.MaeException;
+import edu.brandeis.llc.mae.MaeStrings;
+import edu.brandeis.llc.mae.io.AnnotationLoader;
+import edu.brandeis.llc.mae.io.DTDLoader;
+import edu.brandeis.llc.mae.io.MaeFileWriter;
+import edu.brandeis.llc.mae.io.MaeIODTDException;
+import edu.brandeis.llc.mae.io.MaeIOException;
+import edu.brandeis.llc.mae.model.*;
+import edu.brandeis.llc.mae.util.FileHandler;
+import edu.brandeis.llc.mae.util.MappedSet;
+import edu.brandeis.llc.mae.util.SpanHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * A driver that keeps the whole task definition and annotations of a document
+ * in plain java collections, without any JDBC connection or ORM layer behind.
+ * Model objects are wired to each other through {@link InMemoryForeignCollection},
+ * so they behave the same as ones read from {@link LocalSqliteDriverImpl}.
+ * Optionally, current annotations can be written to a snapshot file (in MAE XML
+ * format) for crash recovery, see {@link #snapshot()} and {@link #restoreSnapshot()}.
+ * Snapshot files outlive the driver, and are only removed by {@link #deleteSnapshotFile(File)}.
+ */
+public class InMemoryDriverImpl implements MaeDriverI {
+
+    // not static for multi file support: needs to instantiate many Drivers
+    private Logger logger;
+
+    private String sourceName;
+    private volatile File snapshotFile;
+    private IdHandler idHandler;
+    private SpanIndex spanIndex;
+    private Task workingTask;
+    private boolean workChanged;
+
+    // insertion ordered, to keep the order of appearances in DTD and XML
+    private Map<String, TagType> tagTypes;
+    private Map<String, ExtentTag> extentTags;
+    private Map<String, LinkTag> linkTags;
+    // extent tid -> arguments pointing the tag
+    private Map<String, List<Argument>> argumentsOfExtentTags;
+    private final TagChangeSupport tagChanges = new TagChangeSupport(this);
+    private final ArgumentIndex argumentIndex = new ArgumentIndex();
+
+    /**
+     * Creates a driver without snapshot persistence.
+     */
+    public InMemoryDriverImpl(String sourceName) {
+        this(sourceName, null);
+    }
+
+    /**
+     * Creates a driver that can dump its annotations into snapshotFile on demand.
+     * Passing null will disable snapshots.
+     */
+    public InMemoryDriverImpl(String sourceName, File snapshotFile) {
+        this.sourceName = sourceName;
+        this.snapshotFile = snapshotFile;
+        logger = LoggerFactory.getLogger(this.getClass().getName() + sourceName);
+        spanIndex = new SpanIndex();
+        initAll();
+        workingTask = new Task(sourceName);
+        logger.info("New in-memory Driver is initialized: " + sourceName);
+        workChanged = false;
+
+    }
+
+    private void initAll() {
+        idHandler = new IdHandler();
+        tagTypes = new LinkedHashMap<>();
+        initAnnotations();
+    }
+
+    private void initAnnotations() {
+        extentTags = new LinkedHashMap<>();
+        linkTags = new LinkedHashMap<>();
+        argumentsOfExtentTags = new HashMap<>();
+        spanIndex.clear();
+        argumentIndex.clear();
+    }
+
+    @Override
+    public void setupDatabase(ConnectionSource source) throws MaeDBException {
+        // nothing to set up, all tables live in the heap
+        initAll();
+
+    }
+
+    @Override
+    public void readTask(File file) throws MaeIODTDException, MaeDBException, FileNotFoundException {
+        DTDLoader dtdl = new DTDLoader(this);
+        initAll();
+        if (!dtdl.read(file)) {
+            throw new MaeIODTDException("DTD does not contain any definition, maybe not a DTD file? " + file.getAbsolutePath());
+        }
+
+    }
+
+    @Override
+    public String readAnnotation(File file) throws MaeException {
+        AnnotationLoader xmll = new AnnotationLoader(this);
+        String xmlParseWarnings =  xmll.loadFile(file);
+        setAnnotationChanged(false);
+        return xmlParseWarnings;
+
+    }
+
+    public File getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    /**
+     * Sets where snapshots are written. Passing null will disable snapshots.
+     */
+    public void setSnapshotFile(File snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    public boolean hasSnapshot() {
+        return snapshotFile != null && snapshotFile.exists();
+    }
+
+    /**
+     * Returns a snapshot file name that stays the same across sessions for
+     * the same task and annotation file, so that a restarted process can find it.
+     */
+    public static File getSnapshotFileFor(File snapshotDir, String taskName, String annotationFileName) {
+        String name = String.format("%s-%s-%08x.snapshot.xml", taskName,
+                FileHandler.getFileBaseName(annotationFileName), annotationFileName.hashCode());
+        return new File(snapshotDir, name.replaceAll("[^\\w.-]", "_"));
+    }
+
+    /**
+     * Serializes current annotations for a snapshot, without touching the disk.
+     *
+     * @return annotations in MAE XML format, or null if snapshots are disabled
+     */
+    public String takeSnapshot() throws MaeDBException {
+        if (snapshotFile == null || !isTaskLoaded() || !isPrimaryTextLoaded()) {
+            return null;
+        }
+        return MaeFileWriter.generateAnnotationXML(this);
+    }
+
+    /**
+     * Writes current annotations into the snapshot file, if snapshots are enabled.
+     *
+     * @return true if a snapshot is written
+     */
+    public boolean snapshot() throws MaeDBException, MaeIOException {
+        File target = snapshotFile;
+        String snapshot = takeSnapshot();
+        if (snapshot == null) {
+            return false;
+        }
+        writeSnapshotFile(target, snapshot);
+        return true;
+    }
+
+    /**
+     * Writes a snapshot taken by {@link #takeSnapshot()} into a file.
+     * The file is first written to a temporary sibling and then moved,
+     * so that a crash while writing does not corrupt the previous snapshot.
+     * This touches no driver state, thus can be called from any thread.
+     */
+    public static synchronized void writeSnapshotFile(File snapshotFile, String snapshot) throws MaeIOException {
+        File tmpFile = new File(snapshotFile.getAbsolutePath() + ".tmp");
+        try {
+            Files.createDirectories(snapshotFile.getAbsoluteFile().getParentFile().toPath());
+            Files.write(tmpFile.toPath(), snapshot.getBytes(StandardCharsets.UTF_8));
+            Files.move(tmpFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new MaeIOException("Cannot write a snapshot: " + snapshotFile.getAbsolutePath(), e);
+        }
+        LoggerFactory.getLogger(InMemoryDriverImpl.class.getName()).debug("a snapshot is written: " + snapshotFile.getAbsolutePath());
+    }
+
+    /**
+     * Removes a snapshot file, once its annotations are safely saved or not wanted.
+     * Synchronized with {@link #writeSnapshotFile(File, String)}.
+     */
+    public static synchronized boolean deleteSnapshotFile(File snapshotFile) {
+        return snapshotFile != null && (!snapshotFile.exists() || snapshotFile.delete());
+    }
+
+    /**
+     * Reads annotations back from the snapshot file, replacing all current annotations.
+     * Note that a task definition should be read beforehand.
+     */
+    public String restoreSnapshot() throws MaeException {
+        if (snapshotFile == null || !snapshotFile.exists()) {
+            throw new MaeIOException("No snapshot to restore from: " + sourceName);
+        }
+        String annotationFileName = getAnnotationFileName();
+        emptyAnnotations();
+        String warnings = readAnnotation(snapshotFile);
+        if (annotationFileName != null) {
+            // loader stamps tags with the snapshot path, put the original name back
+            setAnnotationFileName(annotationFileName);
+            for (ExtentTag tag : extentTags.values()) {
+                tag.setFilename(annotationFileName);
+            }
+            for (LinkTag tag : linkTags.values()) {
+                tag.setFilename(annotationFileName);
+            }
+        }
+        // restored annotations are not saved in the original file yet
+        setAnnotationChanged(true);
+        return warnings;
+    }
+
+    @Override
+    public String getDBSourceName() {
+        return sourceName;
+    }
+
+    @Override
+    public String getAnnotationFileName() throws MaeDBException {
+        return workingTask.getAnnotationFileName();
+    }
+
+    @Override
+    public String getAnnotationFileBaseName() throws MaeDBException {
+        return FileHandler.getFileBaseName(getAnnotationFileName());
+    }
+
+    @Override
+    public void setAnnotationFileName(String fileName) throws MaeDBException {
+        workingTask.setAnnotationFileName(fileName);
+    }
+
+    @Override
+    public String getPrimaryText() throws MaeDBException {
+        return workingTask.getPrimaryText();
+    }
+
+    @Override
+    public void setPrimaryText(String text) throws MaeDBException {
+        workingTask.setPrimaryText(text);
+    }
+
+    @Override
+    public String getTaskName() {
+        return workingTask.getName();
+    }
+
+    @Override
+    public void setTaskName(String name) throws MaeDBException {
+        workingTask.setName(name);
+    }
+
+    @Override
+    public String getTaskFileName() throws MaeDBException {
+        return workingTask.getTaskFileName();
+    }
+
+    @Override
+    public void setTaskFileName(String fileName) throws MaeDBException {
+        workingTask.setTaskFileName(fileName);
+    }
+
+    @Override
+    public boolean isTaskLoaded() {
+        return workingTask.isTaskLoaded();
+    }
+
+    @Override
+    public boolean isAnnotationLoaded() {
+        return workingTask.isAnnotationLoaded();
+    }
+
+    @Override
+    public void setAnnotationChanged(boolean b) {
+        workChanged = b;
+    }
+
+    @Override
+    public boolean isAnnotationChanged() {
+        return isAnnotationLoaded() && workChanged;
+    }
+
+    @Override
+    public boolean isPrimaryTextLoaded() {
+        return workingTask.isPrimaryTextLoaded();
+    }
+
+    // character index (anchor)
+    @Override
+    public void batchCreateAnchors(Collection<CharIndex> anchors) throws MaeDBException {
+        // regroup anchors into spans of each tag
+        Map<ExtentTag, List<Integer>> locationsByTag = new LinkedHashMap<>();
+        for (CharIndex anchor : anchors) {
+            if (!locationsByTag.containsKey(anchor.getTag())) {
+                locationsByTag.put(anchor.getTag(), new ArrayList<>());
+            }
+            locationsByTag.get(anchor.getTag()).add(anchor.getLocation());
+        }
+        List<CharSpan> spans = new ArrayList<>();
+        for (ExtentTag tag : locationsByTag.keySet()) {
+            spans.addAll(tag.setSpans(SpanHandler.convertIntegerlistToIntegerarray(locationsByTag.get(tag))));
+        }
+        batchCreateSpans(spans);
+
+    }
+
+    @Override
+    public void batchCreateSpans(Collection<CharSpan> spans) throws MaeDBException {
+        for (CharSpan span : spans) {
+            ExtentTag tag = span.getTag();
+            ensureCollections(tag);
+            tag.getSpans().add(span);
+            spanIndex.addSpan(tag.getTid(), tag.getTagTypeName(), span.getStart(), span.getEnd());
+        }
+        logger.debug(String.format("%d spans are inserted", spans.size()));
+
+    }
+
+    @Override
+    public Collection<CharIndex> getAllAnchors() throws MaeDBException {
+        return spansToAnchors(getAllSpans());
+    }
+
+    private List<CharSpan> getAllSpans() {
+        List<CharSpan> spans = new ArrayList<>();
+        for (ExtentTag tag : extentTags.values()) {
+            spans.addAll(tag.getSpans());
+        }
+        return spans;
+    }
+
+    @Override
+    public Collection<CharIndex> getAllAnchorsOfTagType(TagType type) throws MaeDBException {
+        return spansToAnchors(getAllSpansOfTagType(type));
+    }
+
+    public List<CharSpan> getAllSpansOfTagType(TagType type) throws MaeDBException {
+        List<CharSpan> spans = new ArrayList<>();
+        if (type.isExtent()) {
+            for (ExtentTag tag : getExtentTagsOfType(type)) {
+                spans.addAll(tag.getSpans());
+            }
+        } else {
+            Set<ExtentTag> argTags = new LinkedHashSet<>();
+            for (LinkTag link : getLinkTagsOfType(type)) {
+                argTags.addAll(link.getArgumentTags());
+            }
+            for (ExtentTag argTag : argTags) {
+                spans.addAll(argTag.getSpans());
+            }
+        }
+        return spans;
+    }
+
+    private List<CharIndex> spansToAnchors(Collection<CharSpan> spans) {
+        List<CharIndex> anchors = new ArrayList<>();
+        for (CharSpan span : spans) {
+            for (int location = span.getStart(); location < span.getEnd(); location++) {
+                anchors.add(new CharIndex(location, span.getTag()));
+            }
+        }
+        return anchors;
+    }
+
+    private List<Integer> spansToLocations(Collection<CharSpan> spans) {
+        List<Integer> locations = new ArrayList<>();
+        for (CharSpan span : spans) {
+            for (int location = span.getStart(); location < span.getEnd(); location++) {
+                locations.add(location);
+            }
+        }
+        Collections.sort(locations);
+        return locations;
+    }
+
+    private BitSet spansToBitSet(Collection<CharSpan> spans) {
+        BitSet locations = new BitSet();
+        for (CharSpan span : spans) {
+            locations.set(span.getStart(), span.getEnd());
+        }
+        return locations;
+    }
+
+    @Override
+    public List<Integer> getAllAnchorLocations() throws MaeDBException {
+        return spansToLocations(getAllSpans());
+    }
+
+    @Override
+    public List<Integer> getAllAnchorLocationsOfTagType(TagType type) throws MaeDBException {
+        return spansToLocations(getAllSpansOfTagType(type));
+    }
+
+    @Override
+    public List<Integer> getAllAnchorLocationsOfTagType(TagType type, List<TagType> exculdes) throws MaeDBException {
+        BitSet targetSpans = getAllAnchorLocationsOfTagTypeAsBitSet(type);
+        for (TagType exclude : exculdes) {
+            targetSpans.andNot(getAllAnchorLocationsOfTagTypeAsBitSet(exclude));
+        }
+        List<Integer> locations = new ArrayList<>(targetSpans.cardinality());
+        for (int location = targetSpans.nextSetBit(0); location >= 0; location = targetSpans.nextSetBit(location + 1)) {
+            locations.add(location);
+        }
+        return locations;
+    }
+
+    @Override
+    public BitSet getAllAnchorLocationsAsBitSet() throws MaeDBException {
+        return spansToBitSet(getAllSpans());
+    }
+
+    @Override
+    public BitSet getAllAnchorLocationsOfTagTypeAsBitSet(TagType type) throws MaeDBException {
+        return spansToBitSet(getAllSpansOfTagType(type));
+    }
+
+    @Override
+    public Collection<CharIndex> getAnchorsByTid(String tid) throws MaeDBException {
+        Tag tag = getTagByTid(tid);
+        if (tag.getTagtype().isExtent()) {
+            return spansToAnchors(((ExtentTag) tag).getSpans());
+        } else {
+            Set<CharIndex> argSpans = new TreeSet<>();
+            for (ExtentTag arg : ((LinkTag) tag).getArgumentTags()) {
+                argSpans.addAll(spansToAnchors(arg.getSpans()));
+            }
+            return argSpans;
+        }
+    }
+
+    @Override
+    public List<Integer> getAnchorLocationsByTid(String tid) throws MaeDBException {
+        Tag tag = getTagByTid(tid);
+        if (tag.getTagtype().isExtent()) {
+            return ((ExtentTag) tag).getSpansAsList();
+        } else {
+            Set<Integer> argSpans = new TreeSet<>();
+            for (ExtentTag arg : ((LinkTag) tag).getArgumentTags()) {
+                argSpans.addAll(arg.getSpansAsList());
+            }
+            return new ArrayList<>(argSpans);
+        }
+    }
+
+    // tag types
+    @Override
+    public TagType createTagType(String typeName, String prefix, boolean isLink) throws MaeDBException {
+        if (tagTypes.containsKey(typeName)) {
+            throw new MaeDBException("tag type is already in DB!: " + typeName);
+        }
+        TagType type = new TagType(typeName, prefix, isLink);
+        type.setAttributeTypes(new InMemoryForeignCollection<>());
+        type.setArgumentTypes(new InMemoryForeignCollection<>());
+        type.setExtentTags(new InMemoryForeignCollection<>());
+        type.setLinkTags(new InMemoryForeignCollection<>());
+        tagTypes.put(typeName, type);
+        logger.debug("a new tag type is created: " + typeName);
+        setAnnotationChanged(true);
+        return type;
+    }
+
+    public List<TagType> getTagTypes(boolean includeExtent, boolean includeLink) throws MaeDBException {
+        ArrayList<TagType> types = new ArrayList<>();
+        for (TagType type : tagTypes.values()) {
+            if (type.isLink() && includeLink) {
+                types.add(type);
+            } else if (type.isExtent() && includeExtent) {
+                types.add(type);
+            }
+        }
+        return types;
+    }
+
+    @Override
+    public List<TagType> getAllTagTypes() throws MaeDBException {
+        return getTagTypes(true, true);
+    }
+
+    @Override
+    public List<TagType> getExtentTagTypes() throws MaeDBException {
+        return getTagTypes(true, false);
+    }
+
+    @Override
+    public List<TagType> getLinkTagTypes() throws MaeDBException {
+        return getTagTypes(false, true);
+    }
+
+    public List<TagType> getNonConsumingTagTypes() throws MaeDBException {
+        ArrayList<TagType> types = new ArrayList<>();
+        for (TagType type : tagTypes.values()) {
+            if (type.isNonConsuming()) {
+                types.add(type);
+            }
+        }
+        return types;
+    }
+
+    @Override
+    public TagType getTagTypeByName(String typeName) throws MaeDBException {
+        TagType type = tagTypes.get(typeName);
+        if (type == null) {
+            throw new MaeDBException("no such a tag type is in DB: " + typeName);
+        }
+        return type;
+    }
+
+    @Override
+    public boolean setTagTypePrefix(TagType tagType, String prefix) throws MaeDBException {
+        for (TagType type : tagTypes.values()) {
+            if (!type.equals(tagType) && prefix.equals(type.getPrefix())) {
+                logger.error(String.format("failed to assign prefix \"%s\" to a tag type: %s", prefix, tagType.getName()));
+                return false;
+            }
+        }
+        tagType.setPrefix(prefix);
+        logger.debug(String.format("assigned prefix \"%s\" to a tag type: %s", prefix, tagType.getName()));
+        return true;
+    }
+
+    @Override
+    public boolean setTagTypeNonConsuming(TagType tagType, boolean b) throws MaeDBException {
+        tagType.setNonConsuming(b);
+        logger.debug(String.format("set a tag type \"%s\" to be: %s", tagType.getName(), b? "non-consuming": "only-consuming"));
+        return true;
+    }
+
+    // tag common
+    @Override
+    public Tag getTagByTid(String tid) throws MaeDBException {
+        if (extentTags.containsKey(tid)) {
+            return extentTags.get(tid);
+        } else {
+            return linkTags.get(tid);
+        }
+    }
+
+    @Override
+    public TagType getTagTypeByTid(String tid) throws MaeDBException {
+        return getTagByTid(tid).getTagtype();
+    }
+
+    public boolean idExists(String tid) throws MaeDBException {
+        return extentTags.containsKey(tid) || linkTags.containsKey(tid);
+    }
+
+    @Override
+    public String getNextId(TagType type) {
+        return idHandler.getNextID(type);
+    }
+
+    // extent tags
+    @Override
+    public ExtentTag createExtentTag(String tid, TagType tagType, String text, int... spans) throws MaeDBException {
+        if (idExists(tid) || !idHandler.addId(tagType, tid)) {
+            throw new MaeDBException("tag id is already in DB!: " + tid);
+        }
+        ExtentTag tag = new ExtentTag(tid, tagType, getAnnotationFileName());
+        tag.setText(text);
+        registerExtentTag(tag);
+        batchCreateSpans(tag.setSpans(spans));
+        populateDefaultAttributes(tagType, tag);
+        logger.debug("a new extent tag is created: " + tid);
+        setAnnotationChanged(true);
+        tagChanges.fire(TagChangeEvent.Kind.CREATED, tag, tag.getSpanPairs());
+        return tag;
+    }
+
+    @Override
+    public ExtentTag createExtentTag(TagType tagType, String text, int... spans) throws MaeDBException {
+        String tid = idHandler.getNextID(tagType);
+        return createExtentTag(tid, tagType, text, spans);
+    }
+
+    void populateDefaultAttributes(TagType tagType, Tag tag) throws MaeDBException {
+        Map<AttributeType, String> defaultAttributes = new HashMap<>();
+        if (tagType.getAttributeTypes() != null) {
+            for (AttributeType attType : tagType.getAttributeTypes()) {
+                String defaultValue = attType.getDefaultValue();
+                if (defaultValue.length() > 0) {
+                    defaultAttributes.put(attType, defaultValue);
+                }
+            }
+            batchAddAttributes(tag, defaultAttributes);
+        }
+    }
+
+    private void ensureCollections(Tag tag) {
+        if (tag.getAttributes() == null) {
+            tag.setAttributes(new InMemoryForeignCollection<>());
+        }
+        if (tag instanceof ExtentTag && ((ExtentTag) tag).getSpans() == null) {
+            ((ExtentTag) tag).setSpansCollection(new InMemoryForeignCollection<>());
+        } else if (tag instanceof LinkTag && ((LinkTag) tag).getArguments() == null) {
+            ((LinkTag) tag).setArguments(new InMemoryForeignCollection<>());
+        }
+    }
+
+    private void registerExtentTag(ExtentTag tag) {
+        ensureCollections(tag);
+        extentTags.put(tag.getTid(), tag);
+        tag.getTagtype().getExtentTags().add(tag);
+    }
+
+    private void registerLinkTag(LinkTag tag) {
+        ensureCollections(tag);
+        linkTags.put(tag.getTid(), tag);
+        tag.getTagtype().getLinkTags().add(tag);
+    }
+
+    @Override
+    public void batchCreateExtentTags(Collection<ExtentTag> tags) throws MaeDBException {
+        for (ExtentTag tag : tags) {
+            if (idExists(tag.getTid()) || !idHandler.addId(tag.getTagtype(), tag.getId())) {
+                throw new MaeDBException("tag id is already in DB!: " + tag.getId());
+            }
+            registerExtentTag(tag);
+        }
+        logger.debug(String.format("%d tags are inserted", tags.size()));
+
+    }
+
+    @Override
+    public boolean updateTagSpans(ExtentTag tag, int[] spans) throws MaeDBException {
+        ensureCollections(tag);
+        int[] oldSpans = tag.getSpanPairs();
+        tag.getSpans().clear();
+        spanIndex.removeTag(tag.getTid());
+        batchCreateSpans(tag.setSpans(spans));
+        tag.invalidateSpanCache();
+        setAnnotationChanged(true);
+        tagChanges.fire(TagChangeEvent.Kind.SPANS_CHANGED, tag,
+                SpanHandler.mergeFlatPairs(oldSpans, tag.getSpanPairs()));
+        return true;
+
+    }
+
+    @Override
+    public boolean updateTagText(ExtentTag tag, String text) throws MaeDBException {
+        tag.setText(text);
+        setAnnotationChanged(true);
+        return true;
+
+    }
+
+    @Override
+    public List<ExtentTag> getExtentTagsByTids(Collection<String> tids) {
+        List<ExtentTag> tags = new ArrayList<>();
+        for (String tid : tids) {
+            ExtentTag tag = extentTags.get(tid);
+            if (tag != null) {
+                tags.add(tag);
+            }
+        }
+        return tags;
+    }
+
+    public List<String> getTagIdsAt(int loc) throws MaeDBException {
+        return new ArrayList<>(spanIndex.getTidsAt(loc));
+    }
+
+    @Override
+    public List<ExtentTag> getTagsAt(int location) throws MaeDBException {
+        return getExtentTagsByTids(spanIndex.getTidsAt(location));
+    }
+
+    @Override
+    public List<ExtentTag> getTagsIn(int[] locations) throws MaeDBException {
+        return getExtentTagsByTids(getTidsIn(locations));
+    }
+
+    @Override
+    public Set<String> getTidsIn(int[] locations) {
+        Set<String> tids = new TreeSet<>();
+        for (int[] pair : SpanHandler.convertLocationsToPairs(locations)) {
+            tids.addAll(spanIndex.getTidsBetween(pair[0], pair[1]));
+        }
+        return tids;
+    }
+
+    @Override
+    public List<ExtentTag> getTagsBetween(int begin, int end) throws MaeDBException {
+        return getExtentTagsByTids(spanIndex.getTidsBetween(begin, end));
+    }
+
+    @Override
+    public List<ExtentTag> getTagsOfTypeAt(TagType type, int location) throws MaeDBException {
+        return getExtentTagsByTids(spanIndex.getTidsOfTypeAt(type.getName(), location));
+    }
+
+    @Override
+    public List<ExtentTag> getTagsOfTypeIn(TagType type, int[] locations) throws MaeDBException {
+        Set<String> tids = new TreeSet<>();
+        for (int[] pair : SpanHandler.convertLocationsToPairs(locations)) {
+            tids.addAll(spanIndex.getTidsOfTypeBetween(type.getName(), pair[0], pair[1]));
+        }
+        return getExtentTagsByTids(tids);
+    }
+
+    @Override
+    public List<ExtentTag> getTagsOfTypeBetween(TagType type, int begin, int end) throws MaeDBException {
+        return getExtentTagsByTids(spanIndex.getTidsOfTypeBetween(type.getName(), begin, end));
+    }
+
+    @Override
+    public MappedSet<TagType, ExtentTag> getTagsByTypesAt(int location) throws MaeDBException {
+        MappedSet<TagType, ExtentTag> tags = new MappedSet<>();
+        for (ExtentTag tag : getTagsAt(location)) {
+            tags.putItem(tag.getTagtype(), tag);
+        }
+        return tags;
+    }
+
+    @Override
+    public MappedSet<TagType, ExtentTag> getTagsByTypesIn(int... locations) throws MaeDBException {
+        MappedSet<TagType, ExtentTag> tags = new MappedSet<>();
+        for (ExtentTag tag : getTagsIn(locations)) {
+            tags.putItem(tag.getTagtype(), tag);
+        }
+        return tags;
+    }
+
+    @Override
+    public MappedSet<TagType, ExtentTag> getTagsByTypesBetween(int begin, int end) throws MaeDBException {
+        MappedSet<TagType, ExtentTag> tags = new MappedSet<>();
+        for (ExtentTag tag : getTagsBetween(begin, end)) {
+            tags.putItem(tag.getTagtype(), tag);
+        }
+        return tags;
+    }
+
+    @Override
+    public List<ExtentTag> getAllExtentTagsOfAllTypes(boolean consumingOnly) throws MaeDBException {
+        return new ArrayList<>(extentTags.values());
+    }
+
+    private Collection<ExtentTag> getExtentTagsOfType(TagType type) throws MaeDBException {
+        return getTagTypeByName(type.getName()).getExtentTags();
+    }
+
+    private Collection<LinkTag> getLinkTagsOfType(TagType type) throws MaeDBException {
+        return getTagTypeByName(type.getName()).getLinkTags();
+    }
+
+    @Override
+    public Collection<ExtentTag> lazilyGetAllExtentTagsOfType(TagType type) throws MaeDBException {
+        return getExtentTagsOfType(type);
+    }
+
+    @Override
+    public Collection<ExtentTag> getAllExtentTagsOfType(TagType type) throws MaeDBException {
+        // a copy, so that callers can delete tags while iterating
+        return new ArrayList<>(getExtentTagsOfType(type));
+    }
+
+    // all tags are on the heap already, thus paged fetches just return copies
+    @Override
+    public Iterable<ExtentTag> getAllExtentTagsOfAllTypes(boolean consumingOnly, int pageSize) throws MaeDBException {
+        List<ExtentTag> tags = new ArrayList<>();
+        for (ExtentTag tag : extentTags.values()) {
+            if (tag.isConsuming() || !consumingOnly) {
+                tags.add(tag);
+            }
+        }
+        return tags;
+    }
+
+    @Override
+    public Iterable<ExtentTag> getAllExtentTagsOfType(TagType type, int pageSize) throws MaeDBException {
+        return getAllExtentTagsOfType(type);
+    }
+
+    @Override
+    public List<ExtentTag> getAllNCTagsOfType(TagType type) throws MaeDBException {
+        List<ExtentTag> nctags = new ArrayList<>();
+        for (ExtentTag tag : getExtentTagsOfType(type)) {
+            if (!tag.isConsuming()) {
+                nctags.add(tag);
+            }
+        }
+        return nctags;
+    }
+
+    // link tags
+    @Override
+    public LinkTag createLinkTag(String tid, TagType tagType) throws MaeDBException {
+        if (idExists(tid) || !idHandler.addId(tagType, tid)) {
+            throw new MaeDBException("tag id is already in DB!: " + tid);
+        }
+        LinkTag link = new LinkTag(tid, tagType, getAnnotationFileName());
+        registerLinkTag(link);
+        populateDefaultAttributes(tagType, link);
+        logger.debug("a new link tag is created: " + tid);
+        setAnnotationChanged(true);
+        tagChanges.fire(TagChangeEvent.Kind.CREATED, link, new int[0]);
+        return link;
+    }
+
+    @Override
+    public LinkTag createLinkTag(TagType tagType) throws MaeDBException {
+        return createLinkTag(idHandler.getNextID(tagType), tagType);
+    }
+
+    @Override
+    public void batchCreateLinkTags(Collection<LinkTag> tags) throws MaeDBException {
+        for (LinkTag tag : tags) {
+            if (idExists(tag.getTid()) || !idHandler.addId(tag.getTagtype(), tag.getId())) {
+                throw new MaeDBException("tag id is already in DB!: " + tag.getId());
+            }
+            registerLinkTag(tag);
+        }
+        logger.debug(String.format("%d tags are inserted", tags.size()));
+
+    }
+
+    @Override
+    public List<LinkTag> getAllLinkTagsOfAllTypes() throws MaeDBException {
+        return new ArrayList<>(linkTags.values());
+    }
+
+    @Override
+    public Collection<LinkTag> lazilyGetAllLinkTagsOfType(TagType type) throws MaeDBException {
+        return getLinkTagsOfType(type);
+    }
+
+    @Override
+    public Collection<LinkTag> getAllLinkTagsOfType(TagType type) throws MaeDBException {
+        return new ArrayList<>(getLinkTagsOfType(type));
+    }
+
+    @Override
+    public Iterable<LinkTag> getAllLinkTagsOfType(TagType type, int pageSize) throws MaeDBException {
+        return getAllLinkTagsOfType(type);
+    }
+
+    @Override
+    public void deleteTag(Tag tag) throws MaeDBException {
+        int[] affectedSpans;
+        if (tag instanceof ExtentTag) {
+            affectedSpans = ((ExtentTag) tag).getSpanPairs();
+            if (extentTags.remove(tag.getTid()) != null) {
+                tag.getTagtype().getExtentTags().remove(tag);
+                spanIndex.removeTag(tag.getTid());
+                argumentIndex.removeArgumentTag(tag.getTid());
+            }
+        } else {
+            affectedSpans = TagChangeSupport.spansOf(((LinkTag) tag).getArgumentTags());
+            if (linkTags.remove(tag.getTid()) != null) {
+                tag.getTagtype().getLinkTags().remove(tag);
+                for (Argument arg : ((LinkTag) tag).getArguments()) {
+                    unregisterArgument(arg);
+                }
+            }
+        }
+        for (Attribute att : tag.getAttributes()) {
+            att.getAttributeType().getAttributes().remove(att);
+        }
+        logger.debug("a tag is deleted: " + tag.getId());
+        setAnnotationChanged(true);
+        tagChanges.fire(TagChangeEvent.Kind.DELETED, tag, affectedSpans);
+    }
+
+    @Override
+    public Set<LinkTag> getLinksHasArgumentTag(ExtentTag argument) throws MaeDBException {
+        TreeSet<LinkTag> links = new TreeSet<>();
+        List<Argument> args = argumentsOfExtentTags.get(argument.getTid());
+        if (args != null) {
+            for (Argument arg : args) {
+                links.add(arg.getLinker());
+            }
+        }
+        return links;
+    }
+
+    @Override
+    public MappedSet<String, TagType> getLinkTypesOfArgumentTags(Collection<ExtentTag> arguments) throws MaeDBException {
+        MappedSet<String, TagType> linkTypes = new MappedSet<>();
+        for (ExtentTag argument : arguments) {
+            for (TagType linkType : argumentIndex.getLinkerTypes(argument.getTid())) {
+                linkTypes.putItem(argument.getTid(), linkType);
+            }
+        }
+        return linkTypes;
+    }
+
+    @Override
+    public Map<String, TagType> getLinkersOfArgumentTag(ExtentTag argument) {
+        return argumentIndex.getLinkers(argument.getTid());
+    }
+
+    @Override
+    public boolean isArgumentOfLinkTypes(ExtentTag argument, Collection<TagType> linkTypes) {
+        return argumentIndex.isArgumentOfAny(argument.getTid(), linkTypes);
+    }
+
+    @Override
+    public void addTagChangeListener(TagChangeListener listener) {
+        tagChanges.addListener(listener);
+    }
+
+    @Override
+    public void removeTagChangeListener(TagChangeListener listener) {
+        tagChanges.removeListener(listener);
+    }
+
+    // att types
+    @Override
+    public AttributeType createAttributeType(TagType tagType, String attTypeName) throws MaeDBException {
+        AttributeType attType = new AttributeType(tagType, attTypeName);
+        attType.setAttributes(new InMemoryForeignCollection<>());
+        tagType.getAttributeTypes().add(attType);
+        logger.debug("a new attribute type is created: " + attTypeName);
+        setAnnotationChanged(true);
+        return attType;
+    }
+
+    @Override
+    public AttributeType getAttributeTypeOfTagTypeByName(TagType type, String name) throws MaeDBException {
+        for (AttributeType attType : type.getAttributeTypes()) {
+            if (attType.getName().equals(name)) {
+                return attType;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<AttributeType> getAttributeTypesOfTagType(TagType type) throws MaeDBException {
+        return new ArrayList<>(type.getAttributeTypes());
+    }
+
+    @Override
+    public MappedSet<String, String> getTagTypesAndAttTypes() throws MaeDBException {
+        MappedSet<String, String> tagsAndAtts = new MappedSet<>();
+        for (TagType tagType : getAllTagTypes()) {
+            if (tagType.isExtent()) {
+                tagsAndAtts.putCollection(tagType.getName(), tagType.getAttributeTypesAsString());
+            }
+        }
+        return tagsAndAtts;
+    }
+
+    @Override
+    public void setAttributeTypeValueSet(AttributeType attType, List<String> validValues) throws MaeDBException {
+        attType.setValuesetFromList(validValues);
+        logger.debug(String.format("assigned a valid value set \"%s\" to an attribute type: %s", validValues.toString(), attType.getName()));
+    }
+
+    @Override
+    public void setAttributeTypeDefaultValue(AttributeType attType, String defaultValue) throws MaeDBException {
+        attType.setDefaultValue(defaultValue);
+        logger.debug(String.format("assigned the default value \"%s\" to an attribute type: %s", defaultValue, attType.getName()));
+    }
+
+    @Override
+    public void setAttributeTypeIDRef(AttributeType attType, boolean b) throws MaeDBException {
+        attType.setIdRef(b);
+        logger.debug(String.format("set an attribute type \"%s\" to be: %s", attType.getName(), b? "idref": "free-text"));
+    }
+
+    @Override
+    public void setAttributeTypeRequired(AttributeType attType, boolean b) throws MaeDBException {
+        attType.setRequired(b);
+        logger.debug(String.format("set an attribute type \"%s\" to be: %s", attType.getName(), b? "required": "optional"));
+    }
+
+    // atts
+    private Tag getOwner(Attribute att) {
+        return att.getExtentTag() != null ? att.getExtentTag() : att.getLinkTag();
+    }
+
+    private void registerAttribute(Attribute att) {
+        Tag tag = getOwner(att);
+        ensureCollections(tag);
+        tag.getAttributes().add(att);
+        if (att.getAttributeType().getAttributes() == null) {
+            att.getAttributeType().setAttributes(new InMemoryForeignCollection<>());
+        }
+        att.getAttributeType().getAttributes().add(att);
+    }
+
+    @Override
+    public Attribute addAttribute(Tag tag, AttributeType attType, String attValue) throws MaeDBException {
+        try {
+            Attribute att = new Attribute(tag, attType, attValue);
+            registerAttribute(att);
+            logger.debug(String.format("an attribute \"%s\" is attached to \"%s\"", att.toString(), tag.toString()));
+            setAnnotationChanged(true);
+            return att;
+        } catch (MaeModelException e) {
+            throw new MaeDBException("failed to add an attribute: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void batchCreateAttributes(Collection<Attribute> atts) throws MaeDBException {
+        for (Attribute att : atts) {
+            registerAttribute(att);
+        }
+        logger.debug(String.format("%d attributes are inserted", atts.size()));
+
+    }
+
+    @Override
+    public void bulkCreateAnnotations(Collection<ExtentTag> extentTags, Collection<CharSpan> spans, Collection<LinkTag> linkTags,
+                                      Collection<Attribute> atts, Collection<Argument> args) throws MaeDBException {
+        // nothing to be gained from a separate path when there is no database
+        batchCreateExtentTags(extentTags);
+        batchCreateSpans(spans);
+        batchCreateLinkTags(linkTags);
+        batchCreateAttributes(atts);
+        batchCreateArguments(args);
+
+    }
+
+    @Override
+    public Set<Attribute> batchAddAttributes(Tag tag, Map<AttributeType, String> attributes) throws MaeDBException {
+        Set<Attribute> toBeAdded = new HashSet<>();
+        try {
+            for (AttributeType attType : attributes.keySet()) {
+                toBeAdded.add(new Attribute(tag, attType, attributes.get(attType)));
+            }
+        } catch (MaeModelException e) {
+            throw new MaeDBException("failed to add an attribute: " + e.getMessage(), e);
+        }
+        ensureCollections(tag);
+        for (Attribute att : toBeAdded) {
+            registerAttribute(att);
+        }
+        logger.debug(String.format("attributes \"%s\" are attached to \"%s\"", toBeAdded.toString(), tag.toString()));
+        setAnnotationChanged(true);
+        return toBeAdded;
+
+    }
+
+    @Override
+    public Attribute updateAttribute(Tag tag, AttributeType attType, String attValue) throws MaeDBException {
+        logger.debug(String.format("adding an attribute '%s: %s' to tag %s (%s)", attType.getName(), attValue, tag.getId(), tag.getTagTypeName()));
+        ensureCollections(tag);
+        Attribute oldAtt = null;
+        for (Attribute att : tag.getAttributes()) {
+            if (att.getAttributeType().equals(attType)) {
+                oldAtt = att;
+                break;
+            }
+        }
+        if (oldAtt != null) {
+            logger.debug(String.format("an old attribute \"%s\" is deleted from \"%s\"", oldAtt.toString(), tag.toString()));
+            tag.getAttributes().remove(oldAtt);
+            attType.getAttributes().remove(oldAtt);
+            setAnnotationChanged(true);
+        }
+        if (attValue != null && attValue.length() > 0) {
+            return addAttribute(tag, attType, attValue);
+        } else {
+            logger.debug("no new value is provided. leaving the attribute deleted");
+            setAnnotationChanged(true);
+            return null;
+        }
+
+    }
+
+    @Override
+    public void deleteAttribute(Tag tag, AttributeType attType) throws MaeDBException {
+        updateAttribute(tag, attType, null);
+    }
+
+    @Override
+    public Map<Tag, Map<String, String>> getAttributeMapsOfTagType(TagType type) throws MaeDBException {
+        Map<Tag, Map<String, String>> attByTags = new HashMap<>();
+        Collection<? extends Tag> tags = type.isExtent() ? getExtentTagsOfType(type) : getLinkTagsOfType(type);
+        for (Tag tag : tags) {
+            Map<String, String> attMap = getAttributeMapOfTag(tag);
+            if (attMap.size() > 0) {
+                attByTags.put(tag, attMap);
+            }
+        }
+        return attByTags;
+    }
+
+    @Override
+    public Map<String, String> getAttributeMapOfTag(Tag tag) throws MaeDBException {
+        Map<String, String> attMap = new HashMap<>();
+        for (Attribute att : tag.getAttributes()) {
+            attMap.put(att.getName(), att.getValue());
+        }
+        if (tag instanceof LinkTag) {
+            for (Argument arg : ((LinkTag) tag).getArguments()) {
+                attMap.put(arg.getName() + MaeStrings.ARG_IDCOL_SUF, arg.getArgumentId());
+                attMap.put(arg.getName() + MaeStrings.ARG_TEXTCOL_SUF, arg.getArgumentText());
+            }
+        }
+        return attMap;
+    }
+
+    // arg types
+    @Override
+    public ArgumentType createArgumentType(TagType tagType, String argTypeName) throws MaeDBException {
+        ArgumentType argType = new ArgumentType(tagType, argTypeName);
+        argType.setArguments(new InMemoryForeignCollection<>());
+        tagType.getArgumentTypes().add(argType);
+        logger.debug("a new argument type is created: " + argTypeName);
+        setAnnotationChanged(true);
+        return argType;
+    }
+
+    @Override
+    public ArgumentType getArgumentTypeOfTagTypeByName(TagType type, String name) throws MaeDBException {
+        for (ArgumentType argType : type.getArgumentTypes()) {
+            if (argType.getName().equals(name)) {
+                return argType;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<ArgumentType> getArgumentTypesOfLinkTagType(TagType link) throws MaeDBException {
+        return new ArrayList<>(link.getArgumentTypes());
+    }
+
+    @Override
+    public void setArgumentTypeRequired(ArgumentType argType, boolean b) throws MaeDBException {
+        argType.setRequired(b);
+        logger.debug(String.format("set an argument type \"%s\" to be: %s", argType.getName(), b? "required": "optional"));
+    }
+
+    // args
+    private void registerArgument(Argument arg) {
+        ensureCollections(arg.getLinker());
+        arg.getLinker().getArguments().add(arg);
+        if (arg.getArgumentType().getArguments() == null) {
+            arg.getArgumentType().setArguments(new InMemoryForeignCollection<>());
+        }
+        arg.getArgumentType().getArguments().add(arg);
+        String argTid = arg.getArgumentId();
+        if (!argumentsOfExtentTags.containsKey(argTid)) {
+            argumentsOfExtentTags.put(argTid, new ArrayList<>());
+        }
+        argumentsOfExtentTags.get(argTid).add(arg);
+        argumentIndex.addArgument(argTid, arg.getLinker().getTid(), arg.getLinker().getTagtype());
+    }
+
+    private void unregisterArgument(Argument arg) {
+        arg.getArgumentType().getArguments().remove(arg);
+        argumentIndex.removeArgument(arg.getArgumentId(), arg.getLinker().getTid());
+        List<Argument> args = argumentsOfExtentTags.get(arg.getArgumentId());
+        if (args != null) {
+            args.remove(arg);
+            if (args.isEmpty()) {
+                argumentsOfExtentTags.remove(arg.getArgumentId());
+            }
+        }
+    }
+
+    @Override
+    public void batchCreateArguments(Collection<Argument> args) throws MaeDBException {
+        for (Argument arg : args) {
+            registerArgument(arg);
+        }
+        logger.debug(String.format("%d arguments are inserted", args.size()));
+
+    }
+
+    @Override
+    public Argument addArgument(LinkTag linker, ArgumentType argType, ExtentTag argument) throws MaeDBException {
+        logger.debug(String.format("adding an argument '%s: %s' to tag %s (%s)", argType.getName(), argument == null ? "null" : argument.getId(), linker.getId(), linker.getTagTypeName()));
+        if (argument == null) {
+            throw new MaeDBException("no such a tag is in DB");
+        }
+        Argument arg = new Argument(linker, argType, argument);
+        registerArgument(arg);
+        logger.debug(String.format("an argument \"%s\" is attached to \"%s\"", argument.toString(), linker.toString()));
+        setAnnotationChanged(true);
+        tagChanges.fire(TagChangeEvent.Kind.ARGUMENTS_CHANGED, linker, argument.getSpanPairs());
+        return arg;
+    }
+
+    @Override
+    public Argument UpdateArgument(LinkTag linker, ArgumentType argType, ExtentTag argument) throws MaeDBException {
+        logger.debug(String.format("adding an argument '%s: %s' to tag %s (%s)", argType.getName(), argument == null ? "null" : argument.getId(), linker.getId(), linker.getTagTypeName()));
+        ensureCollections(linker);
+        Argument oldArg = null;
+        for (Argument arg : linker.getArguments()) {
+            if (arg.getArgumentType().equals(argType)) {
+                oldArg = arg;
+                break;
+            }
+        }
+        if (oldArg != null) {
+            linker.getArguments().remove(oldArg);
+            unregisterArgument(oldArg);
+            setAnnotationChanged(true);
+            if (oldArg.getArgument() != null) {
+                tagChanges.fire(TagChangeEvent.Kind.ARGUMENTS_CHANGED, linker, oldArg.getArgument().getSpanPairs());
+            }
+        }
+        if (argument != null) {
+            return addArgument(linker, argType, argument);
+        } else {
+            logger.debug("no new argument is provided. leaving the argument deleted");
+            return null;
+        }
+    }
+
+    @Override
+    public void emptyAnnotations() throws MaeDBException {
+        for (TagType type : tagTypes.values()) {
+            type.getExtentTags().clear();
+            type.getLinkTags().clear();
+            for (AttributeType attType : type.getAttributeTypes()) {
+                attType.getAttributes().clear();
+            }
+            for (ArgumentType argType : type.getArgumentTypes()) {
+                argType.getArguments().clear();
+            }
+        }
+        initAnnotations();
+        idHandler = new IdHandler();
+
+    }
+
+    /**
+     * Releases all stored objects. The snapshot file, if any, is kept
+     * until the annotations are saved, see {@link #deleteSnapshotFile(File)}.
+     */
+    @Override
+    public void destroy() throws MaeDBException {
+        initAll();
+        logger.info("driver is completely destroyed");
+    }
+
+}
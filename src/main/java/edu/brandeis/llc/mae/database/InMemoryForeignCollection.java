@@ -0,0 +1,231 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.database;
+
+import com.j256.ormlite.dao.CloseableIterator;
+import com.j256.ormlite.dao.CloseableWrappedIterable;
+import com.j256.ormlite.dao.CloseableWrappedIterableImpl;
+import com.j256.ormlite.dao.ForeignCollection;
+import com.j256.ormlite.support.DatabaseResults;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A list-backed stand-in for ORMLite's eager foreign collection, used to wire
+ * up relations between model objects when no DAO is behind them.
+ * All "database" operations (update, refresh, closing iterators) are no-ops.
+ */
+public class InMemoryForeignCollection<T> extends AbstractCollection<T> implements ForeignCollection<T> {
+
+    private final List<T> items;
+
+    public InMemoryForeignCollection() {
+        items = new ArrayList<>();
+    }
+
+    public InMemoryForeignCollection(Collection<? extends T> items) {
+        this.items = new ArrayList<>(items);
+    }
+
+    @Override
+    public int size() {
+        return items.size();
+    }
+
+    @Override
+    public boolean add(T item) {
+        return items.add(item);
+    }
+
+    @Override
+    public boolean remove(Object item) {
+        // model objects do not override equals(), remove by identity first
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i) == item) {
+                items.remove(i);
+                return true;
+            }
+        }
+        return items.remove(item);
+    }
+
+    @Override
+    public void clear() {
+        items.clear();
+    }
+
+    @Override
+    public CloseableIterator<T> iterator() {
+        return closeableIterator();
+    }
+
+    @Override
+    public CloseableIterator<T> closeableIterator() {
+        return new ListIterator();
+    }
+
+    @Override
+    public CloseableIterator<T> iterator(int flags) {
+        return closeableIterator();
+    }
+
+    @Override
+    public CloseableIterator<T> closeableIterator(int flags) {
+        return closeableIterator();
+    }
+
+    @Override
+    public CloseableIterator<T> iteratorThrow() {
+        return closeableIterator();
+    }
+
+    @Override
+    public CloseableIterator<T> iteratorThrow(int flags) {
+        return closeableIterator();
+    }
+
+    @Override
+    public CloseableWrappedIterable<T> getWrappedIterable() {
+        return new CloseableWrappedIterableImpl<>(this);
+    }
+
+    @Override
+    public CloseableWrappedIterable<T> getWrappedIterable(int flags) {
+        return getWrappedIterable();
+    }
+
+    @Override
+    public void closeLastIterator() {
+    }
+
+    @Override
+    public boolean isEager() {
+        return true;
+    }
+
+    @Override
+    public int update(T item) {
+        return items.contains(item) ? 1 : 0;
+    }
+
+    @Override
+    public int updateAll() {
+        return items.size();
+    }
+
+    @Override
+    public int refresh(T item) {
+        return items.contains(item) ? 1 : 0;
+    }
+
+    @Override
+    public int refreshAll() {
+        return items.size();
+    }
+
+    @Override
+    public int refreshCollection() {
+        return items.size();
+    }
+
+    private class ListIterator implements CloseableIterator<T> {
+
+        private int cursor = -1;
+        private boolean removable = false;
+
+        @Override
+        public boolean hasNext() {
+            return cursor + 1 < items.size();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            removable = true;
+            return items.get(++cursor);
+        }
+
+        @Override
+        public void remove() {
+            if (!removable) {
+                throw new IllegalStateException();
+            }
+            items.remove(cursor--);
+            removable = false;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void closeQuietly() {
+        }
+
+        @Override
+        public DatabaseResults getRawResults() {
+            return null;
+        }
+
+        @Override
+        public void moveToNext() {
+            cursor++;
+        }
+
+        @Override
+        public T first() {
+            cursor = 0;
+            return current();
+        }
+
+        @Override
+        public T previous() {
+            cursor--;
+            return current();
+        }
+
+        @Override
+        public T current() {
+            return cursor >= 0 && cursor < items.size() ? items.get(cursor) : null;
+        }
+
+        @Override
+        public T nextThrow() {
+            return hasNext() ? next() : null;
+        }
+
+        @Override
+        public T moveRelative(int offset) {
+            cursor += offset;
+            return current();
+        }
+    }
+}
@@ -27,7 +27,7 @@ package edu.brandeis.llc.mae.database;
 
 import com.j256.ormlite.dao.Dao;
 import com.j256.ormlite.dao.DaoManager;
-import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.dao.GenericRawResults;
 import com.j256.ormlite.stmt.QueryBuilder;
 import com.j256.ormlite.stmt.UpdateBuilder;
 import com.j256.ormlite.support.ConnectionSource;
@@ -58,16 +58,24 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
     private Logger logger;
 
     static final String JDBC_DRIVER = "jdbc:sqlite:";
+    static final int MAX_IN_CLAUSE_SIZE = 500;
+    // up to this many tags, point lookups by an already built query beat a freshly built IN query
+    static final int MAX_POINT_LOOKUPS = 16;
 
     private String SQLITE_FILENAME;
     private ConnectionSource cs;
+    // set only when tables are shared with drivers of other documents
+    private SharedSqliteDatabase sharedDatabase;
+    private int document;
     private IdHandler idHandler;
+    // in-memory interval index of extent tag spans, kept in sync with the span table
+    private SpanIndex spanIndex;
     // this should be distinguishable over diff tasks and diff versions
     private Task workingTask;
-    private boolean workChanged;
+    private volatile boolean workChanged;
 
     private Dao<Task, Integer> taskDao;
-    private Dao<CharIndex, Integer> charIndexDao;
+    private Dao<CharSpan, Integer> charSpanDao;
     private Dao<TagType, Integer> tagTypeDao;
     private Dao<ExtentTag, String> eTagDao;
     private Dao<LinkTag, String> lTagDao;
@@ -76,24 +84,20 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
     private Dao<ArgumentType, Integer> argTypeDao;
     private Dao<Argument, Integer> argDao;
 
-    private QueryBuilder<CharIndex, Integer> charIndexQuery;
-    private QueryBuilder<TagType, Integer> tagTypeQuery;
-    private QueryBuilder<ExtentTag, String> eTagQuery;
-    private QueryBuilder<LinkTag, String> lTagQuery;
-    private QueryBuilder<AttributeType, Integer> attTypeQuery;
-    private QueryBuilder<Attribute, Integer> attQuery;
-    private QueryBuilder<ArgumentType, Integer> argTypeQuery;
-    private QueryBuilder<Argument, Integer> argQuery;
-
+    // query builders are not thread-safe, thus every query builds its own from a DAO
     private Dao[] allDaos;
-    private QueryBuilder[] allQueryBuilders;
+    private BuiltQueryCache builtQueries = new BuiltQueryCache();
+    private Map<String, Double> lastBulkLoadRates = new HashMap<>();
+    private final TagChangeSupport tagChanges = new TagChangeSupport(this);
+    private final ArgumentIndex argumentIndex = new ArgumentIndex();
 
     public LocalSqliteDriverImpl(String sqlite_filename) throws MaeDBException {
         SQLITE_FILENAME = sqlite_filename;
         logger = LoggerFactory.getLogger(this.getClass().getName() + SQLITE_FILENAME);
         try {
-            cs = new JdbcConnectionSource(JDBC_DRIVER + SQLITE_FILENAME);
+            cs = new SqliteConnectionSource(JDBC_DRIVER + SQLITE_FILENAME);
             idHandler = new IdHandler();
+            spanIndex = new SpanIndex();
             this.setupDatabase(cs);
             // put a placeholder for task metadata in DB
             workingTask = new Task(SQLITE_FILENAME);
@@ -106,12 +110,53 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
 
     }
 
+    /**
+     * Creates a driver for a document whose annotations are stored in a database
+     * shared with other documents. Tables are created only by the first driver.
+     */
+    public LocalSqliteDriverImpl(SharedSqliteDatabase sharedDatabase) throws MaeDBException {
+        this.sharedDatabase = sharedDatabase;
+        SQLITE_FILENAME = sharedDatabase.getDBSourceName();
+        cs = sharedDatabase.getConnectionSource();
+        document = sharedDatabase.attach();
+        logger = LoggerFactory.getLogger(this.getClass().getName() + SQLITE_FILENAME + "#" + document);
+        idHandler = new IdHandler();
+        spanIndex = new SpanIndex();
+        createDaos(cs);
+        if (sharedDatabase.getNumberOfDocuments() == 1 && sharedDatabase.getTaskFileName() == null) {
+            dropAllTables(cs);
+            createAllTables(cs);
+        }
+        // task metadata is per document, thus not stored in the shared task table
+        workingTask = new Task(SQLITE_FILENAME + "#" + document);
+        logger.info("New JDBC SQLite Driver is initialized, using a shared file: " + SQLITE_FILENAME);
+        workChanged = false;
+
+    }
+
+    public boolean isShared() {
+        return sharedDatabase != null;
+    }
+
+    public int getDocument() {
+        return document;
+    }
+
     @Override
     public void setupDatabase(ConnectionSource source) throws MaeDBException {
 
+        createDaos(source);
+        dropAllTables(source);
+        createAllTables(source);
+        spanIndex.clear();
+        argumentIndex.clear();
+
+    }
+
+    private void createDaos(ConnectionSource source) throws MaeDBException {
         try {
             taskDao = DaoManager.createDao(source, Task.class);
-            charIndexDao = DaoManager.createDao(source, CharIndex.class);
+            charSpanDao = DaoManager.createDao(source, CharSpan.class);
             tagTypeDao = DaoManager.createDao(source, TagType.class);
             eTagDao = DaoManager.createDao(source, ExtentTag.class);
             lTagDao = DaoManager.createDao(source, LinkTag.class);
@@ -123,21 +168,23 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
             throw catchSQLException(e);
         }
 
-        charIndexQuery = charIndexDao.queryBuilder();
-        tagTypeQuery = tagTypeDao.queryBuilder();
-        eTagQuery = eTagDao.queryBuilder();
-        lTagQuery = lTagDao.queryBuilder();
-        attTypeQuery = attTypeDao.queryBuilder();
-        attQuery = attDao.queryBuilder();
-        argTypeQuery = argTypeDao.queryBuilder();
-        argQuery = argDao.queryBuilder();
-
-        allDaos = new Dao[]{ taskDao, charIndexDao, tagTypeDao, eTagDao, lTagDao, attTypeDao, attDao, argTypeDao, argDao};
-        allQueryBuilders = new QueryBuilder[]{ charIndexQuery, tagTypeQuery, eTagQuery, lTagQuery, attTypeQuery, attQuery, argTypeQuery, argQuery};
+        allDaos = new Dao[]{ taskDao, charSpanDao, tagTypeDao, eTagDao, lTagDao, attTypeDao, attDao, argTypeDao, argDao};
+        // built queries are bound to DAOs, thus need to be built again
+        builtQueries.clear();
+    }
 
-        dropAllTables(source);
-        createAllTables(source);
+    /**
+     * Returns how many times hot lookup queries are built from query builders.
+     */
+    public long getBuiltQueryCount() {
+        return builtQueries.getBuildCount();
+    }
 
+    /**
+     * Returns how many times already built queries are re-used.
+     */
+    public long getBuiltQueryHitCount() {
+        return builtQueries.getHitCount();
     }
 
     public void createAllTables(ConnectionSource source) throws MaeDBException {
@@ -164,12 +211,32 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
 
     @Override
     public void readTask(File file) throws MaeIODTDException, MaeDBException, FileNotFoundException {
+        if (isShared() && sharedDatabase.isTaskLoaded(file)) {
+            // tag types are already in the shared tables
+            workingTask.setName(sharedDatabase.getTaskName());
+            workingTask.setTaskFileName(sharedDatabase.getTaskFileName());
+            idHandler = new IdHandler();
+            spanIndex.clear();
+            argumentIndex.clear();
+            return;
+        }
+        if (isShared() && sharedDatabase.getTaskFileName() != null && sharedDatabase.getNumberOfDocuments() > 1) {
+            // re-creating the shared tables would wipe out tags of all other documents
+            throw new MaeIODTDException(String.format(
+                    "Shared DB already holds documents of a different task (%s), cannot read: %s",
+                    sharedDatabase.getTaskFileName(), file.getAbsolutePath()));
+        }
         DTDLoader dtdl = new DTDLoader(this);
         dropAllTables(cs);
         createAllTables(cs);
+        spanIndex.clear();
+        argumentIndex.clear();
         if (!dtdl.read(file)) {
             throw new MaeIODTDException("DTD does not contain any definition, maybe not a DTD file? " + file.getAbsolutePath());
         }
+        if (isShared()) {
+            sharedDatabase.setTaskLoaded(getTaskName(), getTaskFileName());
+        }
 
     }
 
@@ -182,12 +249,6 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
 
     }
 
-    private void resetQueryBuilders() {
-        for (QueryBuilder qb : allQueryBuilders) {
-            qb.reset();
-        }
-    }
-
     @Override
     public String getDBSourceName() {
         return SQLITE_FILENAME;
@@ -207,7 +268,7 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
     public void setAnnotationFileName(String fileName) throws MaeDBException {
         try {
             this.workingTask.setAnnotationFileName(fileName);
-            taskDao.update(workingTask);
+            updateTask();
         } catch (SQLException e) {
             throw catchSQLException(e);
         }
@@ -222,7 +283,7 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
     public void setPrimaryText(String text) throws MaeDBException {
         try {
             this.workingTask.setPrimaryText(text);
-            taskDao.update(workingTask);
+            updateTask();
         } catch (SQLException e) {
             throw catchSQLException(e);
         }
@@ -236,15 +297,23 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
     @Override
     public void setTaskName(String name) throws MaeDBException {
         try {
-            // need to clear task table before updating id column of it
-            TableUtils.clearTable(cs, taskDao.getDataClass());
             workingTask.setName(name);
-            taskDao.create(workingTask);
+            if (!isShared()) {
+                // need to clear task table before updating id column of it
+                TableUtils.clearTable(cs, taskDao.getDataClass());
+                taskDao.create(workingTask);
+            }
         } catch (SQLException e) {
             throw catchSQLException(e);
         }
     }
 
+    private void updateTask() throws SQLException {
+        if (!isShared()) {
+            taskDao.update(workingTask);
+        }
+    }
+
     @Override
     public String getTaskFileName() throws MaeDBException {
         return workingTask.getTaskFileName();
@@ -254,7 +323,7 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
     public void setTaskFileName(String fileName) throws MaeDBException {
         try {
             this.workingTask.setTaskFileName(fileName);
-            taskDao.update(workingTask);
+            updateTask();
         } catch (SQLException e) {
             throw catchSQLException(e);
         }
@@ -287,122 +356,194 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
 
     @Override
     public List<ExtentTag> getTagsAt(int location) throws MaeDBException {
-
-        try {
-            List<ExtentTag> results;
-            charIndexQuery.where().eq(TAB_CI_COL_LOCATION, location);
-            results = eTagQuery.join(charIndexQuery).query();
-            resetQueryBuilders();
-            return results;
-        } catch (SQLException e) {
-            throw catchSQLException(e);
-        }
+        return getExtentTagsByTids(spanIndex.getTidsAt(location));
     }
 
     @Override
     public List<ExtentTag> getTagsIn(int[] locations) throws MaeDBException {
-        Set<ExtentTag> tags = new TreeSet<>();
-        for (int location : locations) {
-            tags.addAll(getTagsAt(location));
-        }
-        return new ArrayList<>(tags);
+        return new ArrayList<>(new TreeSet<>(getExtentTagsByTids(getTidsIn(locations))));
     }
 
-    public List<String> getTagIdsAt(int loc) throws MaeDBException {
-        List<String> tids = new ArrayList<>();
-        for (ExtentTag tag : getTagsAt(loc)) {
-            tids.add(tag.getId());
+    @Override
+    public Set<String> getTidsIn(int[] locations) {
+        Set<String> tids = new TreeSet<>();
+        for (int[] pair : SpanHandler.convertLocationsToPairs(locations)) {
+            tids.addAll(spanIndex.getTidsBetween(pair[0], pair[1]));
         }
         return tids;
     }
 
     @Override
-    public List<ExtentTag> getTagsOfTypeAt(TagType type, int location) throws MaeDBException {
+    public List<ExtentTag> getTagsBetween(int begin, int end) throws MaeDBException {
+        return getExtentTagsByTids(spanIndex.getTidsBetween(begin, end));
+    }
+
+    @Override
+    public List<ExtentTag> getExtentTagsByTids(Collection<String> tids) throws MaeDBException {
+        List<ExtentTag> tags = new ArrayList<>();
+        if (tids.isEmpty()) {
+            return tags;
+        }
         try {
-            List<ExtentTag> results;
-            charIndexQuery.where().eq(TAB_CI_COL_LOCATION, location);
-            results = eTagQuery.join(charIndexQuery).where().eq(TAB_TAG_FCOL_TT, type).query();
-            resetQueryBuilders();
-            return results;
+            if (tids.size() <= MAX_POINT_LOOKUPS) {
+                for (String tid : tids) {
+                    ExtentTag tag = builtQueries.get("extentTagByKey", eTagDao, 1,
+                            (qb, args) -> qb.where().eq(TAB_TAG_COL_KEY, args[0]).prepare())
+                            .queryForFirst(Tag.toKey(document, tid));
+                    if (tag != null) {
+                        tags.add(tag);
+                    }
+                }
+                return tags;
+            }
+            // sqlite limits the number of host parameters in a statement
+            List<String> keyList = new ArrayList<>();
+            for (String tid : tids) {
+                keyList.add(Tag.toKey(document, tid));
+            }
+            for (int i = 0; i < keyList.size(); i += MAX_IN_CLAUSE_SIZE) {
+                QueryBuilder<ExtentTag, String> tagQuery = eTagDao.queryBuilder();
+                tagQuery.where().in(TAB_TAG_COL_KEY, keyList.subList(i, Math.min(i + MAX_IN_CLAUSE_SIZE, keyList.size())));
+                tags.addAll(tagQuery.query());
+            }
+            return tags;
         } catch (SQLException e) {
             throw catchSQLException(e);
         }
     }
 
+    public List<String> getTagIdsAt(int loc) throws MaeDBException {
+        return new ArrayList<>(spanIndex.getTidsAt(loc));
+    }
+
+    @Override
+    public List<ExtentTag> getTagsOfTypeAt(TagType type, int location) throws MaeDBException {
+        return getExtentTagsByTids(spanIndex.getTidsOfTypeAt(type.getName(), location));
+    }
+
     @Override
     public List<ExtentTag> getTagsOfTypeIn(TagType type, int[] locations) throws MaeDBException {
-        Set<ExtentTag> tags = new HashSet<>();
-        for (int location : locations) {
-            tags.addAll(getTagsOfTypeAt(type, location));
+        Set<String> tids = new HashSet<>();
+        for (int[] pair : SpanHandler.convertLocationsToPairs(locations)) {
+            tids.addAll(spanIndex.getTidsOfTypeBetween(type.getName(), pair[0], pair[1]));
         }
-        return new ArrayList<>(tags);
+        return getExtentTagsByTids(tids);
     }
 
     @Override
     public List<ExtentTag> getTagsOfTypeBetween(TagType type, int begin, int end) throws MaeDBException {
-        Set<ExtentTag> tags = new HashSet<>();
-        for (int i = begin; i < end; i++) {
-            tags.addAll(getTagsOfTypeAt(type, i));
-        }
-        return new ArrayList<>(tags);
+        return getExtentTagsByTids(spanIndex.getTidsOfTypeBetween(type.getName(), begin, end));
     }
+
     @Override
     public Collection<CharIndex> getAllAnchors() throws MaeDBException {
+        return spansToAnchors(getAllSpans());
+
+    }
+
+    private List<CharSpan> getAllSpans() throws MaeDBException {
         try {
-            return charIndexDao.queryForAll();
+            if (!isShared()) {
+                return charSpanDao.queryForAll();
+            }
+            QueryBuilder<ExtentTag, String> tagQuery = eTagDao.queryBuilder();
+            tagQuery.where().eq(TAB_TAG_COL_DOC, document);
+            return charSpanDao.queryBuilder().join(tagQuery).query();
         } catch (SQLException e) {
             throw catchSQLException(e);
         }
-
     }
 
     @Override
     public Collection<CharIndex> getAllAnchorsOfTagType(TagType type) throws MaeDBException{
+        return spansToAnchors(getAllSpansOfTagType(type));
+    }
+
+    public List<CharSpan> getAllSpansOfTagType(TagType type) throws MaeDBException{
         try {
-            Collection<CharIndex> indices;
             if (type.isExtent()) {
-                eTagQuery.where().eq(TAB_TAG_FCOL_TT, type);
-                indices = charIndexQuery.join(eTagQuery).query();
+                return builtQueries.get("spansOfExtentType", charSpanDao, 2, (qb, args) -> {
+                    QueryBuilder<ExtentTag, String> tagQuery = eTagDao.queryBuilder();
+                    tagQuery.where().eq(TAB_TAG_FCOL_TT, args[0]).and().eq(TAB_TAG_COL_DOC, args[1]);
+                    return qb.join(tagQuery).prepare();
+                }).query(type.getName(), document);
             } else {
-                lTagQuery.where().eq(TAB_TAG_FCOL_TT, type);
-                argQuery.join(lTagQuery).selectColumns(TAB_ARG_FCOL_ETAG).distinct();
-                eTagQuery.join(argQuery);
-                indices = charIndexQuery.join(eTagQuery).query();
+                return builtQueries.get("spansOfLinkType", charSpanDao, 2, (qb, args) -> {
+                    QueryBuilder<LinkTag, String> linkQuery = lTagDao.queryBuilder();
+                    linkQuery.where().eq(TAB_TAG_FCOL_TT, args[0]).and().eq(TAB_TAG_COL_DOC, args[1]);
+                    QueryBuilder<Argument, Integer> argumentQuery = argDao.queryBuilder();
+                    argumentQuery.join(linkQuery).selectColumns(TAB_ARG_FCOL_ETAG).distinct();
+                    QueryBuilder<ExtentTag, String> tagQuery = eTagDao.queryBuilder();
+                    tagQuery.join(argumentQuery);
+                    return qb.join(tagQuery).prepare();
+                }).query(type.getName(), document);
             }
-            resetQueryBuilders();
-            return indices;
         } catch (SQLException e) {
             throw catchSQLException(e);
         }
     }
 
+    private List<CharIndex> spansToAnchors(Collection<CharSpan> spans) {
+        List<CharIndex> anchors = new ArrayList<>();
+        for (CharSpan span : spans) {
+            for (int location = span.getStart(); location < span.getEnd(); location++) {
+                anchors.add(new CharIndex(location, span.getTag()));
+            }
+        }
+        return anchors;
+    }
+
+    private List<Integer> spansToLocations(Collection<CharSpan> spans) {
+        List<Integer> locations = new ArrayList<>();
+        for (CharSpan span : spans) {
+            for (int location = span.getStart(); location < span.getEnd(); location++) {
+                locations.add(location);
+            }
+        }
+        Collections.sort(locations);
+        return locations;
+    }
+
+    private BitSet spansToBitSet(Collection<CharSpan> spans) {
+        BitSet locations = new BitSet();
+        for (CharSpan span : spans) {
+            locations.set(span.getStart(), span.getEnd());
+        }
+        return locations;
+    }
+
     @Override
     public List<Integer> getAllAnchorLocations() throws MaeDBException{
-        List<Integer> anchorLocations = new ArrayList<>();
-        for (CharIndex anchor : getAllAnchors()) {
-            anchorLocations.add(anchor.getLocation());
-        }
-        return anchorLocations;
+        return spansToLocations(getAllSpans());
 
     }
 
     @Override
     public List<Integer> getAllAnchorLocationsOfTagType(TagType type) throws MaeDBException{
-        List<Integer> anchorLocations = new ArrayList<>();
-        for (CharIndex anchor : getAllAnchorsOfTagType(type)) {
-            anchorLocations.add(anchor.getLocation());
-        }
-        return anchorLocations;
+        return spansToLocations(getAllSpansOfTagType(type));
     }
 
     @Override
     public List<Integer> getAllAnchorLocationsOfTagType(TagType type, List<TagType> exculdes) throws MaeDBException{
-        List<Integer> targetSpans = getAllAnchorLocationsOfTagType(type);
+        BitSet targetSpans = getAllAnchorLocationsOfTagTypeAsBitSet(type);
         for (TagType exclude : exculdes) {
-            targetSpans.removeAll(getAllAnchorLocationsOfTagType(exclude));
+            targetSpans.andNot(getAllAnchorLocationsOfTagTypeAsBitSet(exclude));
+        }
+        List<Integer> locations = new ArrayList<>(targetSpans.cardinality());
+        for (int location = targetSpans.nextSetBit(0); location >= 0; location = targetSpans.nextSetBit(location + 1)) {
+            locations.add(location);
         }
-        return targetSpans;
+        return locations;
+    }
+
+    @Override
+    public BitSet getAllAnchorLocationsAsBitSet() throws MaeDBException{
+        return spansToBitSet(getAllSpans());
+    }
 
+    @Override
+    public BitSet getAllAnchorLocationsOfTagTypeAsBitSet(TagType type) throws MaeDBException{
+        return spansToBitSet(getAllSpansOfTagType(type));
     }
 
     public List<ExtentTag> getArgumentTags(LinkTag linker) {
@@ -413,12 +554,12 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
     public Collection<CharIndex> getAnchorsByTid(String tid) throws MaeDBException {
         Tag tag = getTagByTid(tid);
         if (tag.getTagtype().isExtent()) {
-            return ((ExtentTag) tag).getSpans();
+            return spansToAnchors(((ExtentTag) tag).getSpans());
         } else {
 
             Set<CharIndex> argSpans = new TreeSet<>();
             for (ExtentTag arg : ((LinkTag) tag).getArgumentTags()) {
-                argSpans.addAll(arg.getSpans());
+                argSpans.addAll(spansToAnchors(arg.getSpans()));
             }
             return argSpans;
         }
@@ -443,10 +584,12 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
     @Override
     public Tag getTagByTid(String tid) throws MaeDBException {
         try {
-            if (eTagDao.queryForId(tid) != null) {
-                return eTagDao.queryForId(tid);
+            String key = Tag.toKey(document, tid);
+            ExtentTag eTag = eTagDao.queryForId(key);
+            if (eTag != null) {
+                return eTag;
             } else {
-                return lTagDao.queryForId(tid);
+                return lTagDao.queryForId(key);
             }
         } catch (SQLException e) {
             throw catchSQLException(e);
@@ -467,13 +610,23 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
     @Override
     public void deleteTag(Tag tag) throws MaeDBException {
         try {
+            int[] affectedSpans;
             if (tag instanceof ExtentTag) {
+                affectedSpans = ((ExtentTag) tag).getSpanPairs();
                 eTagDao.delete((ExtentTag) tag);
+                spanIndex.removeTag(tag.getTid());
+                argumentIndex.removeArgumentTag(tag.getTid());
             } else {
+                List<ExtentTag> arguments = ((LinkTag) tag).getArgumentTags();
+                affectedSpans = TagChangeSupport.spansOf(arguments);
                 lTagDao.delete((LinkTag) tag);
+                for (ExtentTag argument : arguments) {
+                    argumentIndex.removeArgument(argument.getTid(), tag.getTid());
+                }
             }
             logger.debug("a tag is deleted: " + tag.getId());
             setAnnotationChanged(true);
+            tagChanges.fire(TagChangeEvent.Kind.DELETED, tag, affectedSpans);
         } catch (SQLException e) {
             throw catchSQLException(e);
         }
@@ -483,22 +636,53 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
     public Set<LinkTag> getLinksHasArgumentTag(ExtentTag argument) throws MaeDBException{
         try {
             TreeSet<LinkTag> links = new TreeSet<>();
-            List<Argument> results;
-            results = argQuery.where().eq(TAB_ARG_FCOL_ETAG, argument).query();
+            List<Argument> results = builtQueries.get("argumentsByExtentTag", argDao, 1,
+                    (qb, args) -> qb.where().eq(TAB_ARG_FCOL_ETAG, args[0]).prepare())
+                    .query(argument.getKey());
             for (Argument result : results) {
                 links.add(result.getLinker());
             }
-            resetQueryBuilders();
             return links;
         } catch (SQLException e) {
             throw catchSQLException(e);
         }
     }
 
+    @Override
+    public MappedSet<String, TagType> getLinkTypesOfArgumentTags(Collection<ExtentTag> arguments) throws MaeDBException {
+        MappedSet<String, TagType> linkTypes = new MappedSet<>();
+        for (ExtentTag argument : arguments) {
+            for (TagType linkType : argumentIndex.getLinkerTypes(argument.getTid())) {
+                linkTypes.putItem(argument.getTid(), linkType);
+            }
+        }
+        return linkTypes;
+    }
+
+    @Override
+    public Map<String, TagType> getLinkersOfArgumentTag(ExtentTag argument) {
+        return argumentIndex.getLinkers(argument.getTid());
+    }
+
+    @Override
+    public boolean isArgumentOfLinkTypes(ExtentTag argument, Collection<TagType> linkTypes) {
+        return argumentIndex.isArgumentOfAny(argument.getTid(), linkTypes);
+    }
+
+    @Override
+    public void addTagChangeListener(TagChangeListener listener) {
+        tagChanges.addListener(listener);
+    }
+
+    @Override
+    public void removeTagChangeListener(TagChangeListener listener) {
+        tagChanges.removeListener(listener);
+    }
+
     @Override
     public List<LinkTag> getAllLinkTagsOfAllTypes() throws MaeDBException {
         try {
-            return new ArrayList<>(lTagDao.queryForAll());
+            return new ArrayList<>(lTagDao.queryForEq(TAB_TAG_COL_DOC, document));
         } catch (SQLException e) {
             throw catchSQLException(e);
         }
@@ -507,7 +691,7 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
     @Override
     public List<ExtentTag> getAllExtentTagsOfAllTypes(boolean consumingOnly) throws MaeDBException {
         try {
-            return new ArrayList<>(eTagDao.queryForAll());
+            return new ArrayList<>(eTagDao.queryForEq(TAB_TAG_COL_DOC, document));
         } catch (SQLException e) {
             throw catchSQLException(e);
         }
@@ -517,7 +701,17 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
         MappedSet<TagType, ExtentTag> tagsByTypes = new MappedSet<>();
         for (TagType type : getAllTagTypes()) {
             if (type.isExtent()) {
-                tagsByTypes.putCollection(type, type.getExtentTagsAsList(consumingOnly));
+                if (isShared()) {
+                    List<ExtentTag> tags = new ArrayList<>();
+                    for (ExtentTag tag : getAllExtentTagsOfType(type)) {
+                        if (tag.isConsuming() || !consumingOnly) {
+                            tags.add(tag);
+                        }
+                    }
+                    tagsByTypes.putCollection(type, tags);
+                } else {
+                    tagsByTypes.putCollection(type, type.getExtentTagsAsList(consumingOnly));
+                }
             }
         }
         return tagsByTypes;
@@ -536,8 +730,8 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
     @Override
     public MappedSet<TagType,ExtentTag> getTagsByTypesIn(int... locations) throws MaeDBException{
         MappedSet<TagType, ExtentTag> tags = new MappedSet<>();
-        for (int location : locations) {
-            tags.merge(getTagsByTypesAt(location));
+        for (ExtentTag tag : getTagsIn(locations)) {
+            tags.putItem(tag.getTagtype(), tag);
         }
         return tags;
     }
@@ -557,14 +751,22 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
     @Override
     public MappedSet<TagType,ExtentTag> getTagsByTypesBetween(int begin, int end) throws MaeDBException{
         MappedSet<TagType, ExtentTag> tags = new MappedSet<>();
-        for (int i=begin; i<end; i++) {
-            tags.merge(getTagsByTypesAt(i));
+        for (ExtentTag tag : getTagsBetween(begin, end)) {
+            tags.putItem(tag.getTagtype(), tag);
         }
         return tags;
     }
 
     private Collection<? extends Tag> lazilyGetAllTagsOfType(TagType type) throws MaeDBException {
         try {
+            if (isShared()) {
+                // foreign collection of a tag type spans over all documents
+                if (type.isExtent()) {
+                    return eTagDao.queryBuilder().where().eq(TAB_TAG_FCOL_TT, type).and().eq(TAB_TAG_COL_DOC, document).query();
+                } else {
+                    return lTagDao.queryBuilder().where().eq(TAB_TAG_FCOL_TT, type).and().eq(TAB_TAG_COL_DOC, document).query();
+                }
+            }
             tagTypeDao.refresh(type);
             return type.getTags();
         } catch (SQLException e) {
@@ -588,13 +790,70 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
         return (Collection<ExtentTag>) getAllTagsOfType(type);
     }
 
+    @Override
+    public PagedTags<ExtentTag> getAllExtentTagsOfAllTypes(boolean consumingOnly, int pageSize) throws MaeDBException {
+        return new PagedTags<>(queryTagKeys(TAB_ETAG, null, consumingOnly), pageSize,
+                keys -> queryTagsByKeys(eTagDao, keys));
+    }
+
+    @Override
+    public PagedTags<ExtentTag> getAllExtentTagsOfType(TagType type, int pageSize) throws MaeDBException {
+        return new PagedTags<>(queryTagKeys(TAB_ETAG, type, false), pageSize,
+                keys -> queryTagsByKeys(eTagDao, keys));
+    }
+
+    /**
+     * Returns keys of tags of this document in insertion order, without materializing tag objects.
+     * Passing null as the type will return keys of all types.
+     */
+    private List<String> queryTagKeys(String table, TagType type, boolean consumingOnly) throws MaeDBException {
+        StringBuilder sql = new StringBuilder(String.format("SELECT `%s` FROM `%s` WHERE `%s` = %d",
+                TAB_TAG_COL_KEY, table, TAB_TAG_COL_DOC, document));
+        List<String> args = new ArrayList<>();
+        if (type != null) {
+            sql.append(String.format(" AND `%s` = ?", TAB_TAG_FCOL_TT));
+            args.add(type.getName());
+        }
+        if (consumingOnly) {
+            sql.append(String.format(" AND `%s` IN (SELECT `%s` FROM `%s`)", TAB_TAG_COL_KEY, TAB_CS_FCOL_ETAG, TAB_CS));
+        }
+        sql.append(" ORDER BY rowid");
+        List<String> keys = new ArrayList<>();
+        try {
+            GenericRawResults<String[]> results = eTagDao.queryRaw(sql.toString(), args.toArray(new String[args.size()]));
+            for (String[] row : results.getResults()) {
+                keys.add(row[0]);
+            }
+            return keys;
+        } catch (SQLException e) {
+            throw catchSQLException(e);
+        }
+    }
+
+    private <T extends Tag> List<T> queryTagsByKeys(Dao<T, String> dao, List<String> keys) throws MaeDBException {
+        List<T> tags = new ArrayList<>();
+        try {
+            // sqlite limits the number of host parameters in a statement
+            for (int i = 0; i < keys.size(); i += MAX_IN_CLAUSE_SIZE) {
+                QueryBuilder<T, String> tagQuery = dao.queryBuilder();
+                tagQuery.where().in(TAB_TAG_COL_KEY, keys.subList(i, Math.min(i + MAX_IN_CLAUSE_SIZE, keys.size())));
+                tags.addAll(tagQuery.query());
+            }
+            return tags;
+        } catch (SQLException e) {
+            throw catchSQLException(e);
+        }
+    }
+
     @Override
     public List<ExtentTag> getAllNCTagsOfType(TagType type) throws MaeDBException, IllegalArgumentException {
         try {
-            charIndexQuery.selectColumns(DBSchema.TAB_CI_FCOL_ETAG);
-            List<ExtentTag> nctags = eTagQuery.where().eq(TAB_TAG_FCOL_TT, type).and().notIn(TAB_TAG_COL_TID, charIndexQuery).query();
-            resetQueryBuilders();
-            return nctags;
+            return builtQueries.get("ncTagsOfType", eTagDao, 2, (qb, args) -> {
+                QueryBuilder<CharSpan, Integer> spanQuery = charSpanDao.queryBuilder();
+                spanQuery.selectColumns(DBSchema.TAB_CS_FCOL_ETAG);
+                return qb.where().eq(TAB_TAG_FCOL_TT, args[0]).and().eq(TAB_TAG_COL_DOC, args[1])
+                        .and().notIn(TAB_TAG_COL_KEY, spanQuery).prepare();
+            }).query(type.getName(), document);
         } catch (SQLException e) {
             throw catchSQLException(e);
         }
@@ -613,6 +872,12 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
 
     }
 
+    @Override
+    public PagedTags<LinkTag> getAllLinkTagsOfType(TagType type, int pageSize) throws MaeDBException {
+        return new PagedTags<>(queryTagKeys(TAB_LTAG, type, false), pageSize,
+                keys -> queryTagsByKeys(lTagDao, keys));
+    }
+
     @Override
     public TagType createTagType(String typeName, String prefix, boolean isLink) throws MaeDBException {
         try {
@@ -643,11 +908,9 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
     @Override
     public AttributeType getAttributeTypeOfTagTypeByName(TagType type, String name) throws MaeDBException {
         try {
-            AttributeType result
-                    = attTypeQuery.where().eq(TAB_AT_FCOL_TT, type).
-                    and().eq(TAB_AT_COL_NAME, name).queryForFirst();
-            resetQueryBuilders();
-            return  result;
+            return builtQueries.get("attTypeByName", attTypeDao, 2,
+                    (qb, args) -> qb.where().eq(TAB_AT_FCOL_TT, args[0]).and().eq(TAB_AT_COL_NAME, args[1]).prepare())
+                    .queryForFirst(type.getName(), name);
         } catch (SQLException e) {
             throw catchSQLException(e);
         }
@@ -656,11 +919,8 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
     @Override
     public ArgumentType getArgumentTypeOfTagTypeByName(TagType type, String name) throws MaeDBException {
         try {
-            ArgumentType result
-                    = argTypeQuery.where().eq(TAB_ART_FCOL_TT, type).
+            return argTypeDao.queryBuilder().where().eq(TAB_ART_FCOL_TT, type).
                     and().eq(TAB_ART_COL_NAME, name).queryForFirst();
-            resetQueryBuilders();
-            return  result;
         } catch (SQLException e) {
             throw catchSQLException(e);
         }
@@ -702,8 +962,9 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
     private Map<Tag, Map<String, String>> getAttributeMapsOfExtentTagType(TagType type) throws MaeDBException {
         Map<Tag, Map<String, String>> attByTags = new HashMap<>();
         try {
-            eTagQuery.where().eq(TAB_TAG_FCOL_TT, type);
-            List<Attribute> allAtts = attQuery.join(eTagQuery).query();
+            QueryBuilder<ExtentTag, String> tagQuery = eTagDao.queryBuilder();
+            tagQuery.where().eq(TAB_TAG_FCOL_TT, type).and().eq(TAB_TAG_COL_DOC, document);
+            List<Attribute> allAtts = attDao.queryBuilder().join(tagQuery).query();
             for (int i = 0; i < allAtts.size(); i++)  {
                 Attribute att = allAtts.get(i);
                 if (!attByTags.containsKey(att.getTid())) {
@@ -712,7 +973,6 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
                 attByTags.get(att.getExtentTag()).put(att.getName(), att.getValue());
 
             }
-            resetQueryBuilders();
             return attByTags;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -724,8 +984,9 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
     private Map<Tag, Map<String, String>> getAttributeMapsOfLinkTagType(TagType type) throws MaeDBException {
         Map<Tag, Map<String, String>> attByTags = new HashMap<>();
         try {
-            lTagQuery.where().eq(TAB_TAG_FCOL_TT, type);
-            List<Attribute> allAtts = attQuery.join(lTagQuery).query();
+            QueryBuilder<LinkTag, String> linkQuery = lTagDao.queryBuilder();
+            linkQuery.where().eq(TAB_TAG_FCOL_TT, type).and().eq(TAB_TAG_COL_DOC, document);
+            List<Attribute> allAtts = attDao.queryBuilder().join(linkQuery).query();
             for (int i = 0; i < allAtts.size(); i++)  {
                 Attribute att = allAtts.get(i);
                 if (!attByTags.containsKey(att.getLinkTag())) {
@@ -734,7 +995,7 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
                 attByTags.get(att.getLinkTag()).put(att.getName(), att.getValue());
 
             }
-            List<Argument> allArgs = argQuery.join(lTagQuery).query();
+            List<Argument> allArgs = argDao.queryBuilder().join(linkQuery).query();
             for (int i = 0; i < allArgs.size(); i++)  {
                 Argument arg = allArgs.get(i);
                 if (!attByTags.containsKey(arg.getLinker())) {
@@ -744,7 +1005,6 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
                 attMap.put(arg.getName() + MaeStrings.ARG_IDCOL_SUF, arg.getArgumentId());
                 attMap.put(arg.getName() + MaeStrings.ARG_TEXTCOL_SUF, arg.getArgumentText());
             }
-            resetQueryBuilders();
             return attByTags;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -768,7 +1028,7 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
         Map<String, String> attMap = new HashMap<>();
         try {
             List<Attribute> retrievedAtts
-                    = attDao.queryForEq(DBSchema.TAB_ATT_FCOL_ETAG, tag.getId());
+                    = attDao.queryForEq(DBSchema.TAB_ATT_FCOL_ETAG, tag.getKey());
             for (int i = 0; i < retrievedAtts.size(); i++) {
                 Attribute att = retrievedAtts.get(i);
                 attMap.put(att.getName(), att.getValue());
@@ -784,7 +1044,7 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
         try {
             Map<String, String> attMap = getAttributeMapOfExtentTag(tag);
             List<Argument> retrievedArgs
-                    = argDao.queryForEq(DBSchema.TAB_ARG_FCOL_ETAG, tag.getId());
+                    = argDao.queryForEq(DBSchema.TAB_ARG_FCOL_ETAG, tag.getKey());
             for (int i = 0; i < retrievedArgs.size(); i++) {
                 Argument arg = retrievedArgs.get(i);
                 attMap.put(arg.getName() + MaeStrings.ARG_IDCOL_SUF, arg.getArgumentId());
@@ -815,14 +1075,15 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
     public ExtentTag createExtentTag(String tid, TagType tagType, String text, int... spans) throws MaeDBException {
         try {
             ExtentTag tag = new ExtentTag(tid, tagType, getAnnotationFileName());
+            tag.setDocument(document);
             tag.setText(text);
 
-            // store anchors
-            Collection<CharIndex> anchors = tag.setSpans(spans);
-            charIndexDao.callBatchTasks(new Callable<Void>() {
+            // store anchored spans, one row per contiguous pair
+            Collection<CharSpan> charSpans = tag.setSpans(spans);
+            charSpanDao.callBatchTasks(new Callable<Void>() {
                 public Void call() throws Exception {
-                    for (CharIndex anchor : anchors) {
-                        charIndexDao.create(anchor);
+                    for (CharSpan charSpan : charSpans) {
+                        charSpanDao.create(charSpan);
                     }
                     return null;
                 }
@@ -835,8 +1096,12 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
             if (!added) {
                 throw new MaeDBException("tag id is already in DB!: " + tid);
             }
+            for (CharSpan charSpan : charSpans) {
+                spanIndex.addSpan(tid, tagType.getName(), charSpan.getStart(), charSpan.getEnd());
+            }
             logger.debug("a new extent tag is created: " + tid);
             setAnnotationChanged(true);
+            tagChanges.fire(TagChangeEvent.Kind.CREATED, tag, tag.getSpanPairs());
             return tag;
         } catch (SQLException e) {
             throw catchSQLException(e);
@@ -868,6 +1133,7 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
     public LinkTag createLinkTag(String tid, TagType tagType) throws MaeDBException {
         try {
             LinkTag link = new LinkTag(tid, tagType, getAnnotationFileName());
+            link.setDocument(document);
             populateDefaultAttributes(tagType, link);
             lTagDao.create(link);
             boolean added = idHandler.addId(tagType, tid);
@@ -876,6 +1142,7 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
             }
             logger.debug("a new link tag is created: " + tid);
             setAnnotationChanged(true);
+            tagChanges.fire(TagChangeEvent.Kind.CREATED, link, new int[0]);
             return link;
         } catch (SQLException e) {
             throw catchSQLException(e);
@@ -909,7 +1176,7 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
     public Attribute updateAttribute(Tag tag, AttributeType attType, String attValue) throws MaeDBException {
         logger.debug(String.format("adding an attribute '%s: %s' to tag %s (%s)", attType.getName(), attValue, tag.getId(), tag.getTagTypeName()));
         try {
-            Attribute oldAtt = attQuery.where().eq(TAB_ATT_FCOL_ETAG, tag).and().eq(TAB_ATT_FCOL_AT, attType).queryForFirst();
+            Attribute oldAtt = attDao.queryBuilder().where().eq(TAB_ATT_FCOL_ETAG, tag).and().eq(TAB_ATT_FCOL_AT, attType).queryForFirst();
             if (oldAtt != null) {
                 logger.debug(String.format("an old attribute \"%s\" is deleted from \"%s\"", oldAtt.toString(), tag.toString()));
                 attDao.delete(oldAtt);
@@ -934,7 +1201,6 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
             Attribute att = new Attribute(tag, attType, attValue);
             attDao.create(att);
             refreshTag(tag);
-            resetQueryBuilders();
             logger.debug(String.format("an attribute \"%s\" is attached to \"%s\"", att.toString(), tag.toString()));
             setAnnotationChanged(true);
             return att;
@@ -959,6 +1225,7 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
             eTagDao.callBatchTasks(new Callable<Void>() {
                 public Void call() throws Exception {
                     for (ExtentTag tag : tags) {
+                        tag.setDocument(document);
                         eTagDao.create(tag);
                         if (!idHandler.addId(tag.getTagtype(), tag.getId())) {
                             throw new MaeDBException("tag id is already in DB!: " + tag.getId());
@@ -981,20 +1248,39 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
 
     @Override
     public void batchCreateAnchors(final Collection<CharIndex> anchors) throws MaeDBException {
+        // anchors are not stored per character anymore, regroup them into spans of each tag
+        Map<ExtentTag, List<Integer>> locationsByTag = new LinkedHashMap<>();
+        for (CharIndex anchor : anchors) {
+            if (!locationsByTag.containsKey(anchor.getTag())) {
+                locationsByTag.put(anchor.getTag(), new ArrayList<>());
+            }
+            locationsByTag.get(anchor.getTag()).add(anchor.getLocation());
+        }
+        List<CharSpan> spans = new ArrayList<>();
+        for (ExtentTag tag : locationsByTag.keySet()) {
+            spans.addAll(tag.setSpans(SpanHandler.convertIntegerlistToIntegerarray(locationsByTag.get(tag))));
+        }
+        batchCreateSpans(spans);
+
+    }
+
+    @Override
+    public void batchCreateSpans(final Collection<CharSpan> spans) throws MaeDBException {
         try {
-            charIndexDao.callBatchTasks(new Callable<Void>() {
+            charSpanDao.callBatchTasks(new Callable<Void>() {
                 public Void call() throws Exception {
-                    for (CharIndex anchor : anchors) {
-                        charIndexDao.create(anchor);
+                    for (CharSpan span : spans) {
+                        charSpanDao.create(span);
                     }
                     return null;
                 }
             });
-            logger.debug(String.format("%d anchors are inserted",anchors.size()));
+            for (CharSpan span : spans) {
+                spanIndex.addSpan(span.getTag().getTid(), span.getTag().getTagTypeName(), span.getStart(), span.getEnd());
+            }
+            logger.debug(String.format("%d spans are inserted", spans.size()));
         } catch (SQLException e) {
             throw catchSQLException(e);
-        } catch (MaeModelException e) {
-            throw new MaeDBException("failed to add an attribute: " + e.getMessage(), e);
         } catch (MaeDBException e) {
             throw e;
         } catch (Exception ignored) {
@@ -1008,6 +1294,7 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
             lTagDao.callBatchTasks(new Callable<Void>() {
                 public Void call() throws Exception {
                     for (LinkTag tag : tags) {
+                        tag.setDocument(document);
                         lTagDao.create(tag);
                         if (!idHandler.addId(tag.getTagtype(), tag.getId())) {
                             throw new MaeDBException("tag id is already in DB!: " + tag.getId());
@@ -1058,6 +1345,7 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
                     return null;
                 }
             });
+            indexArguments(args);
             logger.debug(String.format("%d arguments are inserted", args.size()));
         } catch (SQLException e) {
             throw catchSQLException(e);
@@ -1068,6 +1356,66 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
 
     }
 
+    @Override
+    public void bulkCreateAnnotations(Collection<ExtentTag> extentTags, Collection<CharSpan> spans, Collection<LinkTag> linkTags,
+                                      Collection<Attribute> atts, Collection<Argument> args) throws MaeDBException {
+        // ids are registered only after the load commits, so a failed load leaves no phantom ids behind
+        Set<String> newTids = new HashSet<>();
+        for (ExtentTag tag : extentTags) {
+            tag.setDocument(document);
+            checkNewId(tag, newTids);
+        }
+        for (LinkTag tag : linkTags) {
+            tag.setDocument(document);
+            checkNewId(tag, newTids);
+        }
+        try {
+            // rebuilding indexes only pays off when nothing is indexed yet
+            boolean empty = eTagDao.countOf() == 0 && lTagDao.countOf() == 0;
+            SqliteBulkLoader loader = new SqliteBulkLoader(cs, empty);
+            loader.add(eTagDao, extentTags);
+            loader.add(lTagDao, linkTags);
+            loader.add(charSpanDao, spans);
+            loader.add(attDao, atts);
+            loader.add(argDao, args);
+            lastBulkLoadRates = loader.load();
+        } catch (SQLException e) {
+            throw catchSQLException(e);
+        }
+        for (ExtentTag tag : extentTags) {
+            idHandler.addId(tag.getTagtype(), tag.getId());
+        }
+        for (LinkTag tag : linkTags) {
+            idHandler.addId(tag.getTagtype(), tag.getId());
+        }
+        for (CharSpan span : spans) {
+            spanIndex.addSpan(span.getTag().getTid(), span.getTag().getTagTypeName(), span.getStart(), span.getEnd());
+        }
+        indexArguments(args);
+        logger.debug(String.format("%d extent tags, %d link tags, %d spans, %d attributes and %d arguments are bulk-loaded",
+                extentTags.size(), linkTags.size(), spans.size(), atts.size(), args.size()));
+
+    }
+
+    private void checkNewId(Tag tag, Set<String> newTids) throws MaeDBException {
+        if (idHandler.hasId(tag.getTagtype(), tag.getId()) || !newTids.add(tag.getId())) {
+            throw new MaeDBException("tag id is already in DB!: " + tag.getId());
+        }
+    }
+
+    private void indexArguments(Collection<Argument> args) {
+        for (Argument arg : args) {
+            argumentIndex.addArgument(arg.getArgument().getTid(), arg.getLinker().getTid(), arg.getLinker().getTagtype());
+        }
+    }
+
+    /**
+     * Returns rows per second achieved for each table by the latest bulk load.
+     */
+    public Map<String, Double> getLastBulkLoadRates() {
+        return lastBulkLoadRates;
+    }
+
     @Override
     public Set<Attribute> batchAddAttributes(Tag tag, final Map<AttributeType, String> attributes) throws MaeDBException {
         final Set<Attribute> toBeAdded = new HashSet<>();
@@ -1085,7 +1433,6 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
                 }
             });
             refreshTag(tag);
-            resetQueryBuilders();
             logger.debug(String.format("attributes \"%s\" are attached to \"%s\"", toBeAdded.toString(), tag.toString()));
             setAnnotationChanged(true);
             return toBeAdded;
@@ -1109,6 +1456,8 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
                 lTagDao.update(linker);
                 logger.debug(String.format("an argument \"%s\" is attached to \"%s\"", argument.toString(), linker.toString()));
                 setAnnotationChanged(true);
+                argumentIndex.addArgument(argument.getTid(), linker.getTid(), linker.getTagtype());
+                tagChanges.fire(TagChangeEvent.Kind.ARGUMENTS_CHANGED, linker, argument.getSpanPairs());
                 return arg;
 
             } catch (SQLException e) {
@@ -1124,13 +1473,16 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
         try {
             logger.debug(String.format("adding an argument '%s: %s' to tag %s (%s)", argType.getName(), argument == null ? "null" : argument.getId(), linker.getId(), linker.getTagTypeName()));
             try {
-                Argument oldArg = argQuery.where().eq(TAB_ARG_FCOL_LTAG, linker).
+                Argument oldArg = argDao.queryBuilder().where().eq(TAB_ARG_FCOL_LTAG, linker).
                         and().eq(TAB_ARG_FCOL_ART, argType).queryForFirst();
                 if (oldArg != null) {
                     argDao.delete(oldArg);
                     setAnnotationChanged(true);
+                    if (oldArg.getArgument() != null) {
+                        argumentIndex.removeArgument(oldArg.getArgument().getTid(), linker.getTid());
+                        tagChanges.fire(TagChangeEvent.Kind.ARGUMENTS_CHANGED, linker, oldArg.getArgument().getSpanPairs());
+                    }
                 }
-                resetQueryBuilders();
                 if (argument != null) {
                     return addArgument(linker, argType, argument);
                 } else {
@@ -1148,20 +1500,38 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
 
     @Override
     public boolean updateTagSpans(ExtentTag tag, int[] spans) throws MaeDBException {
+        int[] oldSpans = tag.getSpanPairs();
         try {
-            List<CharIndex> olds = charIndexQuery.where().eq(TAB_CI_FCOL_ETAG, tag).query();
-            charIndexDao.delete(olds);
-            for (CharIndex anchor : tag.setSpans(spans)) {
-                charIndexDao.create(anchor);
+            // in one transaction, so that concurrent readers see either old or new spans
+            List<CharSpan> news = charSpanDao.callBatchTasks(new Callable<List<CharSpan>>() {
+                public List<CharSpan> call() throws Exception {
+                    List<CharSpan> olds = charSpanDao.queryBuilder().where().eq(TAB_CS_FCOL_ETAG, tag).query();
+                    charSpanDao.delete(olds);
+                    List<CharSpan> created = new ArrayList<>(tag.setSpans(spans));
+                    for (CharSpan span : created) {
+                        charSpanDao.create(span);
+                    }
+                    return created;
+                }
+            });
+            List<int[]> pairs = new ArrayList<>();
+            int[] newSpans = new int[news.size() * 2];
+            for (CharSpan span : news) {
+                newSpans[pairs.size() * 2] = span.getStart();
+                newSpans[pairs.size() * 2 + 1] = span.getEnd();
+                pairs.add(new int[]{span.getStart(), span.getEnd()});
             }
-            resetQueryBuilders();
+            spanIndex.replaceSpans(tag.getTid(), tag.getTagTypeName(), pairs);
+            tag.invalidateSpanCache();
+            tagChanges.fire(TagChangeEvent.Kind.SPANS_CHANGED, tag, SpanHandler.mergeFlatPairs(oldSpans, newSpans));
             if (eTagDao.update(tag) == 1) {
                 setAnnotationChanged(true);
-                resetQueryBuilders();
                 return true;
             }
         } catch (SQLException e) {
             throw catchSQLException(e);
+        } catch (Exception e) {
+            throw catchGeneralException(e);
         }
         return false;
 
@@ -1171,7 +1541,7 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
     public boolean updateTagText(ExtentTag tag, String text) throws MaeDBException {
         try {
             UpdateBuilder<ExtentTag, String> updateBuilder = eTagDao.updateBuilder();
-            updateBuilder.where().eq(TAB_TAG_COL_TID, tag.getId());
+            updateBuilder.where().eq(TAB_TAG_COL_KEY, tag.getKey());
             updateBuilder.updateColumnValue(TAB_ETAG_COL_TEXT,  text);
             if (updateBuilder.update() == 1) {
                 setAnnotationChanged(true);
@@ -1188,24 +1558,35 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
     @Override
     public void emptyAnnotations() throws MaeDBException {
         try {
-            for (ExtentTag tag : eTagDao.queryForAll()) {
+            for (ExtentTag tag : eTagDao.queryForEq(TAB_TAG_COL_DOC, document)) {
                 eTagDao.delete(tag);
             }
-            for (LinkTag tag : lTagDao.queryForAll()) {
+            for (LinkTag tag : lTagDao.queryForEq(TAB_TAG_COL_DOC, document)) {
                 lTagDao.delete(tag);
             }
         } catch (SQLException e) {
             throw catchSQLException(e);
         }
         idHandler = new IdHandler();
+        spanIndex.clear();
+        argumentIndex.clear();
 
     }
 
     /**
      * Shut down data source connection and delete all table from DB.
+     * When the DB is shared, only annotations of this document are deleted,
+     * and the connection is closed by the last driver detached.
      */
     @Override
     public void destroy() throws MaeDBException {
+        if (isShared()) {
+            // other documents may be still using tables
+            emptyAnnotations();
+            sharedDatabase.detach(document);
+            logger.info("driver is detached from the shared DB: " + SQLITE_FILENAME);
+            return;
+        }
         if (cs != null){
             dropAllTables(cs);
             try {
@@ -1214,8 +1595,7 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
                 throw catchSQLException(e);
             }
             logger.info("closing JDBC datasource and deleting DB file: " + SQLITE_FILENAME);
-            File dbFile = new File(SQLITE_FILENAME);
-            if (dbFile.delete()) {
+            if (SqliteConnectionSource.deleteDatabaseFile(SQLITE_FILENAME)) {
                 logger.info("driver is completely destroyed");
             } else {
                 logger.error("DB file is not deleted: " + SQLITE_FILENAME);
@@ -1271,7 +1651,8 @@ public class LocalSqliteDriverImpl implements MaeDriverI {
 
     public boolean idExists(String tid) throws MaeDBException {
         try {
-            return (eTagDao.queryForId(tid) != null || lTagDao.queryForId(tid) != null);
+            String key = Tag.toKey(document, tid);
+            return (eTagDao.queryForId(key) != null || lTagDao.queryForId(key) != null);
         } catch (SQLException e) {
             throw catchSQLException(e);
         }
@@ -32,6 +32,7 @@ import edu.brandeis.llc.mae.util.MappedSet;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -42,6 +43,9 @@ import java.util.Set;
  */
 public interface MaeDriverI {
 
+    // number of tags materialized at a time by paged fetches
+    int DEFAULT_PAGE_SIZE = 500;
+
     void setupDatabase(ConnectionSource source) throws MaeDBException;
 
     void emptyAnnotations() throws MaeDBException;
@@ -86,6 +90,8 @@ public interface MaeDriverI {
     // character index (anchor)
     void batchCreateAnchors(Collection<CharIndex> anchors) throws MaeDBException;
 
+    void batchCreateSpans(Collection<CharSpan> spans) throws MaeDBException;
+
     Collection<CharIndex> getAllAnchors() throws MaeDBException;
 
     Collection<CharIndex> getAllAnchorsOfTagType(TagType type) throws MaeDBException;
@@ -96,6 +102,11 @@ public interface MaeDriverI {
 
     List<Integer> getAllAnchorLocationsOfTagType(TagType type, List<TagType> exculdes) throws MaeDBException;
 
+    // same locations as above, one bit per anchored character instead of a boxed integer
+    BitSet getAllAnchorLocationsAsBitSet() throws MaeDBException;
+
+    BitSet getAllAnchorLocationsOfTagTypeAsBitSet(TagType type) throws MaeDBException;
+
     Collection<CharIndex> getAnchorsByTid(String tid) throws MaeDBException;
 
     List<Integer> getAnchorLocationsByTid(String tid) throws MaeDBException;
@@ -139,6 +150,19 @@ public interface MaeDriverI {
 
     List<ExtentTag> getTagsIn(int[] locations) throws MaeDBException;
 
+    /**
+     * Returns sorted tids of extent tags anchored in the locations. Only the span index
+     * is read, which is safe to do while tags are being edited on another thread.
+     */
+    Set<String> getTidsIn(int[] locations) throws MaeDBException;
+
+    /**
+     * Returns extent tags of the tids, skipping ones no longer in the DB.
+     */
+    List<ExtentTag> getExtentTagsByTids(Collection<String> tids) throws MaeDBException;
+
+    List<ExtentTag> getTagsBetween(int begin, int end) throws MaeDBException;
+
     List<ExtentTag> getTagsOfTypeAt(TagType type, int location) throws MaeDBException;
 
     List<ExtentTag> getTagsOfTypeIn(TagType type, int[] locations) throws MaeDBException;
@@ -157,6 +181,11 @@ public interface MaeDriverI {
 
     Collection<ExtentTag> getAllExtentTagsOfType(TagType type) throws MaeDBException;
 
+    // paged fetches, tags are loaded a page at a time while being iterated
+    Iterable<ExtentTag> getAllExtentTagsOfAllTypes(boolean consumingOnly, int pageSize) throws MaeDBException;
+
+    Iterable<ExtentTag> getAllExtentTagsOfType(TagType type, int pageSize) throws MaeDBException;
+
     List<ExtentTag> getAllNCTagsOfType(TagType type) throws MaeDBException;
 
     // link tags
@@ -172,10 +201,25 @@ public interface MaeDriverI {
 
     Collection<LinkTag> getAllLinkTagsOfType(TagType type) throws MaeDBException;
 
+    Iterable<LinkTag> getAllLinkTagsOfType(TagType type, int pageSize) throws MaeDBException;
+
     void deleteTag(Tag tag) throws MaeDBException;
 
     Set<LinkTag> getLinksHasArgumentTag(ExtentTag argument) throws MaeDBException;
 
+    // tid of an argument tag -> types of link tags pointing to it, for many argument tags at once
+    MappedSet<String, TagType> getLinkTypesOfArgumentTags(Collection<ExtentTag> arguments) throws MaeDBException;
+
+    // tid -> type of link tags pointing to the argument tag, answered from an in-memory index
+    Map<String, TagType> getLinkersOfArgumentTag(ExtentTag argument);
+
+    boolean isArgumentOfLinkTypes(ExtentTag argument, Collection<TagType> linkTypes);
+
+    // listeners are notified when a tag is created, deleted, re-spanned, or its arguments change
+    void addTagChangeListener(TagChangeListener listener);
+
+    void removeTagChangeListener(TagChangeListener listener);
+
     // att types
     AttributeType createAttributeType(TagType linktag, String from) throws MaeDBException;
 
@@ -200,6 +244,10 @@ public interface MaeDriverI {
 
     void batchCreateArguments(Collection<Argument> args) throws MaeDBException;
 
+    // loads tags, spans, attributes and arguments of a whole document in one go
+    void bulkCreateAnnotations(Collection<ExtentTag> extentTags, Collection<CharSpan> spans, Collection<LinkTag> linkTags,
+                               Collection<Attribute> atts, Collection<Argument> args) throws MaeDBException;
+
     Set<Attribute> batchAddAttributes(Tag tag, Map<AttributeType, String> attributes) throws MaeDBException;
 
     Attribute updateAttribute(Tag tag, AttributeType attType, String attValue) throws MaeDBException;
@@ -0,0 +1,111 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.database;
+
+import edu.brandeis.llc.mae.model.Tag;
+
+import java.util.*;
+
+/**
+ * Tags of a query, fetched one page at a time while iterating. Only keys of
+ * all tags are held up front, and a page of tag objects (with their eagerly
+ * loaded spans and attributes) is materialized when iteration reaches it,
+ * thus a full iteration never holds more than a page of tags on the heap.
+ * Iterators throw {@link IllegalStateException} when a page fails to load.
+ */
+public class PagedTags<T extends Tag> implements Iterable<T> {
+
+    interface PageLoader<T> {
+        /**
+         * Fetches tags of given keys, in any order.
+         */
+        Collection<T> load(List<String> keys) throws MaeDBException;
+    }
+
+    private final List<String> keys;
+    private final int pageSize;
+    private final PageLoader<T> loader;
+
+    PagedTags(List<String> keys, int pageSize, PageLoader<T> loader) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("page size should be positive, found: " + pageSize);
+        }
+        this.keys = keys;
+        this.pageSize = pageSize;
+        this.loader = loader;
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int nextPage = 0;
+            private Iterator<T> page = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!page.hasNext() && nextPage * pageSize < keys.size()) {
+                    page = loadPage(nextPage++).iterator();
+                }
+                return page.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.next();
+            }
+        };
+    }
+
+    private List<T> loadPage(int pageNum) {
+        List<String> pageKeys = keys.subList(pageNum * pageSize, Math.min((pageNum + 1) * pageSize, keys.size()));
+        Map<String, T> loaded = new HashMap<>();
+        try {
+            for (T tag : loader.load(pageKeys)) {
+                loaded.put(tag.getKey(), tag);
+            }
+        } catch (MaeDBException e) {
+            throw new IllegalStateException("failed to fetch a page of tags: " + e.getMessage(), e);
+        }
+        // keep the order of keys, and skip tags deleted since keys are fetched
+        List<T> page = new ArrayList<>(pageKeys.size());
+        for (String key : pageKeys) {
+            if (loaded.containsKey(key)) {
+                page.add(loaded.get(key));
+            }
+        }
+        return page;
+    }
+}
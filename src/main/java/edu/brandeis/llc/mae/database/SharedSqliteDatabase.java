@@ -0,0 +1,215 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.database;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.stmt.QueryBuilder;
+import com.j256.ormlite.stmt.Where;
+import com.j256.ormlite.support.ConnectionSource;
+import edu.brandeis.llc.mae.model.CharSpan;
+import edu.brandeis.llc.mae.model.ExtentTag;
+import edu.brandeis.llc.mae.model.TagType;
+import edu.brandeis.llc.mae.util.SpanHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static edu.brandeis.llc.mae.model.DBSchema.*;
+
+/**
+ * A single SQLite database that holds annotations of many documents at once.
+ * Task definition (tag types, attribute and argument types) is read only once,
+ * and each {@link LocalSqliteDriverImpl} attached to this database stores its tags
+ * under its own document number. The file is removed when the last driver is detached.
+ */
+public class SharedSqliteDatabase {
+
+    private static final Logger logger = LoggerFactory.getLogger(SharedSqliteDatabase.class.getName());
+    // sqlite nests OR-ed terms into an expression tree of limited depth, thus span pairs are queried in chunks
+    static final int MAX_OR_CLAUSE_PAIRS = 100;
+
+    private final String SQLITE_FILENAME;
+    private ConnectionSource cs;
+    private Set<Integer> attached;
+    private int lastDocument;
+    private String taskName;
+    private String taskFileName;
+
+    private Dao<CharSpan, Integer> charSpanDao;
+    private Dao<ExtentTag, String> eTagDao;
+
+    public SharedSqliteDatabase(String sqlite_filename) throws MaeDBException {
+        SQLITE_FILENAME = sqlite_filename;
+        try {
+            cs = new SqliteConnectionSource(LocalSqliteDriverImpl.JDBC_DRIVER + SQLITE_FILENAME);
+            charSpanDao = DaoManager.createDao(cs, CharSpan.class);
+            eTagDao = DaoManager.createDao(cs, ExtentTag.class);
+        } catch (SQLException e) {
+            throw catchSQLException(e);
+        }
+        attached = new HashSet<>();
+        lastDocument = 0;
+        logger.info("New shared SQLite DB is initialized, using a local file: " + SQLITE_FILENAME);
+    }
+
+    public String getDBSourceName() {
+        return SQLITE_FILENAME;
+    }
+
+    ConnectionSource getConnectionSource() {
+        return cs;
+    }
+
+    /**
+     * Registers a new document and returns its number, which is never 0.
+     */
+    synchronized int attach() {
+        lastDocument++;
+        attached.add(lastDocument);
+        return lastDocument;
+    }
+
+    /**
+     * Unregisters a document. Closes the connection and deletes the DB file
+     * once no document is attached.
+     */
+    synchronized void detach(int document) throws MaeDBException {
+        attached.remove(document);
+        if (attached.isEmpty() && cs != null) {
+            try {
+                cs.close();
+            } catch (SQLException e) {
+                throw catchSQLException(e);
+            }
+            cs = null;
+            logger.info("closing JDBC datasource and deleting DB file: " + SQLITE_FILENAME);
+            if (!SqliteConnectionSource.deleteDatabaseFile(SQLITE_FILENAME)) {
+                logger.error("DB file is not deleted: " + SQLITE_FILENAME);
+            }
+        }
+    }
+
+    public synchronized boolean isClosed() {
+        return cs == null;
+    }
+
+    public synchronized int getNumberOfDocuments() {
+        return attached.size();
+    }
+
+    boolean isTaskLoaded(File taskFile) {
+        return taskFileName != null && taskFileName.equals(taskFile.getAbsolutePath());
+    }
+
+    void setTaskLoaded(String taskName, String taskFileName) {
+        this.taskName = taskName;
+        this.taskFileName = taskFileName;
+    }
+
+    String getTaskName() {
+        return taskName;
+    }
+
+    String getTaskFileName() {
+        return taskFileName;
+    }
+
+    /**
+     * Returns extent tags of all attached documents that overlap with any of given locations.
+     */
+    public List<ExtentTag> getTagsIn(int[] locations) throws MaeDBException {
+        return getTagsOfTypeIn(null, locations);
+    }
+
+    /**
+     * Returns extent tags of a type from all attached documents that overlap with any of given locations.
+     * Passing null as the type will return tags of all types.
+     */
+    public List<ExtentTag> getTagsOfTypeIn(TagType type, int[] locations) throws MaeDBException {
+        List<int[]> pairs = SpanHandler.convertLocationsToPairs(locations);
+        // a tag overlapping pairs of different chunks is found more than once
+        Map<String, ExtentTag> tags = new LinkedHashMap<>();
+        for (int i = 0; i < pairs.size(); i += MAX_OR_CLAUSE_PAIRS) {
+            for (ExtentTag tag : getTagsOfTypeInPairs(type, pairs.subList(i, Math.min(i + MAX_OR_CLAUSE_PAIRS, pairs.size())))) {
+                tags.putIfAbsent(tag.getKey(), tag);
+            }
+        }
+        return new ArrayList<>(tags.values());
+    }
+
+    private List<ExtentTag> getTagsOfTypeInPairs(TagType type, List<int[]> pairs) throws MaeDBException {
+        try {
+            QueryBuilder<CharSpan, Integer> spanQuery = charSpanDao.queryBuilder();
+            Where<CharSpan, Integer> where = spanQuery.where();
+            for (int[] pair : pairs) {
+                where.lt(TAB_CS_COL_START, pair[1]).and().gt(TAB_CS_COL_END, pair[0]);
+            }
+            if (pairs.size() > 1) {
+                where.or(pairs.size());
+            }
+            // one query over the span range index, instead of one per document
+            spanQuery.selectColumns(TAB_CS_FCOL_ETAG);
+            QueryBuilder<ExtentTag, String> tagQuery = eTagDao.queryBuilder();
+            if (type != null) {
+                tagQuery.where().eq(TAB_TAG_FCOL_TT, type).and().in(TAB_TAG_COL_KEY, spanQuery);
+            } else {
+                tagQuery.where().in(TAB_TAG_COL_KEY, spanQuery);
+            }
+            return tagQuery.query();
+        } catch (SQLException e) {
+            throw catchSQLException(e);
+        }
+    }
+
+    /**
+     * Returns non-consuming extent tags of a type from all attached documents.
+     */
+    public List<ExtentTag> getAllNCTagsOfType(TagType type) throws MaeDBException {
+        try {
+            QueryBuilder<CharSpan, Integer> spanQuery = charSpanDao.queryBuilder();
+            spanQuery.selectColumns(TAB_CS_FCOL_ETAG);
+            QueryBuilder<ExtentTag, String> tagQuery = eTagDao.queryBuilder();
+            tagQuery.where().eq(TAB_TAG_FCOL_TT, type).and().notIn(TAB_TAG_COL_KEY, spanQuery);
+            return tagQuery.query();
+        } catch (SQLException e) {
+            throw catchSQLException(e);
+        }
+    }
+
+    private MaeDBException catchSQLException(SQLException e) {
+        String message = "caught sql error: " + e.getMessage();
+        logger.error(message);
+        return new MaeDBException(message, e);
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.database;
+
+import edu.brandeis.llc.mae.util.IntervalTree;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index of extent tag spans of a single driver. Maps anchored
+ * intervals to tag IDs, so that point, range and overlap lookups can be
+ * answered without going to the database table of spans.
+ * A driver is responsible for keeping this in sync with its tables.
+ * Lookups can run from many threads at once, while updates are exclusive.
+ */
+public class SpanIndex {
+
+    private IntervalTree<String> tree;
+    private Map<String, String> tagTypeNames;
+    private Map<String, List<int[]>> spansOfTags;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public SpanIndex() {
+        tree = new IntervalTree<>();
+        tagTypeNames = new HashMap<>();
+        spansOfTags = new HashMap<>();
+    }
+
+    public void addSpan(String tid, String tagTypeName, int start, int end) {
+        lock.writeLock().lock();
+        try {
+            addSpanUnlocked(tid, tagTypeName, start, end);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addSpanUnlocked(String tid, String tagTypeName, int start, int end) {
+        if (start >= end) {
+            return;
+        }
+        tagTypeNames.put(tid, tagTypeName);
+        if (!spansOfTags.containsKey(tid)) {
+            spansOfTags.put(tid, new ArrayList<>());
+        }
+        spansOfTags.get(tid).add(new int[]{start, end});
+        tree.add(start, end, tid);
+    }
+
+    public void addSpans(String tid, String tagTypeName, List<int[]> spans) {
+        lock.writeLock().lock();
+        try {
+            for (int[] span : spans) {
+                addSpanUnlocked(tid, tagTypeName, span[0], span[1]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeTag(String tid) {
+        lock.writeLock().lock();
+        try {
+            removeTagUnlocked(tid);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeTagUnlocked(String tid) {
+        List<int[]> spans = spansOfTags.remove(tid);
+        tagTypeNames.remove(tid);
+        if (spans != null) {
+            for (int[] span : spans) {
+                tree.remove(span[0], span[1], tid);
+            }
+        }
+    }
+
+    public void replaceSpans(String tid, String tagTypeName, List<int[]> spans) {
+        lock.writeLock().lock();
+        try {
+            // readers see either old or new spans, never none of them
+            removeTagUnlocked(tid);
+            for (int[] span : spans) {
+                addSpanUnlocked(tid, tagTypeName, span[0], span[1]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            tree.clear();
+            tagTypeNames.clear();
+            spansOfTags.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return spansOfTags.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(String tid) {
+        lock.readLock().lock();
+        try {
+            return spansOfTags.containsKey(tid);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Set<String> getTidsAt(int location) {
+        lock.readLock().lock();
+        try {
+            return new TreeSet<>(tree.getValuesAt(location));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Set<String> getTidsBetween(int begin, int end) {
+        lock.readLock().lock();
+        try {
+            return new TreeSet<>(tree.getValuesOverlapping(begin, end));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Set<String> getTidsOfTypeAt(String tagTypeName, int location) {
+        lock.readLock().lock();
+        try {
+            return filterByType(tree.getValuesAt(location), tagTypeName);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Set<String> getTidsOfTypeBetween(String tagTypeName, int begin, int end) {
+        lock.readLock().lock();
+        try {
+            return filterByType(tree.getValuesOverlapping(begin, end), tagTypeName);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Set<String> filterByType(Collection<String> tids, String tagTypeName) {
+        Set<String> filtered = new TreeSet<>();
+        for (String tid : tids) {
+            if (tagTypeName.equals(tagTypeNames.get(tid))) {
+                filtered.add(tid);
+            }
+        }
+        return filtered;
+    }
+
+}
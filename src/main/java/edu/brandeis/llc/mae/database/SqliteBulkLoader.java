@@ -0,0 +1,226 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.database;
+
+import com.j256.ormlite.dao.BaseDaoImpl;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.jdbc.JdbcDatabaseConnection;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+
+/**
+ * Writes many rows into SQLite tables at once, bypassing per-object
+ * ORMLite inserts. Rows of a table are inserted by multi-row raw statements,
+ * all tables in a single transaction, with durability relaxed for the load.
+ * When loading into empty tables, secondary indexes are dropped before
+ * insertion and rebuilt afterwards.
+ */
+class SqliteBulkLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqliteBulkLoader.class.getName());
+
+    // compile-time limits of bundled SQLite
+    static final int MAX_HOST_PARAMETERS = 999;
+    static final int MAX_COMPOUND_SELECT = 500;
+    // in pages, only for the loading connection
+    static final int LOAD_CACHE_SIZE = 20000;
+
+    private final ConnectionSource cs;
+    private final boolean deferIndexes;
+    private final List<Dao<?, ?>> daos = new ArrayList<>();
+    private final List<Collection<?>> rows = new ArrayList<>();
+    private final Map<String, Double> rowsPerSecond = new LinkedHashMap<>();
+
+    /**
+     * @param deferIndexes whether to drop and rebuild secondary indexes around the load,
+     *                     which only pays off when tables are empty
+     */
+    SqliteBulkLoader(ConnectionSource cs, boolean deferIndexes) {
+        this.cs = cs;
+        this.deferIndexes = deferIndexes;
+    }
+
+    /**
+     * Queues objects to be inserted into the table of a DAO. Tables are
+     * loaded in the order they are added, so that referenced rows go first.
+     */
+    <T> void add(Dao<T, ?> dao, Collection<T> objects) {
+        daos.add(dao);
+        rows.add(objects);
+    }
+
+    /**
+     * Inserts all queued objects, and returns the rows per second achieved for each table.
+     */
+    Map<String, Double> load() throws SQLException {
+        DatabaseConnection dbConnection = cs.getReadWriteConnection();
+        Connection connection = ((JdbcDatabaseConnection) dbConnection).getInternalConnection();
+        boolean autoCommit = connection.getAutoCommit();
+        Map<String, String> droppedIndexes = new LinkedHashMap<>();
+        try (Statement statement = connection.createStatement()) {
+            int synchronous = queryPragma(statement, "synchronous");
+            int cacheSize = queryPragma(statement, "cache_size");
+            statement.execute("PRAGMA synchronous=OFF");
+            statement.execute("PRAGMA cache_size=" + LOAD_CACHE_SIZE);
+            try {
+                connection.setAutoCommit(false);
+                if (deferIndexes) {
+                    droppedIndexes = dropIndexes(statement);
+                }
+                for (int i = 0; i < daos.size(); i++) {
+                    insertAll(connection, daos.get(i), rows.get(i));
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+                createIndexes(statement, droppedIndexes);
+                statement.execute("PRAGMA synchronous=" + synchronous);
+                statement.execute("PRAGMA cache_size=" + cacheSize);
+            }
+        } finally {
+            cs.releaseConnection(dbConnection);
+        }
+        return rowsPerSecond;
+    }
+
+    private int queryPragma(Statement statement, String pragma) throws SQLException {
+        try (ResultSet result = statement.executeQuery("PRAGMA " + pragma)) {
+            return result.next() ? result.getInt(1) : 0;
+        }
+    }
+
+    private Map<String, String> dropIndexes(Statement statement) throws SQLException {
+        Set<String> tables = new HashSet<>();
+        for (Dao<?, ?> dao : daos) {
+            tables.add(getTableName(dao));
+        }
+        // automatic indexes (primary keys) have no sql and cannot be dropped
+        Map<String, String> indexes = new LinkedHashMap<>();
+        try (ResultSet result = statement.executeQuery(
+                "SELECT name, tbl_name, sql FROM sqlite_master WHERE type = 'index' AND sql IS NOT NULL")) {
+            while (result.next()) {
+                if (tables.contains(result.getString(2))) {
+                    indexes.put(result.getString(1), result.getString(3));
+                }
+            }
+        }
+        for (String index : indexes.keySet()) {
+            statement.execute("DROP INDEX `" + index + "`");
+        }
+        return indexes;
+    }
+
+    private void createIndexes(Statement statement, Map<String, String> indexes) throws SQLException {
+        long begin = System.nanoTime();
+        for (String sql : indexes.values()) {
+            statement.execute(sql);
+        }
+        if (indexes.size() > 0) {
+            logger.info(String.format("%d indexes are rebuilt in %.3f s", indexes.size(), (System.nanoTime() - begin) / 1e9));
+        }
+    }
+
+    private void insertAll(Connection connection, Dao<?, ?> dao, Collection<?> objects) throws SQLException {
+        String table = getTableName(dao);
+        List<FieldType> columns = new ArrayList<>();
+        for (FieldType field : getFieldTypes(dao)) {
+            // generated ids are left to the database, foreign collections have no column
+            if (!field.isGeneratedId() && !field.isForeignCollection()) {
+                columns.add(field);
+            }
+        }
+        long begin = System.nanoTime();
+        if (objects.size() > 0 && columns.size() > 0) {
+            int rowsPerStatement = Math.min(MAX_COMPOUND_SELECT, MAX_HOST_PARAMETERS / columns.size());
+            List<?> objectList = new ArrayList<>(objects);
+            int fullStatements = objectList.size() / rowsPerStatement;
+            if (fullStatements > 0) {
+                try (PreparedStatement insert = connection.prepareStatement(buildInsert(table, columns, rowsPerStatement))) {
+                    for (int i = 0; i < fullStatements; i++) {
+                        bindRows(insert, columns, objectList.subList(i * rowsPerStatement, (i + 1) * rowsPerStatement));
+                        insert.executeUpdate();
+                    }
+                }
+            }
+            List<?> remainder = objectList.subList(fullStatements * rowsPerStatement, objectList.size());
+            if (remainder.size() > 0) {
+                try (PreparedStatement insert = connection.prepareStatement(buildInsert(table, columns, remainder.size()))) {
+                    bindRows(insert, columns, remainder);
+                    insert.executeUpdate();
+                }
+            }
+        }
+        double seconds = Math.max((System.nanoTime() - begin) / 1e9, 1e-9);
+        rowsPerSecond.put(table, objects.size() / seconds);
+        logger.info(String.format("%d rows are loaded into %s in %.3f s (%.0f rows/s)",
+                objects.size(), table, seconds, objects.size() / seconds));
+    }
+
+    // multi-row VALUES lists are not supported by bundled SQLite, compound SELECT is
+    private String buildInsert(String table, List<FieldType> columns, int numRows) {
+        StringBuilder sql = new StringBuilder("INSERT INTO `").append(table).append("` (");
+        StringBuilder row = new StringBuilder("SELECT ");
+        for (int i = 0; i < columns.size(); i++) {
+            sql.append(i > 0 ? ", `" : "`").append(columns.get(i).getColumnName()).append("`");
+            row.append(i > 0 ? ", ?" : "?");
+        }
+        sql.append(") ");
+        for (int i = 0; i < numRows; i++) {
+            sql.append(i > 0 ? " UNION ALL " : "").append(row);
+        }
+        return sql.toString();
+    }
+
+    private void bindRows(PreparedStatement insert, List<FieldType> columns, List<?> objects) throws SQLException {
+        int parameter = 1;
+        for (Object object : objects) {
+            for (FieldType column : columns) {
+                // foreign objects are converted to their ids
+                insert.setObject(parameter++, column.extractJavaFieldToSqlArgValue(object));
+            }
+        }
+    }
+
+    private String getTableName(Dao<?, ?> dao) {
+        return ((BaseDaoImpl<?, ?>) dao).getTableInfo().getTableName();
+    }
+
+    private FieldType[] getFieldTypes(Dao<?, ?> dao) {
+        return ((BaseDaoImpl<?, ?>) dao).getTableInfo().getFieldTypes();
+    }
+}
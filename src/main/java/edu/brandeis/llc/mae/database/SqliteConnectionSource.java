@@ -0,0 +1,75 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.database;
+
+import com.j256.ormlite.jdbc.JdbcDatabaseConnection;
+import com.j256.ormlite.jdbc.JdbcPooledConnectionSource;
+import com.j256.ormlite.logger.Logger;
+import com.j256.ormlite.support.DatabaseConnection;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * A pool of connections to a local SQLite file. Every connection runs in
+ * write-ahead-log mode, so that a reader on one connection (e.g. a background
+ * table loader or IAA computation) does not block, and is not blocked by,
+ * the single writer of the annotation. Concurrent writers wait on each other
+ * for up to {@link #BUSY_TIMEOUT_MILLIS} instead of failing right away.
+ * <p>
+ * Note that the bundled sqlite-jdbc (3.7.2) predates the
+ * {@code busy_timeout} pragma and takes no such connection property, hence
+ * the timeout is installed through {@link Statement#setQueryTimeout(int)},
+ * which that driver applies to the whole connection.
+ */
+class SqliteConnectionSource extends JdbcPooledConnectionSource {
+
+    static final int BUSY_TIMEOUT_MILLIS = 10000;
+
+    SqliteConnectionSource(String url) throws SQLException {
+        super(url);
+    }
+
+    @Override
+    protected DatabaseConnection makeConnection(Logger logger) throws SQLException {
+        DatabaseConnection connection = super.makeConnection(logger);
+        try (Statement statement = ((JdbcDatabaseConnection) connection).getInternalConnection().createStatement()) {
+            statement.execute("PRAGMA journal_mode=WAL");
+            statement.setQueryTimeout(BUSY_TIMEOUT_MILLIS / 1000);
+        }
+        return connection;
+    }
+
+    /**
+     * Deletes a database file along with its write-ahead-log files,
+     * and returns whether the database file itself is deleted.
+     */
+    static boolean deleteDatabaseFile(String filename) {
+        new File(filename + "-wal").delete();
+        new File(filename + "-shm").delete();
+        return new File(filename).delete();
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.database;
+
+import edu.brandeis.llc.mae.model.Tag;
+
+import java.util.Arrays;
+import java.util.EventObject;
+
+/**
+ * Tells listeners that a tag in a driver is created, deleted, or changed in a way
+ * that can change how the primary text is rendered. The source is the driver.
+ */
+public class TagChangeEvent extends EventObject {
+
+    public enum Kind { CREATED, DELETED, SPANS_CHANGED, ARGUMENTS_CHANGED }
+
+    private final Kind kind;
+    private final transient Tag tag;
+    private final int[] affectedSpans;
+
+    /**
+     * @param affectedSpans flattened start/end pairs of text that may need re-rendering:
+     *                      old and new spans of an extent tag, or spans of arguments of a link tag
+     */
+    public TagChangeEvent(MaeDriverI source, Kind kind, Tag tag, int[] affectedSpans) {
+        super(source);
+        this.kind = kind;
+        this.tag = tag;
+        this.affectedSpans = affectedSpans;
+    }
+
+    @Override
+    public MaeDriverI getSource() {
+        return (MaeDriverI) super.getSource();
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public Tag getTag() {
+        return tag;
+    }
+
+    public int[] getAffectedSpans() {
+        return affectedSpans.clone();
+    }
+
+    public boolean hasAffectedSpans() {
+        return affectedSpans.length > 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s over %s", kind, tag.getId(), Arrays.toString(affectedSpans));
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.database;
+
+import edu.brandeis.llc.mae.model.ExtentTag;
+import edu.brandeis.llc.mae.model.Tag;
+import edu.brandeis.llc.mae.util.SpanHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps tag change listeners of a driver and fires events to them.
+ * A failing listener is logged and does not stop others, nor the change itself.
+ */
+class TagChangeSupport {
+
+    private static final Logger logger = LoggerFactory.getLogger(TagChangeSupport.class.getName());
+
+    private final MaeDriverI source;
+    private final List<TagChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    TagChangeSupport(MaeDriverI source) {
+        this.source = source;
+    }
+
+    void addListener(TagChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(TagChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    void fire(TagChangeEvent.Kind kind, Tag tag, int[] affectedSpans) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        TagChangeEvent event = new TagChangeEvent(source, kind, tag, affectedSpans);
+        for (TagChangeListener listener : listeners) {
+            try {
+                listener.tagChanged(event);
+            } catch (RuntimeException e) {
+                logger.error("a tag change listener failed on " + event, e);
+            }
+        }
+    }
+
+    /**
+     * Merges span pairs of given extent tags into one flattened, sorted array of start/end pairs.
+     */
+    static int[] spansOf(Collection<ExtentTag> tags) {
+        List<int[]> pairs = new ArrayList<>();
+        for (ExtentTag tag : tags) {
+            pairs.addAll(tag.getSpansAsPairs());
+        }
+        return SpanHandler.flattenPairs(SpanHandler.mergePairs(pairs));
+    }
+}
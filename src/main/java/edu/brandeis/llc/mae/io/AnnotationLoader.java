@@ -202,9 +202,13 @@ public class AnnotationLoader {
 
     public void writeParseToDB(MaeXMLParser parser) throws MaeDBException {
         driver.setPrimaryText(parser.getParsedPrimaryText());
-        insertTagsToDB(parser.getParsedTags());
-        insertAttsToDB(parser.getParsedAtts());
-        insertArgsToDB(parser.getParsedArgs());
+        List<ExtentTag> extTags = new ArrayList<>();
+        List<CharSpan> spans = new ArrayList<>();
+        List<LinkTag> linkTags = new ArrayList<>();
+        collectTags(parser.getParsedTags(), extTags, spans, linkTags);
+        // attributes and arguments refer to tags collected above, and all go to DB in one go
+        driver.bulkCreateAnnotations(extTags, spans, linkTags,
+                collectAtts(parser.getParsedAtts()), collectArgs(parser.getParsedArgs()));
     }
 
     public String readAsXml(File file) throws MaeDBException, MaeIOException {
@@ -275,17 +279,13 @@ public class AnnotationLoader {
 
     }
 
-    private void insertTagsToDB(Collection<ParsedTag> parsedTags) throws MaeDBException {
-        List<CharIndex> anchors = new ArrayList<>();
-        List<ExtentTag> extTagsOrderOfAppearance = new LinkedList<>();
-        List<LinkTag> linkTagsOrderOfAppearance = new LinkedList<>();
+    private void collectTags(Collection<ParsedTag> parsedTags, List<ExtentTag> extTagsOrderOfAppearance,
+                             List<CharSpan> spans, List<LinkTag> linkTagsOrderOfAppearance) {
         for (ParsedTag parsedTag : parsedTags) {
             if (!parsedTag.isLink()) {
                 ExtentTag tag = new ExtentTag(parsedTag.getTid(), tagTypeMap.get(parsedTag.getTagTypeName()), fileName);
                 tag.setText(parsedTag.getText());
-                for (CharIndex ci : tag.setSpans(parsedTag.getSpans())) {
-                    anchors.add(ci);
-                }
+                spans.addAll(tag.setSpans(parsedTag.getSpans()));
                 String tid = parsedTag.getTid();
                 extTagsOrderOfAppearance.add(tag);
                 extTagMap.put(tid, tag);
@@ -295,12 +295,9 @@ public class AnnotationLoader {
                 linkTagMap.put(parsedTag.getTid(), tag);
             }
         }
-        driver.batchCreateExtentTags(extTagsOrderOfAppearance);
-        driver.batchCreateAnchors(anchors);
-        driver.batchCreateLinkTags(linkTagsOrderOfAppearance);
     }
 
-    private void insertAttsToDB(Collection<ParsedAtt> parsedAtts) throws MaeDBException {
+    private List<Attribute> collectAtts(Collection<ParsedAtt> parsedAtts) {
         List<Attribute> attributes = new ArrayList<>();
         for (ParsedAtt att : parsedAtts) {
             Tag tag = extTagMap.get(att.getTid());
@@ -316,18 +313,18 @@ public class AnnotationLoader {
                 // thus here, model exception is ignored.
             }
         }
-        driver.batchCreateAttributes(attributes);
+        return attributes;
 
     }
 
-    private void insertArgsToDB(Collection<ParsedArg> parsedArgs) throws MaeDBException {
+    private List<Argument> collectArgs(Collection<ParsedArg> parsedArgs) {
         List<Argument> arguments = new ArrayList<>();
         for (ParsedArg arg : parsedArgs) {
             LinkTag tag = linkTagMap.get(arg.getTid());
             String argTypeKey = String.format("%s-%s", arg.getTagTypeName(), arg.getArgTypeName());
             arguments.add(new Argument(tag, argTypeMap.get(argTypeKey), extTagMap.get(arg.getArgTid())));
         }
-        driver.batchCreateArguments(arguments);
+        return arguments;
     }
 
     private static void catchFileNotFoundError(File file, FileNotFoundException e) throws MaeIOException {
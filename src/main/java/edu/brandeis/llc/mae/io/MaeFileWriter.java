@@ -25,6 +25,11 @@
 package edu.brandeis.llc.mae.io;
 
 import edu.brandeis.llc.mae.MaeStrings;
+import edu.brandeis.llc.mae.database.MaeDBException;
+import edu.brandeis.llc.mae.database.MaeDriverI;
+import edu.brandeis.llc.mae.model.ExtentTag;
+import edu.brandeis.llc.mae.model.LinkTag;
+import edu.brandeis.llc.mae.model.TagType;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
@@ -34,6 +39,59 @@ import java.nio.charset.StandardCharsets;
  */
 public class MaeFileWriter {
 
+    private static String xmlHeader = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n\n<%s>\n";
+    // tried embed dtd source in the xml, but that fails XML parser to successfully parse
+    // <!DOCTYPE root_element SYSTEM "DTD_filename">\
+    // <!DOCTYPE root_element PUBLIC "DTD_name" "DTD_location">
+    // see https://xmlwriter.net/xml_guide/doctype_declaration.shtml
+    private static String xmlText = "<TEXT><![CDATA[%s]]></TEXT>\n<TAGS>\n";
+    private static String xmlTail = "</TAGS>\n</%s>";
+
+    /**
+     * Serializes all annotations stored in a driver into MAE XML format.
+     */
+    public static String generateAnnotationXML(MaeDriverI driver) throws MaeDBException {
+        StringWriter writer = new StringWriter();
+        try {
+            writeAnnotationXML(driver, writer);
+        } catch (IOException e) {
+            // writing to a string does not fail
+            throw new IllegalStateException(e);
+        }
+        return writer.toString();
+    }
+
+    public static void writeAnnotationXML(MaeDriverI driver, File xmlOutFile)
+            throws MaeDBException, MaeIOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(xmlOutFile), StandardCharsets.UTF_8))) {
+            writeAnnotationXML(driver, writer);
+        } catch (IOException e) {
+            throw new MaeIOException("Cannot write annotations to a file!", e);
+        }
+    }
+
+    /**
+     * Streams tags page by page into a writer, so that the whole annotation
+     * is never held on the heap at once.
+     */
+    private static void writeAnnotationXML(MaeDriverI driver, Writer writer) throws MaeDBException, IOException {
+        writer.write(String.format(xmlHeader, driver.getTaskName()));
+        writer.write(String.format(xmlText, driver.getPrimaryText()));
+        for (TagType eType : driver.getExtentTagTypes()) {
+            for (ExtentTag tag : driver.getAllExtentTagsOfType(eType, MaeDriverI.DEFAULT_PAGE_SIZE)) {
+                writer.write(tag.toXmlString());
+                writer.write("\n");
+            }
+        }
+        for (TagType lType : driver.getLinkTagTypes()) {
+            for (LinkTag tag : driver.getAllLinkTagsOfType(lType, MaeDriverI.DEFAULT_PAGE_SIZE)) {
+                writer.write(tag.toXmlString());
+                writer.write("\n");
+            }
+        }
+        writer.write(String.format(xmlTail, driver.getTaskName()));
+    }
+
     public static void writeTextToEmptyXML(File utf8file, String task, File xmlOutFile)
             throws MaeIOException {
         try {
@@ -55,6 +55,7 @@ public class MaeXMLParser {
 
     private MaeDriverI driver;
     private MaeSAXHandler xmlHandler;
+    private ParsedAnnotationIndex parsedIndex;
     private String parseWarnings = "";
 
     public MaeXMLParser() {
@@ -100,6 +101,7 @@ public class MaeXMLParser {
     }
 
     private void parse(File utf8file) throws IOException, SAXException  {
+        parsedIndex = null;
         try {
             SAXParserFactory factory = SAXParserFactory.newInstance();
             SAXParser saxParser = factory.newSAXParser();
@@ -136,10 +138,37 @@ public class MaeXMLParser {
         return xmlHandler.getParsedArgs();
     }
 
+    /**
+     * Returns indexes over parsed tags and attributes, built at the first call.
+     */
+    public synchronized ParsedAnnotationIndex getParsedIndex() {
+        if (parsedIndex == null) {
+            parsedIndex = new ParsedAnnotationIndex(getParsedTags(), getParsedAtts());
+        }
+        return parsedIndex;
+    }
+
     public String getParsedPrimaryText() {
         return xmlHandler.getPrimaryText();
     }
 
+    public String getParsedTaskName() {
+        return xmlHandler.getTaskName();
+    }
+
+    public PrimaryTextDigest getParsedPrimaryTextDigest() {
+        return xmlHandler.getPrimaryTextDigest();
+    }
+
+    /**
+     * Drops the parsed primary text, keeping only its digest. Texts of parsed
+     * tags are already sliced from the primary text, so this is safe to call
+     * once parsing is done.
+     */
+    public void releaseParsedPrimaryText() {
+        xmlHandler.setPrimaryText(null);
+    }
+
     public MaeSAXHandler getParsed() {
         return this.xmlHandler;
     }
@@ -151,6 +180,8 @@ public class MaeXMLParser {
         private boolean hasTextElem = false;
         private boolean hasRootElem = false;
         private String primaryText;
+        private StringBuilder primaryTextBuilder;
+        private PrimaryTextDigest primaryTextDigest;
         private String taskName;
         private List<String> extTagTypeNames;
         private List<String> linkTagTypeNames;
@@ -207,6 +238,8 @@ public class MaeXMLParser {
             this.tags = new ArrayList<>();
             this.atts = new ArrayList<>();
             this.args = new ArrayList<>();
+            this.primaryTextBuilder = new StringBuilder();
+            this.primaryTextDigest = new PrimaryTextDigest();
         }
 
         @Override
@@ -387,7 +420,17 @@ public class MaeXMLParser {
         public void characters(char[] ch, int start, int length) {
             if (hasTextElem) {
                 // TODO: 5/7/18 strip non-xml characters
-                setPrimaryText(new String(ch, start, length));
+                // a long text can be delivered in several chunks
+                primaryTextBuilder.append(ch, start, length);
+                primaryTextDigest.update(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String nsURI, String localName, String qName) throws SAXException {
+            if (hasTextElem && qName.equalsIgnoreCase("text")) {
+                setPrimaryText(primaryTextBuilder.toString());
+                primaryTextBuilder = null;
                 hasTextElem = false;
             }
         }
@@ -416,6 +459,10 @@ public class MaeXMLParser {
             return primaryText;
         }
 
+        public PrimaryTextDigest getPrimaryTextDigest() {
+            return primaryTextDigest;
+        }
+
         public void setPrimaryText(String primaryText) {
             this.primaryText = primaryText;
         }
@@ -445,14 +492,6 @@ public class MaeXMLParser {
             }
         }
 
-        @Override
-        public void characters(char[] ch, int start, int length) {
-            if (super.hasTextElem) {
-                setPrimaryText(new String(ch, start, length));
-                super.hasTextElem = false;
-            }
-        }
-
     }
 
 }
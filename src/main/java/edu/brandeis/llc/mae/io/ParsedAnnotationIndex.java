@@ -0,0 +1,101 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.io;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hash indexes over tags and attributes read from a single annotation file,
+ * so that tags anchored on a given spans and attributes of a given tag id
+ * can be looked up without scanning the whole parse.
+ * Lists under each key keep the order in which items appeared in the file.
+ */
+public class ParsedAnnotationIndex {
+
+    // not using MappedList, as it is backed by a tree map
+    private final Map<SpansKey, List<ParsedTag>> tagsBySpans;
+    private final Map<String, List<ParsedAtt>> attsByTid;
+
+    ParsedAnnotationIndex(List<ParsedTag> tags, List<ParsedAtt> atts) {
+        tagsBySpans = new HashMap<>();
+        for (ParsedTag tag : tags) {
+            SpansKey key = new SpansKey(tag.getSpans());
+            if (!tagsBySpans.containsKey(key)) {
+                tagsBySpans.put(key, new ArrayList<ParsedTag>());
+            }
+            tagsBySpans.get(key).add(tag);
+        }
+        attsByTid = new HashMap<>();
+        for (ParsedAtt att : atts) {
+            if (!attsByTid.containsKey(att.getTid())) {
+                attsByTid.put(att.getTid(), new ArrayList<ParsedAtt>());
+            }
+            attsByTid.get(att.getTid()).add(att);
+        }
+    }
+
+    /**
+     * Returns tags anchored on exactly the given spans, in the order of the file.
+     */
+    public Collection<ParsedTag> getTagsAt(int[] spans) {
+        Collection<ParsedTag> tags = tagsBySpans.get(new SpansKey(spans));
+        return tags == null ? Collections.<ParsedTag>emptyList() : tags;
+    }
+
+    /**
+     * Returns attributes of a tag with the given tid, in the order of the file.
+     */
+    public Collection<ParsedAtt> getAttsOf(String tid) {
+        Collection<ParsedAtt> atts = attsByTid.get(tid);
+        return atts == null ? Collections.<ParsedAtt>emptyList() : atts;
+    }
+
+    private static final class SpansKey {
+        private final int[] spans;
+        private final int hash;
+
+        SpansKey(int[] spans) {
+            // spans of link tags are null, and are kept apart from empty spans of non-consuming tags
+            this.spans = spans;
+            this.hash = Arrays.hashCode(spans);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof SpansKey && Arrays.equals(spans, ((SpansKey) o).spans);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
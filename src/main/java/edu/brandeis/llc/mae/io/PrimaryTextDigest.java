@@ -0,0 +1,147 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.io;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A SHA-256 digest of a primary text, fed chunk by chunk while the text is
+ * being parsed. The text is hashed in fixed-size blocks of UTF-16 code units,
+ * and the digest of the whole text is taken over the digests of its blocks.
+ * So two texts can be compared without keeping either of them, and when
+ * they differ, the block where they first differ is known.
+ */
+public class PrimaryTextDigest {
+
+    public static final int BLOCK_SIZE = 1024;
+    private static final String ALGORITHM = "SHA-256";
+
+    private final MessageDigest blockDigest;
+    private final List<byte[]> blockDigests;
+    private final byte[] block;
+    private int blockLength;
+    private int length;
+    private byte[] tailDigest;
+    private byte[] digest;
+
+    public PrimaryTextDigest() {
+        blockDigest = newMessageDigest();
+        blockDigests = new ArrayList<>();
+        block = new byte[BLOCK_SIZE * 2];
+        blockLength = 0;
+        length = 0;
+    }
+
+    public static PrimaryTextDigest of(String text) {
+        PrimaryTextDigest digest = new PrimaryTextDigest();
+        digest.update(text.toCharArray(), 0, text.length());
+        return digest;
+    }
+
+    private static MessageDigest newMessageDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // every java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void update(char[] ch, int start, int len) {
+        for (int i = start; i < start + len; i++) {
+            block[blockLength * 2] = (byte) (ch[i] >> 8);
+            block[blockLength * 2 + 1] = (byte) ch[i];
+            blockLength++;
+            if (blockLength == BLOCK_SIZE) {
+                blockDigest.update(block);
+                blockDigests.add(blockDigest.digest());
+                blockLength = 0;
+            }
+        }
+        length += len;
+        tailDigest = null;
+        digest = null;
+    }
+
+    /**
+     * Returns the number of characters digested so far.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    public byte[] getDigest() {
+        if (digest == null) {
+            MessageDigest whole = newMessageDigest();
+            for (int i = 0; i < getBlockCount(); i++) {
+                whole.update(getBlockDigest(i));
+            }
+            digest = whole.digest();
+        }
+        return digest.clone();
+    }
+
+    private int getBlockCount() {
+        return blockLength > 0 ? blockDigests.size() + 1 : blockDigests.size();
+    }
+
+    private byte[] getBlockDigest(int i) {
+        if (i < blockDigests.size()) {
+            return blockDigests.get(i);
+        }
+        if (tailDigest == null) {
+            MessageDigest tail = newMessageDigest();
+            tail.update(block, 0, blockLength * 2);
+            tailDigest = tail.digest();
+        }
+        return tailDigest;
+    }
+
+    public boolean matches(PrimaryTextDigest other) {
+        return length == other.length && Arrays.equals(getDigest(), other.getDigest());
+    }
+
+    /**
+     * Returns the offset of the first block where two texts differ, or -1 if
+     * they are identical. The first differing character is at this offset or
+     * within {@link #BLOCK_SIZE} characters after it.
+     */
+    public int getFirstMismatchOffset(PrimaryTextDigest other) {
+        if (matches(other)) {
+            return -1;
+        }
+        int blocks = Math.min(getBlockCount(), other.getBlockCount());
+        for (int i = 0; i < blocks; i++) {
+            if (!Arrays.equals(getBlockDigest(i), other.getBlockDigest(i))) {
+                return i * BLOCK_SIZE;
+            }
+        }
+        return blocks * BLOCK_SIZE;
+    }
+}
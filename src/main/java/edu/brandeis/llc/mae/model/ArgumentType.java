@@ -53,6 +53,10 @@ public class ArgumentType extends TagProperty implements ModelI {
         return arguments;
     }
 
+    public void setArguments(ForeignCollection<Argument> arguments) {
+        this.arguments = arguments;
+    }
+
     @Override
     public boolean equals(Object argumentType) {
         return argumentType instanceof ArgumentType && getName().equals(((ArgumentType) argumentType).getName());
@@ -24,23 +24,15 @@
 
 package edu.brandeis.llc.mae.model;
 
-import com.j256.ormlite.field.DatabaseField;
-import com.j256.ormlite.table.DatabaseTable;
-
 /**
- * Created by krim on 11/19/15.
+ * A single anchored character offset of an extent tag.
+ * Anchors are no longer stored per character, but expanded from
+ * {@link CharSpan} rows on demand for callers that still work on offsets.
  */
+public class CharIndex implements ModelI, Comparable<CharIndex> {
 
-@DatabaseTable(tableName = DBSchema.TAB_CI)
-public class CharIndex implements ModelI {
-
-    @DatabaseField(generatedId = true, columnName = DBSchema.TAB_CI_COL_ID)
-    private int id;
-
-    @DatabaseField(index = true, canBeNull = false, columnName = DBSchema.TAB_CI_COL_LOCATION)
     private int location;
 
-    @DatabaseField(foreign = true, canBeNull = false, foreignAutoRefresh = true, columnName = DBSchema.TAB_CI_FCOL_ETAG)
     private ExtentTag tag;
 
     public CharIndex() {
@@ -53,7 +45,7 @@ public class CharIndex implements ModelI {
     }
 
     public String getId() {
-        return Integer.toString(id);
+        return String.format("%s-%d", tag == null ? "" : tag.getId(), location);
     }
 
     public int getLocation() {
@@ -72,4 +64,9 @@ public class CharIndex implements ModelI {
         this.tag = tag;
     }
 
+    @Override
+    public int compareTo(CharIndex index) {
+        return location != index.getLocation() ? Integer.compare(location, index.getLocation()) : getId().compareTo(index.getId());
+    }
+
 }
@@ -0,0 +1,115 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.model;
+
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.table.DatabaseTable;
+
+/**
+ * A contiguous anchored region of an extent tag, stored as a half-open
+ * interval [start, end). An extent tag with discontinuous spans owns one
+ * CharSpan per contiguous piece, instead of one row per character.
+ */
+
+@DatabaseTable(tableName = DBSchema.TAB_CS)
+public class CharSpan implements ModelI, Comparable<CharSpan> {
+
+    @DatabaseField(generatedId = true, columnName = DBSchema.TAB_CS_COL_ID)
+    private int id;
+
+    @DatabaseField(canBeNull = false, indexName = DBSchema.TAB_CS_IDX_RANGE, columnName = DBSchema.TAB_CS_COL_START)
+    private int start;
+
+    @DatabaseField(canBeNull = false, indexName = DBSchema.TAB_CS_IDX_RANGE, columnName = DBSchema.TAB_CS_COL_END)
+    private int end;
+
+    @DatabaseField(index = true, foreign = true, canBeNull = false, foreignAutoRefresh = true, columnName = DBSchema.TAB_CS_FCOL_ETAG)
+    private ExtentTag tag;
+
+    public CharSpan() {
+
+    }
+
+    public CharSpan(int start, int end, ExtentTag tag) {
+        this.setStart(start);
+        this.setEnd(end);
+        this.setTag(tag);
+    }
+
+    public String getId() {
+        return Integer.toString(id);
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public void setStart(int start) {
+        this.start = start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public void setEnd(int end) {
+        this.end = end;
+    }
+
+    public int length() {
+        return end - start;
+    }
+
+    public boolean contains(int location) {
+        return start <= location && location < end;
+    }
+
+    public boolean overlaps(int begin, int end) {
+        return this.start < end && begin < this.end;
+    }
+
+    public int[] toPair() {
+        return new int[]{start, end};
+    }
+
+    public ExtentTag getTag() {
+        return tag;
+    }
+
+    public void setTag(ExtentTag tag) {
+        this.tag = tag;
+    }
+
+    @Override
+    public int compareTo(CharSpan span) {
+        return start != span.getStart() ? Integer.compare(start, span.getStart()) : Integer.compare(end, span.getEnd());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d~%d", start, end);
+    }
+
+}
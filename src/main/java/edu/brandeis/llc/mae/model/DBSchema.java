@@ -35,17 +35,21 @@ public class DBSchema {
     public final static String TAB_TASK_COL_TASKFILE = "task_file";
     public final static String TAB_TASK_COL_ANNFILE = "ann_file";
 
-    public final static String TAB_CI = "char_index";
-    public final static String TAB_CI_COL_ID = "id";
-    public final static String TAB_CI_COL_LOCATION = "location";
-    public final static String TAB_CI_FCOL_ETAG = "tag_fid";
+    public final static String TAB_CS = "char_span";
+    public final static String TAB_CS_COL_ID = "id";
+    public final static String TAB_CS_COL_START = "span_start";
+    public final static String TAB_CS_COL_END = "span_end";
+    public final static String TAB_CS_FCOL_ETAG = "tag_fid";
+    public final static String TAB_CS_IDX_RANGE = "char_span_range_idx";
 
     public final static String TAB_TT = "tag_type";
     public final static String TAB_TT_COL_NAME = "name";
     public final static String TAB_TT_COL_PREFIX = "prefix";
     public final static String TAB_TT_COL_ISLINK = "is_link";
 
+    public final static String TAB_TAG_COL_KEY = "tag_key";
     public final static String TAB_TAG_COL_TID = "tid";
+    public final static String TAB_TAG_COL_DOC = "document";
     public final static String TAB_TAG_COL_FN = "filename";
     public final static String TAB_TAG_FCOL_TT = "tag_type_fid";
 
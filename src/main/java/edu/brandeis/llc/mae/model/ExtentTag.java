@@ -33,10 +33,7 @@ import edu.brandeis.llc.mae.database.ExtentTagDao;
 import edu.brandeis.llc.mae.util.SpanHandler;
 import org.apache.commons.lang3.StringUtils;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 /**
  * Created by krim on 11/19/15.
@@ -49,7 +46,10 @@ public class ExtentTag extends Tag implements ModelI {
     private String text;
 
     @ForeignCollectionField(eager = true)
-    private ForeignCollection<CharIndex> spans;
+    private ForeignCollection<CharSpan> spans;
+
+    // not persisted, rebuilt when the span collection is replaced (e.g. refreshed by DAO) or resized
+    private transient volatile SpanCache spanCache;
 
     public ExtentTag() {
 
@@ -62,23 +62,24 @@ public class ExtentTag extends Tag implements ModelI {
 
     }
 
-    public List<CharIndex> setSpans(int...locations) {
-        List<CharIndex> indices = new LinkedList<>();
-        if (locations != null) {
-            for (int location : locations) {
-                indices.add(new CharIndex(location, this));
-
-            }
+    public List<CharSpan> setSpans(int...locations) {
+        if (locations == null || locations.length == 0) {
+            return new LinkedList<>();
         }
-        // cannot call DAO inside ETag class, so we return list to save these afterwards
-        return indices;
+        return this.setSpans(SpanHandler.convertArrayToPairs(locations));
     }
 
-    public List<CharIndex> setSpans(ArrayList<int[]> spans) {
-        return this.setSpans(SpanHandler.convertPairsToArray(spans));
+    public List<CharSpan> setSpans(ArrayList<int[]> spans) {
+        invalidateSpanCache();
+        List<CharSpan> charSpans = new LinkedList<>();
+        for (int[] pair : SpanHandler.mergePairs(spans)) {
+            charSpans.add(new CharSpan(pair[0], pair[1], this));
+        }
+        // cannot call DAO inside ETag class, so we return list to save these afterwards
+        return charSpans;
     }
 
-    public List<CharIndex> setSpans(String spansString) {
+    public List<CharSpan> setSpans(String spansString) {
         return this.setSpans(SpanHandler.convertStringToPairs(spansString));
     }
 
@@ -88,33 +89,111 @@ public class ExtentTag extends Tag implements ModelI {
     }
 
     public boolean isConsuming() {
-        return getSpans() != null && getSpans().size() > 0;
+        return getSpanCache().pairs.length > 0;
     }
 
-    public ForeignCollection<CharIndex> getSpans() {
+    public ForeignCollection<CharSpan> getSpans() {
         return spans;
     }
 
+    public void setSpansCollection(ForeignCollection<CharSpan> spans) {
+        this.spans = spans;
+        invalidateSpanCache();
+    }
+
+    /**
+     * Drops cached span representations, to be rebuilt from the span collection
+     * on the next access. Drivers call this whenever spans of a tag are updated.
+     */
+    public void invalidateSpanCache() {
+        spanCache = null;
+    }
+
+    private SpanCache getSpanCache() {
+        SpanCache cache = spanCache;
+        if (cache == null || !cache.isBuiltFrom(spans)) {
+            cache = new SpanCache(spans);
+            spanCache = cache;
+        }
+        return cache;
+    }
+
+    /**
+     * Returns sorted start and end offsets of spans, flattened as {start0, end0, start1, end1, ...}.
+     * The returned array is a copy, use {@link #getNumberOfSpans()}, {@link #getSpanStart(int)}
+     * and {@link #getSpanEnd(int)} on hot paths instead.
+     */
+    public int[] getSpanPairs() {
+        return getSpanCache().pairs.clone();
+    }
+
+    public int getNumberOfSpans() {
+        return getSpanCache().pairs.length / 2;
+    }
+
+    public int getSpanStart(int i) {
+        return getSpanCache().pairs[i * 2];
+    }
+
+    public int getSpanEnd(int i) {
+        return getSpanCache().pairs[i * 2 + 1];
+    }
+
+    /**
+     * Returns the number of characters anchored by this tag.
+     */
+    public int getNumberOfAnchors() {
+        return getSpanCache().numAnchors;
+    }
+
+    public boolean isAnchoredAt(int location) {
+        int[] pairs = getSpanCache().pairs;
+        for (int i = 0; i < pairs.length && pairs[i] <= location; i += 2) {
+            if (location < pairs[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<int[]> getSpansAsPairs() {
+        int[] cached = getSpanCache().pairs;
+        List<int[]> pairs = new ArrayList<>(cached.length / 2);
+        for (int i = 0; i < cached.length; i += 2) {
+            pairs.add(new int[]{cached[i], cached[i + 1]});
+        }
+        return pairs;
+    }
+
     public List<Integer> getSpansAsList() {
         List<Integer> spans = new ArrayList<>();
-        for (CharIndex anchor : getSpans()) {
-            spans.add(anchor.getLocation());
+        for (int location : getSpansAsArray()) {
+            spans.add(location);
         }
         return spans;
 
     }
 
+    public BitSet getSpansAsBitSet() {
+        BitSet bits = new BitSet();
+        SpanHandler.setPairsOnBitSet(getSpanCache().pairs, bits);
+        return bits;
+    }
+
     public int[] getSpansAsArray() {
-        int[] spans = new int[this.getSpans().size()];
+        SpanCache cache = getSpanCache();
+        int[] spans = new int[cache.numAnchors];
         int i = 0;
-        for (CharIndex ci : getSpans()) {
-            spans[i++] = ci.getLocation();
+        for (int p = 0; p < cache.pairs.length; p += 2) {
+            for (int location = cache.pairs[p]; location < cache.pairs[p + 1]; location++) {
+                spans[i++] = location;
+            }
         }
         return spans;
     }
 
     public String getSpansAsString() {
-        return SpanHandler.convertArrayToString(this.getSpansAsArray());
+        return getSpanCache().string;
     }
 
     public String getText() {
@@ -144,6 +223,43 @@ public class ExtentTag extends Tag implements ModelI {
         return String.format("<%s />", StringUtils.join(new String[]{tagTypeName, idAtt, spansAtt, textAtt, attributes}, " "));
     }
 
+    /**
+     * Immutable snapshot of a span collection, as sorted flat start/end pairs.
+     */
+    private static final class SpanCache {
+        private final Collection<CharSpan> source;
+        private final int sourceSize;
+        private final int[] pairs;
+        private final int numAnchors;
+        private final String string;
+
+        private SpanCache(Collection<CharSpan> source) {
+            this.source = source;
+            this.sourceSize = source == null ? 0 : source.size();
+            List<int[]> sorted = new ArrayList<>(sourceSize);
+            if (source != null) {
+                for (CharSpan span : source) {
+                    sorted.add(span.toPair());
+                }
+            }
+            // spans are stored merged already, merging again only sorts them
+            sorted = SpanHandler.mergePairs(sorted);
+            pairs = new int[sorted.size() * 2];
+            int anchors = 0;
+            for (int i = 0; i < sorted.size(); i++) {
+                pairs[i * 2] = sorted.get(i)[0];
+                pairs[i * 2 + 1] = sorted.get(i)[1];
+                anchors += sorted.get(i)[1] - sorted.get(i)[0];
+            }
+            numAnchors = anchors;
+            string = SpanHandler.convertPairsToString(sorted);
+        }
+
+        private boolean isBuiltFrom(Collection<CharSpan> collection) {
+            return source == collection && sourceSize == (collection == null ? 0 : collection.size());
+        }
+    }
+
     @Override
     public String toString() {
         String tagText;
@@ -55,6 +55,10 @@ public class LinkTag extends Tag implements ModelI {
         return arguments;
     }
 
+    public void setArguments(ForeignCollection<Argument> arguments) {
+        this.arguments = arguments;
+    }
+
     public ArrayList<ExtentTag> getArgumentTags() {
         ArrayList<ExtentTag> tags = new ArrayList<>();
         for (Argument arg : getArguments()) {
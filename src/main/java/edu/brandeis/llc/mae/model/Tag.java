@@ -37,9 +37,17 @@ import java.util.*;
 
 public abstract class Tag implements ModelI, Comparable<Tag> {
 
-    @DatabaseField(id = true, columnName = DBSchema.TAB_TAG_COL_TID)
+    // primary key, same as tid unless the tag is stored in a database shared by many documents
+    @DatabaseField(id = true, columnName = DBSchema.TAB_TAG_COL_KEY)
+    protected String key;
+
+    @DatabaseField(canBeNull = false, index = true, columnName = DBSchema.TAB_TAG_COL_TID)
     protected String tid;
 
+    // 0 for a stand-alone document, otherwise a number assigned by the shared database
+    @DatabaseField(index = true, columnName = DBSchema.TAB_TAG_COL_DOC)
+    protected int document;
+
     @DatabaseField(foreign = true, canBeNull = false, foreignAutoRefresh = true, columnName = DBSchema.TAB_TAG_FCOL_TT)
     protected TagType tagtype;
 
@@ -99,6 +107,24 @@ public abstract class Tag implements ModelI, Comparable<Tag> {
 
     public void setTid(String tid) {
         this.tid = tid;
+        this.key = toKey(document, tid);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public int getDocument() {
+        return document;
+    }
+
+    public void setDocument(int document) {
+        this.document = document;
+        this.key = toKey(document, tid);
+    }
+
+    public static String toKey(int document, String tid) {
+        return document == 0 ? tid : document + ":" + tid;
     }
 
     public TagType getTagtype() {
@@ -151,6 +177,10 @@ public abstract class Tag implements ModelI, Comparable<Tag> {
         return attributes;
     }
 
+    public void setAttributes(ForeignCollection<Attribute> attributes) {
+        this.attributes = attributes;
+    }
+
     @Override
     public int hashCode() {
         return this.tid.hashCode();
@@ -128,14 +128,26 @@ public class TagType implements ModelI, Comparable<TagType> {
         return attributeTypes;
     }
 
+    public void setAttributeTypes(ForeignCollection<AttributeType> attributeTypes) {
+        this.attributeTypes = attributeTypes;
+    }
+
     public Collection<ArgumentType> getArgumentTypes() {
         return argumentTypes;
     }
 
+    public void setArgumentTypes(ForeignCollection<ArgumentType> argumentTypes) {
+        this.argumentTypes = argumentTypes;
+    }
+
     public Collection<ExtentTag> getExtentTags() {
         return this.extentTags;
     }
 
+    public void setExtentTags(ForeignCollection<ExtentTag> extentTags) {
+        this.extentTags = extentTags;
+    }
+
     public List<ExtentTag> getExtentTagsAsList(boolean consumingOnly) {
         ArrayList<ExtentTag> tags = new ArrayList<>();
         for (ExtentTag tag : getExtentTags()) {
@@ -150,6 +162,10 @@ public class TagType implements ModelI, Comparable<TagType> {
         return this.linkTags;
     }
 
+    public void setLinkTags(ForeignCollection<LinkTag> linkTags) {
+        this.linkTags = linkTags;
+    }
+
     public Collection<? extends Tag> getTags() {
         if (isExtent()) {
             return getExtentTags();
@@ -40,6 +40,8 @@ public class MaePreferences {
     public String saveSuffix;
     public String saveDir;
     public String lastWD;
+    // storage backend for annotation drivers, one of "sqlite", "shared" (one sqlite file for all documents) or "memory"
+    public String dbType;
 
     public MaePreferences() {
         init();
@@ -50,6 +52,7 @@ public class MaePreferences {
         saveSuffix = "";
         saveDir = "";
         lastWD = ".";
+        dbType = MaeStrings.DB_TYPE_SQLITE;
     }
 
     public String toString() {
@@ -101,24 +101,44 @@ public class FontHandler {
         return stringToSimpleStyledDocumentConcurrently(plainText, defaultFontName, fontSize, fontColor);
     }
 
+    /**
+     * Creates an empty styled document whose content buffer can hold the given number of
+     * characters without growing, so that appending a long text does not copy it over and over.
+     */
+    public static StyledDocument createSimpleStyledDocument(int capacity) {
+        return new DefaultStyledDocument(new GapContent(capacity + 1), new StyleContext());
+    }
 
     private static StyledDocument stringToSimpleStyledDocumentConcurrently(String plainText, String defaultFontName, int fontSize, Color fontColor) {
-        StyledDocument document = new DefaultStyledDocument();
+        StyledDocument document = createSimpleStyledDocument(plainText == null ? 0 : plainText.length());
+        if (plainText != null) {
+            appendSimpleStyledText(document, plainText, 0, plainText.length(), defaultFontName, fontSize, fontColor);
+        }
+        return document;
+    }
+
+    /**
+     * Appends [start, end) of a plain text at the end of a document, in the default font and color.
+     * Characters out of the basic plane are given a font that can render them, in the background.
+     */
+    public static void appendSimpleStyledText(StyledDocument document, String plainText, int start, int end, String defaultFontName, int fontSize, Color fontColor) {
         ExecutorService unicodeRenderService = Executors.newCachedThreadPool();
 
         try {
-            if (plainText != null && plainText.length() > 0) {
-                document.insertString(0, plainText, StyleContext.getDefaultStyleContext().getStyle(StyleContext.DEFAULT_STYLE));
+            if (start < end) {
+                int base = document.getLength() - start;
+                document.insertString(document.getLength(), plainText.substring(start, end),
+                        StyleContext.getDefaultStyleContext().getStyle(StyleContext.DEFAULT_STYLE));
 
                 SimpleAttributeSet aSet = new SimpleAttributeSet();
                 StyleConstants.setFontFamily(aSet, defaultFontName);
                 StyleConstants.setFontSize(aSet, fontSize);
                 StyleConstants.setForeground(aSet, fontColor);
 
-                document.setCharacterAttributes(0, plainText.length(), aSet, false);
+                document.setCharacterAttributes(base + start, end - start, aSet, false);
 
-                int offset = 0;
-                while (offset < plainText.length()) {
+                int offset = start;
+                while (offset < end) {
                     int length = 1;
                     Character c = plainText.charAt(offset);
                     if (Character.isHighSurrogate(c)) {
@@ -129,7 +149,7 @@ public class FontHandler {
                             SimpleAttributeSet unicodeASet = new SimpleAttributeSet();
                             StyleConstants.setFontFamily(unicodeASet,
                                     getFontToRenderSurrogateCode(plainText.codePointAt(finalOffset)).getFontName());
-                            document.setCharacterAttributes(finalOffset, finalLength, unicodeASet, false);
+                            document.setCharacterAttributes(base + finalOffset, finalLength, unicodeASet, false);
 
                         });
                         unicodeRenderService.submit(thread);
@@ -141,6 +161,5 @@ public class FontHandler {
         }
         // TODO: 1/23/17 send secondary msg to user that unicode rendering is happening in BG
         unicodeRenderService.shutdown();
-        return document;
     }
 }
@@ -0,0 +1,102 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A set of integer offsets kept as disjoint half-open intervals [start, end).
+ * Overlapping or touching intervals are merged as they are added, so that the
+ * number of intervals stays small when regions are covered piece by piece.
+ */
+public class IntervalSet {
+
+    // start -> end of disjoint, non-touching intervals
+    private final TreeMap<Integer, Integer> intervals = new TreeMap<>();
+
+    public int size() {
+        return intervals.size();
+    }
+
+    public boolean isEmpty() {
+        return intervals.isEmpty();
+    }
+
+    public void clear() {
+        intervals.clear();
+    }
+
+    public void add(int start, int end) {
+        if (start >= end) {
+            return;
+        }
+        Map.Entry<Integer, Integer> before = intervals.floorEntry(start);
+        if (before != null && before.getValue() >= start) {
+            start = before.getKey();
+            end = Math.max(end, before.getValue());
+        }
+        Map.Entry<Integer, Integer> next = intervals.ceilingEntry(start);
+        while (next != null && next.getKey() <= end) {
+            end = Math.max(end, next.getValue());
+            intervals.remove(next.getKey());
+            next = intervals.ceilingEntry(start);
+        }
+        intervals.put(start, end);
+    }
+
+    public boolean contains(int location) {
+        Map.Entry<Integer, Integer> before = intervals.floorEntry(location);
+        return before != null && location < before.getValue();
+    }
+
+    public boolean covers(int start, int end) {
+        return getGaps(start, end).isEmpty();
+    }
+
+    /**
+     * Returns sub-intervals of [start, end) not in this set, as int pairs in ascending order.
+     */
+    public List<int[]> getGaps(int start, int end) {
+        List<int[]> gaps = new ArrayList<>();
+        int cursor = start;
+        Map.Entry<Integer, Integer> before = intervals.floorEntry(start);
+        if (before != null && before.getValue() > cursor) {
+            cursor = before.getValue();
+        }
+        for (Map.Entry<Integer, Integer> interval : intervals.subMap(start, false, end, false).entrySet()) {
+            if (interval.getKey() > cursor) {
+                gaps.add(new int[]{cursor, interval.getKey()});
+            }
+            cursor = Math.max(cursor, interval.getValue());
+        }
+        if (cursor < end) {
+            gaps.add(new int[]{cursor, end});
+        }
+        return gaps;
+    }
+}
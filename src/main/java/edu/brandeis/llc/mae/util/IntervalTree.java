@@ -0,0 +1,221 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * An augmented interval tree over half-open integer intervals [start, end).
+ * Nodes are kept balanced as a treap, and each node keeps the largest end
+ * offset found in its subtree, so that point and overlap queries only visit
+ * branches that can possibly contain a hit.
+ *
+ * @param <T> type of values attached to each interval
+ */
+public class IntervalTree<T> {
+
+    private static class Node<T> {
+        final int start;
+        final int end;
+        final T value;
+        final int priority;
+        int maxEnd;
+        Node<T> left;
+        Node<T> right;
+
+        Node(int start, int end, T value, int priority) {
+            this.start = start;
+            this.end = end;
+            this.value = value;
+            this.priority = priority;
+            this.maxEnd = end;
+        }
+
+        int compareTo(int start, int end) {
+            return this.start != start ? Integer.compare(this.start, start) : Integer.compare(this.end, end);
+        }
+    }
+
+    private final Random random = new Random();
+    private Node<T> root;
+    private int size;
+    private boolean removed;
+
+    public IntervalTree() {
+        clear();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        root = null;
+        size = 0;
+    }
+
+    public void add(int start, int end, T value) {
+        if (start >= end) {
+            return;
+        }
+        root = insert(root, new Node<>(start, end, value, random.nextInt()));
+        size++;
+    }
+
+    public boolean remove(int start, int end, T value) {
+        removed = false;
+        root = delete(root, start, end, value);
+        if (removed) {
+            size--;
+        }
+        return removed;
+    }
+
+    /**
+     * @return values of all intervals that contain the given offset
+     */
+    public List<T> getValuesAt(int location) {
+        return getValuesOverlapping(location, location + 1);
+    }
+
+    /**
+     * @return values of all intervals that share at least one offset with [begin, end)
+     */
+    public List<T> getValuesOverlapping(int begin, int end) {
+        List<T> values = new ArrayList<>();
+        collectOverlapping(root, begin, end, values);
+        return values;
+    }
+
+    private void collectOverlapping(Node<T> node, int begin, int end, List<T> values) {
+        // nothing in this subtree reaches the query range
+        if (node == null || node.maxEnd <= begin) {
+            return;
+        }
+        collectOverlapping(node.left, begin, end, values);
+        if (node.start >= end) {
+            // the right subtree starts even later
+            return;
+        }
+        if (begin < node.end) {
+            values.add(node.value);
+        }
+        collectOverlapping(node.right, begin, end, values);
+    }
+
+    private Node<T> insert(Node<T> node, Node<T> newNode) {
+        if (node == null) {
+            return newNode;
+        }
+        if (node.compareTo(newNode.start, newNode.end) > 0) {
+            node.left = insert(node.left, newNode);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, newNode);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        update(node);
+        return node;
+    }
+
+    private Node<T> delete(Node<T> node, int start, int end, T value) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = node.compareTo(start, end);
+        if (cmp > 0) {
+            node.left = delete(node.left, start, end, value);
+        } else if (cmp < 0) {
+            node.right = delete(node.right, start, end, value);
+        } else if (node.value == null ? value == null : node.value.equals(value)) {
+            removed = true;
+            return merge(node.left, node.right);
+        } else {
+            // identical intervals can end up on either side after rotations
+            node.left = delete(node.left, start, end, value);
+            if (!removed) {
+                node.right = delete(node.right, start, end, value);
+            }
+        }
+        update(node);
+        return node;
+    }
+
+    private Node<T> merge(Node<T> left, Node<T> right) {
+        if (left == null) {
+            return right;
+        } else if (right == null) {
+            return left;
+        } else if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        } else {
+            right.left = merge(left, right.left);
+            update(right);
+            return right;
+        }
+    }
+
+    private Node<T> rotateRight(Node<T> node) {
+        Node<T> pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private Node<T> rotateLeft(Node<T> node) {
+        Node<T> pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private void update(Node<T> node) {
+        int maxEnd = node.end;
+        if (node.left != null) {
+            maxEnd = Math.max(maxEnd, node.left.maxEnd);
+        }
+        if (node.right != null) {
+            maxEnd = Math.max(maxEnd, node.right.maxEnd);
+        }
+        node.maxEnd = maxEnd;
+    }
+
+}
@@ -80,22 +80,99 @@ public class SpanHandler {
      * @return a formatted string of spans of a tag
      */
     public static String convertPairsToString(List<int[]> spans) {
-        return convertArrayToString(convertPairsToArray(spans));
-//        if (spans.size() == 0) {
-//            return MaeStrings.NCSPAN_PLACEHOLDER;
-//        }
-//
-//        String spanString = "";
-//        Iterator<int[]> iter = spans.iterator();
-//        while (iter.hasNext()) {
-//            int[] span = iter.next();
-//            spanString += span[0] + MaeStrings.SPANRANGE + span[1];
-//            if (iter.hasNext()) {
-//                spanString += MaeStrings.SPANDELIMITER;
-//            }
-//        }
-//        logger.debug("=== Conversion finished ===");
-//        return spanString;
+        List<int[]> merged = mergePairs(spans);
+        if (merged.size() == 0) {
+            return MaeStrings.NCSPAN_PLACEHOLDER;
+        }
+
+        StringBuilder spansString = new StringBuilder();
+        Iterator<int[]> iter = merged.iterator();
+        while (iter.hasNext()) {
+            int[] span = iter.next();
+            spansString.append(span[0]).append(MaeStrings.SPANRANGE).append(span[1]);
+            if (iter.hasNext()) {
+                spansString.append(MaeStrings.SPANDELIMITER);
+            }
+        }
+        return spansString.toString();
+    }
+
+    /**
+     * Takes a list of integer pairs, then sort and merge overlapping or
+     * adjacent pairs, leaving out non-consuming placeholders and empty pairs
+     *
+     * @param spans - a list of integer pairs, not necessarily sorted
+     * @return a sorted list of disjoint, non-adjacent integer pairs
+     */
+    public static ArrayList<int[]> mergePairs(List<int[]> spans) {
+        ArrayList<int[]> sorted = new ArrayList<>();
+        for (int[] pair : spans) {
+            if (pair[0] != MaeStrings.NC_START && pair[0] < pair[1]) {
+                sorted.add(new int[]{pair[0], pair[1]});
+            }
+        }
+        Collections.sort(sorted, new SpansPairComparator());
+
+        ArrayList<int[]> merged = new ArrayList<>();
+        for (int[] pair : sorted) {
+            int[] last = merged.size() > 0 ? merged.get(merged.size() - 1) : null;
+            if (last != null && pair[0] <= last[1]) {
+                last[1] = Math.max(last[1], pair[1]);
+            } else {
+                merged.add(pair);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Takes arrays of flattened start/end pairs, then sort and merge them as
+     * mergePairs() does
+     *
+     * @param pairsArrays - arrays of flattened integer pairs, not necessarily sorted
+     * @return a flattened array of sorted, disjoint, non-adjacent integer pairs
+     */
+    public static int[] mergeFlatPairs(int[]... pairsArrays) {
+        ArrayList<int[]> spans = new ArrayList<>();
+        for (int[] pairs : pairsArrays) {
+            for (int i = 0; i + 1 < pairs.length; i += 2) {
+                spans.add(new int[]{pairs[i], pairs[i + 1]});
+            }
+        }
+        return flattenPairs(mergePairs(spans));
+    }
+
+    /**
+     * Takes a list of integer pairs, then lay them out in a single array
+     * of start/end points
+     *
+     * @param spans - a list of integer pairs
+     * @return a flattened array of integer pairs
+     */
+    public static int[] flattenPairs(List<int[]> spans) {
+        int[] flattened = new int[spans.size() * 2];
+        int i = 0;
+        for (int[] pair : spans) {
+            flattened[i++] = pair[0];
+            flattened[i++] = pair[1];
+        }
+        return flattened;
+    }
+
+    /**
+     * Takes an array of (possibly unsorted) locations, then make it into
+     * a list of integer pairs, leaving the given array untouched. Unlike
+     * convertArrayToPairs(), no locations give no pairs
+     *
+     * @param locations - an array of character locations
+     * @return a sorted list of disjoint, non-adjacent integer pairs
+     */
+    public static ArrayList<int[]> convertLocationsToPairs(int[] locations) {
+        if (locations == null || locations.length == 0) {
+            return new ArrayList<>();
+        }
+        // converting sorts the array in place, thus work on a copy
+        return convertArrayToPairs(locations.clone());
     }
 
     /**
@@ -124,16 +201,13 @@ public class SpanHandler {
         int start = spans[0];
         int prev = spans[0];
         for (int i = 1; i < spans.length; i++) {
-            if (i == spans.length - 1) {
-                spansList.add(new int[]{start, spans[i] + 1});
-            } else if (prev + 1 < spans[i]) {
+            if (prev + 1 < spans[i]) {
                 spansList.add(new int[]{start, prev + 1});
-                prev = spans[i];
                 start = spans[i];
-            } else {
-                prev = spans[i];
             }
+            prev = spans[i];
         }
+        spansList.add(new int[]{start, prev + 1});
         logger.debug("=== Conversion finished ===");
         return spansList;
 
@@ -225,6 +299,33 @@ public class SpanHandler {
         return list;
     }
 
+    public static BitSet convertIntegersToBitSet(Collection<Integer> locations) {
+        BitSet bits = new BitSet();
+        for (Integer location : locations) {
+            bits.set(location);
+        }
+        return bits;
+    }
+
+    public static BitSet convertArrayToBitSet(int[] locations) {
+        BitSet bits = new BitSet();
+        for (int location : locations) {
+            bits.set(location);
+        }
+        return bits;
+    }
+
+    /**
+     * Takes spans as a flattened array of sorted start/end pairs
+     * (as in {@link edu.brandeis.llc.mae.model.ExtentTag#getSpanPairs()})
+     * and marks every location they cover in the given bitset.
+     */
+    public static void setPairsOnBitSet(int[] pairs, BitSet bits) {
+        for (int i = 0; i + 1 < pairs.length; i += 2) {
+            bits.set(pairs[i], pairs[i + 1]);
+        }
+    }
+
     public static int[] range(int inclusiveStart, int exclusiveEnd) {
         int[] range = new int[exclusiveEnd - inclusiveStart];
         for (int i = inclusiveStart; i < exclusiveEnd; i++) {
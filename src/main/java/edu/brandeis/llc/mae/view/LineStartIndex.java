@@ -0,0 +1,146 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.view;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+import java.util.Arrays;
+
+/**
+ * Start offsets of lines of a text, kept in a sorted int array.
+ * A line starts at 0 and right after every newline, as lines of the default root
+ * element of a Swing document do. Insertions and removals update the offsets in place,
+ * so the text does not need to be scanned again on each edit.
+ */
+class LineStartIndex {
+
+    private int[] starts;
+    private int count;
+
+    LineStartIndex() {
+        starts = new int[16];
+        count = 1;
+    }
+
+    void reset(Document document) {
+        count = 1;
+        Segment segment = new Segment();
+        segment.setPartialReturn(true);
+        int offset = 0;
+        int length = document.getLength();
+        try {
+            while (offset < length) {
+                document.getText(offset, length - offset, segment);
+                addNewlines(segment, offset);
+                offset += segment.count;
+            }
+        } catch (BadLocationException ignored) {
+            // document is read from 0 to its length
+        }
+    }
+
+    void reset(CharSequence text) {
+        count = 1;
+        addNewlines(text, 0);
+    }
+
+    private void addNewlines(CharSequence text, int offset) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                append(offset + i + 1);
+            }
+        }
+    }
+
+    private void append(int start) {
+        ensureCapacity(count + 1);
+        starts[count++] = start;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > starts.length) {
+            starts = Arrays.copyOf(starts, Math.max(capacity, starts.length * 2));
+        }
+    }
+
+    /**
+     * Updates line starts after text is inserted at offset.
+     */
+    void insert(int offset, CharSequence text) {
+        int newlines = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                newlines++;
+            }
+        }
+        // lines starting after the offset are pushed back, a line starting at it keeps its start
+        int firstShifted = getLineOf(offset) + 1;
+        ensureCapacity(count + newlines);
+        System.arraycopy(starts, firstShifted, starts, firstShifted + newlines, count - firstShifted);
+        for (int i = firstShifted + newlines; i < count + newlines; i++) {
+            starts[i] += text.length();
+        }
+        int line = firstShifted;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                starts[line++] = offset + i + 1;
+            }
+        }
+        count += newlines;
+    }
+
+    /**
+     * Updates line starts after [offset, offset + length) is removed.
+     */
+    void remove(int offset, int length) {
+        int firstRemoved = getLineOf(offset) + 1;
+        int firstKept = firstRemoved;
+        while (firstKept < count && starts[firstKept] <= offset + length) {
+            firstKept++;
+        }
+        System.arraycopy(starts, firstKept, starts, firstRemoved, count - firstKept);
+        count -= firstKept - firstRemoved;
+        for (int i = firstRemoved; i < count; i++) {
+            starts[i] -= length;
+        }
+    }
+
+    int getLineCount() {
+        return count;
+    }
+
+    int getLineStart(int line) {
+        return starts[line];
+    }
+
+    /**
+     * Returns the 0-based index of the line containing the offset.
+     */
+    int getLineOf(int offset) {
+        int found = Arrays.binarySearch(starts, 0, count, offset);
+        return found >= 0 ? found : Math.max(0, -found - 2);
+    }
+}
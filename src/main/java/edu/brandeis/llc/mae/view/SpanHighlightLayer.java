@@ -0,0 +1,235 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.view;
+
+import edu.brandeis.llc.mae.util.SpanHandler;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Highlighter;
+import javax.swing.text.JTextComponent;
+import javax.swing.text.LayeredHighlighter;
+import javax.swing.text.Position;
+import javax.swing.text.View;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Paints background highlights of many locations with a single highlight entry
+ * spanning the whole document. Locations are kept as merged, sorted spans per color,
+ * and each view fragment (a line, typically) is filled with one rectangle per span
+ * found in it. Highlights can be replaced in bulk, causing one repaint.
+ */
+public class SpanHighlightLayer extends LayeredHighlighter.LayerPainter {
+
+    private static class Layer {
+        // flattened start/end pairs, sorted and merged
+        final int[] pairs;
+        // null to use selection color of the component
+        final Color color;
+
+        Layer(int[] pairs, Color color) {
+            this.pairs = pairs;
+            this.color = color;
+        }
+    }
+
+    private final JTextComponent component;
+    private List<Layer> layers;
+    private Object highlightTag;
+    private Position highlightEnd;
+
+    public SpanHighlightLayer(JTextComponent component) {
+        this.component = component;
+        this.layers = Collections.emptyList();
+    }
+
+    public boolean isEmpty() {
+        return layers.isEmpty();
+    }
+
+    public void clear() {
+        replace(Collections.emptyList(), Collections.emptyList());
+    }
+
+    /**
+     * Adds highlights over the locations, on top of existing ones.
+     */
+    public void add(int[] locations, Color color) {
+        List<Layer> newLayers = new ArrayList<>(layers);
+        newLayers.add(new Layer(SpanHandler.flattenPairs(SpanHandler.convertLocationsToPairs(locations)), color));
+        setLayers(newLayers);
+    }
+
+    /**
+     * Replaces all highlights at once. Each array of locations is painted with the color
+     * at the same index, later ones on top of earlier ones.
+     */
+    public void replace(List<int[]> locationsList, List<Color> colors) {
+        List<Layer> newLayers = new ArrayList<>(locationsList.size());
+        for (int i = 0; i < locationsList.size(); i++) {
+            int[] pairs = SpanHandler.flattenPairs(SpanHandler.convertLocationsToPairs(locationsList.get(i)));
+            if (pairs.length > 0) {
+                newLayers.add(new Layer(pairs, colors.get(i)));
+            }
+        }
+        setLayers(newLayers);
+    }
+
+    /**
+     * Extends the highlight entry over text appended to the document since highlights
+     * are set, and repaints highlights of locations that were not in the document before.
+     */
+    public void refresh() {
+        if (layers.isEmpty()) {
+            return;
+        }
+        int oldEnd = highlightEnd == null ? 0 : highlightEnd.getOffset();
+        ensureHighlighted();
+        int[] extent = getExtent(layers);
+        repaint(Math.max(oldEnd, extent[0]), extent[1]);
+    }
+
+    private void setLayers(List<Layer> newLayers) {
+        int[] oldExtent = getExtent(layers);
+        layers = newLayers;
+        ensureHighlighted();
+        int[] newExtent = getExtent(layers);
+        repaint(Math.min(oldExtent[0], newExtent[0]), Math.max(oldExtent[1], newExtent[1]));
+    }
+
+    /**
+     * Makes sure a highlight entry is registered over the whole current document,
+     * as the document of the component can be swapped or highlights can be removed.
+     */
+    private void ensureHighlighted() {
+        Highlighter highlighter = component.getHighlighter();
+        if (highlighter == null) {
+            return;
+        }
+        int length = component.getDocument().getLength();
+        boolean registered = highlightTag != null
+                && Arrays.asList(highlighter.getHighlights()).contains(highlightTag)
+                && highlightEnd != null && highlightEnd.getOffset() == length;
+        if (registered || layers.isEmpty()) {
+            return;
+        }
+        try {
+            if (highlightTag != null) {
+                highlighter.removeHighlight(highlightTag);
+            }
+            highlightTag = highlighter.addHighlight(0, length, this);
+            highlightEnd = component.getDocument().createPosition(length);
+        } catch (BadLocationException ignored) {
+            highlightTag = null;
+        }
+    }
+
+    private void repaint(int start, int end) {
+        if (start >= end) {
+            return;
+        }
+        try {
+            int length = component.getDocument().getLength();
+            Rectangle first = component.modelToView(Math.min(start, length));
+            Rectangle last = component.modelToView(Math.min(end, length));
+            if (first == null || last == null) {
+                component.repaint();
+            } else {
+                // whole rows between the first and the last location
+                int top = Math.min(first.y, last.y);
+                int bottom = Math.max(first.y + first.height, last.y + last.height);
+                component.repaint(0, top, component.getWidth(), bottom - top);
+            }
+        } catch (BadLocationException e) {
+            component.repaint();
+        }
+    }
+
+    @Override
+    public void paint(Graphics g, int p0, int p1, Shape bounds, JTextComponent c) {
+        // only drawn as a layer, see paintLayer()
+    }
+
+    @Override
+    public Shape paintLayer(Graphics g, int offs0, int offs1, Shape bounds, JTextComponent c, View view) {
+        Rectangle painted = null;
+        for (Layer layer : layers) {
+            g.setColor(layer.color == null ? c.getSelectionColor() : layer.color);
+            for (int i = firstPairEndingAfter(layer.pairs, offs0); i < layer.pairs.length && layer.pairs[i] < offs1; i += 2) {
+                int start = Math.max(layer.pairs[i], offs0);
+                int end = Math.min(layer.pairs[i + 1], offs1);
+                Rectangle r = fragmentBounds(start, end, bounds, view);
+                if (r == null) {
+                    continue;
+                }
+                g.fillRect(r.x, r.y, r.width, r.height);
+                painted = painted == null ? r : painted.union(r);
+            }
+        }
+        return painted;
+    }
+
+    private static Rectangle fragmentBounds(int start, int end, Shape bounds, View view) {
+        if (start == view.getStartOffset() && end == view.getEndOffset()) {
+            return bounds instanceof Rectangle ? (Rectangle) bounds : bounds.getBounds();
+        }
+        try {
+            Shape shape = view.modelToView(start, Position.Bias.Forward, end, Position.Bias.Backward, bounds);
+            return shape instanceof Rectangle ? (Rectangle) shape : shape.getBounds();
+        } catch (BadLocationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the index of the first pair whose end is after the location.
+     */
+    private static int firstPairEndingAfter(int[] pairs, int location) {
+        int low = 0;
+        int high = pairs.length / 2;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (pairs[mid * 2 + 1] <= location) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low * 2;
+    }
+
+    private static int[] getExtent(List<Layer> layers) {
+        int start = Integer.MAX_VALUE;
+        int end = Integer.MIN_VALUE;
+        for (Layer layer : layers) {
+            start = Math.min(start, layer.pairs[0]);
+            end = Math.max(end, layer.pairs[layer.pairs.length - 1]);
+        }
+        return new int[]{start, end};
+    }
+}
@@ -38,6 +38,7 @@ import java.awt.*;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.HashMap;
+import java.util.Map;
 
 /**
  *  adopted from https://tips4java.wordpress.com/2009/05/23/text-component-line-number/ , thank!
@@ -81,7 +82,16 @@ class TextLineNumberRowHeader extends JPanel
     private int lastHeight;
     private int lastLine;
 
-    private HashMap<String, FontMetrics> fonts;
+    //  Line starts of the document, kept up to date by document events, so that
+    //  painting does not walk the root element nor the views row by row
+
+    private Document document;
+    private final LineStartIndex lines = new LineStartIndex();
+    private boolean sizeCheckPending;
+
+    private final Map<Font, FontMetrics> fonts = new HashMap<>();
+    private final Map<Font, int[]> digitWidths = new HashMap<>();
+    private final char[] digits = new char[10];
 
     /**
      *	Create a line number component for a text component. This minimum
@@ -104,6 +114,7 @@ class TextLineNumberRowHeader extends JPanel
     public TextLineNumberRowHeader(JTextComponent component, int minimumDisplayDigits)
     {
         this.component = component;
+        setDocument( component.getDocument() );
 
         setFont( component.getFont() );
 
@@ -112,9 +123,9 @@ class TextLineNumberRowHeader extends JPanel
         setDigitAlignment( RIGHT );
         setMinimumDisplayDigits( minimumDisplayDigits );
 
-        component.getDocument().addDocumentListener(this);
         component.addCaretListener( this );
         component.addPropertyChangeListener("font", this);
+        component.addPropertyChangeListener("document", this);
     }
 
     /**
@@ -238,9 +249,7 @@ class TextLineNumberRowHeader extends JPanel
      */
     private void setPreferredWidth()
     {
-        Element root = component.getDocument().getDefaultRootElement();
-        int lines = root.getElementCount();
-        int digits = Math.max(String.valueOf(lines).length(), minimumDisplayDigits);
+        int digits = Math.max(String.valueOf(lines.getLineCount()).length(), minimumDisplayDigits);
 
         //  Update sizes when number of digits in the line number changes
 
@@ -259,6 +268,19 @@ class TextLineNumberRowHeader extends JPanel
         }
     }
 
+    /**
+     *  Follow a new document of the text component, the text pane swaps in
+     *  a fully colored copy of its document after background coloring
+     */
+    private void setDocument(Document newDocument)
+    {
+        if (document != null)
+            document.removeDocumentListener(this);
+        document = newDocument;
+        document.addDocumentListener(this);
+        lines.reset(document);
+    }
+
     /**
      *  Draw the line numbers
      */
@@ -269,56 +291,82 @@ class TextLineNumberRowHeader extends JPanel
 
         //	Determine the width of the space available to draw the line number
 
-        FontMetrics fontMetrics = component.getFontMetrics( component.getFont() );
+        Font font = component.getFont();
+        FontMetrics fontMetrics = getFontMetricsOf(font);
+        int[] widths = getDigitWidths(font, fontMetrics);
         Insets insets = getInsets();
         int availableWidth = getSize().width - insets.left - insets.right;
 
-        //  Determine the rows to draw within the clipped bounds.
+        //  Determine the lines to draw within the clipped bounds, once per paint.
+        //  Wrapped rows of a line are not numbered, thus only line starts are visited.
 
         Rectangle clip = g.getClipBounds();
-        int rowStartOffset = component.viewToModel( new Point(0, clip.y) );
-        int endOffset = component.viewToModel( new Point(0, clip.y + clip.height) );
+        int startLine = lines.getLineOf( component.viewToModel( new Point(0, clip.y) ) );
+        int endLine = lines.getLineOf( component.viewToModel( new Point(0, clip.y + clip.height) ) );
 
-        while (rowStartOffset <= endOffset)
+        g.setColor( getForeground() );
+        for (int line = startLine; line <= endLine && line < lines.getLineCount(); line++)
         {
             try
             {
-//                if (isCurrentLine(rowStartOffset))
-//                    g.setColor( getCurrentLineForeground() );
-//                else
-                g.setColor( getForeground() );
-
-                //  Get the line number as a string and then determine the
-                //  "X" and "Y" offsets for drawing the string.
-
-                String lineNumber = getTextLineNumber(rowStartOffset);
-                int stringWidth = fontMetrics.stringWidth( lineNumber );
+                int lineStartOffset = lines.getLineStart(line);
+                Rectangle r = component.modelToView( lineStartOffset );
+                if (r == null)
+                    break;
+
+                //  Get the line number as digits and then determine the
+                //  "X" and "Y" offsets for drawing them.
+
+                int first = toDigits(line + 1);
+                int stringWidth = 0;
+                for (int i = first; i < digits.length; i++)
+                    stringWidth += widths[digits[i] - '0'];
                 int x = getOffsetX(availableWidth, stringWidth) + insets.left;
-                int y = getOffsetY(rowStartOffset, fontMetrics);
-                g.drawString(lineNumber, x, y);
+                int y = getOffsetY(line, r, fontMetrics);
+                g.drawChars(digits, first, digits.length - first, x, y);
+            }
+            catch(BadLocationException e) {break;}
+        }
+    }
 
-                //  Move to the next row
+    /*
+     *  Write the number right-aligned into the digit buffer, returns the index of its first digit
+     */
+    private int toDigits(int number)
+    {
+        int i = digits.length;
+        do
+        {
+            digits[--i] = (char) ('0' + number % 10);
+            number /= 10;
+        }
+        while (number > 0);
+        return i;
+    }
 
-                rowStartOffset = Utilities.getRowEnd(component, rowStartOffset) + 1;
-            }
-            catch(Exception e) {break;}
+    private FontMetrics getFontMetricsOf(Font font)
+    {
+        FontMetrics fm = fonts.get( font );
+        if (fm == null)
+        {
+            fm = component.getFontMetrics( font );
+            fonts.put(font, fm);
         }
+        return fm;
     }
 
-/*
- *  We need to know if the caret is currently positioned on the line we
- *  are about to paint so the line number can be highlighted.
- */
-//    private boolean isCurrentLine(int rowStartOffset)
-//    {
-//        int caretPosition = component.getCaretPosition();
-//        Element root = component.getDocument().getDefaultRootElement();
-//
-//        if (root.getElementIndex( rowStartOffset ) == root.getElementIndex(caretPosition))
-//            return true;
-//        else
-//            return false;
-//    }
+    private int[] getDigitWidths(Font font, FontMetrics fontMetrics)
+    {
+        int[] widths = digitWidths.get( font );
+        if (widths == null)
+        {
+            widths = new int[10];
+            for (int i = 0; i < widths.length; i++)
+                widths[i] = fontMetrics.charWidth( (char) ('0' + i) );
+            digitWidths.put(font, widths);
+        }
+        return widths;
+    }
 
     /*
      *	Get the line number to be drawn. The empty string will be returned
@@ -326,11 +374,9 @@ class TextLineNumberRowHeader extends JPanel
      */
     protected String getTextLineNumber(int rowStartOffset)
     {
-        Element root = component.getDocument().getDefaultRootElement();
-        int index = root.getElementIndex( rowStartOffset );
-        Element line = root.getElement( index );
+        int index = lines.getLineOf( rowStartOffset );
 
-        if (line.getStartOffset() == rowStartOffset)
+        if (lines.getLineStart(index) == rowStartOffset)
             return String.valueOf(index + 1);
         else
             return "";
@@ -345,14 +391,10 @@ class TextLineNumberRowHeader extends JPanel
     }
 
     /*
-     *  Determine the Y offset for the current row
+     *  Determine the Y offset for the first row of a line, given its bounding rectangle
      */
-    private int getOffsetY(int rowStartOffset, FontMetrics fontMetrics)
-            throws BadLocationException
+    private int getOffsetY(int line, Rectangle r, FontMetrics fontMetrics)
     {
-        //  Get the bounding rectangle of the row
-
-        Rectangle r = component.modelToView( rowStartOffset );
         int lineHeight = fontMetrics.getHeight();
         int y = r.y + r.height;
         int descent = 0;
@@ -366,31 +408,16 @@ class TextLineNumberRowHeader extends JPanel
         }
         else  // We need to check all the attributes for font changes
         {
-            if (fonts == null)
-                fonts = new HashMap<String, FontMetrics>();
+            Element root = document.getDefaultRootElement();
+            Element lineElement = root.getElement( Math.min(line, root.getElementCount() - 1) );
 
-            Element root = component.getDocument().getDefaultRootElement();
-            int index = root.getElementIndex( rowStartOffset );
-            Element line = root.getElement( index );
-
-            for (int i = 0; i < line.getElementCount(); i++)
+            for (int i = 0; i < lineElement.getElementCount(); i++)
             {
-                Element child = line.getElement(i);
-                AttributeSet as = child.getAttributes();
-                String fontFamily = (String)as.getAttribute(StyleConstants.FontFamily);
-                Integer fontSize = (Integer)as.getAttribute(StyleConstants.FontSize);
-                String key = fontFamily + fontSize;
-
-                FontMetrics fm = fonts.get( key );
-
-                if (fm == null)
-                {
-                    Font font = new Font(fontFamily, Font.PLAIN, fontSize);
-                    fm = component.getFontMetrics( font );
-                    fonts.put(key, fm);
-                }
-
-                descent = Math.max(descent, fm.getDescent());
+                AttributeSet as = lineElement.getElement(i).getAttributes();
+                // styled documents keep their fonts cached, so this does not create one per run
+                Font font = document instanceof StyledDocument
+                        ? ((StyledDocument) document).getFont(as) : component.getFont();
+                descent = Math.max(descent, getFontMetricsOf(font).getDescent());
             }
         }
 
@@ -406,8 +433,7 @@ class TextLineNumberRowHeader extends JPanel
         //  Get the line the caret is positioned on
 
         int caretPosition = component.getCaretPosition();
-        Element root = component.getDocument().getDefaultRootElement();
-        int currentLine = root.getElementIndex( caretPosition );
+        int currentLine = lines.getLineOf( caretPosition );
 
         //  Need to repaint so the correct line number can be highlighted
 
@@ -424,18 +450,28 @@ class TextLineNumberRowHeader extends JPanel
     @Override
     public void changedUpdate(DocumentEvent e)
     {
+        //  Attribute changes keep line starts, but may change line heights
         documentChanged();
     }
 
     @Override
     public void insertUpdate(DocumentEvent e)
     {
+        try
+        {
+            lines.insert(e.getOffset(), e.getDocument().getText(e.getOffset(), e.getLength()));
+        }
+        catch (BadLocationException ex)
+        {
+            lines.reset(e.getDocument());
+        }
         documentChanged();
     }
 
     @Override
     public void removeUpdate(DocumentEvent e)
     {
+        lines.remove(e.getOffset(), e.getLength());
         documentChanged();
     }
 
@@ -446,13 +482,18 @@ class TextLineNumberRowHeader extends JPanel
     private void documentChanged()
     {
         //  View of the component has not been updated at the time
-        //  the DocumentEvent is fired
+        //  the DocumentEvent is fired. Coloring fires an event per styled run,
+        //  so checks are coalesced into one pending check
 
+        if (sizeCheckPending)
+            return;
+        sizeCheckPending = true;
         SwingUtilities.invokeLater(new Runnable()
         {
             @Override
             public void run()
             {
+                sizeCheckPending = false;
                 try
                 {
                     int endPos = component.getDocument().getLength();
@@ -476,7 +517,13 @@ class TextLineNumberRowHeader extends JPanel
     @Override
     public void propertyChange(PropertyChangeEvent evt)
     {
-        if (evt.getNewValue() instanceof Font)
+        if (evt.getNewValue() instanceof Document)
+        {
+            setDocument( (Document) evt.getNewValue() );
+            setPreferredWidth();
+            repaint();
+        }
+        else if (evt.getNewValue() instanceof Font)
         {
             if (updateFont)
             {
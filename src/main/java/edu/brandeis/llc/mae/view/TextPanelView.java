@@ -46,6 +46,9 @@ import java.util.stream.Collectors;
  */
 public class TextPanelView extends JPanel {
 
+    // client property of a text pane, holding the full length of a text still being streamed into it
+    private static final String FULL_LENGTH_PROPERTY = "mae.fullDocumentLength";
+
     private JTabbedPane documentTabs;
     private boolean documentOpen;
     private MaeMainController mainController;
@@ -94,6 +97,36 @@ public class TextPanelView extends JPanel {
         }
     }
 
+    /**
+     * Opens a new tab showing only the first part of a text, [0, shownLength).
+     * The rest is to be appended to the document of the returned pane piece by piece,
+     * into which the whole text fits without growing its buffer.
+     */
+    public JTextPane addStreamingTextTab(DocumentTabTitle title, String text, int shownLength, int fontSize, boolean switchToNewTab) {
+        StyledDocument document = FontHandler.createSimpleStyledDocument(text.length());
+        FontHandler.appendSimpleStyledText(document, text, 0, shownLength,
+                TextPanelController.DEFAULT_FONT_FAMILY, fontSize, Color.BLACK);
+        JScrollPane area = createDocumentArea(document);
+        JTextPane pane = (JTextPane) area.getViewport().getView();
+        pane.putClientProperty(FULL_LENGTH_PROPERTY, text.length());
+        getTabs().addTab(title.getLabel(), null, area);
+        getTabs().setTabComponentAt(getTabs().getTabCount() - 1, title);
+        if (switchToNewTab) {
+            selectTab(getTabs().getTabCount() - 1);
+        }
+        return pane;
+    }
+
+    /**
+     * Returns the length of the text of the current document, including the part
+     * not yet appended when the document is being streamed into its tab.
+     */
+    public int getFullDocumentLength() {
+        JTextPane pane = getDocumentPane();
+        Object fullLength = pane.getClientProperty(FULL_LENGTH_PROPERTY);
+        return fullLength == null ? pane.getDocument().getLength() : (Integer) fullLength;
+    }
+
     public void addTextTab(String title, String text) {
         addTextTab(title, text, TextPanelController.DEFAULT_FONT_SIZE);
     }
@@ -144,6 +177,8 @@ public class TextPanelView extends JPanel {
         // need to initiate the tooltip with empty value, otherwise getToolTipText won't work
         documentArea.setToolTipText("");
 
+        documentArea.putClientProperty(SpanHighlightLayer.class, new SpanHighlightLayer(documentArea));
+
         TextLineNumberRowHeader header = new TextLineNumberRowHeader(documentArea);
         scrollableDocument.setRowHeaderView(header);
         return scrollableDocument;
@@ -178,6 +213,10 @@ public class TextPanelView extends JPanel {
         return getDocumentPane().getHighlighter();
     }
 
+    public SpanHighlightLayer getSpanHighlights() {
+        return (SpanHighlightLayer) getDocumentPane().getClientProperty(SpanHighlightLayer.class);
+    }
+
     public JTabbedPane getTabs() {
         return this.documentTabs;
     }
@@ -78,6 +78,12 @@ public class MaeAgreementMainTest {
         assertTrue(calc.validateTaskNames("NounVerbTask").equals(SUCCESS));
     }
 
+    @Test
+    public void canFindFileOfDifferentTaskName() throws Exception {
+        String invalid = calc.validateTaskNames("OtherTask");
+        assertTrue("Expected an annotation file, found: " + invalid, invalid.endsWith(".xml"));
+    }
+
     @Test
     public void canValidateTextSharing() throws Exception {
         assertTrue(calc.validateTextSharing().equals(SUCCESS));
@@ -0,0 +1,98 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.agreement;
+
+import edu.brandeis.llc.mae.MaeStrings;
+import edu.brandeis.llc.mae.agreement.io.AbstractAnnotationIndexer;
+import edu.brandeis.llc.mae.agreement.io.AnnotationFilesIndexer;
+import edu.brandeis.llc.mae.agreement.io.XMLParseCache;
+import edu.brandeis.llc.mae.database.LocalSqliteDriverImpl;
+import edu.brandeis.llc.mae.database.MaeDriverI;
+import edu.brandeis.llc.mae.io.DTDLoader;
+import edu.brandeis.llc.mae.io.MaeXMLParser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.net.URL;
+
+import static org.junit.Assert.assertEquals;
+
+public class XMLParseCacheTest {
+
+    private MaeDriverI driver;
+    private AbstractAnnotationIndexer fileIdx;
+
+    @Before
+    public void setUp() throws Exception {
+        driver = new LocalSqliteDriverImpl(MaeStrings.newTempTestDBFile());
+        driver.setAnnotationFileName("TEST_SAMPLE");
+        DTDLoader dtdLoader = new DTDLoader(driver);
+        URL sampleFileUrl = Thread.currentThread().getContextClassLoader().getResource("iaa_example/iaaSample.dtd");
+        dtdLoader.read(new File(sampleFileUrl.getPath()));
+
+        fileIdx = new AnnotationFilesIndexer();
+        URL exmapleFileUrl = Thread.currentThread().getContextClassLoader().getResource("iaa_example");
+        fileIdx.indexAnnotations(new File[]{new File(exmapleFileUrl.getPath())});
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        driver.destroy();
+    }
+
+    @Test
+    public void canPrefetchParsesInOrder() throws Exception {
+        XMLParseCache prefetched = new XMLParseCache(driver, fileIdx);
+        prefetched.prefetchAll();
+        XMLParseCache lazy = new XMLParseCache(driver, fileIdx);
+
+        for (String docName : fileIdx.getDocumentNames()) {
+            MaeXMLParser[] expected = lazy.getParses(docName);
+            MaeXMLParser[] parses = prefetched.getParses(docName);
+            assertEquals(
+                    "Expected same number of annotators, found: " + parses.length,
+                    expected.length, parses.length);
+            for (int i = 0; i < parses.length; i++) {
+                if (expected[i] == null) {
+                    assertEquals(
+                            "Expected no parse for a missing annotation, found: " + parses[i],
+                            null, parses[i]);
+                } else {
+                    assertEquals(
+                            "Expected same tags from the same annotator, found: " + parses[i].getParsedTags().size(),
+                            expected[i].getParsedTags().size(), parses[i].getParsedTags().size());
+                    assertEquals(
+                            "Expected same attributes from the same annotator, found: " + parses[i].getParsedAtts().size(),
+                            expected[i].getParsedAtts().size(), parses[i].getParsedAtts().size());
+                }
+            }
+        }
+        assertEquals(
+                "Expected same parse warnings, found: " + prefetched.getParseWarnings().keySet(),
+                lazy.getParseWarnings(), prefetched.getParseWarnings());
+    }
+}
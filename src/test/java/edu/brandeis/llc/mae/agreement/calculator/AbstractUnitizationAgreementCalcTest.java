@@ -0,0 +1,108 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.agreement.calculator;
+
+import edu.brandeis.llc.mae.MaeStrings;
+import edu.brandeis.llc.mae.agreement.io.AbstractAnnotationIndexer;
+import edu.brandeis.llc.mae.agreement.io.AnnotationFilesIndexer;
+import edu.brandeis.llc.mae.database.LocalSqliteDriverImpl;
+import edu.brandeis.llc.mae.database.MaeDriverI;
+import edu.brandeis.llc.mae.io.DTDLoader;
+import edu.brandeis.llc.mae.io.MaeXMLParser;
+import org.dkpro.statistics.agreement.unitizing.IUnitizingAnnotationUnit;
+import org.dkpro.statistics.agreement.unitizing.UnitizingAnnotationStudy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class AbstractUnitizationAgreementCalcTest {
+
+    private static final String TEXT = "Mrs Miller wants the entire house repainted.";
+
+    private MaeDriverI driver;
+    private AbstractAnnotationIndexer fileIdx;
+    private File annotationFile;
+
+    @Before
+    public void setUp() throws Exception {
+        driver = new LocalSqliteDriverImpl(MaeStrings.newTempTestDBFile());
+        driver.setAnnotationFileName("TEST_SAMPLE");
+        DTDLoader dtdLoader = new DTDLoader(driver);
+        URL sampleFileUrl = Thread.currentThread().getContextClassLoader().getResource("iaa_example/iaaSample.dtd");
+        dtdLoader.read(new File(sampleFileUrl.getPath()));
+
+        fileIdx = new AnnotationFilesIndexer();
+        URL exmapleFileUrl = Thread.currentThread().getContextClassLoader().getResource("iaa_example");
+        fileIdx.indexAnnotations(new File[]{new File(exmapleFileUrl.getPath())});
+
+        annotationFile = File.createTempFile("mae-test-overlap", ".xml");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        driver.destroy();
+        annotationFile.delete();
+    }
+
+    private MaeXMLParser parse(String tags) throws Exception {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n<NounVerbTask>\n"
+                + "<TEXT><![CDATA[" + TEXT + "]]></TEXT>\n"
+                + "<TAGS>\n" + tags + "</TAGS>\n</NounVerbTask>\n";
+        Files.write(annotationFile.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+        MaeXMLParser parser = new MaeXMLParser(driver);
+        parser.readAnnotationFile(annotationFile);
+        return parser;
+    }
+
+    @Test
+    public void canKeepAttValuesOfOverlappingTagsApart() throws Exception {
+        MaeXMLParser parse = parse(
+                "<NOUN id=\"N0\" spans=\"0~10\" text=\"Mrs Miller\" type=\"person\" />\n"
+                        + "<NOUN id=\"N1\" spans=\"4~10\" text=\"Miller\" type=\"place\" />\n");
+        GlobalAlphaUCalc calc = new GlobalAlphaUCalc(fileIdx, null, new int[]{TEXT.length()});
+        UnitizingAnnotationStudy study = new UnitizingAnnotationStudy(1, TEXT.length());
+        calc.addAttAsUnits("NOUN", "type", new MaeXMLParser[]{parse}, 0, study);
+
+        Set<String> units = new HashSet<>();
+        for (IUnitizingAnnotationUnit unit : study.getUnits()) {
+            units.add(String.format("%d+%d:%s", unit.getOffset(), unit.getLength(), unit.getCategory()));
+        }
+        Set<String> expected = new HashSet<>();
+        expected.add("0+10:person");
+        expected.add("4+6:place");
+        assertEquals(
+                "Expected each tag to carry only its own attribute value, found: " + units,
+                expected, units);
+    }
+}
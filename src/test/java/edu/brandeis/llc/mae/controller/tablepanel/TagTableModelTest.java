@@ -0,0 +1,156 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.controller.tablepanel;
+
+import edu.brandeis.llc.mae.MaeStrings;
+import edu.brandeis.llc.mae.model.TagType;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class TagTableModelTest {
+
+    private TagTableModel model;
+    private List<TableModelEvent> events;
+
+    @Before
+    public void setUp() throws Exception {
+        model = new TagTableModel(null, new TagType("NOUN", "N", false));
+        model.addColumn(MaeStrings.SRC_COL_NAME);
+        model.addColumn(MaeStrings.ID_COL_NAME);
+        model.addColumn(MaeStrings.SPANS_COL_NAME);
+        model.addColumn(MaeStrings.TEXT_COL_NAME);
+        events = new ArrayList<>();
+        model.addTableModelListener(new TableModelListener() {
+            @Override
+            public void tableChanged(TableModelEvent e) {
+                events.add(e);
+            }
+        });
+    }
+
+    private List<String[]> makeRows(int from, int to) {
+        List<String[]> rows = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            rows.add(new String[]{"file", "N" + i, i + "~" + (i + 1), "t"});
+        }
+        return rows;
+    }
+
+    @Test
+    public void canAddRowsInBatch() throws Exception {
+        model.addRows(makeRows(0, 1000));
+        assertEquals(
+                "Expected a single event for a batch, found: " + events.size(),
+                1, events.size());
+        assertEquals(
+                "Expected an insertion event, found: " + events.get(0).getType(),
+                TableModelEvent.INSERT, events.get(0).getType());
+        assertEquals(
+                "Expected 1000 rows, found: " + model.getRowCount(),
+                1000, model.getRowCount());
+        assertEquals(
+                "Expected N500 at row 500, found: " + model.getValueAt(500, TablePanelController.ID_COL),
+                "N500", model.getValueAt(500, TablePanelController.ID_COL));
+
+        model.clearRows();
+        assertEquals(
+                "Expected a single event for clearing, found: " + (events.size() - 1),
+                2, events.size());
+        assertEquals(
+                "Expected no rows after clearing, found: " + model.getRowCount(),
+                0, model.getRowCount());
+    }
+
+    @Test
+    public void canSearchRowsByTid() throws Exception {
+        model.addRows(makeRows(0, 10));
+        model.addRow(new String[]{"file", "N10", "10~11", "t"});
+        assertEquals(
+                "Expected N10 at the last row, found: " + model.searchForRowByTid("N10"),
+                10, model.searchForRowByTid("N10"));
+        assertEquals(
+                "Expected row count for a missing tid, found: " + model.searchForRowByTid("N99"),
+                model.getRowCount(), model.searchForRowByTid("N99"));
+
+        model.removeRow(3);
+        assertEquals(
+                "Expected removed tid to be missing, found: " + model.searchForRowByTid("N3"),
+                model.getRowCount(), model.searchForRowByTid("N3"));
+        assertEquals(
+                "Expected N4 to shift up to 3, found: " + model.searchForRowByTid("N4"),
+                3, model.searchForRowByTid("N4"));
+        assertEquals(
+                "Expected N10 to shift up to 9, found: " + model.searchForRowByTid("N10"),
+                9, model.searchForRowByTid("N10"));
+
+        model.setValueAt("N42", 0, TablePanelController.ID_COL);
+        assertEquals(
+                "Expected renamed tid at row 0, found: " + model.searchForRowByTid("N42"),
+                0, model.searchForRowByTid("N42"));
+        assertEquals(
+                "Expected old tid to be missing, found: " + model.searchForRowByTid("N0"),
+                model.getRowCount(), model.searchForRowByTid("N0"));
+    }
+
+    @Test
+    public void canWidenRowsWhenColumnsAdded() throws Exception {
+        model.addRows(makeRows(0, 2));
+        model.addColumn("attribute");
+        assertEquals(
+                "Expected empty cell in a new column, found: " + model.getValueAt(1, 4),
+                null, model.getValueAt(1, 4));
+        model.setValueAt("value", 1, 4);
+        assertEquals(
+                "Expected value in a new column, found: " + model.getValueAt(1, 4),
+                "value", model.getValueAt(1, 4));
+    }
+
+    @Test
+    public void canRenameUnindexedRow() throws Exception {
+        model.addRow(new String[]{"file", "N1", "1~2", "t"});
+        model.addRow(new String[]{"file", "N1", "3~4", "t"});
+        // renaming the first takes the duplicated tid out of the index, leaving the second unindexed
+        model.setValueAt("N2", 0, TablePanelController.ID_COL);
+        model.setValueAt("N3", 1, TablePanelController.ID_COL);
+        assertEquals(
+                "Expected renamed unindexed row is searchable, found: " + model.searchForRowByTid("N3"),
+                1, model.searchForRowByTid("N3"));
+
+        model.removeRow(0);
+        assertEquals(
+                "Expected the remaining row shifts up, found: " + model.getValueAt(0, TablePanelController.SPANS_COL),
+                "3~4", model.getValueAt(0, TablePanelController.SPANS_COL));
+        assertEquals(
+                "Expected the remaining tid is re-indexed, found: " + model.searchForRowByTid("N3"),
+                0, model.searchForRowByTid("N3"));
+    }
+}
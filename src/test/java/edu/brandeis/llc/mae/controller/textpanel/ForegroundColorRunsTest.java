@@ -0,0 +1,123 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.controller.textpanel;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.swing.text.AttributeSet;
+import javax.swing.text.DefaultStyledDocument;
+import javax.swing.text.StyleConstants;
+import java.awt.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ForegroundColorRunsTest {
+
+    private DefaultStyledDocument document;
+
+    @Before
+    public void setUp() throws Exception {
+        document = new DefaultStyledDocument();
+        // "😀" is a surrogate pair at 10-11
+        document.insertString(0, "0123456789😀abcdefghij", null);
+    }
+
+    private AttributeSet attributesAt(int location) {
+        return document.getCharacterElement(location).getAttributes();
+    }
+
+    @Test
+    public void canMergeNeighborsOfSameStyle() throws Exception {
+        ForegroundColorRuns runs = new ForegroundColorRuns(document);
+        for (int i = 0; i < 5; i++) {
+            runs.add(i, Color.RED, false, false);
+        }
+        runs.add(5, Color.RED, true, false);
+        runs.add(6, Color.RED, true, false);
+        // a gap at 7
+        runs.add(8, Color.RED, true, false);
+        int edits = runs.apply();
+        assertEquals(
+                "Expected 3 runs, found: " + edits,
+                3, edits);
+        assertEquals(
+                "Expected color is applied",
+                Color.RED, StyleConstants.getForeground(attributesAt(4)));
+        assertTrue(
+                "Expected underline is applied",
+                StyleConstants.isUnderline(attributesAt(6)));
+        assertFalse(
+                "Expected the gap is untouched",
+                StyleConstants.isUnderline(attributesAt(7)));
+    }
+
+    @Test
+    public void canKeepSurrogatePairsTogether() throws Exception {
+        ForegroundColorRuns runs = new ForegroundColorRuns(document);
+        runs.add(10, Color.BLUE, false, true);
+        assertTrue(
+                "Expected the low surrogate is taken by the run",
+                runs.isCovered(11));
+        runs.add(11, Color.GREEN, false, false);
+        int edits = runs.apply();
+        assertEquals(
+                "Expected a single run over the pair, found: " + edits,
+                1, edits);
+        assertEquals(
+                "Expected the low surrogate follows the high one",
+                Color.BLUE, StyleConstants.getForeground(attributesAt(11)));
+    }
+
+    @Test
+    public void canIgnoreLocationsOutOfDocument() throws Exception {
+        ForegroundColorRuns runs = new ForegroundColorRuns(document);
+        runs.addRange(15, 100, Color.RED, false, false);
+        assertEquals(
+                "Expected the run is clipped at the end of document",
+                1, runs.apply());
+        assertEquals(
+                "Expected nothing is left after applying",
+                0, runs.apply());
+    }
+
+    @Test
+    public void canPaintOnlyInWindow() throws Exception {
+        ForegroundColorRuns runs = new ForegroundColorRuns(document, 3, 6);
+        runs.addRange(0, 10, Color.RED, false, false);
+        runs.apply();
+        assertEquals(
+                "Expected locations before the window are ignored",
+                Color.BLACK, StyleConstants.getForeground(attributesAt(2)));
+        assertEquals(
+                "Expected locations in the window are painted",
+                Color.RED, StyleConstants.getForeground(attributesAt(5)));
+        assertEquals(
+                "Expected locations far after the window are ignored",
+                Color.BLACK, StyleConstants.getForeground(attributesAt(8)));
+    }
+}
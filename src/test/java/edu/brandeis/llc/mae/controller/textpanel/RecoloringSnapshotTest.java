@@ -0,0 +1,120 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.controller.textpanel;
+
+import edu.brandeis.llc.mae.database.InMemoryDriverImpl;
+import edu.brandeis.llc.mae.model.ArgumentType;
+import edu.brandeis.llc.mae.model.ExtentTag;
+import edu.brandeis.llc.mae.model.LinkTag;
+import edu.brandeis.llc.mae.model.TagType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.swing.text.AttributeSet;
+import javax.swing.text.StyleConstants;
+import javax.swing.text.StyledDocument;
+import java.awt.*;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RecoloringSnapshotTest {
+
+    private InMemoryDriverImpl driver;
+    private TagType noun;
+    private TagType verb;
+    private TagType semanticRole;
+
+    @Before
+    public void setUp() throws Exception {
+        driver = new InMemoryDriverImpl("TEST_DRIVER");
+        driver.setAnnotationFileName("TEST_SAMPLE");
+        driver.setPrimaryText("John loves Mary");
+        noun = driver.createTagType("NOUN", "N", false);
+        verb = driver.createTagType("VERB", "V", false);
+        semanticRole = driver.createTagType("SR", "S", true);
+        ArgumentType agent = driver.createArgumentType(semanticRole, "agent");
+
+        ExtentTag john = driver.createExtentTag("N0", noun, "John", new int[]{0, 1, 2, 3});
+        driver.createExtentTag("V0", verb, "loves", new int[]{5, 6, 7, 8, 9});
+        driver.createExtentTag("N1", noun, "Mary", new int[]{11, 12, 13, 14});
+        LinkTag link = driver.createLinkTag("S0", semanticRole);
+        driver.addArgument(link, agent, john);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        driver.destroy();
+    }
+
+    private TextPanelController.RecoloringSnapshot takeSnapshot() throws Exception {
+        return new TextPanelController.RecoloringSnapshot(driver, new TextPanelController.ActiveAnchorStyles(
+                Arrays.asList(noun, verb), Arrays.asList(Color.RED, Color.BLUE),
+                Collections.singletonList(semanticRole)));
+    }
+
+    private AttributeSet attributesAt(StyledDocument document, int location) {
+        return document.getCharacterElement(location).getAttributes();
+    }
+
+    @Test
+    public void canColorFromCapturedAnchors() throws Exception {
+        StyledDocument document = takeSnapshot().buildDocument(TextPanelController.DEFAULT_FONT_SIZE);
+        assertEquals(
+                "Expected the primary text is copied, found: " + document.getText(0, document.getLength()),
+                "John loves Mary", document.getText(0, document.getLength()));
+        assertEquals(
+                "Expected a noun is colored red, found: " + StyleConstants.getForeground(attributesAt(document, 12)),
+                Color.RED, StyleConstants.getForeground(attributesAt(document, 12)));
+        assertEquals(
+                "Expected a verb is colored blue, found: " + StyleConstants.getForeground(attributesAt(document, 6)),
+                Color.BLUE, StyleConstants.getForeground(attributesAt(document, 6)));
+        assertTrue(
+                "Expected a link argument is italic",
+                StyleConstants.isItalic(attributesAt(document, 1)));
+        assertFalse(
+                "Expected a non-argument is not italic",
+                StyleConstants.isItalic(attributesAt(document, 12)));
+    }
+
+    @Test
+    public void buildsWithoutReadingDriver() throws Exception {
+        TextPanelController.RecoloringSnapshot snapshot = takeSnapshot();
+        // edits on the EDT after the snapshot is taken must not leak into a background build
+        driver.emptyAnnotations();
+        driver.setPrimaryText("Mary loves John and Bill");
+        StyledDocument document = snapshot.buildDocument(TextPanelController.DEFAULT_FONT_SIZE);
+        assertEquals(
+                "Expected the captured text, found: " + document.getText(0, document.getLength()),
+                "John loves Mary", document.getText(0, document.getLength()));
+        assertEquals(
+                "Expected captured anchors are colored, found: " + StyleConstants.getForeground(attributesAt(document, 0)),
+                Color.RED, StyleConstants.getForeground(attributesAt(document, 0)));
+    }
+}
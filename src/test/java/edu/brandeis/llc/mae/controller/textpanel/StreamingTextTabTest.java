@@ -0,0 +1,105 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.controller.textpanel;
+
+import edu.brandeis.llc.mae.util.FontHandler;
+import edu.brandeis.llc.mae.view.DocumentTabTitle;
+import edu.brandeis.llc.mae.view.TextPanelView;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.swing.*;
+import javax.swing.text.StyledDocument;
+import java.awt.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StreamingTextTabTest {
+
+    private String longText;
+
+    @Before
+    public void setUp() throws Exception {
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < TextPanelController.STREAMING_CHUNK_SIZE * 2 + 100) {
+            builder.append("Jenny loves Mary. ");
+        }
+        longText = builder.toString();
+    }
+
+    @Test
+    public void canCutChunks() throws Exception {
+        int chunkSize = TextPanelController.STREAMING_CHUNK_SIZE;
+        // a surrogate pair right across the first chunk boundary
+        String longText = new StringBuilder(this.longText).insert(chunkSize - 1, "😀").toString();
+        assertEquals(
+                "Expected a chunk is extended to keep a surrogate pair together, found: " + TextPanelController.chunkEnd(longText, 0),
+                chunkSize + 1, TextPanelController.chunkEnd(longText, 0));
+        assertEquals(
+                "Expected a full chunk from a later offset, found: " + TextPanelController.chunkEnd(longText, chunkSize + 1),
+                chunkSize * 2 + 1, TextPanelController.chunkEnd(longText, chunkSize + 1));
+        assertEquals(
+                "Expected the last chunk ends at the end of the text, found: " + TextPanelController.chunkEnd(longText, chunkSize * 2 + 1),
+                longText.length(), TextPanelController.chunkEnd(longText, chunkSize * 2 + 1));
+        assertEquals(
+                "Expected a short text is a single chunk, found: " + TextPanelController.chunkEnd("Jenny", 0),
+                5, TextPanelController.chunkEnd("Jenny", 0));
+    }
+
+    @Test
+    public void canStreamIntoTab() throws Exception {
+        TextPanelView view = new TextPanelView(null);
+        int shown = TextPanelController.chunkEnd(longText, 0);
+        JTextPane pane = view.addStreamingTextTab(new DocumentTabTitle("long", view.getTabs()),
+                longText, shown, TextPanelController.DEFAULT_FONT_SIZE, true);
+        StyledDocument document = pane.getStyledDocument();
+        assertEquals(
+                "Expected only the first chunk is shown, found: " + document.getLength(),
+                shown, document.getLength());
+        assertTrue(
+                "Expected the returned pane is in the selected tab",
+                pane == view.getDocumentPane());
+        assertEquals(
+                "Expected the full length is known while streaming, found: " + view.getFullDocumentLength(),
+                longText.length(), view.getFullDocumentLength());
+
+        int offset = shown;
+        int chunks = 1;
+        while (offset < longText.length()) {
+            int end = TextPanelController.chunkEnd(longText, offset);
+            FontHandler.appendSimpleStyledText(document, longText, offset, end,
+                    TextPanelController.DEFAULT_FONT_FAMILY, TextPanelController.DEFAULT_FONT_SIZE, Color.BLACK);
+            offset = end;
+            chunks++;
+        }
+        assertEquals(
+                "Expected 3 chunks, found: " + chunks,
+                3, chunks);
+        assertEquals(
+                "Expected the whole text is streamed in",
+                longText, document.getText(0, document.getLength()));
+    }
+}
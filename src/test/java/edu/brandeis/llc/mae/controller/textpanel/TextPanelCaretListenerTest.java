@@ -0,0 +1,68 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.controller.textpanel;
+
+import edu.brandeis.llc.mae.database.MaeDriverI;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TextPanelCaretListenerTest {
+
+    // drivers are only compared by reference, thus need no annotation behind
+    private final MaeDriverI driver = dummyDriver();
+
+    private static MaeDriverI dummyDriver() {
+        return (MaeDriverI) Proxy.newProxyInstance(MaeDriverI.class.getClassLoader(),
+                new Class<?>[]{MaeDriverI.class}, (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    @Test
+    public void canKeepFreshLookup() throws Exception {
+        int[] spans = new int[]{3, 4, 5};
+        assertFalse(
+                "Expected a lookup is kept when nothing has changed",
+                TextPanelCaretListener.isStale(driver, spans, 2, driver, spans.clone(), 2));
+    }
+
+    @Test
+    public void canDropStaleLookup() throws Exception {
+        int[] spans = new int[]{3, 4, 5};
+        assertTrue(
+                "Expected a lookup is dropped after another caret event",
+                TextPanelCaretListener.isStale(driver, spans, 2, driver, spans, 3));
+        assertTrue(
+                "Expected a lookup is dropped after the selection is changed",
+                TextPanelCaretListener.isStale(driver, spans, 2, driver, new int[]{3, 4}, 2));
+        assertTrue(
+                "Expected a lookup is dropped after the document is switched",
+                TextPanelCaretListener.isStale(driver, spans, 2, dummyDriver(), spans, 2));
+    }
+}
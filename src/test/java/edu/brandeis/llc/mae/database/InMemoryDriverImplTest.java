@@ -0,0 +1,268 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.database;
+
+import edu.brandeis.llc.mae.model.*;
+import edu.brandeis.llc.mae.util.SpanHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class InMemoryDriverImplTest {
+
+    private InMemoryDriverImpl driver;
+    private File snapshotFile;
+
+    TagType noun;
+    TagType verb;
+    TagType semanticRole;
+    AttributeType nounType;
+    ArgumentType pred;
+    ArgumentType agent;
+
+    @Before
+    public void setUp() throws Exception {
+        snapshotFile = File.createTempFile("mae-test-snapshot", ".xml");
+        driver = new InMemoryDriverImpl("TEST_DRIVER", snapshotFile);
+        driver.setAnnotationFileName("TEST_SAMPLE");
+
+        noun = driver.createTagType("NOUN", "N", false);
+        verb = driver.createTagType("VERB", "V", false);
+        semanticRole = driver.createTagType("SR", "S", true);
+        nounType = driver.createAttributeType(noun, "type");
+        driver.setAttributeTypeDefaultValue(nounType, "person");
+
+        pred = driver.createArgumentType(semanticRole, "predicate");
+        agent = driver.createArgumentType(semanticRole, "agent");
+
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        driver.destroy();
+        InMemoryDriverImpl.deleteSnapshotFile(snapshotFile);
+
+    }
+
+    @Test
+    public void canCreateAndUpdateTag() throws Exception {
+        ExtentTag tag = driver.createExtentTag("N01", noun, "jenny", 5,6,7,8,9);
+        assertEquals(
+                "Expected 1 attribute is automatically populated as a default, found: " + tag.getAttributesWithNames(),
+                "person", tag.getAttributesWithNames().get("type"));
+        assertEquals(
+                "Expected the tag is retrieved by its type, found: " + driver.getAllExtentTagsOfType(noun).size(),
+                1, driver.getAllExtentTagsOfType(noun).size());
+
+        int[] newSpan = new int[]{5,6,7,8,9,13,14,15,16};
+        driver.updateTagSpans(tag, newSpan);
+        assertEquals(
+                "Expected the span is updated, found: " + tag.getSpansAsString(),
+                SpanHandler.convertArrayToString(newSpan), tag.getSpansAsString());
+        assertEquals(
+                "Expected N01 is found at its new anchor",
+                tag, driver.getTagsAt(14).get(0));
+
+        assertTrue(
+                "Expected a duplicate id is rejected",
+                isRejected("N01"));
+    }
+
+    private boolean isRejected(String tid) {
+        try {
+            driver.createExtentTag(tid, noun, "jenny", 1);
+            return false;
+        } catch (MaeDBException e) {
+            return true;
+        }
+    }
+
+    @Test
+    public void canQueryByLocation() throws Exception {
+        ExtentTag nTag3 = driver.createExtentTag("N03", noun, "jimmy", 16,17,18,19,20);
+        ExtentTag nTag4 = driver.createExtentTag("N04", noun, "jim", 16,17,18);
+        ExtentTag vTag = driver.createExtentTag("V01", verb, "loves", 11, 12, 13, 14, 15, 16);
+        ExtentTag ncNoun = driver.createExtentTag("N01", noun, null, null);
+
+        List<ExtentTag> retrievedTags = driver.getTagsOfTypeAt(noun, 16);
+        assertTrue(
+                "Expected N03 and N04 are anchored on the testing offset, found: " + retrievedTags,
+                retrievedTags.size() == 2 && retrievedTags.contains(nTag3) && retrievedTags.contains(nTag4));
+        assertEquals(
+                "Expected 3 tags are anchored on the testing offset, found: " + driver.getTagsAt(16),
+                3, driver.getTagsAt(16).size());
+        assertEquals(
+                "Expected V01 is retrieved by range",
+                vTag, driver.getTagsBetween(10, 12).get(0));
+        assertEquals(
+                "Expected only N01 is non-consuming, found: " + driver.getAllNCTagsOfType(noun),
+                ncNoun, driver.getAllNCTagsOfType(noun).get(0));
+    }
+
+    @Test
+    public void canLinkAndDeleteTags() throws Exception {
+        ExtentTag nTag = driver.createExtentTag("N01", noun, "jenny", 5,6,7,8,9);
+        ExtentTag vTag = driver.createExtentTag("V01", verb, "loves", 11, 12, 13, 14, 15);
+
+        LinkTag link = driver.createLinkTag("S01", semanticRole);
+        driver.addArgument(link, agent, nTag);
+        driver.addArgument(link, pred, vTag);
+        assertEquals(
+                "Expected 2 arguments associated with the link, found: " + link.getArguments().size(),
+                2, link.getArguments().size());
+        assertTrue(
+                "Expected the link is found from its argument",
+                driver.getLinksHasArgumentTag(nTag).contains(link));
+        assertEquals(
+                "Expected anchors of the link are those of its arguments",
+                10, driver.getAnchorLocationsByTid("S01").size());
+
+        driver.UpdateArgument(link, agent, null);
+        assertTrue(
+                "Expected the link is not found from the removed argument",
+                driver.getLinksHasArgumentTag(nTag).isEmpty());
+
+        driver.deleteTag(link);
+        driver.deleteTag(nTag);
+        assertTrue(
+                "Expected all deleted tags are gone",
+                driver.getAllLinkTagsOfType(semanticRole).isEmpty()
+                        && driver.getAllExtentTagsOfType(noun).isEmpty()
+                        && driver.getTagsAt(7).isEmpty());
+    }
+
+    @Test
+    public void canUpdateAttribute() throws Exception {
+        ExtentTag nTag = driver.createExtentTag("N01", noun, "jenny", 5,6,7,8,9);
+        AttributeType proper = driver.createAttributeType(noun, "proper");
+        driver.addAttribute(nTag, proper, "true");
+        driver.updateAttribute(nTag, proper, "false");
+
+        assertTrue(
+                "Expected an attribute is updated, found: " + nTag.getAttributesWithNames().toString(),
+                nTag.getAttributes().size() == 2
+                        && (new ArrayList<>(nTag.getAttributesWithNames().keySet())).get(1).equals("proper")
+                        && (new ArrayList<>(nTag.getAttributesWithNames().values())).get(1).equals("false")
+        );
+    }
+
+    @Test
+    public void canRestoreFromSnapshot() throws Exception {
+        URL sampleFileUrl = Thread.currentThread().getContextClassLoader().getResource("xml_samples/sampleTask.dtd");
+        driver.readTask(new File(sampleFileUrl.getPath()));
+        sampleFileUrl = Thread.currentThread().getContextClassLoader().getResource("xml_samples/sampleTask.xml");
+        driver.readAnnotation(new File(sampleFileUrl.getPath()));
+        String annotationFileName = driver.getAnnotationFileName();
+        int extentTagCount = driver.getAllExtentTagsOfAllTypes(false).size();
+        int linkTagCount = driver.getAllLinkTagsOfAllTypes().size();
+
+        assertTrue(
+                "Expected a snapshot is written",
+                driver.snapshot() && snapshotFile.length() > 0);
+        driver.emptyAnnotations();
+        assertEquals(
+                "Expected all tags are wiped out",
+                0, driver.getAllExtentTagsOfAllTypes(false).size());
+
+        driver.restoreSnapshot();
+        assertEquals(
+                "Expected all extent tags are restored, found: " + driver.getAllExtentTagsOfAllTypes(false).size(),
+                extentTagCount, driver.getAllExtentTagsOfAllTypes(false).size());
+        assertEquals(
+                "Expected all link tags are restored, found: " + driver.getAllLinkTagsOfAllTypes().size(),
+                linkTagCount, driver.getAllLinkTagsOfAllTypes().size());
+        assertEquals(
+                "Expected the original file name is kept, found: " + driver.getAnnotationFileName(),
+                annotationFileName, driver.getAnnotationFileName());
+    }
+
+    @Test
+    public void snapshotSurvivesDriver() throws Exception {
+        URL sampleFileUrl = Thread.currentThread().getContextClassLoader().getResource("xml_samples/sampleTask.dtd");
+        driver.readTask(new File(sampleFileUrl.getPath()));
+        sampleFileUrl = Thread.currentThread().getContextClassLoader().getResource("xml_samples/sampleTask.xml");
+        driver.readAnnotation(new File(sampleFileUrl.getPath()));
+        driver.snapshot();
+        driver.destroy();
+        assertTrue(
+                "Expected a snapshot is kept after its driver is destroyed",
+                snapshotFile.exists());
+
+        InMemoryDriverImpl restarted = new InMemoryDriverImpl("RESTARTED_DRIVER", snapshotFile);
+        assertTrue(
+                "Expected a new driver finds the snapshot of the previous one",
+                restarted.hasSnapshot());
+        assertTrue(
+                "Expected a snapshot is deleted",
+                InMemoryDriverImpl.deleteSnapshotFile(snapshotFile) && !restarted.hasSnapshot());
+    }
+
+    @Test
+    public void snapshotFileIsStableForDocument() throws Exception {
+        File dir = new File(System.getProperty("java.io.tmpdir"));
+        File first = InMemoryDriverImpl.getSnapshotFileFor(dir, "NounVerbTask", "/data/doc 1.xml");
+        File second = InMemoryDriverImpl.getSnapshotFileFor(dir, "NounVerbTask", "/data/doc 1.xml");
+        File other = InMemoryDriverImpl.getSnapshotFileFor(dir, "NounVerbTask", "/other/doc 1.xml");
+        assertEquals(
+                "Expected the same snapshot file for the same document, found: " + second,
+                first, second);
+        assertFalse(
+                "Expected different snapshot files for documents with the same base name, found: " + other,
+                first.equals(other));
+        assertFalse(
+                "Expected no white spaces in a snapshot file name, found: " + first.getName(),
+                first.getName().contains(" "));
+    }
+
+    @Test
+    public void canResolveTidsLookedUpEarlier() throws Exception {
+        ExtentTag john = driver.createExtentTag("N0", noun, "John", new int[]{0, 1, 2, 3});
+        driver.createExtentTag("V0", verb, "loves", new int[]{5, 6, 7, 8, 9});
+        driver.createExtentTag("N1", noun, "Mary", new int[]{11, 12, 13, 14});
+        Set<String> tids = driver.getTidsIn(new int[]{2, 3, 4, 5, 6});
+        assertEquals(
+                "Expected tids anchored in the selection, found: " + tids,
+                Arrays.asList("N0", "V0"), new ArrayList<>(tids));
+
+        // a tag deleted between the lookup of tids and their resolution
+        driver.deleteTag(john);
+        List<ExtentTag> tags = driver.getExtentTagsByTids(tids);
+        assertEquals(
+                "Expected a deleted tag is skipped, found: " + tags,
+                1, tags.size());
+        assertEquals(
+                "Expected the remaining tag is resolved, found: " + tags.get(0).getTid(),
+                "V0", tags.get(0).getTid());
+    }
+}
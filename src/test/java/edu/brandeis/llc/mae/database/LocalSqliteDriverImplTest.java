@@ -34,9 +34,13 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.Assert.*;
 
@@ -163,6 +167,82 @@ public class LocalSqliteDriverImplTest {
                 0, retrievedTags.size());
     }
 
+    @Test
+    public void canNotifyTagChanges() throws Exception {
+        List<TagChangeEvent> events = new ArrayList<>();
+        driver.addTagChangeListener(events::add);
+
+        ExtentTag tag = driver.createExtentTag("N01", noun, "jenny", 5,6,7,8,9);
+        driver.updateTagSpans(tag, new int[]{7,8,9,10,11,12});
+        driver.deleteTag(tag);
+
+        assertEquals(
+                "Expected 3 events are fired, found: " + events.size(),
+                3, events.size());
+        assertEquals(
+                "Expected a tag is created first, found: " + events.get(0),
+                TagChangeEvent.Kind.CREATED, events.get(0).getKind());
+        assertArrayEquals(
+                "Expected spans of created tag are affected, found: " + events.get(0),
+                new int[]{5, 10}, events.get(0).getAffectedSpans());
+        assertArrayEquals(
+                "Expected both old and new spans are affected, found: " + events.get(1),
+                new int[]{5, 13}, events.get(1).getAffectedSpans());
+        assertEquals(
+                "Expected a tag is deleted last, found: " + events.get(2),
+                TagChangeEvent.Kind.DELETED, events.get(2).getKind());
+        assertArrayEquals(
+                "Expected spans of deleted tag are affected, found: " + events.get(2),
+                new int[]{7, 13}, events.get(2).getAffectedSpans());
+    }
+
+    @Test
+    public void canGetLinkTypesOfArgumentTags() throws Exception {
+        ExtentTag nTag = driver.createExtentTag("N01", noun, "jenny", 5,6,7,8,9);
+        ExtentTag vTag = driver.createExtentTag("V01", verb, "loves", 11,12,13,14,15);
+        ExtentTag unlinked = driver.createExtentTag("N02", noun, "bob", 17,18,19);
+        LinkTag link = driver.createLinkTag("S01", semanticRole);
+        driver.addArgument(link, agent, nTag);
+        driver.addArgument(link, pred, vTag);
+
+        MappedSet<String, TagType> linkTypes = driver.getLinkTypesOfArgumentTags(
+                Arrays.asList(nTag, vTag, unlinked));
+        assertTrue(
+                "Expected N01 is an argument of a semantic role, found: " + linkTypes.get("N01"),
+                linkTypes.containsKey("N01") && linkTypes.get("N01").contains(semanticRole));
+        assertTrue(
+                "Expected V01 is an argument of a semantic role, found: " + linkTypes.get("V01"),
+                linkTypes.containsKey("V01") && linkTypes.get("V01").contains(semanticRole));
+        assertFalse(
+                "Expected N02 is not an argument, found: " + linkTypes.get("N02"),
+                linkTypes.containsKey("N02"));
+    }
+
+    @Test
+    public void canIndexLinkersOfArgumentTags() throws Exception {
+        ExtentTag nTag = driver.createExtentTag("N01", noun, "jenny", 5,6,7,8,9);
+        ExtentTag vTag = driver.createExtentTag("V01", verb, "loves", 11,12,13,14,15);
+        LinkTag link = driver.createLinkTag("S01", semanticRole);
+        driver.addArgument(link, agent, nTag);
+        driver.addArgument(link, pred, vTag);
+        assertTrue(
+                "Expected N01 is an argument of a semantic role, found: " + driver.getLinkersOfArgumentTag(nTag),
+                driver.isArgumentOfLinkTypes(nTag, Collections.singleton(semanticRole)));
+        assertEquals(
+                "Expected S01 is the only linker of V01, found: " + driver.getLinkersOfArgumentTag(vTag),
+                Collections.singletonMap("S01", semanticRole), driver.getLinkersOfArgumentTag(vTag));
+
+        driver.UpdateArgument(link, agent, null);
+        assertFalse(
+                "Expected N01 is not an argument after its argument is removed, found: " + driver.getLinkersOfArgumentTag(nTag),
+                driver.isArgumentOfLinkTypes(nTag, Collections.singleton(semanticRole)));
+
+        driver.deleteTag(link);
+        assertTrue(
+                "Expected V01 has no linker after its linker is deleted, found: " + driver.getLinkersOfArgumentTag(vTag),
+                driver.getLinkersOfArgumentTag(vTag).isEmpty());
+    }
+
     @Test
     public void canRetrieveExtentTagsByType() throws Exception {
         driver.createExtentTag("N01", noun, "jenny", 5,6,7,8,9);
@@ -230,6 +310,136 @@ public class LocalSqliteDriverImplTest {
 
     }
 
+    @Test
+    public void canRetrieveTagsByRange() throws Exception {
+        ExtentTag nTag = driver.createExtentTag("N01", noun, "jenny ... smith", 5,6,7,8,9,20,21,22,23,24);
+        ExtentTag vTag = driver.createExtentTag("V01", verb, "loves", 11, 12, 13, 14, 15);
+
+        assertEquals(
+                "Expected N01 is stored as 2 spans, found: " + nTag.getSpans().size(),
+                2, nTag.getSpans().size());
+        assertTrue(
+                "Expected nothing is anchored in the gap of N01",
+                driver.getTagsAt(18).isEmpty());
+        assertEquals(
+                "Expected only N01 at the second span of N01",
+                nTag, driver.getTagsAt(22).get(0));
+
+        List<ExtentTag> retrievedTags = driver.getTagsBetween(9, 21);
+        assertEquals(
+                "Expected 2 tags overlap with the range, found: " + retrievedTags.size(),
+                2, retrievedTags.size());
+
+        retrievedTags = driver.getTagsIn(new int[]{7, 21});
+        assertEquals(
+                "Expected N01 is retrieved once from two of its spans, found: " + retrievedTags.size(),
+                1, retrievedTags.size());
+
+        assertEquals(
+                "Expected all anchor locations of N01 are expanded from spans",
+                10, driver.getAllAnchorLocationsOfTagType(noun).size());
+    }
+
+    @Test
+    public void canGetAnchorLocationsAsBitSet() throws Exception {
+        ExtentTag nTag = driver.createExtentTag("N01", noun, "jenny ... smith", 5,6,7,8,9,20,21,22,23,24);
+        driver.createExtentTag("V01", verb, "loves", 11, 12, 13, 14, 15);
+        driver.createExtentTag("N02", noun, "smith", 22, 23, 24);
+
+        BitSet nouns = driver.getAllAnchorLocationsOfTagTypeAsBitSet(noun);
+        assertEquals(
+                "Expected overlapping anchors of nouns are counted once, found: " + nouns.cardinality(),
+                10, nouns.cardinality());
+        assertEquals(
+                "Expected bitset and list variants agree",
+                SpanHandler.convertIntegersToBitSet(driver.getAllAnchorLocationsOfTagType(noun)), nouns);
+        assertEquals(
+                "Expected bitset of a tag matches its spans",
+                nTag.getSpansAsBitSet(), nouns);
+
+        BitSet all = driver.getAllAnchorLocationsAsBitSet();
+        assertEquals(
+                "Expected all anchors of all tags, found: " + all.cardinality(),
+                15, all.cardinality());
+        assertFalse(
+                "Expected nothing is anchored in the gap",
+                all.get(18));
+
+        List<Integer> nounOnly = driver.getAllAnchorLocationsOfTagType(noun, Collections.singletonList(verb));
+        assertEquals(
+                "Expected disjoint exclusion keeps all nouns, found: " + nounOnly.size(),
+                10, nounOnly.size());
+        assertEquals(
+                "Expected locations are sorted",
+                Integer.valueOf(5), nounOnly.get(0));
+    }
+
+    @Test
+    public void canKeepSpanIndexInSync() throws Exception {
+        ExtentTag nTag = driver.createExtentTag("N01", noun, "jenny", 5,6,7,8,9);
+        assertEquals(
+                "Expected N01 is found at its anchor",
+                1, driver.getTagsAt(7).size());
+
+        driver.updateTagSpans(nTag, new int[]{20,21,22});
+        assertTrue(
+                "Expected N01 is not found at its old anchor",
+                driver.getTagsAt(7).isEmpty());
+        assertEquals(
+                "Expected N01 is found at its new anchor",
+                1, driver.getTagsOfTypeAt(noun, 21).size());
+        assertTrue(
+                "Expected type filter is applied",
+                driver.getTagsOfTypeAt(verb, 21).isEmpty());
+
+        driver.deleteTag(nTag);
+        assertTrue(
+                "Expected N01 is gone from the index",
+                driver.getTagsAt(21).isEmpty());
+    }
+
+    @Test
+    public void canReuseBuiltQueries() throws Exception {
+        ExtentTag nTag = driver.createExtentTag("N01", noun, "jenny", 5,6,7,8,9);
+        ExtentTag vTag = driver.createExtentTag("V01", verb, "loves", 11, 12, 13, 14, 15);
+        LinkTag link = driver.createLinkTag("S01", semanticRole);
+        driver.addArgument(link, agent, nTag);
+        driver.addArgument(link, pred, vTag);
+        driver.createExtentTag("N02", noun, null, null);
+
+        long built = driver.getBuiltQueryCount();
+        long hits = driver.getBuiltQueryHitCount();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(
+                    "Expected N01 is found at its anchor",
+                    nTag, driver.getTagsAt(7).get(0));
+            assertEquals(
+                    "Expected V01 is found by its type",
+                    vTag, driver.getTagsOfTypeAt(verb, 12).get(0));
+            assertEquals(
+                    "Expected all anchors of nouns, found: " + driver.getAllAnchorsOfTagType(noun).size(),
+                    5, driver.getAllAnchorsOfTagType(noun).size());
+            assertEquals(
+                    "Expected anchors of link arguments, found: " + driver.getAllAnchorsOfTagType(semanticRole).size(),
+                    10, driver.getAllAnchorsOfTagType(semanticRole).size());
+            assertTrue(
+                    "Expected the link is found from its argument",
+                    driver.getLinksHasArgumentTag(nTag).contains(link));
+            assertEquals(
+                    "Expected an attribute type is found by its name",
+                    nounType, driver.getAttributeTypeOfTagTypeByName(noun, "type"));
+            assertEquals(
+                    "Expected 1 NC noun, found: " + driver.getAllNCTagsOfType(noun).size(),
+                    1, driver.getAllNCTagsOfType(noun).size());
+        }
+        assertTrue(
+                "Expected each query is built at most once, found: " + (driver.getBuiltQueryCount() - built),
+                driver.getBuiltQueryCount() - built <= 7);
+        assertTrue(
+                "Expected built queries are re-used, found hits: " + (driver.getBuiltQueryHitCount() - hits),
+                driver.getBuiltQueryHitCount() - hits >= 14);
+    }
+
     @Test
     public void canRetrieveAllNCTagsByTypes() throws Exception {
         ExtentTag nTag3 = driver.createExtentTag("N03", noun, "jimmy", 16,17,18,19,20);
@@ -370,6 +580,152 @@ public class LocalSqliteDriverImplTest {
 
     }
 
+    @Test
+    public void canBulkCreateAnnotations() throws Exception {
+        List<ExtentTag> nouns = new ArrayList<>();
+        List<CharSpan> spans = new ArrayList<>();
+        List<Attribute> atts = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            ExtentTag tag = new ExtentTag("N" + i, noun, "TEST_SAMPLE");
+            tag.setText("n");
+            spans.addAll(tag.setSpans(new int[]{i * 3, i * 3 + 1}));
+            atts.add(new Attribute(tag, nounType, "thing"));
+            nouns.add(tag);
+        }
+        LinkTag link = new LinkTag("S0", semanticRole, "TEST_SAMPLE");
+        List<Argument> args = new ArrayList<>();
+        args.add(new Argument(link, pred, nouns.get(0)));
+        args.add(new Argument(link, agent, nouns.get(1)));
+        driver.bulkCreateAnnotations(nouns, spans, Collections.singletonList(link), atts, args);
+
+        assertEquals("Expected 1200 noun tags are bulk-loaded, found: " + driver.getAllExtentTagsOfType(noun).size(),
+                1200, driver.getAllExtentTagsOfType(noun).size());
+        List<ExtentTag> retrieved = driver.getTagsAt(3 * 700);
+        assertEquals("Expected N700 is found by its span, found: " + retrieved,
+                "N700", retrieved.get(0).getTid());
+        assertEquals("Expected attribute is bulk-loaded, found: " + driver.getAttributeMapOfTag(retrieved.get(0)),
+                "thing", driver.getAttributeMapOfTag(retrieved.get(0)).get("type"));
+        assertEquals("Expected N1 is linked by S0, found: " + driver.getLinksHasArgumentTag(nouns.get(1)),
+                "S0", driver.getLinksHasArgumentTag(nouns.get(1)).iterator().next().getTid());
+        assertEquals("Expected next ID to follow bulk-loaded IDs, found: " + driver.getNextId(noun),
+                "N1200", driver.getNextId(noun));
+        assertEquals("Expected rows/s reported for 5 tables, found: " + driver.getLastBulkLoadRates(),
+                5, driver.getLastBulkLoadRates().size());
+
+    }
+
+    @Test
+    public void failedBulkCreateLeavesNoIds() throws Exception {
+        List<ExtentTag> nouns = new ArrayList<>();
+        List<CharSpan> spans = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ExtentTag tag = new ExtentTag("N" + i, noun, "TEST_SAMPLE");
+            spans.addAll(tag.setSpans(new int[]{i * 3, i * 3 + 1}));
+            nouns.add(tag);
+        }
+        ExtentTag duplicate = new ExtentTag("N1", noun, "TEST_SAMPLE");
+        spans.addAll(duplicate.setSpans(new int[]{20, 21}));
+        nouns.add(duplicate);
+        try {
+            driver.bulkCreateAnnotations(nouns, spans, Collections.<LinkTag>emptyList(),
+                    Collections.<Attribute>emptyList(), Collections.<Argument>emptyList());
+            fail("Expected a duplicate id is rejected");
+        } catch (MaeDBException ignored) {
+        }
+        assertEquals("Expected no ids are registered by a failed load, found: " + driver.getNextId(noun),
+                "N0", driver.getNextId(noun));
+        assertEquals("Expected no tags are loaded, found: " + driver.getAllExtentTagsOfType(noun).size(),
+                0, driver.getAllExtentTagsOfType(noun).size());
+
+    }
+
+    @Test
+    public void canPageThroughTags() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            driver.createExtentTag("N" + i, noun, "n", i, i + 1);
+        }
+        driver.createExtentTag("N20", noun, null);
+        driver.createExtentTag("V0", verb, "v", 30, 31);
+        LinkTag link = driver.createLinkTag("S0", semanticRole);
+
+        PagedTags<ExtentTag> nouns = driver.getAllExtentTagsOfType(noun, 7);
+        List<String> tids = new ArrayList<>();
+        for (ExtentTag tag : nouns) {
+            tids.add(tag.getTid());
+        }
+        assertEquals("Expected nouns paged in insertion order, found: " + tids,
+                "N0", tids.get(0));
+        assertEquals("Expected nouns paged in insertion order, found: " + tids,
+                "N20", tids.get(20));
+        assertEquals("Expected 21 nouns paged, found: " + tids.size(),
+                21, tids.size());
+
+        int consuming = 0;
+        for (ExtentTag ignored : driver.getAllExtentTagsOfAllTypes(true, 5)) {
+            consuming++;
+        }
+        assertEquals("Expected 21 consuming tags of all types, found: " + consuming,
+                21, consuming);
+
+        // tags deleted after keys are fetched are skipped
+        PagedTags<ExtentTag> beforeDelete = driver.getAllExtentTagsOfType(noun, 7);
+        driver.deleteTag(driver.getTagByTid("N10"));
+        int remaining = 0;
+        for (ExtentTag ignored : beforeDelete) {
+            remaining++;
+        }
+        assertEquals("Expected a deleted tag is skipped while paging, found: " + remaining,
+                20, remaining);
+        PagedTags<LinkTag> links = driver.getAllLinkTagsOfType(semanticRole, 7);
+        assertEquals("Expected the link tag is paged, found: " + links.iterator().next().getTid(),
+                link.getTid(), links.iterator().next().getTid());
+
+    }
+
+    @Test
+    public void canReadWhileWriting() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            driver.createExtentTag("N" + i, noun, "n", i * 10, i * 10 + 1, i * 10 + 2);
+        }
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            Thread reader = new Thread(() -> {
+                try {
+                    while (writing.get()) {
+                        // tags created before reading began must always be visible
+                        int found = driver.getTagsBetween(0, 500).size();
+                        if (found < 50) {
+                            throw new AssertionError("Expected at least 50 tags while writing, found: " + found);
+                        }
+                        driver.getTagsOfTypeAt(noun, 10);
+                        driver.getAllAnchorLocationsOfTagType(noun);
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            });
+            readers.add(reader);
+            reader.start();
+        }
+        for (int i = 50; i < 100; i++) {
+            ExtentTag tag = driver.createExtentTag("N" + i, noun, "n", i * 10, i * 10 + 1);
+            driver.updateTagSpans(tag, new int[]{i * 10, i * 10 + 1, i * 10 + 2});
+            driver.addAttribute(tag, nounType, "thing");
+        }
+        writing.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertTrue("Expected no error from concurrent readers, found: " + errors, errors.isEmpty());
+        assertEquals("Expected 100 tags after writing, found: " + driver.getAllExtentTagsOfAllTypes(false).size(),
+                100, driver.getAllExtentTagsOfAllTypes(false).size());
+        assertEquals("Expected all tags are indexed after writing, found: " + driver.getTagsBetween(0, 1000).size(),
+                100, driver.getTagsBetween(0, 1000).size());
+
+    }
+
     @Test
     public void measureGetAttributesWithName() throws Exception {
         AttributeType properNoun1 = driver.createAttributeType(noun, "isProper1");        
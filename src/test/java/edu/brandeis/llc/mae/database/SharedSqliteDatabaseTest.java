@@ -0,0 +1,159 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.database;
+
+import edu.brandeis.llc.mae.MaeStrings;
+import edu.brandeis.llc.mae.io.MaeIODTDException;
+import edu.brandeis.llc.mae.model.ExtentTag;
+import edu.brandeis.llc.mae.model.TagType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.net.URL;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SharedSqliteDatabaseTest {
+
+    private SharedSqliteDatabase database;
+    private LocalSqliteDriverImpl first;
+    private LocalSqliteDriverImpl second;
+
+    @Before
+    public void setUp() throws Exception {
+        database = new SharedSqliteDatabase(MaeStrings.newTempTestDBFile());
+        URL sampleFileUrl = Thread.currentThread().getContextClassLoader().getResource("xml_samples/sampleTask.dtd");
+        File taskFile = new File(sampleFileUrl.getPath());
+        first = new LocalSqliteDriverImpl(database);
+        first.readTask(taskFile);
+        first.setAnnotationFileName("FIRST");
+        second = new LocalSqliteDriverImpl(database);
+        second.readTask(taskFile);
+        second.setAnnotationFileName("SECOND");
+
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (!database.isClosed()) {
+            first.destroy();
+            second.destroy();
+        }
+
+    }
+
+    @Test
+    public void canShareTaskDefinition() throws Exception {
+        assertEquals(
+                "Expected two documents are attached, found: " + database.getNumberOfDocuments(),
+                2, database.getNumberOfDocuments());
+        assertEquals(
+                "Expected the second document sees tag types read by the first",
+                first.getAllTagTypes().size(), second.getAllTagTypes().size());
+        assertEquals(
+                "Expected the task name is shared, found: " + second.getTaskName(),
+                first.getTaskName(), second.getTaskName());
+    }
+
+    @Test
+    public void canKeepTagsOfDocumentsApart() throws Exception {
+        TagType noun = first.getTagTypeByName("NOUN");
+        ExtentTag firstTag = first.createExtentTag("N0", noun, "jenny", 5,6,7,8,9);
+        ExtentTag secondTag = second.createExtentTag("N0", noun, "jen", 5,6,7);
+        second.createExtentTag("N1", noun, "smith", 20,21,22);
+
+        assertEquals(
+                "Expected the same tid can be used in different documents, found: " + first.getTagByTid("N0"),
+                "jenny", ((ExtentTag) first.getTagByTid("N0")).getText());
+        assertEquals(
+                "Expected 1 noun in the first document, found: " + first.getAllExtentTagsOfType(noun).size(),
+                1, first.getAllExtentTagsOfType(noun).size());
+        assertEquals(
+                "Expected 2 nouns in the second document, found: " + second.getAllExtentTagsOfAllTypes(false).size(),
+                2, second.getAllExtentTagsOfAllTypes(false).size());
+        assertEquals(
+                "Expected anchors of the first document only, found: " + first.getAllAnchorLocations(),
+                5, first.getAllAnchorLocations().size());
+
+        List<ExtentTag> crossDocTags = database.getTagsOfTypeIn(noun, new int[]{6, 21});
+        assertTrue(
+                "Expected tags from both documents are retrieved at once, found: " + crossDocTags,
+                crossDocTags.size() == 3 && crossDocTags.contains(firstTag) && crossDocTags.contains(secondTag));
+
+        first.destroy();
+        assertFalse(
+                "Expected the DB is kept open while a document is attached",
+                database.isClosed());
+        assertEquals(
+                "Expected tags of the remaining document are intact, found: " + database.getTagsIn(new int[]{6, 21}),
+                2, database.getTagsIn(new int[]{6, 21}).size());
+
+        second.destroy();
+        assertTrue(
+                "Expected the DB is closed after the last document is detached",
+                database.isClosed());
+    }
+
+    @Test
+    public void cannotReadDifferentTaskWhileShared() throws Exception {
+        TagType noun = first.getTagTypeByName("NOUN");
+        first.createExtentTag("N0", noun, "jenny", 5,6,7,8,9);
+        second.createExtentTag("N0", noun, "jen", 5,6,7);
+
+        URL otherTaskUrl = Thread.currentThread().getContextClassLoader().getResource("iaa_example/iaaSample.dtd");
+        try {
+            second.readTask(new File(otherTaskUrl.getPath()));
+            fail("Expected a different task is refused while other documents share the DB");
+        } catch (MaeIODTDException ignored) {
+        }
+        assertEquals(
+                "Expected tags of the first document are intact, found: " + first.getAllExtentTagsOfType(noun).size(),
+                1, first.getAllExtentTagsOfType(noun).size());
+        assertEquals(
+                "Expected tags of the second document are intact, found: " + second.getAllExtentTagsOfType(noun).size(),
+                1, second.getAllExtentTagsOfType(noun).size());
+    }
+
+    @Test
+    public void canQueryManyDisjointSpans() throws Exception {
+        TagType noun = first.getTagTypeByName("NOUN");
+        int pairCount = SharedSqliteDatabase.MAX_OR_CLAUSE_PAIRS * 15;
+        // every other character, so that no two locations merge into a pair
+        int[] locations = new int[pairCount];
+        for (int i = 0; i < pairCount; i++) {
+            locations[i] = i * 2;
+        }
+        first.createExtentTag("N0", noun, "long", 0, 1, 2, 3);
+        second.createExtentTag("N0", noun, "far", locations[pairCount - 1]);
+
+        List<ExtentTag> tags = database.getTagsOfTypeIn(noun, locations);
+        assertEquals(
+                "Expected tags are found over 1500 disjoint spans, found: " + tags,
+                2, tags.size());
+    }
+}
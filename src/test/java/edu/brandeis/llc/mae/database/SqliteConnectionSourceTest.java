@@ -0,0 +1,75 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.database;
+
+import com.j256.ormlite.jdbc.JdbcDatabaseConnection;
+import com.j256.ormlite.support.DatabaseConnection;
+import edu.brandeis.llc.mae.MaeStrings;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+import static org.junit.Assert.*;
+
+public class SqliteConnectionSourceTest {
+
+    private String filename;
+    private SqliteConnectionSource source;
+
+    @Before
+    public void setUp() throws Exception {
+        filename = MaeStrings.newTempTestDBFile();
+        source = new SqliteConnectionSource(LocalSqliteDriverImpl.JDBC_DRIVER + filename);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        source.close();
+        SqliteConnectionSource.deleteDatabaseFile(filename);
+    }
+
+    @Test
+    public void canSetBusyTimeoutOnEveryConnection() throws Exception {
+        DatabaseConnection first = source.getReadWriteConnection();
+        DatabaseConnection second = source.getReadWriteConnection();
+        try {
+            for (DatabaseConnection connection : new DatabaseConnection[]{first, second}) {
+                Connection internal = ((JdbcDatabaseConnection) connection).getInternalConnection();
+                try (Statement statement = internal.createStatement()) {
+                    // sqlite-jdbc 3.7.2 reports the connection-wide busy timeout in milliseconds
+                    assertEquals(
+                            "Expected busy timeout is set on a new connection, found: " + statement.getQueryTimeout(),
+                            SqliteConnectionSource.BUSY_TIMEOUT_MILLIS, statement.getQueryTimeout());
+                }
+            }
+        } finally {
+            source.releaseConnection(first);
+            source.releaseConnection(second);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.io;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ParsedAnnotationIndexTest {
+
+    private ParsedTag makeTag(String tid, int[] spans) {
+        ParsedTag tag = new ParsedTag();
+        tag.setTid(tid);
+        tag.setTagTypeName("NOUN");
+        tag.setSpans(spans);
+        return tag;
+    }
+
+    private ParsedAtt makeAtt(String tid, String name, String value) {
+        ParsedAtt att = new ParsedAtt();
+        att.setTid(tid);
+        att.setTagTypeName("NOUN");
+        att.setAttTypeName(name);
+        att.setAttValue(value);
+        return att;
+    }
+
+    @Test
+    public void canLookUpTagsAndAtts() throws Exception {
+        List<ParsedTag> tags = Arrays.asList(
+                makeTag("N0", new int[]{0, 1, 2}),
+                makeTag("N1", new int[]{5, 6}),
+                makeTag("N2", new int[]{0, 1, 2}),
+                makeTag("N3", new int[0]));
+        List<ParsedAtt> atts = Arrays.asList(
+                makeAtt("N0", "type", "person"),
+                makeAtt("N2", "type", "place"),
+                makeAtt("N0", "comment", "x"));
+        ParsedAnnotationIndex index = new ParsedAnnotationIndex(tags, atts);
+
+        Collection<ParsedTag> found = index.getTagsAt(new int[]{0, 1, 2});
+        assertEquals(
+                "Expected 2 tags at 0-3, found: " + found.size(),
+                2, found.size());
+        Iterator<ParsedTag> iter = found.iterator();
+        assertEquals("Expected N0 first, in file order", "N0", iter.next().getTid());
+        assertEquals("Expected N2 next, in file order", "N2", iter.next().getTid());
+        assertEquals(
+                "Expected a non-consuming tag, found: " + index.getTagsAt(new int[0]).size(),
+                1, index.getTagsAt(new int[0]).size());
+        assertEquals(
+                "Expected no tags at unmarked spans, found: " + index.getTagsAt(new int[]{7}).size(),
+                0, index.getTagsAt(new int[]{7}).size());
+
+        List<String> names = new ArrayList<>();
+        for (ParsedAtt att : index.getAttsOf("N0")) {
+            names.add(att.getAttTypeName());
+        }
+        assertEquals(
+                "Expected attributes of N0 in file order, found: " + names,
+                Arrays.asList("type", "comment"), names);
+        assertEquals(
+                "Expected no attributes of N1, found: " + index.getAttsOf("N1").size(),
+                0, index.getAttsOf("N1").size());
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.io;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PrimaryTextDigestTest {
+
+    private String makeText(int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append((char) ('a' + i % 26));
+        }
+        return text.toString();
+    }
+
+    @Test
+    public void canDigestTextInChunks() throws Exception {
+        String text = makeText(PrimaryTextDigest.BLOCK_SIZE * 3 + 17);
+        PrimaryTextDigest chunked = new PrimaryTextDigest();
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i += 100) {
+            chunked.update(chars, i, Math.min(100, chars.length - i));
+        }
+        PrimaryTextDigest whole = PrimaryTextDigest.of(text);
+        assertTrue("Expected digests of the same text to match", whole.matches(chunked));
+        assertEquals(
+                "Expected length of the text, found: " + chunked.getLength(),
+                text.length(), chunked.getLength());
+        assertEquals(
+                "Expected no mismatch, found: " + whole.getFirstMismatchOffset(chunked),
+                -1, whole.getFirstMismatchOffset(chunked));
+    }
+
+    @Test
+    public void canLocateMismatch() throws Exception {
+        String text = makeText(PrimaryTextDigest.BLOCK_SIZE * 3 + 17);
+        int changedAt = PrimaryTextDigest.BLOCK_SIZE * 2 + 5;
+        String changed = text.substring(0, changedAt) + "!" + text.substring(changedAt + 1);
+        PrimaryTextDigest digest = PrimaryTextDigest.of(text);
+        assertFalse("Expected digests of different texts not to match",
+                digest.matches(PrimaryTextDigest.of(changed)));
+        int mismatch = digest.getFirstMismatchOffset(PrimaryTextDigest.of(changed));
+        assertEquals(
+                "Expected mismatch in the third block, found: " + mismatch,
+                PrimaryTextDigest.BLOCK_SIZE * 2, mismatch);
+
+        String prefix = text.substring(0, PrimaryTextDigest.BLOCK_SIZE);
+        mismatch = digest.getFirstMismatchOffset(PrimaryTextDigest.of(prefix));
+        assertEquals(
+                "Expected mismatch at the end of a prefix, found: " + mismatch,
+                PrimaryTextDigest.BLOCK_SIZE, mismatch);
+    }
+}
@@ -36,9 +36,13 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Created by krim on 12/9/2015.
@@ -47,7 +51,7 @@ public class ExtentTagTest {
 
     protected ConnectionSource cs;
 
-    Dao<CharIndex, Integer> charIndexDao;
+    Dao<CharSpan, Integer> charSpanDao;
     Dao<ExtentTag, String> eTagDao;
     Dao<TagType, Integer> tagTypeDao;
     Dao<AttributeType, Integer> attTypeDao;
@@ -72,7 +76,7 @@ public class ExtentTagTest {
         tagTypeDao = DaoManager.createDao(source, TagType.class);
         attTypeDao = DaoManager.createDao(source, AttributeType.class);
         attDao = DaoManager.createDao(source, Attribute.class);
-        charIndexDao = DaoManager.createDao(source, CharIndex.class);
+        charSpanDao = DaoManager.createDao(source, CharSpan.class);
 
         lTagDao = DaoManager.createDao(source, LinkTag.class);
         argTypeDao = DaoManager.createDao(source, ArgumentType.class);
@@ -80,7 +84,7 @@ public class ExtentTagTest {
 
         dropAllTables(source);
 
-        TableUtils.createTable(source, CharIndex.class);
+        TableUtils.createTable(source, CharSpan.class);
         TableUtils.createTable(source, ExtentTag.class);
         TableUtils.createTable(source, TagType.class);
         TableUtils.createTable(source, AttributeType.class);
@@ -98,7 +102,7 @@ public class ExtentTagTest {
     }
 
     protected void dropAllTables(ConnectionSource source) throws Exception {
-        TableUtils.dropTable(source, CharIndex.class, true);
+        TableUtils.dropTable(source, CharSpan.class, true);
         TableUtils.dropTable(source, ExtentTag.class, true);
         TableUtils.dropTable(source, TagType.class, true);
         TableUtils.dropTable(source, AttributeType.class, true);
@@ -120,7 +124,7 @@ public class ExtentTagTest {
 
     protected ExtentTag createTag(String tid, TagType tagType, String text, int[] spans) throws Exception {
         ExtentTag tag = new ExtentTag(tid, tagType, "filename");
-        for (CharIndex ci: tag.setSpans(spans)) { charIndexDao.create(ci); }
+        for (CharSpan cs: tag.setSpans(spans)) { charSpanDao.create(cs); }
         tag.setText(text);
         eTagDao.create(tag);
         return tag;
@@ -130,7 +134,7 @@ public class ExtentTagTest {
     public void canSaveTag() throws Exception {
         ExtentTag tag = new ExtentTag("N01", noun, "filename");
         tag.setText("John");
-        for (CharIndex ci: tag.setSpans(1, 2, 3, 4)) { charIndexDao.create(ci); }
+        for (CharSpan cs: tag.setSpans(1, 2, 3, 4)) { charSpanDao.create(cs); }
         eTagDao.create(tag);
         assertEquals(
                 "Expected 1 tag in DB, found " + eTagDao.countOf(),
@@ -141,8 +145,12 @@ public class ExtentTagTest {
                 "Expected same text after retrieved, found " + retrievedTag.getText(),
                 "John", retrievedTag.getText());
         assertEquals(
-                "Expected 4 chars allocated, found " + retrievedTag.getSpans().size(),
-                4, retrievedTag.getSpans().size()
+                "Expected 4 chars allocated, found " + retrievedTag.getSpansAsArray().length,
+                4, retrievedTag.getSpansAsArray().length
+        );
+        assertEquals(
+                "Expected 1 contiguous span stored, found " + retrievedTag.getSpans().size(),
+                1, retrievedTag.getSpans().size()
         );
     }
 
@@ -152,7 +160,7 @@ public class ExtentTagTest {
         ArrayList<int[]> spans = new ArrayList<>();
         spans.add(span);
         ExtentTag nTag = new ExtentTag("N01", noun, "filename");
-        for (CharIndex ci: nTag.setSpans(spans)) { charIndexDao.create(ci); }
+        for (CharSpan cs: nTag.setSpans(spans)) { charSpanDao.create(cs); }
         nTag.setText("Crown");
         eTagDao.create(nTag);
 
@@ -185,7 +193,7 @@ public class ExtentTagTest {
                 = eTagDao.queryBuilder().where().
                 eq(DBSchema.TAB_TAG_FCOL_TT, verb.getName()).query().get(0);
         assertEquals(
-                "Expected 3 chars allocated to vTag set by List, found: " + retrievedVTag.getSpans().size(),
+                "Expected 3 chars allocated to vTag set by List, found: " + retrievedVTag.getSpansAsArray().length,
                 3, retrievedVTag.getSpansAsArray().length
         );
         assertEquals(
@@ -242,33 +250,80 @@ public class ExtentTagTest {
                 "3~7,10~15", retrievedTag.getSpansAsString());
     }
 
+    @Test
+    public void canCacheSpanPairs() throws Exception {
+        createTag("N02", noun,
+                "John ... Smith", new int[]{3,4,5,6,10,11,12,13,14});
+
+        ExtentTag retrievedTag = eTagDao.queryForAll().get(0);
+        int[] pairs = retrievedTag.getSpanPairs();
+        assertArrayEquals(
+                "Expected sorted start/end pairs, found: " + Arrays.toString(pairs),
+                new int[]{3,7,10,15}, pairs);
+        pairs[0] = 0;
+        assertEquals(
+                "Expected cached pairs not to be modified from outside, found: " + retrievedTag.getSpanStart(0),
+                3, retrievedTag.getSpanStart(0));
+        assertEquals(
+                "Expected 9 anchored characters, found: " + retrievedTag.getNumberOfAnchors(),
+                9, retrievedTag.getNumberOfAnchors());
+        assertTrue("Expected tag is anchored at 6", retrievedTag.isAnchoredAt(6));
+        assertFalse("Expected tag is not anchored at 7", retrievedTag.isAnchoredAt(7));
+
+        // refreshing from DB replaces the span collection, thus the cache
+        charSpanDao.delete(new ArrayList<>(retrievedTag.getSpans()));
+        for (CharSpan span : retrievedTag.setSpans(new int[]{20,21})) {
+            charSpanDao.create(span);
+        }
+        eTagDao.refresh(retrievedTag);
+        assertEquals(
+                "Expected spans string is rebuilt after refresh, found: " + retrievedTag.getSpansAsString(),
+                "20~22", retrievedTag.getSpansAsString());
+    }
+
+    @Test
+    public void canStoreDiscontinuousSpans() throws Exception {
+        createTag("N02", noun,
+                "John ... Smith", new int[]{3,4,5,6,10,11,12,13,14});
+
+        assertEquals(
+                "Expected one row per contiguous span, found: " + charSpanDao.countOf(),
+                2, charSpanDao.countOf());
+
+        ExtentTag retrievedTag = eTagDao.queryForAll().get(0);
+        assertArrayEquals(
+                "Expected spans are expanded back to offsets, found: " + Arrays.toString(retrievedTag.getSpansAsArray()),
+                new int[]{3,4,5,6,10,11,12,13,14}, retrievedTag.getSpansAsArray());
+    }
+
     @Test
     public void canQueryByLocation() throws Exception {
         createTag("N01", noun, "Crown", new int[]{0,1,2,3,4});
         createTag("V01", verb, "own", new int[]{2,3,4});
 
-        List<CharIndex> retrievedIndices
-                = charIndexDao.queryForEq(DBSchema.TAB_CI_COL_LOCATION, 3);
+        QueryBuilder<CharSpan, Integer> csQb = charSpanDao.queryBuilder();
+        csQb.where().le(DBSchema.TAB_CS_COL_START, 3).and().gt(DBSchema.TAB_CS_COL_END, 3);
+        List<CharSpan> retrievedSpans = csQb.query();
 
         assertEquals(
-                "Expected 2 tags at offset 3, found: " + retrievedIndices.size(),
-                2, retrievedIndices.size()
+                "Expected 2 tags at offset 3, found: " + retrievedSpans.size(),
+                2, retrievedSpans.size()
         );
 
-        QueryBuilder<CharIndex, Integer> ciQb = charIndexDao.queryBuilder();
-        ciQb.where().eq(DBSchema.TAB_CI_COL_LOCATION, 3);
+        csQb.reset();
+        csQb.where().le(DBSchema.TAB_CS_COL_START, 3).and().gt(DBSchema.TAB_CS_COL_END, 3);
         QueryBuilder<ExtentTag, String> tagQb = eTagDao.queryBuilder();
-        List<ExtentTag> retrievedTags = tagQb.join(ciQb).query();
+        List<ExtentTag> retrievedTags = tagQb.join(csQb).query();
 
         assertEquals(
                 "Expected 2 tags from querying 3, found: " + retrievedTags.size(),
                 2, retrievedTags.size()
         );
 
-        ciQb.reset();
+        csQb.reset();
         tagQb.reset();
-        ciQb.where().eq(DBSchema.TAB_CI_COL_LOCATION, 1);
-        retrievedTags = tagQb.join(ciQb).query();
+        csQb.where().le(DBSchema.TAB_CS_COL_START, 1).and().gt(DBSchema.TAB_CS_COL_END, 1);
+        retrievedTags = tagQb.join(csQb).query();
 
         assertEquals(
                 "Expected 1 tags from querying 1, found: " + retrievedTags.size(),
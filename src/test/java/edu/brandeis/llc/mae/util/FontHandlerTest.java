@@ -0,0 +1,67 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.util;
+
+import org.junit.Test;
+
+import javax.swing.text.StyleConstants;
+import javax.swing.text.StyledDocument;
+import java.awt.*;
+
+import static org.junit.Assert.*;
+
+public class FontHandlerTest {
+
+    @Test
+    public void canAppendTextInChunks() throws Exception {
+        String text = "Jenny loves Mary.\nJohn Smith loves Jenny.";
+        StyledDocument document = FontHandler.createSimpleStyledDocument(text.length());
+        FontHandler.appendSimpleStyledText(document, text, 0, 10, Font.MONOSPACED, 14, Color.BLACK);
+        FontHandler.appendSimpleStyledText(document, text, 10, 25, Font.MONOSPACED, 14, Color.BLACK);
+        FontHandler.appendSimpleStyledText(document, text, 25, text.length(), Font.MONOSPACED, 14, Color.BLACK);
+
+        assertEquals(
+                "Expected chunks are appended in order, found: " + document.getText(0, document.getLength()),
+                text, document.getText(0, document.getLength()));
+        for (int offset : new int[]{0, 12, text.length() - 1}) {
+            assertEquals(
+                    "Expected appended text is styled at " + offset,
+                    14, StyleConstants.getFontSize(document.getCharacterElement(offset).getAttributes()));
+        }
+    }
+
+    @Test
+    public void canCreateSameDocumentAtOnce() throws Exception {
+        String text = "Jenny loves Mary.";
+        StyledDocument document = FontHandler.stringToSimpleStyledDocument(text, Font.MONOSPACED, 12, Color.BLACK);
+        assertEquals(
+                "Expected the whole text in the document, found: " + document.getText(0, document.getLength()),
+                text, document.getText(0, document.getLength()));
+        assertEquals(
+                "Expected the text is in the given font, found: "
+                        + StyleConstants.getFontFamily(document.getCharacterElement(5).getAttributes()),
+                Font.MONOSPACED, StyleConstants.getFontFamily(document.getCharacterElement(5).getAttributes()));
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class IntervalSetTest {
+
+    private IntervalSet set;
+
+    @Before
+    public void setUp() throws Exception {
+        set = new IntervalSet();
+        set.add(0, 5);
+        set.add(10, 15);
+        set.add(20, 25);
+    }
+
+    @Test
+    public void canMergeIntervals() throws Exception {
+        set.add(5, 10);
+        assertEquals(
+                "Expected touching intervals are merged, found: " + set.size(),
+                2, set.size());
+        set.add(12, 22);
+        assertEquals(
+                "Expected overlapping intervals are merged, found: " + set.size(),
+                1, set.size());
+        assertTrue(
+                "Expected 24 is in the merged interval",
+                set.contains(24));
+        assertFalse(
+                "Expected end offsets are exclusive",
+                set.contains(25));
+    }
+
+    @Test
+    public void canFindGaps() throws Exception {
+        List<int[]> gaps = set.getGaps(3, 30);
+        assertEquals(
+                "Expected 3 gaps, found: " + SpanHandler.listOfArraysToString(gaps),
+                3, gaps.size());
+        assertArrayEquals(
+                "Expected the first gap starts after the first interval",
+                new int[]{5, 10}, gaps.get(0));
+        assertArrayEquals(
+                "Expected the last gap ends at the query end",
+                new int[]{25, 30}, gaps.get(2));
+        assertTrue(
+                "Expected a covered range has no gap",
+                set.covers(11, 14));
+        assertFalse(
+                "Expected a range over a gap is not covered",
+                set.covers(4, 11));
+    }
+}
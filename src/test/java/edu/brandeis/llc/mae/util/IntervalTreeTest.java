@@ -0,0 +1,107 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class IntervalTreeTest {
+
+    private IntervalTree<String> tree;
+
+    @Before
+    public void setUp() throws Exception {
+        tree = new IntervalTree<>();
+        tree.add(0, 5, "A");
+        tree.add(3, 8, "B");
+        tree.add(10, 12, "C");
+        tree.add(3, 8, "D");
+    }
+
+    @Test
+    public void canQueryPoint() throws Exception {
+        assertEquals(
+                "Expected A, B, D contain 4, found: " + tree.getValuesAt(4),
+                new HashSet<>(Arrays.asList("A", "B", "D")), new HashSet<>(tree.getValuesAt(4)));
+        assertTrue(
+                "Expected end offsets are exclusive, found: " + tree.getValuesAt(8),
+                tree.getValuesAt(8).isEmpty());
+        assertEquals(
+                "Expected only C contains 10, found: " + tree.getValuesAt(10),
+                Collections.singletonList("C"), tree.getValuesAt(10));
+    }
+
+    @Test
+    public void canQueryOverlap() throws Exception {
+        assertEquals(
+                "Expected B, C, D overlap with 7~11, found: " + tree.getValuesOverlapping(7, 11),
+                new HashSet<>(Arrays.asList("B", "C", "D")), new HashSet<>(tree.getValuesOverlapping(7, 11)));
+        assertTrue(
+                "Expected nothing overlaps with the gap 8~10",
+                tree.getValuesOverlapping(8, 10).isEmpty());
+    }
+
+    @Test
+    public void canRemoveIdenticalIntervals() throws Exception {
+        assertTrue(tree.remove(3, 8, "D"));
+        assertFalse(tree.remove(3, 8, "D"));
+        assertEquals(3, tree.size());
+        assertEquals(
+                "Expected B remains after D is removed, found: " + tree.getValuesAt(6),
+                Collections.singletonList("B"), tree.getValuesAt(6));
+    }
+
+    @Test
+    public void agreesWithLinearScan() throws Exception {
+        Random random = new Random(42);
+        IntervalTree<Integer> big = new IntervalTree<>();
+        List<int[]> intervals = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            int start = random.nextInt(10000);
+            int[] interval = new int[]{start, start + 1 + random.nextInt(50)};
+            intervals.add(interval);
+            big.add(interval[0], interval[1], i);
+        }
+        for (int i = 0; i < 2000; i += 3) {
+            big.remove(intervals.get(i)[0], intervals.get(i)[1], i);
+        }
+        for (int q = 0; q < 200; q++) {
+            int begin = random.nextInt(10000);
+            int end = begin + 1 + random.nextInt(100);
+            Set<Integer> expected = new HashSet<>();
+            for (int i = 0; i < intervals.size(); i++) {
+                if (i % 3 != 0 && intervals.get(i)[0] < end && begin < intervals.get(i)[1]) {
+                    expected.add(i);
+                }
+            }
+            assertEquals(expected, new HashSet<>(big.getValuesOverlapping(begin, end)));
+        }
+    }
+
+}
@@ -156,6 +156,14 @@ public class SpanHandlerTest {
                 SpanHandler.listOfArraysEquals(pairs, gold)
         );
 
+        array = new int[]{0,1,2,3,7,8,9,10,15};
+        pairs = SpanHandler.convertArrayToPairs(array);
+        gold.add(new int[]{15,16});
+        assertTrue(
+                "Should convert a multispan ending with a singleton, found: " + SpanHandler.listOfArraysToString(pairs),
+                SpanHandler.listOfArraysEquals(pairs, gold)
+        );
+
     }
 
 
@@ -214,6 +222,33 @@ public class SpanHandlerTest {
         );
     }
 
+    @Test
+    public void testConvertLocationsToPairs() throws Exception {
+        int[] locations = new int[]{7, 3, 4, 5, 9, 8, 5};
+        int[] pairs = SpanHandler.flattenPairs(SpanHandler.convertLocationsToPairs(locations));
+        assertArrayEquals(
+                "Should merge contiguous locations, found: " + Arrays.toString(pairs),
+                new int[]{3, 6, 7, 10}, pairs);
+        assertArrayEquals(
+                "Should leave given locations untouched, found: " + Arrays.toString(locations),
+                new int[]{7, 3, 4, 5, 9, 8, 5}, locations);
+        assertEquals(
+                "Should give no pairs from no locations",
+                0, SpanHandler.convertLocationsToPairs(new int[0]).size());
+    }
+
+    @Test
+    public void testMergeFlatPairs() throws Exception {
+        int[] merged = SpanHandler.mergeFlatPairs(new int[]{7, 9, 0, 3}, new int[]{2, 5, 9, 12, 20, 20});
+        assertArrayEquals(
+                "Should merge overlapping and adjacent pairs, found: " + Arrays.toString(merged),
+                new int[]{0, 5, 7, 12}, merged);
+        merged = SpanHandler.mergeFlatPairs(new int[]{MaeStrings.NC_START, MaeStrings.NC_END}, new int[]{4, 6});
+        assertArrayEquals(
+                "Should drop non-consuming pairs, as mergePairs() does, found: " + Arrays.toString(merged),
+                new int[]{4, 6}, merged);
+    }
+
     @Test
     public void measureMatchConvertArrayToString() throws Exception {
         int[] array = new int[]{11,12,13,18,19,20,31,32,33};
@@ -0,0 +1,118 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.view;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.swing.text.Element;
+import javax.swing.text.PlainDocument;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LineStartIndexTest {
+
+    private LineStartIndex lines;
+
+    @Before
+    public void setUp() throws Exception {
+        lines = new LineStartIndex();
+        lines.reset("Jenny\nloves\n\nMary");
+    }
+
+    @Test
+    public void canIndexLineStarts() throws Exception {
+        assertEquals(
+                "Expected 4 lines, found: " + lines.getLineCount(),
+                4, lines.getLineCount());
+        assertEquals(
+                "Expected the last line starts at 13, found: " + lines.getLineStart(3),
+                13, lines.getLineStart(3));
+        assertEquals(
+                "Expected offset 6 is on the second line, found: " + lines.getLineOf(6),
+                1, lines.getLineOf(6));
+        assertEquals(
+                "Expected offset 5, a newline, is on the first line, found: " + lines.getLineOf(5),
+                0, lines.getLineOf(5));
+    }
+
+    @Test
+    public void canUpdateOnInsertAndRemove() throws Exception {
+        lines.insert(6, "truly\n");
+        assertEquals(
+                "Expected a line is added, found: " + lines.getLineCount(),
+                5, lines.getLineCount());
+        assertEquals(
+                "Expected the inserted line keeps the start of the line it was put in, found: " + lines.getLineStart(1),
+                6, lines.getLineStart(1));
+        assertEquals(
+                "Expected the following line is pushed back, found: " + lines.getLineStart(2),
+                12, lines.getLineStart(2));
+
+        lines.remove(5, 7);
+        assertEquals(
+                "Expected two lines are removed, found: " + lines.getLineCount(),
+                3, lines.getLineCount());
+        assertEquals(
+                "Expected the last line is pulled forward, found: " + lines.getLineStart(2),
+                12, lines.getLineStart(2));
+    }
+
+    @Test
+    public void canKeepInSyncWithDocument() throws Exception {
+        PlainDocument document = new PlainDocument();
+        LineStartIndex synced = new LineStartIndex();
+        Random random = new Random(42);
+        String[] pieces = {"a", "\n", "bc\nd", "\n\n", "efg"};
+        for (int i = 0; i < 500; i++) {
+            if (document.getLength() > 0 && random.nextInt(3) == 0) {
+                int offset = random.nextInt(document.getLength());
+                int length = 1 + random.nextInt(Math.min(5, document.getLength() - offset));
+                document.remove(offset, length);
+                synced.remove(offset, length);
+            } else {
+                int offset = random.nextInt(document.getLength() + 1);
+                String piece = pieces[random.nextInt(pieces.length)];
+                document.insertString(offset, piece, null);
+                synced.insert(offset, piece);
+            }
+        }
+        Element root = document.getDefaultRootElement();
+        assertEquals(
+                "Expected as many lines as the document has, found: " + synced.getLineCount(),
+                root.getElementCount(), synced.getLineCount());
+        for (int line = 0; line < root.getElementCount(); line++) {
+            assertEquals(
+                    "Expected line starts same as the document's at line " + line,
+                    root.getElement(line).getStartOffset(), synced.getLineStart(line));
+        }
+        LineStartIndex fresh = new LineStartIndex();
+        fresh.reset(document);
+        assertEquals(
+                "Expected reading the document gives the same lines, found: " + fresh.getLineCount(),
+                synced.getLineCount(), fresh.getLineCount());
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * MAE - Multi-purpose Annotation Environment
+ *
+ * Copyright Keigh Rim (krim@brandeis.edu)
+ * Department of Computer Science, Brandeis University
+ * Original program by Amber Stubbs (astubbs@cs.brandeis.edu)
+ *
+ * MAE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, @see <a href="http://www.gnu.org/licenses">http://www.gnu.org/licenses</a>.
+ *
+ * For feedback, reporting bugs, use the project on Github
+ * @see <a href="https://github.com/keighrim/mae-annotation">https://github.com/keighrim/mae-annotation</a>.
+ */
+
+package edu.brandeis.llc.mae.view;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class SpanHighlightLayerTest {
+
+    private JTextPane pane;
+    private SpanHighlightLayer layer;
+
+    @Before
+    public void setUp() throws Exception {
+        pane = new JTextPane();
+        pane.setText("Jenny loves Mary and John Smith.");
+        layer = new SpanHighlightLayer(pane);
+    }
+
+    @Test
+    public void canUseSingleHighlightEntry() throws Exception {
+        int[] longTag = new int[20];
+        for (int i = 0; i < longTag.length; i++) {
+            longTag[i] = i + 5;
+        }
+        layer.add(longTag, Color.RED);
+        layer.add(new int[]{0, 1, 2}, Color.BLUE);
+        assertEquals(
+                "Expected one highlight for all locations, found: " + pane.getHighlighter().getHighlights().length,
+                1, pane.getHighlighter().getHighlights().length);
+
+        layer.replace(Arrays.asList(new int[]{1}, new int[0]), Arrays.asList(Color.RED, Color.BLUE));
+        assertFalse(
+                "Expected a non-empty replacement is kept",
+                layer.isEmpty());
+        assertEquals(
+                "Expected replacing does not add another highlight",
+                1, pane.getHighlighter().getHighlights().length);
+
+        pane.getHighlighter().removeAllHighlights();
+        layer.add(new int[]{3}, Color.RED);
+        assertEquals(
+                "Expected the highlight is registered again once removed",
+                1, pane.getHighlighter().getHighlights().length);
+
+        layer.clear();
+        assertTrue(
+                "Expected nothing is left after clearing",
+                layer.isEmpty());
+    }
+
+    @Test
+    public void canCoverStreamedText() throws Exception {
+        int length = pane.getDocument().getLength();
+        // a selection beyond the text of a document still being streamed in
+        layer.add(new int[]{length + 2, length + 3}, Color.RED);
+        assertEquals(
+                "Expected the highlight covers the text so far, found: " + pane.getHighlighter().getHighlights()[0].getEndOffset(),
+                length, pane.getHighlighter().getHighlights()[0].getEndOffset());
+
+        pane.getDocument().insertString(length, " They met in Paris.", null);
+        layer.refresh();
+        assertEquals(
+                "Expected one highlight after refreshing, found: " + pane.getHighlighter().getHighlights().length,
+                1, pane.getHighlighter().getHighlights().length);
+        assertEquals(
+                "Expected the highlight covers the appended text, found: " + pane.getHighlighter().getHighlights()[0].getEndOffset(),
+                pane.getDocument().getLength(), pane.getHighlighter().getHighlights()[0].getEndOffset());
+    }
+}